@@ -13,6 +13,7 @@ dependencies {
     implementation("zone.cogni.asquare:access:0.7.0")
     implementation("zone.cogni.semanticz:semanticz-rdf2jsonld:1.0.0")
     testImplementation("org.junit.jupiter:junit-jupiter:5.9.2")
+    testImplementation("org.elasticsearch.client:elasticsearch-rest-client:7.17.24")
     testImplementation("org.mockito:mockito-junit-jupiter:4.11.0")
     testImplementation("org.mockito:mockito-core:4.11.0")
     testImplementation("org.mockito:mockito-junit-jupiter:4.11.0")
@@ -20,4 +21,8 @@ dependencies {
 
 tasks.test {
     useJUnitPlatform()
+    // Forward the throughput harness settings, e.g. -Dharness.datasets=100000
+    System.getProperties().stringPropertyNames()
+        .filter { it.startsWith("harness.") }
+        .forEach { systemProperty(it, System.getProperty(it)) }
 }
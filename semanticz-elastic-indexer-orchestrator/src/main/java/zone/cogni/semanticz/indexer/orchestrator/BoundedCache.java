@@ -0,0 +1,89 @@
+package zone.cogni.semanticz.indexer.orchestrator;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiPredicate;
+
+/**
+ * Small thread-safe LRU cache with an upper bound on the number of entries and optional per-entry expiry.
+ * Once the maximum size is reached, the least recently accessed entry is evicted.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+class BoundedCache<K, V> {
+
+    private final int maxSize;
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    BoundedCache(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Cache size must be at least 1, got " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > BoundedCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached value for the given key, or null when absent or expired.
+     */
+    synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) return null;
+        if (entry.isExpired(System.nanoTime())) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.value;
+    }
+
+    /**
+     * Stores a value. A null ttl means the entry only leaves the cache through eviction or explicit removal.
+     */
+    synchronized void put(K key, V value, Duration ttl) {
+        long expiresAt = ttl == null ? Long.MAX_VALUE : System.nanoTime() + ttl.toNanos();
+        entries.put(key, new Entry<>(value, expiresAt));
+    }
+
+    /**
+     * Removes all entries for which the predicate holds.
+     */
+    synchronized void removeIf(BiPredicate<K, V> predicate) {
+        Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<K, Entry<V>> next = iterator.next();
+            if (predicate.test(next.getKey(), next.getValue().value)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    synchronized void clear() {
+        entries.clear();
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+
+        private Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return expiresAt != Long.MAX_VALUE && now - expiresAt >= 0;
+        }
+    }
+}
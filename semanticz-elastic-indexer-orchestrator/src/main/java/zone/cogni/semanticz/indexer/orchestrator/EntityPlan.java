@@ -0,0 +1,95 @@
+package zone.cogni.semanticz.indexer.orchestrator;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.riot.RDFWriterBuilder;
+import zone.cogni.semanticz.jsonldshaper.Rdf2JsonLd;
+import zone.cogni.semanticz.webflux.TemplateUtils;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable execution plan compiled once from an {@link IndexOrchestratorConfig.EntityConfig}.
+ * Templates are loaded, the JSON-LD writer is prepared and facets are classified up front,
+ * so indexing a document only renders templates, runs queries and fills JSON nodes.
+ */
+public final class EntityPlan {
+
+    private final IndexOrchestratorConfig.EntityConfig config;
+    private final String constructTemplate;
+    private final String dependentsTemplate;
+    private final RDFWriterBuilder jsonLdWriter;
+    private final List<FacetPlan> facets;
+    private final List<SharedResourcePlan> sharedResources;
+
+    private EntityPlan(IndexOrchestratorConfig.EntityConfig config,
+                       String constructTemplate,
+                       String dependentsTemplate,
+                       RDFWriterBuilder jsonLdWriter,
+                       List<FacetPlan> facets,
+                       List<SharedResourcePlan> sharedResources) {
+        this.config = config;
+        this.constructTemplate = constructTemplate;
+        this.dependentsTemplate = dependentsTemplate;
+        this.jsonLdWriter = jsonLdWriter;
+        this.facets = facets;
+        this.sharedResources = sharedResources;
+    }
+
+    /**
+     * Compiles the plan for an entity configuration.
+     *
+     * @param config     the indexing configuration
+     * @param shaclModel the SHACL model used for shaping the RDF data into JSON-LD
+     * @param extFolder  the external folder searched before the classpath for templates
+     * @return the compiled plan
+     */
+    public static EntityPlan compile(IndexOrchestratorConfig.EntityConfig config, Model shaclModel, String extFolder) {
+        List<FacetPlan> facets = config.getFacets() == null
+                ? List.of()
+                : config.getFacets().stream()
+                        .map(facet -> FacetPlan.compile(facet, extFolder))
+                        .collect(Collectors.toUnmodifiableList());
+        List<SharedResourcePlan> sharedResources = config.getSharedResources() == null
+                ? List.of()
+                : config.getSharedResources().stream()
+                        .map(sharedResource -> SharedResourcePlan.compile(sharedResource, extFolder))
+                        .collect(Collectors.toUnmodifiableList());
+        return new EntityPlan(config,
+                TemplateUtils.loadResource(config.getConstruct(), extFolder),
+                config.getDependents() == null ? null : TemplateUtils.loadResource(config.getDependents(), extFolder),
+                Rdf2JsonLd.calculateJsonldWriter(shaclModel),
+                facets,
+                sharedResources);
+    }
+
+    public IndexOrchestratorConfig.EntityConfig getConfig() {
+        return config;
+    }
+
+    public String getConstructTemplate() {
+        return constructTemplate;
+    }
+
+    /**
+     * @return the template of the reverse lookup from a changed resource to the documents embedding it, or null
+     */
+    public String getDependentsTemplate() {
+        return dependentsTemplate;
+    }
+
+    public RDFWriterBuilder getJsonLdWriter() {
+        return jsonLdWriter;
+    }
+
+    public List<FacetPlan> getFacets() {
+        return facets;
+    }
+
+    /**
+     * @return the shared resources merged into the constructed model, in configuration order
+     */
+    public List<SharedResourcePlan> getSharedResources() {
+        return sharedResources;
+    }
+}
@@ -0,0 +1,131 @@
+package zone.cogni.semanticz.indexer.orchestrator;
+
+import zone.cogni.semanticz.webflux.TemplateUtils;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Precompiled form of a {@link IndexOrchestratorConfig.FacetConfig}.
+ * The facet kind is derived from the body extension once, the body template is loaded once and the
+ * Elasticsearch path is split around the document id placeholder.
+ */
+public final class FacetPlan {
+
+    /**
+     * How the result of a facet is computed.
+     */
+    public enum Kind {
+        /**
+         * The body is a SPARQL select template; result variables become (nested) facet fields.
+         */
+        SPARQL,
+        /**
+         * The facet calls Elasticsearch, optionally with a JSON body template.
+         */
+        ELASTICSEARCH,
+        /**
+         * The rendered body template is the facet value.
+         */
+        TEXT
+    }
+
+    private static final String DOCUMENT_ID = "<DOCUMENT_ID>";
+    private static final Pattern DOCUMENT_ID_PATTERN = Pattern.compile(Pattern.quote(DOCUMENT_ID));
+
+    private final IndexOrchestratorConfig.FacetConfig config;
+    private final Kind kind;
+    private final String template;
+    private final String[] pathSegments;
+    private final Map<List<String>, FacetVariableTrie> variableTries = new ConcurrentHashMap<>();
+
+    private FacetPlan(IndexOrchestratorConfig.FacetConfig config, Kind kind, String template, String[] pathSegments) {
+        this.config = config;
+        this.kind = kind;
+        this.template = template;
+        this.pathSegments = pathSegments;
+    }
+
+    static FacetPlan compile(IndexOrchestratorConfig.FacetConfig config, String extFolder) {
+        String body = config.getBody();
+        boolean isTemplate = body != null && body.endsWith(".thymeleaf");
+
+        Kind kind;
+        if (isTemplate && body.endsWith(".sparql.thymeleaf")) {
+            kind = Kind.SPARQL;
+        } else if (isTemplate && !body.endsWith(".json.thymeleaf")) {
+            kind = Kind.TEXT;
+        } else {
+            kind = Kind.ELASTICSEARCH;
+        }
+
+        String template = isTemplate ? TemplateUtils.loadResource(body, extFolder) : null;
+        String[] pathSegments = kind == Kind.ELASTICSEARCH && config.getPath() != null
+                ? DOCUMENT_ID_PATTERN.split(config.getPath(), -1)
+                : null;
+        return new FacetPlan(config, kind, template, pathSegments);
+    }
+
+    public IndexOrchestratorConfig.FacetConfig getConfig() {
+        return config;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return the name of the facet, or its body for unnamed facets, as facets are selected in
+     * {@link IndexOrchestrator#refreshFacets(String, java.util.Collection)}
+     */
+    public String getKey() {
+        return config.getName() != null ? config.getName() : config.getBody();
+    }
+
+    /**
+     * @return the body template, or null when the facet has no template body
+     */
+    public String getTemplate() {
+        return template;
+    }
+
+    /**
+     * Resolves the Elasticsearch path of the facet for the given entity.
+     *
+     * @param uri the URI of the entity being indexed
+     * @return the path with the URL-encoded URI in place of the document id placeholder, or null for non Elasticsearch facets
+     */
+    public String resolvePath(String uri) {
+        if (pathSegments == null) return null;
+        if (pathSegments.length == 1) return pathSegments[0];
+
+        String documentId = URLEncoder.encode(uri, StandardCharsets.UTF_8);
+        StringBuilder path = new StringBuilder(pathSegments[0]);
+        for (int i = 1; i < pathSegments.length; i++) {
+            path.append(documentId).append(pathSegments[i]);
+        }
+        return path.toString();
+    }
+
+    /**
+     * Returns the variable trie for the given result variables, built on first use.
+     * A facet template normally always projects the same variables, so this is computed once per facet.
+     */
+    FacetVariableTrie variableTrie(List<String> variables) {
+        FacetVariableTrie trie = variableTries.get(variables);
+        if (trie != null) return trie;
+        return variableTries.computeIfAbsent(List.copyOf(variables), FacetVariableTrie::compile);
+    }
+
+    @Override
+    public String toString() {
+        return "FacetPlan{" +
+                "kind=" + kind +
+                ", config=" + config +
+                '}';
+    }
+}
@@ -0,0 +1,177 @@
+package zone.cogni.semanticz.indexer.orchestrator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches the results of facets that evaluate to the same value for every indexed entity.
+ * <p>
+ * A facet is cached when it is declared with {@code scope: run} or a {@code ttl}, or when its rendered request
+ * turns out to be identical for two different entity URIs. Run-scoped entries live until the current indexing run
+ * ends, TTL entries until they expire. The cache is bounded and evicts the least recently used entries first.
+ */
+class FacetResultCache {
+
+    private final BoundedCache<Key, CachedResult> cache;
+    private final Map<IndexOrchestratorConfig.FacetConfig, Detection> detections = new ConcurrentHashMap<>();
+    private int activeRuns;
+
+    FacetResultCache(int maxSize) {
+        this.cache = new BoundedCache<>(maxSize);
+    }
+
+    /**
+     * Marks the start of an indexing run. Run-scoped results are only cached while a run is active.
+     */
+    synchronized void beginRun() {
+        activeRuns++;
+    }
+
+    /**
+     * Marks the end of an indexing run and drops run-scoped results once no run is active anymore.
+     */
+    synchronized void endRun() {
+        activeRuns = Math.max(0, activeRuns - 1);
+        if (activeRuns == 0) {
+            cache.removeIf((key, result) -> result.runScoped);
+            detections.clear();
+        }
+    }
+
+    private synchronized boolean isRunActive() {
+        return activeRuns > 0;
+    }
+
+    /**
+     * Returns the cache key of a facet explicitly declared as entity independent, or null when the facet
+     * is not declared as such or cannot be cached right now.
+     *
+     * @param facet        the facet configuration
+     * @param resolvedPath the Elasticsearch path with the document id filled in, if any
+     */
+    Key declaredKey(IndexOrchestratorConfig.FacetConfig facet, String resolvedPath) {
+        if (facet.getTtl() != null) return new Key(facet, resolvedPath);
+        if (facet.getScope() == IndexOrchestratorConfig.FacetScope.RUN && isRunActive()) return new Key(facet, resolvedPath);
+        return null;
+    }
+
+    /**
+     * Returns the cache key of a facet whose rendered request was detected to be independent of the entity URI,
+     * or null when the facet is (or may be) entity dependent.
+     *
+     * @param facet   the facet configuration
+     * @param uri     the URI of the entity being indexed
+     * @param request the fully rendered request of the facet (query and path)
+     */
+    Key detectedKey(IndexOrchestratorConfig.FacetConfig facet, String uri, String request) {
+        if (facet.getScope() != null || !isRunActive()) return null;
+
+        Detection detection = detections.computeIfAbsent(facet, f -> new Detection(uri, request));
+        return detection.isIndependent(uri, request) ? new Key(facet, request) : null;
+    }
+
+    /**
+     * Merges the cached result for the given key into the facets object.
+     *
+     * @return true if a cached result was found
+     */
+    boolean mergeInto(Key key, ObjectNode facets) {
+        CachedResult result = cache.get(key);
+        if (result == null) return false;
+
+        merge(facets, result.value, true);
+        return true;
+    }
+
+    /**
+     * Stores a facet result. Empty results are not cached, as a failed facet call leaves its result empty.
+     */
+    void put(Key key, ObjectNode result) {
+        if (result.size() == 0) return;
+
+        IndexOrchestratorConfig.FacetConfig facet = key.facet;
+        boolean runScoped = facet.getTtl() == null;
+        cache.put(key, new CachedResult(result.deepCopy(), runScoped), facet.getTtl());
+    }
+
+    /**
+     * Deep merges the source object into the target object. Nested objects are merged, other values are replaced.
+     *
+     * @param copy whether to copy the source nodes, required when the source is shared with the cache
+     */
+    static void merge(ObjectNode target, ObjectNode source, boolean copy) {
+        Iterator<Map.Entry<String, JsonNode>> fields = source.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            JsonNode existing = target.get(field.getKey());
+            if (existing != null && existing.isObject() && field.getValue().isObject()) {
+                merge((ObjectNode) existing, (ObjectNode) field.getValue(), copy);
+            } else {
+                target.set(field.getKey(), copy ? field.getValue().deepCopy() : field.getValue());
+            }
+        }
+    }
+
+    static final class Key {
+        private final IndexOrchestratorConfig.FacetConfig facet;
+        private final String request;
+
+        private Key(IndexOrchestratorConfig.FacetConfig facet, String request) {
+            this.facet = facet;
+            this.request = request;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return facet == key.facet && Objects.equals(request, key.request);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(facet) + Objects.hashCode(request);
+        }
+    }
+
+    private static final class CachedResult {
+        private final ObjectNode value;
+        private final boolean runScoped;
+
+        private CachedResult(ObjectNode value, boolean runScoped) {
+            this.value = value;
+            this.runScoped = runScoped;
+        }
+    }
+
+    /**
+     * Compares the request rendered for the first entity with the one rendered for the next distinct entity.
+     * Identical requests mean the facet does not depend on the URI; a difference disables caching for the facet.
+     */
+    private static final class Detection {
+        private final String firstUri;
+        private final String firstRequest;
+        private volatile Boolean independent;
+
+        private Detection(String firstUri, String firstRequest) {
+            this.firstUri = firstUri;
+            this.firstRequest = firstRequest;
+        }
+
+        private boolean isIndependent(String uri, String request) {
+            Boolean result = independent;
+            if (result == null) {
+                if (firstUri.equals(uri)) return false;
+                result = firstRequest.equals(request);
+                independent = result;
+            }
+            return result && firstRequest.equals(request);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package zone.cogni.semanticz.indexer.orchestrator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.rdf.model.RDFNode;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Maps the variables of a SPARQL facet result onto the nested JSON structure of the facets object.
+ * <p>
+ * Underscores in a variable name denote nesting, e.g. {@code ?title_en} becomes {@code title.en}. When the first
+ * segment of the variable is plural (ends with "s") the value is an array of distinct values, otherwise the first
+ * bound value. The trie is built once per variable list, so filling a result only walks prebuilt nodes.
+ */
+final class FacetVariableTrie {
+
+    private final Node root = Node.branch(null);
+    private final List<Node> leaves = new ArrayList<>();
+    private String[] variables;
+    private boolean[] plural;
+
+    private FacetVariableTrie() {
+    }
+
+    static FacetVariableTrie compile(List<String> variables) {
+        FacetVariableTrie trie = new FacetVariableTrie();
+        for (String variable : variables) {
+            trie.add(variable);
+        }
+        trie.variables = new String[trie.leaves.size()];
+        trie.plural = new boolean[trie.leaves.size()];
+        for (int i = 0; i < trie.leaves.size(); i++) {
+            trie.variables[i] = trie.leaves.get(i).variable;
+            trie.plural[i] = trie.leaves.get(i).plural;
+        }
+        return trie;
+    }
+
+    private void add(String variable) {
+        String[] parts = variable.split("_");
+        if (parts.length == 0) {
+            throw new IllegalStateException("Unsupported facet variable name '" + variable + "'.");
+        }
+
+        Node parent = root;
+        for (int i = 0; i < parts.length - 1; i++) {
+            parent = parent.branchFor(parts[i]);
+        }
+        // when first word of var is plural then it is always array, single is always value
+        Node leaf = Node.leaf(parts[parts.length - 1], variable, parts[0].endsWith("s"), leaves.size());
+        parent.children.add(leaf);
+        leaves.add(leaf);
+    }
+
+    /**
+     * Consumes the result set row by row and writes its values into the target object,
+     * reusing nested objects already present.
+     */
+    void fill(ObjectNode target, ResultSet resultSet) {
+        int size = variables.length;
+        String[] singles = new String[size];
+        @SuppressWarnings("unchecked")
+        Set<String>[] distinct = new Set[size];
+
+        while (resultSet.hasNext()) {
+            QuerySolution solution = resultSet.next();
+            for (int i = 0; i < size; i++) {
+                if (!plural[i] && singles[i] != null) continue;
+
+                RDFNode node = solution.get(variables[i]);
+                if (node == null) continue;
+
+                String value = toValue(node);
+                if (plural[i]) {
+                    if (distinct[i] == null) distinct[i] = new HashSet<>();
+                    distinct[i].add(value);
+                } else {
+                    singles[i] = value;
+                }
+            }
+        }
+
+        write(target, root, distinct, singles);
+    }
+
+    /**
+     * Same value as the result set mapping used before: the lexical form of literals and the URI of resources.
+     */
+    static String toValue(RDFNode node) {
+        if (node.isLiteral()) return node.asLiteral().getLexicalForm();
+        if (node.isURIResource()) return node.asResource().getURI();
+        return node.asResource().getId().getLabelString();
+    }
+
+    /**
+     * Writes arrays in the iteration order of their hash set, the order facets had when values were collected into
+     * a set of text nodes, which hash like their text.
+     */
+    private static void write(ObjectNode target, Node branch, Set<String>[] distinct, String[] singles) {
+        for (Node child : branch.children) {
+            if (child.variable == null) {
+                write(objectField(target, child.name), child, distinct, singles);
+            } else if (child.plural) {
+                ArrayNode array = target.putArray(child.name);
+                if (distinct[child.index] != null) distinct[child.index].forEach(array::add);
+            } else {
+                target.put(child.name, singles[child.index]);
+            }
+        }
+    }
+
+    private static ObjectNode objectField(ObjectNode parent, String name) {
+        JsonNode existing = parent.get(name);
+        if (existing != null && existing.isObject()) return (ObjectNode) existing;
+
+        ObjectNode child = JsonNodeFactory.instance.objectNode();
+        parent.set(name, child);
+        return child;
+    }
+
+    private static final class Node {
+        private final String name;
+        private final String variable;
+        private final boolean plural;
+        private final int index;
+        private final List<Node> children;
+
+        private Node(String name, String variable, boolean plural, int index, List<Node> children) {
+            this.name = name;
+            this.variable = variable;
+            this.plural = plural;
+            this.index = index;
+            this.children = children;
+        }
+
+        private static Node branch(String name) {
+            return new Node(name, null, false, -1, new ArrayList<>());
+        }
+
+        private static Node leaf(String name, String variable, boolean plural, int index) {
+            return new Node(name, variable, plural, index, List.of());
+        }
+
+        /**
+         * Returns the branch to nest the next variable segment in. A later field with the same name replaces an
+         * earlier one, so only the most recent entry is reused and only when it is an object.
+         */
+        private Node branchFor(String name) {
+            for (int i = children.size() - 1; i >= 0; i--) {
+                Node child = children.get(i);
+                if (child.name.equals(name)) {
+                    if (child.variable == null) return child;
+                    break;
+                }
+            }
+            Node branch = branch(name);
+            children.add(branch);
+            return branch;
+        }
+    }
+}
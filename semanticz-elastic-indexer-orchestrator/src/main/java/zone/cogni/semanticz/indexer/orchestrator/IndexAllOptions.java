@@ -0,0 +1,149 @@
+package zone.cogni.semanticz.indexer.orchestrator;
+
+import zone.cogni.semanticz.indexer.bulk.DocumentSink;
+
+/**
+ * Options of a full indexing run, see {@link IndexOrchestrator#indexAll(IndexAllOptions)}.
+ */
+public class IndexAllOptions {
+
+    private boolean reset;
+    private boolean removeStale;
+    private DocumentSink sink;
+    private IndexPartition partition = IndexPartition.ALL;
+    private boolean partitionInQuery;
+    private String leaseIndex;
+    private String runId;
+    private String owner;
+    private boolean dryRun;
+    private double sampleRate = 1;
+
+    /**
+     * @return whether each index is cleared before indexing; not supported for partitioned runs
+     */
+    public boolean isReset() {
+        return reset;
+    }
+
+    public void setReset(boolean reset) {
+        this.reset = reset;
+    }
+
+    /**
+     * @return whether documents that were not selected by this run are deleted from the indices afterwards,
+     * restricted to the documents of the partition for partitioned runs
+     */
+    public boolean isRemoveStale() {
+        return removeStale;
+    }
+
+    public void setRemoveStale(boolean removeStale) {
+        this.removeStale = removeStale;
+    }
+
+    /**
+     * @return the sink receiving the documents, or null to let the orchestrator choose
+     */
+    public DocumentSink getSink() {
+        return sink;
+    }
+
+    public void setSink(DocumentSink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * @return the slice of the documents this instance indexes
+     */
+    public IndexPartition getPartition() {
+        return partition;
+    }
+
+    public void setPartition(IndexPartition partition) {
+        this.partition = partition;
+    }
+
+    /**
+     * @return true when the select templates restrict the URIs to the partition themselves, using the
+     * {@code partition} template parameter; the selected URIs are then not filtered again
+     */
+    public boolean isPartitionInQuery() {
+        return partitionInQuery;
+    }
+
+    public void setPartitionInQuery(boolean partitionInQuery) {
+        this.partitionInQuery = partitionInQuery;
+    }
+
+    /**
+     * @return the Elasticsearch index holding the partition leases, or null to run without leases
+     */
+    public String getLeaseIndex() {
+        return leaseIndex;
+    }
+
+    public void setLeaseIndex(String leaseIndex) {
+        this.leaseIndex = leaseIndex;
+    }
+
+    /**
+     * @return the identifier shared by all partitions of one run, required when a lease index is set
+     */
+    public String getRunId() {
+        return runId;
+    }
+
+    public void setRunId(String runId) {
+        this.runId = runId;
+    }
+
+    /**
+     * @return the name of this instance recorded in its lease, defaults to a random identifier
+     */
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * @return whether documents are only built and profiled, without writing anything to Elasticsearch;
+     * reset, stale removal, leases and the sink are then ignored
+     */
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    public void setDryRun(boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+
+    /**
+     * @return the fraction, between 0 and 1, of the selected URIs a dry run builds documents for; the sample is
+     * chosen by URI hash, so repeated runs profile the same documents
+     */
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    public String toString() {
+        return "IndexAllOptions{" +
+                "reset=" + reset +
+                ", removeStale=" + removeStale +
+                ", partition=" + partition +
+                ", partitionInQuery=" + partitionInQuery +
+                ", leaseIndex='" + leaseIndex + '\'' +
+                ", runId='" + runId + '\'' +
+                ", owner='" + owner + '\'' +
+                ", dryRun=" + dryRun +
+                ", sampleRate=" + sampleRate +
+                '}';
+    }
+}
@@ -1,30 +1,53 @@
 package zone.cogni.semanticz.indexer.orchestrator;
 
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import com.fasterxml.jackson.databind.node.TextNode;
 import org.apache.jena.rdf.model.Model;
-import org.apache.jena.riot.RDFWriterBuilder;
+import org.apache.jena.rdf.model.RDFNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
 import org.thymeleaf.TemplateEngine;
-import zone.cogni.asquare.rdf.ResultSetMapper;
 import zone.cogni.asquare.triplestore.RdfStoreService;
-import zone.cogni.sem.jena.model.ResultSetDto;
+import zone.cogni.semanticz.indexer.bulk.BulkDocumentSink;
+import zone.cogni.semanticz.indexer.bulk.ByteBudget;
+import zone.cogni.semanticz.indexer.bulk.DocumentSink;
+import zone.cogni.semanticz.indexer.bulk.FanOutDocumentSink;
+import zone.cogni.semanticz.indexer.bulk.NdjsonSegmentLoader;
+import zone.cogni.semanticz.indexer.bulk.NdjsonSegmentSink;
+import zone.cogni.semanticz.indexer.bulk.RawJsonDocument;
+import zone.cogni.semanticz.indexer.utils.CompactUriSet;
 import zone.cogni.semanticz.indexer.utils.ElasticsearchClientUtils;
 import zone.cogni.semanticz.indexer.utils.IndexingUtils;
 import zone.cogni.semanticz.jsonldshaper.Rdf2JsonLd;
 import zone.cogni.semanticz.jsonldshaper.utils.RdfUtils;
+import zone.cogni.semanticz.webflux.CircuitOpenException;
 import zone.cogni.semanticz.webflux.TemplateUtils;
 import zone.cogni.semanticz.webflux.WebProxy;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -36,6 +59,14 @@ public class IndexOrchestrator {
 
     private static final Logger log = LoggerFactory.getLogger(IndexOrchestrator.class);
 
+    private static final long SAMPLE_BUCKETS = 1_000_000;
+
+    private static final int FACET_UPDATE_BATCH_SIZE = 500;
+
+    private static final String DEFAULT_CLUSTER = "default";
+
+    private static final AtomicInteger INDEX_ALL_THREADS = new AtomicInteger();
+
     protected final RdfStoreService rdfStoreService;
 
     protected final ElasticsearchClient elasticsearchClient;
@@ -47,6 +78,14 @@ public class IndexOrchestrator {
     protected final WebProxy webProxy;
     protected final TemplateEngine templateEngine;
 
+    private final FacetResultCache facetResultCache;
+    private final SharedResourceCache sharedResourceCache;
+    private final LaneScheduler laneScheduler;
+    private final Map<IndexOrchestratorConfig.EntityConfig, EntityPlan> plans = new ConcurrentHashMap<>();
+    private final Map<String, ElasticsearchClient> clusters = new ConcurrentHashMap<>();
+    private volatile Executor executor;
+    private SubmissionQueue submissionQueue;
+
     public IndexOrchestrator(RdfStoreService rdfStoreService,
                              ElasticsearchClient elasticsearchClient,
                              IndexOrchestratorConfig config,
@@ -59,6 +98,46 @@ public class IndexOrchestrator {
         this.extFolder = extFolder;
         this.webProxy = webProxy;
         this.config = config;
+        this.facetResultCache = new FacetResultCache(config.getFacetCacheSize());
+        this.sharedResourceCache = new SharedResourceCache(config.getSharedResourceCacheSize());
+        this.laneScheduler = config.getLaneScheduler() == null ? null : new LaneScheduler(config.getLaneScheduler());
+    }
+
+    /**
+     * Sets the executor used to build documents and evaluate their facets concurrently.
+     * Without an executor, documents and facets are processed one by one on the calling thread.
+     * See {@link IndexingExecutors} for virtual thread and bounded platform thread strategies.
+     *
+     * @param executor the executor, or null to process sequentially
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * @return the scheduler sharing construct, facet and write capacity between interactive and bulk work, or null
+     * when no lanes are configured
+     */
+    public LaneScheduler getLaneScheduler() {
+        return laneScheduler;
+    }
+
+    /**
+     * Adds a cluster that write targets of entity configurations can refer to by name, see
+     * {@link IndexOrchestratorConfig.EntityConfig#getTargets()}.
+     *
+     * @param name   the name of the cluster in the write targets
+     * @param client the client of the cluster
+     */
+    public void addCluster(String name, ElasticsearchClient client) {
+        if (DEFAULT_CLUSTER.equals(name)) {
+            throw new IllegalArgumentException("Cluster name '" + DEFAULT_CLUSTER + "' is reserved for the cluster of the orchestrator");
+        }
+        clusters.put(name, client);
     }
 
     /**
@@ -69,24 +148,147 @@ public class IndexOrchestrator {
      * @return a function that takes a URI and returns an ObjectNode representing the JSON-LD document
      */
     protected Function<String, ObjectNode> documentProvider(Model shaclModel, final IndexOrchestratorConfig.EntityConfig entityConfig) {
-        String constructTemplatePath = entityConfig.getConstruct();
-        String constructTemplateParamName = entityConfig.getConstructQueryParam();
-        String indexName = entityConfig.getIndex();
+        return documentProvider(EntityPlan.compile(entityConfig, shaclModel, extFolder));
+    }
 
-        final RDFWriterBuilder jsonLdWriter = Rdf2JsonLd.calculateJsonldWriter(shaclModel);
+    /**
+     * Provides a function that generates the JSON-LD document for a given URI from a compiled plan.
+     *
+     * @param plan the compiled indexing configuration
+     * @return a function that takes a URI and returns an ObjectNode representing the JSON-LD document
+     */
+    protected Function<String, ObjectNode> documentProvider(final EntityPlan plan) {
+        String indexName = plan.getConfig().getIndex();
 
         return uri -> {
-            String constructQuery = TemplateUtils.processResource(templateEngine, uri, constructTemplateParamName, constructTemplatePath, extFolder);
-            Model data = rdfStoreService.executeConstructQuery(constructQuery);
-            ObjectNode jsonld = Rdf2JsonLd.modelToJsonLd(data, jsonLdWriter);
-            jsonld.set("facets", processFacets(entityConfig.getFacets(), uri, entityConfig));
+            ObjectNode jsonld = constructJsonLd(plan, uri);
+            jsonld.set("facets", processFacets(plan, uri));
             log.info("Document with uri: {}, Index: {}, Document size: {} bytes", uri, indexName, jsonld.toString().length());
             return jsonld;
         };
     }
 
     /**
-     * Processes the list of facets for a given entity URI and indexing configuration.
+     * Provides a function that generates the serialised document for a given URI.
+     * The JSON-LD and facet trees are written to bytes as soon as they are built, so only the serialised
+     * document is retained until it is delivered.
+     *
+     * @param plan the compiled indexing configuration
+     * @return a function that takes a URI and returns the serialised JSON-LD document
+     */
+    protected Function<String, RawJsonDocument> documentWriter(final EntityPlan plan) {
+        String indexName = plan.getConfig().getIndex();
+
+        return uri -> {
+            RawJsonDocument document = JsonDocuments.write(constructJsonLd(plan, uri), processFacets(plan, uri));
+            log.info("Document with uri: {}, Index: {}, Document size: {} bytes", uri, indexName, document.length());
+            return document;
+        };
+    }
+
+    /**
+     * Runs the construct query of the plan for the given URI and shapes the result into JSON-LD.
+     *
+     * @param plan the compiled indexing configuration
+     * @param uri  the URI of the entity being indexed
+     * @return the JSON-LD document, without facets
+     */
+    protected ObjectNode constructJsonLd(EntityPlan plan, String uri) {
+        return Rdf2JsonLd.modelToJsonLd(constructModel(plan, uri), plan.getJsonLdWriter());
+    }
+
+    /**
+     * Runs the construct query of the plan for the given URI and merges in the models of the shared resources the
+     * entity links to. Shared resources are resolved in configuration order, so one can follow a link of an
+     * earlier one.
+     *
+     * @param plan the compiled indexing configuration
+     * @param uri  the URI of the entity being indexed
+     * @return the constructed data of the entity
+     */
+    protected Model constructModel(EntityPlan plan, String uri) {
+        String constructQuery = TemplateUtils.process(templateEngine, plan.getConstructTemplate(), Map.of(plan.getConfig().getConstructQueryParam(), uri));
+        Model model = callScheduled(LaneScheduler.Resource.CONSTRUCT, () -> rdfStoreService.executeConstructQuery(constructQuery));
+        for (SharedResourcePlan sharedResource : plan.getSharedResources()) {
+            List<String> resourceUris = model.listObjectsOfProperty(sharedResource.getProperty())
+                                             .filterKeep(RDFNode::isURIResource)
+                                             .mapWith(node -> node.asResource().getURI())
+                                             .toList();
+            for (String resourceUri : resourceUris) {
+                Model resourceModel = sharedResourceCache.get(sharedResource, resourceUri, () -> constructSharedResource(sharedResource, resourceUri));
+                model.add(resourceModel).withDefaultMappings(resourceModel);
+            }
+        }
+        return model;
+    }
+
+    private Model constructSharedResource(SharedResourcePlan sharedResource, String resourceUri) {
+        String constructQuery = TemplateUtils.process(templateEngine, sharedResource.getConstructTemplate(),
+                Map.of(sharedResource.getConfig().getConstructQueryParam(), resourceUri));
+        return callScheduled(LaneScheduler.Resource.CONSTRUCT, () -> rdfStoreService.executeConstructQuery(constructQuery));
+    }
+
+    /**
+     * Marks the start of an indexing run for the caches that keep results only while a run is active.
+     */
+    private void beginRun() {
+        facetResultCache.beginRun();
+        sharedResourceCache.beginRun();
+    }
+
+    private void endRun() {
+        facetResultCache.endRun();
+        sharedResourceCache.endRun();
+    }
+
+    /**
+     * Returns the compiled plan for an entity configuration, compiling it on first use.
+     *
+     * @param entityConfig the indexing configuration
+     * @return the compiled plan
+     */
+    protected EntityPlan plan(IndexOrchestratorConfig.EntityConfig entityConfig) {
+        return plans.computeIfAbsent(entityConfig, this::compilePlan);
+    }
+
+    private EntityPlan compilePlan(IndexOrchestratorConfig.EntityConfig entityConfig) {
+        Model shaclModel = RdfUtils.loadTTL(TemplateUtils.loadResource(entityConfig.getShacl(), extFolder));
+        return EntityPlan.compile(entityConfig, shaclModel, extFolder);
+    }
+
+    /**
+     * Drops all compiled plans, so that changed templates and shapes are picked up by the next indexOne call.
+     * {@link #indexAll(boolean)} always recompiles the plans it uses.
+     */
+    public void clearPlans() {
+        plans.clear();
+    }
+
+    /**
+     * Processes the facets of a compiled plan for a given entity URI.
+     *
+     * @param plan the compiled indexing configuration
+     * @param uri  the URI of the entity being indexed
+     * @return an ObjectNode representing the processed facets
+     */
+    protected ObjectNode processFacets(EntityPlan plan, String uri) {
+        ObjectNode facets = JsonNodeFactory.instance.objectNode();
+        Map<String, Object> templateParams = Map.of("uri", uri, "entityConfig", plan.getConfig());
+        Executor facetExecutor = executor;
+        if (facetExecutor != null && plan.getFacets().size() > 1) {
+            processFacetsConcurrently(plan.getFacets(), uri, templateParams, facets, facetExecutor);
+            return facets;
+        }
+
+        for (FacetPlan facet : plan.getFacets()) {
+            processFacetSafely(facet, uri, templateParams, facets);
+        }
+        return facets;
+    }
+
+    /**
+     * Processes facets for a given entity URI. The facets are compiled on every call; indexing uses
+     * {@link #processFacets(EntityPlan, String)} with the facets compiled once per run.
      *
      * @param facetsList   the list of facet configurations
      * @param uri          the URI of the entity being indexed
@@ -95,21 +297,10 @@ public class IndexOrchestrator {
      */
     protected ObjectNode processFacets(List<IndexOrchestratorConfig.FacetConfig> facetsList, String uri, IndexOrchestratorConfig.EntityConfig entityConfig) {
         ObjectNode facets = JsonNodeFactory.instance.objectNode();
+        Map<String, Object> templateParams = Map.of("uri", uri, "entityConfig", entityConfig);
         for (IndexOrchestratorConfig.FacetConfig facet : facetsList) {
             try {
-                if (facet.getBody() != null && facet.getBody().endsWith(".thymeleaf")) {
-                    String template = facet.getBody();
-                    String facetQuery = TemplateUtils.processResource(templateEngine, template, extFolder, Map.of("uri", uri, "entityConfig", entityConfig));
-                    if (template.endsWith(".sparql.thymeleaf")) {
-                        processSparqlFacet(facetQuery, facets);
-                    } else if (template.endsWith(".json.thymeleaf")) {
-                        processElasticsearchFacet(facet, uri, facetQuery, facets);
-                    } else {
-                        facets.put(facet.getName(), facetQuery);
-                    }
-                } else {
-                    processElasticsearchFacet(facet, uri, null, facets);
-                }
+                processFacet(FacetPlan.compile(facet, extFolder), uri, templateParams, facets);
             } catch (Exception ex) {
                 log.error("Error processing facet {}: {}", facet, ex.getMessage(), ex);
             }
@@ -117,41 +308,116 @@ public class IndexOrchestrator {
         return facets;
     }
 
+    /**
+     * Evaluates every facet as a separate task and merges the results in configuration order.
+     * The calling thread runs every task that has not been picked up yet, so a saturated executor cannot deadlock.
+     */
+    private void processFacetsConcurrently(List<FacetPlan> facetPlans, String uri, Map<String, Object> templateParams,
+                                           ObjectNode facets, Executor facetExecutor) {
+        List<FutureTask<ObjectNode>> tasks = new ArrayList<>(facetPlans.size());
+        LaneScheduler.Lane lane = LaneScheduler.currentLane();
+        for (FacetPlan facet : facetPlans) {
+            FutureTask<ObjectNode> task = new FutureTask<>(() -> {
+                ObjectNode result = JsonNodeFactory.instance.objectNode();
+                LaneScheduler.runInLane(lane, () -> processFacetSafely(facet, uri, templateParams, result));
+                return result;
+            });
+            tasks.add(task);
+            facetExecutor.execute(task);
+        }
+
+        for (FutureTask<ObjectNode> task : tasks) {
+            task.run();
+            try {
+                FacetResultCache.merge(facets, task.get(), false);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while processing facets of " + uri, e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Error processing facets of " + uri, e.getCause());
+            }
+        }
+    }
+
+    private void processFacetSafely(FacetPlan facet, String uri, Map<String, Object> templateParams, ObjectNode facets) {
+        try {
+            processFacet(facet, uri, templateParams, facets);
+        } catch (Exception ex) {
+            log.error("Error processing facet {}: {}", facet.getConfig(), ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Processes a single facet, reusing the cached result when the facet does not depend on the entity.
+     *
+     * @param facet          the compiled facet
+     * @param uri            the URI of the entity being indexed
+     * @param templateParams the parameters passed to the facet body template
+     * @param facets         the ObjectNode to which the facet results will be added
+     */
+    protected void processFacet(FacetPlan facet, String uri, Map<String, Object> templateParams, ObjectNode facets) {
+        String esPath = facet.resolvePath(uri);
+
+        FacetResultCache.Key cacheKey = facetResultCache.declaredKey(facet.getConfig(), esPath);
+        if (cacheKey != null && facetResultCache.mergeInto(cacheKey, facets)) return;
+
+        String facetQuery = facet.getTemplate() == null ? null : TemplateUtils.process(templateEngine, facet.getTemplate(), templateParams);
+        if (cacheKey == null && facet.getKind() != FacetPlan.Kind.TEXT) {
+            cacheKey = facetResultCache.detectedKey(facet.getConfig(), uri, esPath + "\n" + facetQuery);
+            if (cacheKey != null && facetResultCache.mergeInto(cacheKey, facets)) return;
+        }
+
+        ObjectNode target = cacheKey == null ? facets : JsonNodeFactory.instance.objectNode();
+        switch (facet.getKind()) {
+            case SPARQL:
+                runScheduled(LaneScheduler.Resource.FACET, () -> processSparqlFacet(facet, facetQuery, target));
+                break;
+            case TEXT:
+                target.put(facet.getConfig().getName(), facetQuery);
+                break;
+            default:
+                runScheduled(LaneScheduler.Resource.FACET, () -> processElasticsearchFacetAtPath(facet.getConfig(), esPath, facetQuery, target));
+        }
+
+        if (cacheKey != null) {
+            facetResultCache.put(cacheKey, target);
+            FacetResultCache.merge(facets, target, false);
+        }
+    }
+
     /**
      * Processes a SPARQL facet query and adds the results to the facets object.
+     * Solutions are streamed from the result set straight into the JSON nodes, without an intermediate copy.
      *
+     * @param facet      the compiled facet
      * @param facetQuery the SPARQL query to execute
      * @param facets     the ObjectNode to which the facet results will be added
      */
-    protected void processSparqlFacet(String facetQuery, ObjectNode facets) {
-        ResultSetDto resultSet = rdfStoreService.executeSelectQuery(facetQuery, ResultSetMapper::resultSetToResultSetDto);
-
-        for (String var : resultSet.getVars()) {
-            String[] varParts = var.split("_");
-            ObjectNode root = facets;
-            for (int i = 0; i < varParts.length - 1 && varParts.length > 1; i++) {
-                String part = varParts[i];
-                if (root.has(part) && root.get(part).isObject()) {
-                    root = (ObjectNode) root.get(part);
-                } else {
-                    ObjectNode child = JsonNodeFactory.instance.objectNode();
-                    root.set(part, child);
-                    root = child;
-                }
-            }
+    protected void processSparqlFacet(FacetPlan facet, String facetQuery, ObjectNode facets) {
+        rdfStoreService.executeSelectQuery(facetQuery, resultSet -> {
+            facet.variableTrie(resultSet.getResultVars()).fill(facets, resultSet);
+            return null;
+        });
+    }
 
-            if (varParts[0].endsWith("s")) { // when first word of var is plural then it is always array
-                root.putArray(varParts[varParts.length - 1]).addAll(resultSet.collectPropertyValues(var).stream()
-                                                                             .filter(Objects::nonNull).map(TextNode::new)
-                                                                             .collect(Collectors.toSet()));
-            } else { // single is always value
-                root.put(varParts[varParts.length - 1], resultSet.collectPropertyValue(var));
-            }
-        }
+    /**
+     * Processes a SPARQL facet query and adds the results to the facets object.
+     * Indexing calls {@link #processSparqlFacet(FacetPlan, String, ObjectNode)}, which reuses the variable mapping
+     * of the compiled facet.
+     *
+     * @param facetQuery the SPARQL query to execute
+     * @param facets     the ObjectNode to which the facet results will be added
+     */
+    protected void processSparqlFacet(String facetQuery, ObjectNode facets) {
+        rdfStoreService.executeSelectQuery(facetQuery, resultSet -> {
+            FacetVariableTrie.compile(resultSet.getResultVars()).fill(facets, resultSet);
+            return null;
+        });
     }
 
     /**
-     * Processes an Elasticsearch facet and adds the results to the facets object.
+     * Processes an Elasticsearch facet for an entity and adds the results to the facets object.
+     * Indexing calls {@link #processElasticsearchFacetAtPath}, with the path resolved by the compiled facet.
      *
      * @param facet      the facet configuration
      * @param uri        the URI of the entity being indexed
@@ -160,15 +426,32 @@ public class IndexOrchestrator {
      */
     protected void processElasticsearchFacet(IndexOrchestratorConfig.FacetConfig facet, String uri, String facetQuery, ObjectNode facets) {
         String esPath = facet.getPath().replace("<DOCUMENT_ID>", URLEncoder.encode(uri, StandardCharsets.UTF_8));
+        processElasticsearchFacetAtPath(facet, esPath, facetQuery, facets);
+    }
+
+    /**
+     * Processes an Elasticsearch facet and adds the results to the facets object.
+     *
+     * @param facet      the facet configuration
+     * @param esPath     the Elasticsearch path, with the document id filled in
+     * @param facetQuery the facet query, if applicable
+     * @param facets     the ObjectNode to which the facet results will be added
+     */
+    protected void processElasticsearchFacetAtPath(IndexOrchestratorConfig.FacetConfig facet, String esPath, String facetQuery, ObjectNode facets) {
         try {
-            ResponseEntity<String> response = webProxy.proxyResponse(esPath, facet.getMethod(), facet.getAccept(), facet.getContentType(), facetQuery);
+            ResponseEntity<JsonNode> response = webProxy.proxyJson(esPath, facet.getMethod(), facet.getAccept(), facet.getContentType(), facetQuery,
+                    facet.isStreaming());
             int statusCode = response.getStatusCodeValue();
 
-            if (statusCode >= 200 && statusCode < 300) {
-                facets.set(facet.getName(), new ObjectMapper().readTree(response.getBody()));
+            if (statusCode >= 200 && statusCode < 300 && response.getBody() == null) {
+                log.error("Elastic facet query returned no body, facet skipped. Path: {}. Facet: {}", esPath, facet);
+            } else if (statusCode >= 200 && statusCode < 300) {
+                facets.set(facet.getName(), response.getBody());
             } else {
                 log.warn("Elastic facet query status {}. Path: {}. Facet: {}", statusCode, esPath, facet);
             }
+        } catch (CircuitOpenException e) {
+            log.warn("Skipped Elasticsearch facet {}. Path {}: {}", facet.getName(), esPath, e.getMessage());
         } catch (Exception e) {
             log.error("Error executing Elasticsearch POST for facet {}. Path {}. Query: {}", facet.getName(), esPath, facetQuery, e);
         }
@@ -181,28 +464,677 @@ public class IndexOrchestrator {
      * @param reset if true, resets each index before indexing
      */
     public void indexAll(boolean reset) {
+        indexAll(reset, null);
+    }
+
+    /**
+     * Indexes all entities based on the indexing configurations, writing the documents to the given sink.
+     * Documents are serialised as soon as they are built, so large entities do not keep their JSON tree alive
+     * until delivery. The sink is flushed after each entity configuration; closing it is left to the caller.
+     *
+     * @param reset if true, resets each index before indexing
+     * @param sink  the sink receiving the documents, or null to index them one by one into Elasticsearch
+     */
+    public void indexAll(boolean reset, DocumentSink sink) {
+        IndexAllOptions options = new IndexAllOptions();
+        options.setReset(reset);
+        options.setSink(sink);
+        indexAll(options);
+    }
+
+    /**
+     * Indexes all entities, or one partition of them when several instances share the run.
+     * <p>
+     * Without a sink, documents are indexed one bulk request each, unless the run is partitioned or a
+     * {@link IndexOrchestratorConfig#getMaxInFlightBytes() byte budget} is configured: they are then batched in a
+     * bulk sink holding at most that many bytes in flight. Entity configurations with write targets always use their
+     * own fan-out sink.
+     * <p>
+     * A partitioned run only indexes the URIs of its {@link IndexPartition}. Its documents are written without
+     * refresh. With a lease index, the partition is claimed first and marked done at the end; the instance finishing
+     * last refreshes every index once. Without a lease index refreshing is left to the caller.
+     *
+     * A dry run only builds and profiles the documents, see {@link #profile(IndexAllOptions)}, and logs the report.
+     *
+     * @param options the options of the run
+     * @throws IllegalStateException when the partition is already claimed by another instance
+     */
+    public void indexAll(IndexAllOptions options) {
+        indexAll(options, new IndexingJob());
+    }
+
+    /**
+     * Starts {@link #indexAll(IndexAllOptions)} on a new thread and returns its job, to follow the progress per
+     * entity configuration and to pause, resume or cancel the run. Validation errors and lease conflicts complete
+     * the job exceptionally.
+     * <p>
+     * The run does not use the executor: it would hold one of its threads while waiting for the documents it builds
+     * there. Its thread is a daemon, so await the job before shutting down.
+     *
+     * @param options the options of the run
+     * @return the job of the run
+     */
+    public IndexingJob startIndexAll(IndexAllOptions options) {
+        IndexingJob job = new IndexingJob();
+        Thread thread = new Thread(() -> {
+            try {
+                indexAll(options, job);
+                log.info("Indexing job completed: {}", job.getProgress());
+                job.complete(null);
+            } catch (CancellationException e) {
+                log.info("Indexing job cancelled: {}", job.getProgress());
+                job.complete(e);
+            } catch (Throwable e) {
+                log.error("Indexing job failed: {}", job.getProgress(), e);
+                job.complete(e);
+            }
+        }, "index-all-" + INDEX_ALL_THREADS.incrementAndGet());
+        thread.setDaemon(true);
+        thread.start();
+        return job;
+    }
+
+    private void indexAll(IndexAllOptions options, IndexingJob job) {
+        if (options.isDryRun()) {
+            log.info("Dry run profile:\n{}", profile(options));
+            return;
+        }
+
+        IndexPartition partition = options.getPartition();
+        if (options.isReset() && !partition.isAll()) {
+            throw new IllegalArgumentException("Reset is not supported for partitioned runs, clear the indices before starting the partitions.");
+        }
+        if (options.isRemoveStale() && options.isPartitionInQuery() && !partition.isAll()) {
+            throw new IllegalArgumentException("Removing stale documents needs the partition hash, it cannot be combined with partitioning in the query.");
+        }
+        if (options.getLeaseIndex() != null && options.getRunId() == null) {
+            throw new IllegalArgumentException("A run id is required when using partition leases.");
+        }
+
+        PartitionLease lease = options.getLeaseIndex() == null
+                ? null
+                : PartitionLease.acquire(elasticsearchClient, options.getLeaseIndex(), options.getRunId(), partition,
+                Objects.requireNonNullElseGet(options.getOwner(), () -> UUID.randomUUID().toString()));
+        LaneScheduler.Lane previousLane = LaneScheduler.enter(LaneScheduler.Lane.BULK);
+        beginRun();
+        try {
+            if (options.getSink() == null && (!partition.isAll() || config.getMaxInFlightBytes() > 0)) {
+                // partitioned runs leave refreshing to the instance finishing last
+                try (BulkDocumentSink sink = bulkDocumentSink(partition.isAll())) {
+                    indexAllEntities(options, sink, job);
+                }
+            } else {
+                indexAllEntities(options, options.getSink(), job);
+            }
+        } catch (RuntimeException e) {
+            if (lease != null) lease.release();
+            throw e;
+        } finally {
+            endRun();
+            LaneScheduler.restore(previousLane);
+        }
+
+        if (lease != null) {
+            lease.markDone();
+            if (lease.claimFinalisation()) {
+                log.info("All {} partitions of run {} are done, refreshing indices", partition.getCount(), options.getRunId());
+                config.getIndexing().stream()
+                      .flatMap(entityConfig -> writeTargets(entityConfig).stream())
+                      .collect(Collectors.toMap(FanOutDocumentSink.Target::getName, target -> target, (first, second) -> first, LinkedHashMap::new))
+                      .values()
+                      .forEach(target -> ElasticsearchClientUtils.refreshIndex(target.getClient(), target.getIndex()));
+            }
+        }
+    }
+
+    private void indexAllEntities(IndexAllOptions options, DocumentSink sink, IndexingJob job) {
+        IndexPartition partition = options.getPartition();
         Set<String> indexReset = new HashSet<>();
+        Map<String, CompactUriSet> selectedPerTarget = new LinkedHashMap<>();
+        Map<String, FanOutDocumentSink.Target> staleTargets = new LinkedHashMap<>();
         for (IndexOrchestratorConfig.EntityConfig i : config.getIndexing()) {
-            if (reset && !indexReset.contains(i.getIndex())) { // Reset each index only once
-                ElasticsearchClientUtils.clearIndex(elasticsearchClient, i.getIndex(),
-                        TemplateUtils.loadResourceStream(i.getSettings(), extFolder));
-                indexReset.add(i.getIndex());
+            IndexingJob.EntityProgress progress = job.startEntity(i.getName(), i.getIndex());
+            progress.checkpoint();
+            List<FanOutDocumentSink.Target> targets = writeTargets(i);
+            for (FanOutDocumentSink.Target target : targets) {
+                if (options.isReset() && indexReset.add(target.getName())) { // Reset each index only once
+                    ElasticsearchClientUtils.clearIndex(target.getClient(), target.getIndex(),
+                            TemplateUtils.loadResourceStream(i.getSettings(), extFolder));
+                }
+            }
+            EntityPlan plan = compilePlan(i);
+            plans.put(i, plan);
+            CompactUriSet distinct = new CompactUriSet();
+            List<String> uris = selectUris(i, options, distinct);
+            progress.recordSelected(uris.size());
+            if (options.isRemoveStale() && !options.isReset()) {
+                for (FanOutDocumentSink.Target target : targets) {
+                    staleTargets.putIfAbsent(target.getName(), target);
+                    selectedPerTarget.computeIfAbsent(target.getName(), name -> new CompactUriSet(distinct.size())).addAll(distinct);
+                }
+            }
+            if (!partition.isAll()) {
+                log.info("Indexing {} documents of {} in partition {}", uris.size(), i.getName(), partition);
+            }
+            if (options.getSink() == null && hasWriteTargets(i)) {
+                try (FanOutDocumentSink fanOut = fanOutDocumentSink(targets, partition.isAll())) {
+                    writeAll(plan, uris, fanOut, progress);
+                }
+            } else if (sink != null) {
+                writeAll(plan, uris, sink, progress);
+            } else {
+                indexOneByOne(i.getIndex(), uris, tracked(documentProvider(plan), progress), progress);
+            }
+            progress.finish();
+        }
+
+        selectedPerTarget.forEach((name, selected) -> {
+            FanOutDocumentSink.Target target = staleTargets.get(name);
+            ElasticsearchClientUtils.deleteDocumentsNotIn(target.getClient(), target.getIndex(), selected, partition::contains);
+        });
+    }
+
+    private static boolean hasWriteTargets(IndexOrchestratorConfig.EntityConfig entityConfig) {
+        return entityConfig.getTargets() != null && !entityConfig.getTargets().isEmpty();
+    }
+
+    /**
+     * Resolves the write targets of an entity configuration, named by cluster and index. Without declared targets
+     * this is the index of the configuration in the cluster of the orchestrator.
+     */
+    List<FanOutDocumentSink.Target> writeTargets(IndexOrchestratorConfig.EntityConfig entityConfig) {
+        if (!hasWriteTargets(entityConfig)) {
+            return List.of(new FanOutDocumentSink.Target(DEFAULT_CLUSTER + "/" + entityConfig.getIndex(), elasticsearchClient, entityConfig.getIndex()));
+        }
+
+        List<FanOutDocumentSink.Target> targets = new ArrayList<>();
+        for (IndexOrchestratorConfig.WriteTargetConfig targetConfig : entityConfig.getTargets()) {
+            String cluster = Objects.requireNonNullElse(targetConfig.getCluster(), DEFAULT_CLUSTER);
+            ElasticsearchClient client = DEFAULT_CLUSTER.equals(cluster) ? elasticsearchClient : clusters.get(cluster);
+            if (client == null) {
+                throw new IllegalStateException("Unknown cluster '" + cluster + "' in the write targets of " + entityConfig.getName());
+            }
+            String index = Objects.requireNonNullElse(targetConfig.getIndex(), entityConfig.getIndex());
+            targets.add(new FanOutDocumentSink.Target(cluster + "/" + index, client, index));
+        }
+        return targets;
+    }
+
+    /**
+     * Runs the selection, construct, shaping, facets and serialisation of every entity configuration without writing
+     * anything to Elasticsearch, and reports where the time goes. Only the partition and sample rate of the options
+     * are used. Documents are built on the executor when one is set, facets of a document one after the other so
+     * each can be timed.
+     *
+     * @param options the partition and sample rate to profile
+     * @return the profile per entity configuration
+     */
+    public IndexProfile profile(IndexAllOptions options) {
+        long sampleBound = (long) (Math.max(0, Math.min(1, options.getSampleRate())) * SAMPLE_BUCKETS);
+        IndexProfile profile = new IndexProfile();
+        LaneScheduler.Lane previousLane = LaneScheduler.enter(LaneScheduler.Lane.BULK);
+        beginRun();
+        try {
+            for (IndexOrchestratorConfig.EntityConfig i : config.getIndexing()) {
+                IndexProfile.EntityProfile entityProfile = profile.addEntity(i.getName(), i.getIndex());
+                EntityPlan plan = compilePlan(i);
+                plans.put(i, plan);
+
+                long start = System.nanoTime();
+                List<String> uris = selectUris(i, options, new CompactUriSet());
+                entityProfile.recordSelection(uris.size(), System.nanoTime() - start);
+
+                List<String> sample = uris.stream()
+                                          .filter(uri -> Long.remainderUnsigned(IndexPartition.hash(uri), SAMPLE_BUCKETS) < sampleBound)
+                                          .collect(Collectors.toList());
+                start = System.nanoTime();
+                if (executor == null) {
+                    sample.forEach(uri -> profileDocument(plan, uri, entityProfile));
+                } else {
+                    IndexingUtils.forEachConcurrently(sample,
+                            eachInCurrentLane(uri -> profileDocument(plan, uri, entityProfile)),
+                            executor,
+                            config.getMaxConcurrentDocuments());
+                }
+                entityProfile.recordWallTime(System.nanoTime() - start);
+                log.info("Profiled {} of {} documents of {}", sample.size(), uris.size(), i.getName());
+            }
+        } finally {
+            endRun();
+            LaneScheduler.restore(previousLane);
+        }
+        return profile;
+    }
+
+    private void profileDocument(EntityPlan plan, String uri, IndexProfile.EntityProfile entityProfile) {
+        try {
+            long start = System.nanoTime();
+            Model data = constructModel(plan, uri);
+            long constructed = System.nanoTime();
+            ObjectNode jsonld = Rdf2JsonLd.modelToJsonLd(data, plan.getJsonLdWriter());
+            long shaped = System.nanoTime();
+
+            ObjectNode facets = JsonNodeFactory.instance.objectNode();
+            Map<String, Object> templateParams = Map.of("uri", uri, "entityConfig", plan.getConfig());
+            long facetStart = shaped;
+            for (FacetPlan facet : plan.getFacets()) {
+                processFacetSafely(facet, uri, templateParams, facets);
+                long facetEnd = System.nanoTime();
+                entityProfile.recordFacet(facet.getKey(), facetEnd - facetStart);
+                facetStart = facetEnd;
+            }
+
+            RawJsonDocument document = JsonDocuments.write(jsonld, facets);
+            long serialized = System.nanoTime();
+            entityProfile.recordDocument(uri, constructed - start, shaped - constructed, facetStart - shaped, serialized - facetStart,
+                    document.length());
+        } catch (RuntimeException e) {
+            log.error("Error profiling document {} of {}", uri, plan.getConfig().getName(), e);
+            entityProfile.recordFailure();
+        }
+    }
+
+    /**
+     * Builds the documents of all entities, or of one partition, and exports them as bulk-ready NDJSON segments
+     * instead of indexing them, see {@link NdjsonSegmentSink}. The segments can then be loaded into any number of
+     * clusters with {@link NdjsonSegmentLoader} without querying the triple store again. Only the partition options
+     * are used; nothing is written to Elasticsearch. Partitions write segments with distinct names, so they may
+     * share a directory. When the export fails, the segments completed so far are left behind.
+     *
+     * @param options   the partition to export
+     * @param directory the directory to write the segments to
+     * @param compress  whether to gzip the segments
+     * @return the segment files written
+     */
+    public List<Path> exportAll(IndexAllOptions options, Path directory, boolean compress) {
+        IndexPartition partition = options.getPartition();
+        String prefix = partition.isAll() ? "documents" : String.format("documents-p%04d", partition.getIndex());
+        NdjsonSegmentSink sink = new NdjsonSegmentSink(directory, prefix, compress);
+        LaneScheduler.Lane previousLane = LaneScheduler.enter(LaneScheduler.Lane.BULK);
+        beginRun();
+        try (sink) {
+            for (IndexOrchestratorConfig.EntityConfig i : config.getIndexing()) {
+                EntityPlan plan = compilePlan(i);
+                plans.put(i, plan);
+                List<String> uris = selectUris(i, options, new CompactUriSet());
+                log.info("Exporting {} documents of {} to {}", uris.size(), i.getName(), directory);
+                writeAll(plan, uris, sink);
             }
-            Model shaclModel = RdfUtils.loadTTL(TemplateUtils.loadResource(i.getShacl(), extFolder));
-            String selectSparql = TemplateUtils.processResource(templateEngine, i.getSelect(), extFolder);
-            List<String> uris = rdfStoreService.executeSelectQuery(selectSparql,
-                                                       ResultSetMapper::resultSetToResultSetDto)
-                                               .collectPropertyValues(i.getSelectQueryParam())
-                                               .stream().distinct().collect(Collectors.toList());
-            IndexingUtils.simpleIndexAll(elasticsearchClient,
-                    i.getIndex(),
-                    uris,
-                    documentProvider(shaclModel, i));
+        } finally {
+            endRun();
+            LaneScheduler.restore(previousLane);
         }
+        return sink.getSegments();
     }
 
     /**
-     * Indexes a single entity identified by its URI and indexing name.
+     * Runs the select query of the entity configuration and keeps the distinct URIs of the partition. The result set
+     * is consumed row by row, so only the URIs of the partition are held, not the rows of the whole selection.
+     *
+     * @param distinct receives every selected URI
+     */
+    private List<String> selectUris(IndexOrchestratorConfig.EntityConfig entityConfig, IndexAllOptions options, CompactUriSet distinct) {
+        IndexPartition partition = options.getPartition();
+        String selectSparql = TemplateUtils.processResource(templateEngine, entityConfig.getSelect(), extFolder, Map.of("partition", partition));
+        return selectValues(selectSparql, entityConfig.getSelectQueryParam(),
+                uri -> (options.isPartitionInQuery() || partition.contains(uri)) && distinct.add(uri));
+    }
+
+    /**
+     * @return the bound values of the variable, in result order, that pass the filter
+     */
+    private List<String> selectValues(String query, String variable, Predicate<String> filter) {
+        return rdfStoreService.executeSelectQuery(query, resultSet -> {
+            List<String> values = new ArrayList<>();
+            while (resultSet.hasNext()) {
+                RDFNode node = resultSet.next().get(variable);
+                if (node == null) continue;
+
+                String value = FacetVariableTrie.toValue(node);
+                if (filter.test(value)) values.add(value);
+            }
+            return values;
+        });
+    }
+
+    /**
+     * Creates the bulk sink used when the orchestrator writes documents itself. With a byte budget configured, bulk
+     * requests are sent on threads owned by the sink, never on the orchestrator executor: its threads may all be
+     * blocked on the budget, waiting for exactly those requests.
+     */
+    private BulkDocumentSink bulkDocumentSink(boolean refreshOnClose) {
+        ByteBudget budget = config.getMaxInFlightBytes() > 0 ? new ByteBudget(config.getMaxInFlightBytes()) : null;
+        return new BulkDocumentSink(elasticsearchClient, BulkDocumentSink.DEFAULT_MAX_ACTIONS, BulkDocumentSink.DEFAULT_MAX_BYTES,
+                refreshOnClose, budget, null);
+    }
+
+    /**
+     * Creates the sink writing every document to each of the targets, see {@link IndexOrchestratorConfig#getMaxTargetLag()}.
+     */
+    private FanOutDocumentSink fanOutDocumentSink(List<FanOutDocumentSink.Target> targets, boolean refreshOnClose) {
+        return new FanOutDocumentSink(targets, config.getMaxTargetLag(),
+                BulkDocumentSink.DEFAULT_MAX_ACTIONS, BulkDocumentSink.DEFAULT_MAX_BYTES,
+                FanOutDocumentSink.DEFAULT_MAX_RETRIES, FanOutDocumentSink.DEFAULT_RETRY_BACKOFF, refreshOnClose);
+    }
+
+    private void writeAll(EntityPlan plan, List<String> uris, DocumentSink sink) {
+        writeAll(plan, uris, sink, null);
+    }
+
+    /**
+     * Builds and writes the documents of the URIs, reporting to the progress of a job when given. The job is
+     * checked before each document, so pausing holds the remaining documents and cancelling skips them.
+     */
+    private void writeAll(EntityPlan plan, List<String> uris, DocumentSink sink, IndexingJob.EntityProgress progress) {
+        String index = plan.getConfig().getIndex();
+        Function<String, RawJsonDocument> documentWriter = progress == null ? documentWriter(plan) : tracked(documentWriter(plan), progress);
+        Consumer<String> write = uri -> {
+            RawJsonDocument document = documentWriter.apply(uri);
+            runScheduled(LaneScheduler.Resource.WRITE, () -> sink.write(index, uri, document, progress));
+        };
+        if (executor == null) {
+            uris.forEach(write);
+        } else {
+            IndexingUtils.forEachConcurrently(uris,
+                    eachInCurrentLane(write),
+                    executor,
+                    config.getMaxConcurrentDocuments());
+        }
+        sink.flush();
+    }
+
+    /**
+     * Indexes the documents one by one with refresh, as {@link IndexingUtils#simpleIndexAll} does, counting each
+     * document from its own bulk response. Responses with errors are reported once all documents are done.
+     */
+    private <T> void indexOneByOne(String index, List<String> uris, Function<String, T> documentProvider, IndexingJob.EntityProgress progress) {
+        List<BulkResponse> responsesWithError = Collections.synchronizedList(new ArrayList<>());
+        Consumer<String> indexOne = uri -> {
+            List<Throwable> exceptions = new ArrayList<>(1);
+            Optional<BulkResponse> response = IndexingUtils.simpleIndexOne(elasticsearchClient, index, uri, documentProvider.apply(uri), exceptions);
+            if (response.isEmpty()) {
+                log.error("Indexing {} in {} failed", uri, index, exceptions.get(0));
+                progress.onFailed(index, uri, exceptions.get(0).toString());
+            } else if (response.get().errors()) {
+                responsesWithError.add(response.get());
+                progress.onFailed(index, uri, response.get().items().get(0).error().reason());
+            } else {
+                progress.onWritten(index, uri);
+            }
+        };
+        if (executor == null) {
+            uris.forEach(indexOne);
+        } else {
+            IndexingUtils.forEachConcurrently(uris,
+                    eachInCurrentLane(indexOne),
+                    executor,
+                    config.getMaxConcurrentDocuments());
+        }
+        IndexingUtils.handleElasticBulkResponse(responsesWithError);
+    }
+
+    /**
+     * Waits for the job before building each document and counts the built and failed documents.
+     */
+    private static <T> Function<String, T> tracked(Function<String, T> builder, IndexingJob.EntityProgress progress) {
+        return uri -> {
+            progress.checkpoint();
+            T document;
+            try {
+                document = builder.apply(uri);
+            } catch (RuntimeException e) {
+                progress.recordFailure();
+                throw e;
+            }
+            progress.recordBuilt();
+            return document;
+        };
+    }
+
+    /**
+     * Runs a call holding a permit of the resource in the lane of the calling thread, or directly without lanes.
+     */
+    <T> T callScheduled(LaneScheduler.Resource resource, Supplier<T> call) {
+        return laneScheduler == null ? call.get() : laneScheduler.call(resource, call);
+    }
+
+    private void runScheduled(LaneScheduler.Resource resource, Runnable task) {
+        callScheduled(resource, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Binds a task handed to the executor to the lane of the calling thread.
+     */
+    private static <T> Consumer<T> eachInCurrentLane(Consumer<T> task) {
+        LaneScheduler.Lane lane = LaneScheduler.currentLane();
+        return item -> LaneScheduler.runInLane(lane, () -> task.accept(item));
+    }
+
+    /**
+     * Resolves the documents that embed data of the changed resources, using the {@code dependents} template of
+     * every entity configuration. The lookup is transitive: a dependent document is itself treated as a change, so
+     * a catalog embedding a dataset embedding a concept is found from the concept. Every resource is looked up once,
+     * but a dependent returned by several configurations is reindexed by each of them.
+     *
+     * @param changedUris the URIs of the changed resources
+     * @return the dependent document URIs per indexing configuration name, excluding the changed URIs themselves
+     * @throws IllegalStateException when more than {@link IndexOrchestratorConfig#getMaxCascadeSize()} documents depend on the changes
+     */
+    public Map<String, Set<String>> resolveDependents(Collection<String> changedUris) {
+        List<EntityPlan> dependentPlans = config.getIndexing().stream()
+                                                .filter(entityConfig -> entityConfig.getDependents() != null)
+                                                .map(this::plan)
+                                                .collect(Collectors.toList());
+        Map<String, Set<String>> dependents = new LinkedHashMap<>();
+        if (dependentPlans.isEmpty()) return dependents;
+
+        Set<String> changedSet = new HashSet<>(changedUris);
+        Set<String> visited = new HashSet<>(changedUris);
+        Deque<String> queue = new ArrayDeque<>(visited);
+        int count = 0;
+        while (!queue.isEmpty()) {
+            String changed = queue.poll();
+            for (EntityPlan plan : dependentPlans) {
+                for (String dependent : queryDependents(plan, changed)) {
+                    if (changedSet.contains(dependent)) continue;
+
+                    // the visited set only dedupes lookups, every configuration returning the dependent reindexes it
+                    boolean added = dependents.computeIfAbsent(plan.getConfig().getName(), name -> new LinkedHashSet<>()).add(dependent);
+                    if (added && ++count > config.getMaxCascadeSize()) {
+                        throw new IllegalStateException("Cascading reindex of " + changedUris.size() + " changed resources exceeds "
+                                + config.getMaxCascadeSize() + " dependent documents.");
+                    }
+                    if (visited.add(dependent)) queue.add(dependent);
+                }
+            }
+        }
+        return dependents;
+    }
+
+    private List<String> queryDependents(EntityPlan plan, String uri) {
+        IndexOrchestratorConfig.EntityConfig entityConfig = plan.getConfig();
+        String query = TemplateUtils.process(templateEngine, plan.getDependentsTemplate(), Map.of("uri", uri, "entityConfig", entityConfig));
+        return selectValues(query, entityConfig.getSelectQueryParam(), value -> true);
+    }
+
+    /**
+     * Reindexes every document that depends on the changed resources, see {@link #resolveDependents(Collection)}.
+     * The changed resources themselves are not reindexed. Documents are written in bulk batches to every write target
+     * of their configuration and each index touched is refreshed once at the end. Cached models of changed shared
+     * resources are dropped first.
+     *
+     * @param changedUris the URIs of the changed resources
+     * @return the reindexed document URIs per indexing configuration name
+     */
+    public Map<String, Set<String>> reindexDependents(Collection<String> changedUris) {
+        sharedResourceCache.evict(changedUris);
+        Map<String, Set<String>> dependents = resolveDependents(changedUris);
+        if (dependents.isEmpty()) return dependents;
+
+        LaneScheduler.Lane previousLane = LaneScheduler.enter(LaneScheduler.Lane.BULK);
+        try (BulkDocumentSink sink = bulkDocumentSink(true)) {
+            dependents.forEach((entityName, uris) -> {
+                IndexOrchestratorConfig.EntityConfig entityConfig = config.findIndexingByName(entityName).orElseThrow();
+                log.info("Reindexing {} documents of {} depending on {} changed resources", uris.size(), entityName, changedUris.size());
+                if (hasWriteTargets(entityConfig)) {
+                    try (FanOutDocumentSink fanOut = fanOutDocumentSink(writeTargets(entityConfig), true)) {
+                        writeAll(plan(entityConfig), new ArrayList<>(uris), fanOut);
+                    }
+                } else {
+                    writeAll(plan(entityConfig), new ArrayList<>(uris), sink);
+                }
+            });
+        } finally {
+            LaneScheduler.restore(previousLane);
+        }
+        return dependents;
+    }
+
+    /**
+     * Recomputes the selected facets of the given entities and patches them into the indexed documents,
+     * without running the construct query and SHACL shaping again. Only the keys produced by the selected facets
+     * are replaced inside the {@code facets} field; other facets and the JSON-LD body are left untouched.
+     * Every write target of the configuration is patched.
+     *
+     * @param entityName the name of the indexing configuration to use
+     * @param uris       the URIs of the documents to update
+     * @param facetNames the facets to refresh, matched on facet name or, for unnamed facets, on body
+     */
+    public void refreshFacets(String entityName, Collection<String> uris, Collection<String> facetNames) {
+        refreshFacets(entityName, facetNames, (plan, batchConsumer) -> {
+            List<String> uriList = new ArrayList<>(uris);
+            for (int from = 0; from < uriList.size(); from += FACET_UPDATE_BATCH_SIZE) {
+                batchConsumer.accept(uriList.subList(from, Math.min(from + FACET_UPDATE_BATCH_SIZE, uriList.size())));
+            }
+        });
+    }
+
+    /**
+     * Recomputes the selected facets of every document in the index of the entity configuration.
+     * The URIs are streamed from the index itself, the first write target when several are declared, which is
+     * assumed to hold only documents of this entity type.
+     *
+     * @param entityName the name of the indexing configuration to use
+     * @param facetNames the facets to refresh, matched on facet name or, for unnamed facets, on body
+     */
+    public void refreshFacets(String entityName, Collection<String> facetNames) {
+        refreshFacets(entityName, facetNames, (plan, batchConsumer) -> {
+            FanOutDocumentSink.Target source = writeTargets(plan.getConfig()).get(0);
+            ElasticsearchClientUtils.forEachDocumentId(source.getClient(), source.getIndex(), FACET_UPDATE_BATCH_SIZE, batchConsumer);
+        });
+    }
+
+    private void refreshFacets(String entityName, Collection<String> facetNames, BiConsumer<EntityPlan, Consumer<List<String>>> uriBatches) {
+        Optional<IndexOrchestratorConfig.EntityConfig> optionalEntityConfig = config.findIndexingByName(entityName);
+        if (optionalEntityConfig.isEmpty()) {
+            log.warn("Indexing configuration with name {} not found.", entityName);
+            return;
+        }
+
+        EntityPlan plan = plan(optionalEntityConfig.get());
+        List<FacetPlan> facets = plan.getFacets().stream()
+                                     .filter(facet -> facetNames.contains(facet.getKey()))
+                                     .collect(Collectors.toList());
+        if (facets.isEmpty()) {
+            log.warn("No facets named {} in indexing configuration {}.", facetNames, entityName);
+            return;
+        }
+
+        List<FanOutDocumentSink.Target> targets = writeTargets(plan.getConfig());
+        List<BulkResponse> responsesWithError = new ArrayList<>();
+        LaneScheduler.Lane previousLane = LaneScheduler.enter(LaneScheduler.Lane.BULK);
+        beginRun();
+        try {
+            uriBatches.accept(plan, batch -> refreshFacetBatch(plan, facets, targets, batch, responsesWithError));
+        } finally {
+            endRun();
+            LaneScheduler.restore(previousLane);
+        }
+        targets.forEach(target -> ElasticsearchClientUtils.refreshIndex(target.getClient(), target.getIndex()));
+        IndexingUtils.handleElasticBulkResponse(responsesWithError);
+    }
+
+    private void refreshFacetBatch(EntityPlan plan, List<FacetPlan> facets, List<FanOutDocumentSink.Target> targets,
+                                   List<String> uris, List<BulkResponse> responsesWithError) {
+        Map<String, ObjectNode> updates = new ConcurrentHashMap<>();
+        Consumer<String> facetUpdate = uri -> {
+            ObjectNode values = JsonNodeFactory.instance.objectNode();
+            Map<String, Object> templateParams = Map.of("uri", uri, "entityConfig", plan.getConfig());
+            facets.forEach(facet -> processFacetSafely(facet, uri, templateParams, values));
+            if (values.size() > 0) {
+                updates.put(uri, values);
+            }
+        };
+
+        if (executor == null) {
+            uris.forEach(facetUpdate);
+        } else {
+            IndexingUtils.forEachConcurrently(uris, eachInCurrentLane(facetUpdate), executor, config.getMaxConcurrentDocuments());
+        }
+        if (updates.isEmpty()) return;
+
+        // the facet values are computed once and patched into every target
+        for (FanOutDocumentSink.Target target : targets) {
+            List<BulkOperation> operations = new ArrayList<>(updates.size());
+            updates.forEach((uri, values) -> operations.add(IndexingUtils.parseMergeFieldRequest(target.getIndex(), uri, JsonDocuments.FACETS_FIELD, values)));
+            BulkRequest request = IndexingUtils.createBulkRequest(operations, false);
+            try {
+                BulkResponse response = callScheduled(LaneScheduler.Resource.WRITE, () -> {
+                    try {
+                        return target.getClient().bulk(request);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                if (response.errors()) {
+                    responsesWithError.add(response);
+                }
+                log.info("Refreshed facets of {} documents in {}", operations.size(), target.getName());
+            } catch (UncheckedIOException e) {
+                throw new RuntimeException("Something went wrong while sending facet update bulk request to " + target.getName(), e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Submits a single entity for asynchronous indexing. Submissions are collected during the
+     * {@link IndexOrchestratorConfig#getSubmitDebounce() debounce window}; a URI submitted several times within the
+     * window is built and indexed once, and all its callers share the same future. The collected documents are sent
+     * in bulk requests that wait for a refresh, so the returned future completes once the document is searchable.
+     *
+     * @param uri        the URI of the entity to index
+     * @param entityName the name of the indexing configuration to use
+     * @return a future completing when the document is indexed, or completing exceptionally when it failed
+     */
+    public CompletableFuture<Void> submit(String uri, String entityName) {
+        Optional<IndexOrchestratorConfig.EntityConfig> optionalEntityConfig = config.findIndexingByName(entityName);
+        if (optionalEntityConfig.isEmpty()) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Indexing configuration with name " + entityName + " not found."));
+        }
+        return submissionQueue().submit(optionalEntityConfig.get(), uri);
+    }
+
+    /**
+     * Indexes all pending submissions without waiting for the debounce window to close, e.g. before shutdown.
+     *
+     * @return a future completing once every submission pending at the time of the call has been processed
+     */
+    public CompletableFuture<Void> flushSubmissions() {
+        return submissionQueue().flushNow();
+    }
+
+    private synchronized SubmissionQueue submissionQueue() {
+        if (submissionQueue == null) {
+            submissionQueue = new SubmissionQueue(this, config.getSubmitDebounce(), config.getSubmitBatchSize());
+        }
+        return submissionQueue;
+    }
+
+    /**
+     * Indexes a single entity identified by its URI and indexing name, in every write target of the configuration.
      *
      * @param uri        the URI of the entity to index
      * @param entityName the name of the indexing configuration to use
@@ -211,13 +1143,18 @@ public class IndexOrchestrator {
         Optional<IndexOrchestratorConfig.EntityConfig> optionalEntityConfig = config.findIndexingByName(entityName);
         if (optionalEntityConfig.isPresent()) {
             IndexOrchestratorConfig.EntityConfig entityConfig = optionalEntityConfig.get();
-            Model shaclModel = RdfUtils.loadTTL(TemplateUtils.loadResource(entityConfig.getShacl(), extFolder));
-            ObjectNode jsonld = documentProvider(shaclModel, entityConfig).apply(uri);
-
-            IndexingUtils.simpleIndexOne(elasticsearchClient,
-                    entityConfig.getIndex(),
-                    uri,
-                    jsonld);
+            LaneScheduler.Lane previousLane = LaneScheduler.enter(LaneScheduler.Lane.INTERACTIVE);
+            try {
+                ObjectNode jsonld = documentProvider(plan(entityConfig)).apply(uri);
+                for (FanOutDocumentSink.Target target : writeTargets(entityConfig)) {
+                    runScheduled(LaneScheduler.Resource.WRITE, () -> IndexingUtils.simpleIndexOne(target.getClient(),
+                            target.getIndex(),
+                            uri,
+                            jsonld));
+                }
+            } finally {
+                LaneScheduler.restore(previousLane);
+            }
         } else {
             log.warn("Indexing configuration with name {} not found.", entityName);
         }
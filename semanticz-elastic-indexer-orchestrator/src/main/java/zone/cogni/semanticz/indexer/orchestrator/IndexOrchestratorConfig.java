@@ -2,6 +2,7 @@ package zone.cogni.semanticz.indexer.orchestrator;
 
 import org.springframework.http.HttpMethod;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,6 +14,24 @@ public class IndexOrchestratorConfig {
 
     private List<EntityConfig> entityConfig;
 
+    private int facetCacheSize = 10_000;
+
+    private int sharedResourceCacheSize = 10_000;
+
+    private int maxConcurrentDocuments = 16;
+
+    private Duration submitDebounce = Duration.ofSeconds(1);
+
+    private int submitBatchSize = 500;
+
+    private int maxCascadeSize = 10_000;
+
+    private long maxInFlightBytes;
+
+    private int maxTargetLag = 10_000;
+
+    private LaneSchedulerConfig laneScheduler;
+
     public List<EntityConfig> getIndexing() {
         return entityConfig;
     }
@@ -25,6 +44,109 @@ public class IndexOrchestratorConfig {
         this.entityConfig = entityConfig;
     }
 
+    /**
+     * @return the maximum number of entity independent facet results kept in memory
+     */
+    public int getFacetCacheSize() {
+        return facetCacheSize;
+    }
+
+    public void setFacetCacheSize(int facetCacheSize) {
+        this.facetCacheSize = facetCacheSize;
+    }
+
+    /**
+     * @return the maximum number of shared resource models kept in memory, see {@link EntityConfig#getSharedResources()}
+     */
+    public int getSharedResourceCacheSize() {
+        return sharedResourceCacheSize;
+    }
+
+    public void setSharedResourceCacheSize(int sharedResourceCacheSize) {
+        this.sharedResourceCacheSize = sharedResourceCacheSize;
+    }
+
+    /**
+     * @return the maximum number of documents built at the same time when the orchestrator has an executor
+     */
+    public int getMaxConcurrentDocuments() {
+        return maxConcurrentDocuments;
+    }
+
+    public void setMaxConcurrentDocuments(int maxConcurrentDocuments) {
+        this.maxConcurrentDocuments = maxConcurrentDocuments;
+    }
+
+    /**
+     * @return how long submitted documents are collected before they are indexed in one batch
+     */
+    public Duration getSubmitDebounce() {
+        return submitDebounce;
+    }
+
+    public void setSubmitDebounce(Duration submitDebounce) {
+        this.submitDebounce = submitDebounce;
+    }
+
+    /**
+     * @return the maximum number of submitted documents sent in one bulk request
+     */
+    public int getSubmitBatchSize() {
+        return submitBatchSize;
+    }
+
+    public void setSubmitBatchSize(int submitBatchSize) {
+        this.submitBatchSize = submitBatchSize;
+    }
+
+    /**
+     * @return the maximum number of dependent documents a single cascading reindex may touch
+     */
+    public int getMaxCascadeSize() {
+        return maxCascadeSize;
+    }
+
+    public void setMaxCascadeSize(int maxCascadeSize) {
+        this.maxCascadeSize = maxCascadeSize;
+    }
+
+    /**
+     * @return the maximum serialised bytes of documents built but not yet acknowledged by Elasticsearch in the bulk
+     * sinks created by the orchestrator, or 0 to send bulk requests synchronously without a byte budget. With a budget,
+     * a full run without sink batches its documents in such a sink instead of indexing them one by one; write
+     * targets are not covered, their fan-out sink is bounded by {@link #getMaxTargetLag()}
+     */
+    public long getMaxInFlightBytes() {
+        return maxInFlightBytes;
+    }
+
+    public void setMaxInFlightBytes(long maxInFlightBytes) {
+        this.maxInFlightBytes = maxInFlightBytes;
+    }
+
+    /**
+     * @return the maximum number of documents a write target of an entity configuration may fall behind the fastest
+     * target of that configuration before document building waits for it
+     */
+    public int getMaxTargetLag() {
+        return maxTargetLag;
+    }
+
+    public void setMaxTargetLag(int maxTargetLag) {
+        this.maxTargetLag = maxTargetLag;
+    }
+
+    /**
+     * @return the priority lanes shared by interactive and bulk indexing, or null to run all work without lanes
+     */
+    public LaneSchedulerConfig getLaneScheduler() {
+        return laneScheduler;
+    }
+
+    public void setLaneScheduler(LaneSchedulerConfig laneScheduler) {
+        this.laneScheduler = laneScheduler;
+    }
+
     /**
      * Finds an indexing configuration by its name.
      *
@@ -37,6 +159,15 @@ public class IndexOrchestratorConfig {
                             .findFirst();
     }
 
+    /**
+     * Scope of a facet result.
+     * DOCUMENT results are computed for every entity, RUN results are computed once per indexing run.
+     */
+    public enum FacetScope {
+        DOCUMENT,
+        RUN
+    }
+
     /**
      * Configuration class for a facet.
      * Defines how a facet should be processed during indexing.
@@ -48,6 +179,9 @@ public class IndexOrchestratorConfig {
         private String accept;
         private String contentType;
         private HttpMethod method;
+        private FacetScope scope;
+        private Duration ttl;
+        private boolean streaming;
 
         public HttpMethod getMethod() {
             return method;
@@ -97,6 +231,39 @@ public class IndexOrchestratorConfig {
             this.path = path;
         }
 
+        /**
+         * @return the declared scope, or null to let the orchestrator detect entity independent facets
+         */
+        public FacetScope getScope() {
+            return scope;
+        }
+
+        public void setScope(FacetScope scope) {
+            this.scope = scope;
+        }
+
+        /**
+         * @return how long the facet result may be reused across entities and runs, or null to disable
+         */
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        /**
+         * @return whether an Elasticsearch facet response is parsed incrementally as it arrives, for large aggregations
+         */
+        public boolean isStreaming() {
+            return streaming;
+        }
+
+        public void setStreaming(boolean streaming) {
+            this.streaming = streaming;
+        }
+
         @Override
         public String toString() {
             return "FacetConfig{" +
@@ -106,6 +273,120 @@ public class IndexOrchestratorConfig {
                     ", accept='" + accept + '\'' +
                     ", contentType='" + contentType + '\'' +
                     ", method=" + method +
+                    ", scope=" + scope +
+                    ", ttl=" + ttl +
+                    ", streaming=" + streaming +
+                    '}';
+        }
+    }
+
+    /**
+     * A cluster and index the documents of an entity configuration are written to during a full indexing run.
+     */
+    public static class WriteTargetConfig {
+        private String cluster;
+        private String index;
+
+        /**
+         * @return the name of a cluster added to the orchestrator, or null for the cluster of the orchestrator itself
+         */
+        public String getCluster() {
+            return cluster;
+        }
+
+        public void setCluster(String cluster) {
+            this.cluster = cluster;
+        }
+
+        /**
+         * @return the index to write to, or null for the index of the entity configuration
+         */
+        public String getIndex() {
+            return index;
+        }
+
+        public void setIndex(String index) {
+            this.index = index;
+        }
+
+        @Override
+        public String toString() {
+            return "WriteTargetConfig{" +
+                    "cluster='" + cluster + '\'' +
+                    ", index='" + index + '\'' +
+                    '}';
+        }
+    }
+
+    /**
+     * A resource many entities link to, e.g. a publisher or license, constructed separately from the entities and
+     * cached by resource URI.
+     */
+    public static class SharedResourceConfig {
+        private String name;
+        private String property;
+        private String construct;
+        private String constructQueryParam = "uri";
+        private Duration ttl;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @return the URI of the property linking the entity to the shared resources
+         */
+        public String getProperty() {
+            return property;
+        }
+
+        public void setProperty(String property) {
+            this.property = property;
+        }
+
+        /**
+         * @return the SPARQL construct template of one shared resource
+         */
+        public String getConstruct() {
+            return construct;
+        }
+
+        public void setConstruct(String construct) {
+            this.construct = construct;
+        }
+
+        public String getConstructQueryParam() {
+            return constructQueryParam;
+        }
+
+        public void setConstructQueryParam(String constructQueryParam) {
+            this.constructQueryParam = constructQueryParam;
+        }
+
+        /**
+         * @return how long the constructed model may be reused across runs and single updates, or null to cache it
+         * only during an indexing run
+         */
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        @Override
+        public String toString() {
+            return "SharedResourceConfig{" +
+                    "name='" + name + '\'' +
+                    ", property='" + property + '\'' +
+                    ", construct='" + construct + '\'' +
+                    ", constructQueryParam='" + constructQueryParam + '\'' +
+                    ", ttl=" + ttl +
                     '}';
         }
     }
@@ -122,11 +403,16 @@ public class IndexOrchestratorConfig {
         private String constructQueryParam;
         private String select;
         private String selectQueryParam;
+        private String dependents;
 
         private String settings;
 
         private List<FacetConfig> facets;
 
+        private List<WriteTargetConfig> targets;
+
+        private List<SharedResourceConfig> sharedResources;
+
         public List<FacetConfig> getFacets() {
             return facets;
         }
@@ -151,6 +437,42 @@ public class IndexOrchestratorConfig {
             this.selectQueryParam = selectQueryParam;
         }
 
+        /**
+         * @return the SPARQL select template returning, in the {@code selectQueryParam} variable, the documents
+         * that embed data of the changed resource passed as {@code uri}; null when no document depends on others
+         */
+        public String getDependents() {
+            return dependents;
+        }
+
+        public void setDependents(String dependents) {
+            this.dependents = dependents;
+        }
+
+        /**
+         * @return the clusters and indices a full indexing run writes the documents to, each with its own bulk queue;
+         * null or empty to write to the index of this configuration in the cluster of the orchestrator
+         */
+        public List<WriteTargetConfig> getTargets() {
+            return targets;
+        }
+
+        public void setTargets(List<WriteTargetConfig> targets) {
+            this.targets = targets;
+        }
+
+        /**
+         * @return the resources constructed apart from the entity and merged into its model before shaping; the
+         * entity construct then only returns the link to them. Null or empty when the construct returns everything
+         */
+        public List<SharedResourceConfig> getSharedResources() {
+            return sharedResources;
+        }
+
+        public void setSharedResources(List<SharedResourceConfig> sharedResources) {
+            this.sharedResources = sharedResources;
+        }
+
         public String getSettings() {
             return settings;
         }
@@ -208,6 +530,9 @@ public class IndexOrchestratorConfig {
                     ", construct='" + construct + '\'' +
                     ", constructQueryParam='" + constructQueryParam + '\'' +
                     ", select='" + select + '\'' +
+                    ", dependents='" + dependents + '\'' +
+                    ", targets=" + targets +
+                    ", sharedResources=" + sharedResources +
                     '}';
         }
     }
@@ -0,0 +1,87 @@
+package zone.cogni.semanticz.indexer.orchestrator;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A slice of the documents of an indexing run, so that several indexer instances can share one run.
+ * <p>
+ * A URI belongs to partition {@code i} of {@code n} when its stable hash modulo {@code n} equals {@code i}.
+ * The hash is 64-bit FNV-1a over the UTF-8 bytes of the URI, so every instance, JVM and run agrees on the slice.
+ */
+public final class IndexPartition {
+
+    public static final IndexPartition ALL = new IndexPartition(0, 1);
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final int index;
+    private final int count;
+
+    private IndexPartition(int index, int count) {
+        this.index = index;
+        this.count = count;
+    }
+
+    /**
+     * @param index the zero based partition number
+     * @param count the total number of partitions
+     * @return partition {@code index} of {@code count}
+     */
+    public static IndexPartition of(int index, int count) {
+        if (count < 1 || index < 0 || index >= count) {
+            throw new IllegalArgumentException("Invalid partition " + index + " of " + count + ".");
+        }
+        return count == 1 ? ALL : new IndexPartition(index, count);
+    }
+
+    /**
+     * @return the partition number of the URI when the run is split into {@code count} partitions
+     */
+    public static int partitionOf(String uri, int count) {
+        return (int) Long.remainderUnsigned(hash(uri), count);
+    }
+
+    static long hash(String uri) {
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : uri.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    public boolean contains(String uri) {
+        return count == 1 || partitionOf(uri, count) == index;
+    }
+
+    public boolean isAll() {
+        return count == 1;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof IndexPartition)) return false;
+        IndexPartition that = (IndexPartition) o;
+        return index == that.index && count == that.count;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * index + count;
+    }
+
+    @Override
+    public String toString() {
+        return index + "/" + count;
+    }
+}
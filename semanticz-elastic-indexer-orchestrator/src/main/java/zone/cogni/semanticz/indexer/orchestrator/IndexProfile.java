@@ -0,0 +1,299 @@
+package zone.cogni.semanticz.indexer.orchestrator;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.stream.Collectors;
+
+/**
+ * Report of a dry run, see {@link IndexOrchestrator#profile(IndexAllOptions)}: per entity configuration the
+ * throughput, the time spent in every stage, the document sizes, the slowest facets and the largest documents.
+ * Stage times are summed over all documents, so with concurrent workers they add up to more than the wall time.
+ */
+public class IndexProfile {
+
+    static final int TOP_SIZE = 10;
+
+    private final List<EntityProfile> entities = new ArrayList<>();
+
+    public List<EntityProfile> getEntities() {
+        return entities;
+    }
+
+    EntityProfile addEntity(String name, String index) {
+        EntityProfile entity = new EntityProfile(name, index);
+        entities.add(entity);
+        return entity;
+    }
+
+    @Override
+    public String toString() {
+        return entities.stream().map(EntityProfile::toString).collect(Collectors.joining("\n"));
+    }
+
+    /**
+     * Profile of one entity configuration. Recording is thread safe.
+     */
+    public static class EntityProfile {
+
+        private final String name;
+        private final String index;
+        private int selected;
+        private int profiled;
+        private int failed;
+        private long selectNanos;
+        private long wallNanos;
+        private long constructNanos;
+        private long shapeNanos;
+        private long facetNanos;
+        private long serializeNanos;
+        private long totalBytes;
+        private final long[] sizeHistogram = new long[Long.SIZE];
+        private final Map<String, FacetTiming> facets = new HashMap<>();
+        private final PriorityQueue<DocumentSize> largestDocuments = new PriorityQueue<>(Comparator.comparingLong(DocumentSize::getBytes));
+
+        EntityProfile(String name, String index) {
+            this.name = name;
+            this.index = index;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getIndex() {
+            return index;
+        }
+
+        /**
+         * @return the number of URIs selected for the entity configuration
+         */
+        public synchronized int getSelected() {
+            return selected;
+        }
+
+        /**
+         * @return the number of sampled URIs for which a document was built
+         */
+        public synchronized int getProfiled() {
+            return profiled;
+        }
+
+        /**
+         * @return the number of sampled URIs for which building the document failed
+         */
+        public synchronized int getFailed() {
+            return failed;
+        }
+
+        public synchronized Duration getSelectTime() {
+            return Duration.ofNanos(selectNanos);
+        }
+
+        /**
+         * @return the time spent building the sampled documents, from the first to the last
+         */
+        public synchronized Duration getWallTime() {
+            return Duration.ofNanos(wallNanos);
+        }
+
+        public synchronized Duration getConstructTime() {
+            return Duration.ofNanos(constructNanos);
+        }
+
+        public synchronized Duration getShapeTime() {
+            return Duration.ofNanos(shapeNanos);
+        }
+
+        public synchronized Duration getFacetTime() {
+            return Duration.ofNanos(facetNanos);
+        }
+
+        public synchronized Duration getSerializeTime() {
+            return Duration.ofNanos(serializeNanos);
+        }
+
+        public synchronized long getTotalBytes() {
+            return totalBytes;
+        }
+
+        /**
+         * @return the documents built per second of wall time
+         */
+        public synchronized double getThroughput() {
+            return wallNanos == 0 ? 0 : profiled * 1e9 / wallNanos;
+        }
+
+        /**
+         * @return the expected time to build the documents of all selected URIs, extrapolated from the sample
+         */
+        public synchronized Duration getEstimatedTime() {
+            int built = profiled + failed;
+            return built == 0 ? Duration.ZERO : Duration.ofNanos((long) ((double) wallNanos / built * selected));
+        }
+
+        /**
+         * @return the number of documents per size bucket, keyed on the exclusive upper bound in bytes of the bucket,
+         * whose bounds are powers of two
+         */
+        public synchronized Map<Long, Long> getSizeHistogram() {
+            Map<Long, Long> histogram = new LinkedHashMap<>();
+            for (int bucket = 0; bucket < sizeHistogram.length; bucket++) {
+                if (sizeHistogram[bucket] > 0) histogram.put(1L << bucket, sizeHistogram[bucket]);
+            }
+            return histogram;
+        }
+
+        /**
+         * @return the facets with the highest total time, slowest first
+         */
+        public synchronized List<FacetTiming> getSlowestFacets() {
+            return facets.values().stream()
+                         .sorted(Comparator.comparingLong(FacetTiming::getTotalNanos).reversed())
+                         .limit(TOP_SIZE)
+                         .map(FacetTiming::copy)
+                         .collect(Collectors.toList());
+        }
+
+        /**
+         * @return the largest documents, largest first
+         */
+        public synchronized List<DocumentSize> getLargestDocuments() {
+            return largestDocuments.stream()
+                                   .sorted(Comparator.comparingLong(DocumentSize::getBytes).reversed())
+                                   .collect(Collectors.toList());
+        }
+
+        synchronized void recordSelection(int selected, long nanos) {
+            this.selected = selected;
+            this.selectNanos = nanos;
+        }
+
+        synchronized void recordWallTime(long nanos) {
+            this.wallNanos = nanos;
+        }
+
+        synchronized void recordFailure() {
+            failed++;
+        }
+
+        synchronized void recordDocument(String uri, long constructNanos, long shapeNanos, long facetNanos, long serializeNanos, long bytes) {
+            profiled++;
+            this.constructNanos += constructNanos;
+            this.shapeNanos += shapeNanos;
+            this.facetNanos += facetNanos;
+            this.serializeNanos += serializeNanos;
+            totalBytes += bytes;
+            sizeHistogram[Long.SIZE - Long.numberOfLeadingZeros(bytes)]++;
+
+            if (largestDocuments.size() < TOP_SIZE) {
+                largestDocuments.add(new DocumentSize(uri, bytes));
+            } else if (largestDocuments.peek().getBytes() < bytes) {
+                largestDocuments.poll();
+                largestDocuments.add(new DocumentSize(uri, bytes));
+            }
+        }
+
+        synchronized void recordFacet(String facet, long nanos) {
+            facets.computeIfAbsent(facet, FacetTiming::new).record(nanos);
+        }
+
+        @Override
+        public synchronized String toString() {
+            StringBuilder report = new StringBuilder();
+            report.append(String.format("%s (%s): %d of %d documents profiled, %d failed, %.1f documents/s, estimated %s for all%n",
+                    name, index, profiled, selected, failed, getThroughput(), getEstimatedTime()));
+            report.append(String.format("  stages: select %d ms, construct %d ms, shape %d ms, facets %d ms, serialize %d ms%n",
+                    selectNanos / 1_000_000, constructNanos / 1_000_000, shapeNanos / 1_000_000, facetNanos / 1_000_000, serializeNanos / 1_000_000));
+            report.append("  sizes:");
+            getSizeHistogram().forEach((bound, count) -> report.append(" <").append(bound).append("B=").append(count));
+            report.append(String.format("%n  slowest facets:"));
+            getSlowestFacets().forEach(facet -> report.append(' ').append(facet));
+            report.append(String.format("%n  largest documents:"));
+            getLargestDocuments().forEach(document -> report.append(' ').append(document));
+            return report.toString();
+        }
+    }
+
+    /**
+     * Time spent in one facet over all profiled documents.
+     */
+    public static class FacetTiming {
+
+        private final String name;
+        private long count;
+        private long totalNanos;
+        private long maxNanos;
+
+        FacetTiming(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        void record(long nanos) {
+            count++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+
+        FacetTiming copy() {
+            FacetTiming copy = new FacetTiming(name);
+            copy.count = count;
+            copy.totalNanos = totalNanos;
+            copy.maxNanos = maxNanos;
+            return copy;
+        }
+
+        @Override
+        public String toString() {
+            return name + "=" + totalNanos / 1_000_000 + "ms/" + count + " (max " + maxNanos / 1_000_000 + "ms)";
+        }
+    }
+
+    /**
+     * Serialised size of one document.
+     */
+    public static class DocumentSize {
+
+        private final String uri;
+        private final long bytes;
+
+        DocumentSize(String uri, long bytes) {
+            this.uri = uri;
+            this.bytes = bytes;
+        }
+
+        public String getUri() {
+            return uri;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        @Override
+        public String toString() {
+            return uri + "=" + bytes + "B";
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package zone.cogni.semanticz.indexer.orchestrator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor strategies for the blocking stages of the indexing pipeline (triple store queries and proxy calls).
+ * <p>
+ * On Java 21 and later a virtual thread per task is cheap, so tens of thousands of documents and facets can be in
+ * flight without a large platform thread pool. On older runtimes a bounded pool of platform threads is used instead.
+ * The library targets Java 11, so virtual threads are looked up reflectively.
+ */
+public final class IndexingExecutors {
+
+    private static final Logger log = LoggerFactory.getLogger(IndexingExecutors.class);
+
+    private IndexingExecutors() {
+    }
+
+    /**
+     * @return true if the running JVM supports virtual threads
+     */
+    public static boolean virtualThreadsAvailable() {
+        return findVirtualThreadFactoryMethod() != null;
+    }
+
+    /**
+     * Creates an executor that starts a virtual thread per task when available,
+     * and falls back to a bounded platform thread pool otherwise.
+     *
+     * @param platformThreads the number of threads of the fallback pool
+     * @return the executor; the caller is responsible for shutting it down
+     */
+    public static ExecutorService virtualThreadsOrBounded(int platformThreads) {
+        Method method = findVirtualThreadFactoryMethod();
+        if (method != null) {
+            try {
+                return (ExecutorService) method.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                log.warn("Virtual threads could not be created, falling back to {} platform threads.", platformThreads, e);
+            }
+        }
+        return bounded(platformThreads);
+    }
+
+    /**
+     * Creates a pool with a fixed number of daemon platform threads. Idle threads are released after a minute.
+     *
+     * @param threads the maximum number of threads
+     * @return the executor; the caller is responsible for shutting it down
+     */
+    public static ExecutorService bounded(int threads) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new IndexingThreadFactory());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static Method findVirtualThreadFactoryMethod() {
+        try {
+            return java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static final class IndexingThreadFactory implements ThreadFactory {
+        private static final AtomicInteger poolNumber = new AtomicInteger();
+
+        private final String prefix = "indexing-" + poolNumber.incrementAndGet() + "-";
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
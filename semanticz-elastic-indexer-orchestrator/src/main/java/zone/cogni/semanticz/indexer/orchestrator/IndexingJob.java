@@ -0,0 +1,316 @@
+package zone.cogni.semanticz.indexer.orchestrator;
+
+import zone.cogni.semanticz.indexer.bulk.WriteListener;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+
+/**
+ * Handle of a full indexing run started with {@link IndexOrchestrator#startIndexAll(IndexAllOptions)}: live progress
+ * per entity configuration, and cooperative pause, resume and cancellation.
+ * <p>
+ * Pausing and cancelling take effect before the next document is built: documents being built are finished and
+ * handed to the sink. A paused run keeps the documents already written to a batching sink until it resumes. A
+ * cancelled run stops selecting and building, closes the sinks it created, which sends their pending bulk requests,
+ * and completes with a {@link CancellationException}; stale documents are then not removed.
+ */
+public class IndexingJob {
+
+    public enum State {
+        RUNNING,
+        PAUSED,
+        COMPLETED,
+        CANCELLED,
+        FAILED
+    }
+
+    private final List<EntityProgress> entities = new CopyOnWriteArrayList<>();
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+    private boolean paused;
+    private boolean cancelled;
+
+    /**
+     * Stops building new documents until {@link #resume()} is called.
+     */
+    public synchronized void pause() {
+        paused = true;
+    }
+
+    public synchronized void resume() {
+        paused = false;
+        notifyAll();
+    }
+
+    /**
+     * Stops the run before the next document, also when it is paused. Returns right away; use {@link #await()} to
+     * wait until the documents in flight are delivered.
+     */
+    public synchronized void cancel() {
+        cancelled = true;
+        notifyAll();
+    }
+
+    public synchronized State getState() {
+        if (completion.isDone()) {
+            if (!completion.isCompletedExceptionally()) return State.COMPLETED;
+            return cancelled ? State.CANCELLED : State.FAILED;
+        }
+        return paused && !cancelled ? State.PAUSED : State.RUNNING;
+    }
+
+    /**
+     * @return the progress of every entity configuration started so far, in indexing order
+     */
+    public List<Progress> getProgress() {
+        long now = System.nanoTime();
+        return entities.stream().map(entity -> entity.snapshot(now)).collect(Collectors.toList());
+    }
+
+    /**
+     * @return a future completing when the run ends, exceptionally when it failed or was cancelled
+     */
+    public CompletableFuture<Void> getCompletion() {
+        return completion;
+    }
+
+    /**
+     * Waits until the run ends.
+     *
+     * @throws CancellationException when the run was cancelled
+     * @throws RuntimeException      when the run failed
+     */
+    public void await() {
+        try {
+            completion.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the indexing job", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new RuntimeException("Indexing job failed", cause);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getState() + " " + getProgress();
+    }
+
+    /**
+     * Blocks while the job is paused.
+     *
+     * @throws CancellationException when the job is cancelled
+     */
+    synchronized void checkpoint() {
+        while (paused && !cancelled) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while the indexing job is paused", e);
+            }
+        }
+        if (cancelled) {
+            throw new CancellationException("Indexing job was cancelled");
+        }
+    }
+
+    EntityProgress startEntity(String name, String index) {
+        EntityProgress entity = new EntityProgress(this, name, index);
+        entities.add(entity);
+        return entity;
+    }
+
+    void complete(Throwable failure) {
+        entities.forEach(EntityProgress::finish);
+        if (failure == null) {
+            completion.complete(null);
+        } else {
+            completion.completeExceptionally(failure);
+        }
+    }
+
+    /**
+     * Live counters of one entity configuration. The rate is measured over the last ten seconds of building.
+     * Written and rejected documents are reported by the sink, as a {@link WriteListener}.
+     */
+    static final class EntityProgress implements WriteListener {
+
+        private static final long SAMPLE_INTERVAL = 1_000_000_000L;
+        private static final int SAMPLES = 10;
+
+        private final IndexingJob job;
+        private final String name;
+        private final String index;
+        private final long[] sampleTimes = new long[SAMPLES];
+        private final long[] sampleCounts = new long[SAMPLES];
+        private int sampleCount;
+        private int nextSample;
+        private long selected;
+        private long built;
+        private long written;
+        private long failed;
+        private long rejected;
+        private boolean done;
+
+        private EntityProgress(IndexingJob job, String name, String index) {
+            this.job = job;
+            this.name = name;
+            this.index = index;
+            sample(System.nanoTime());
+        }
+
+        void checkpoint() {
+            job.checkpoint();
+        }
+
+        synchronized void recordSelected(long selected) {
+            this.selected = selected;
+        }
+
+        synchronized void recordBuilt() {
+            built++;
+            long now = System.nanoTime();
+            if (now - sampleTimes[(nextSample + SAMPLES - 1) % SAMPLES] >= SAMPLE_INTERVAL) sample(now);
+        }
+
+        synchronized void recordWritten(long count) {
+            written += count;
+        }
+
+        synchronized void recordFailure() {
+            failed++;
+        }
+
+        synchronized void recordRejected() {
+            rejected++;
+        }
+
+        @Override
+        public void onWritten(String index, String id) {
+            recordWritten(1);
+        }
+
+        @Override
+        public void onFailed(String index, String id, String reason) {
+            recordRejected();
+        }
+
+        synchronized void finish() {
+            done = true;
+        }
+
+        private void sample(long now) {
+            sampleTimes[nextSample] = now;
+            sampleCounts[nextSample] = built;
+            nextSample = (nextSample + 1) % SAMPLES;
+            sampleCount = Math.min(SAMPLES, sampleCount + 1);
+        }
+
+        private synchronized Progress snapshot(long now) {
+            int oldest = sampleCount < SAMPLES ? 0 : nextSample;
+            long elapsed = now - sampleTimes[oldest];
+            double rate = elapsed <= 0 ? 0 : (built - sampleCounts[oldest]) * 1e9 / elapsed;
+            // rejected documents were built, they are not remaining
+            long remaining = Math.max(0, selected - built - failed);
+            Duration eta = done || remaining == 0 ? Duration.ZERO : rate > 0 ? Duration.ofMillis((long) (remaining / rate * 1000)) : null;
+            return new Progress(name, index, selected, built, written, failed + rejected, rate, eta, done);
+        }
+    }
+
+    /**
+     * Progress of one entity configuration at a point in time.
+     */
+    public static final class Progress {
+
+        private final String name;
+        private final String index;
+        private final long selected;
+        private final long built;
+        private final long written;
+        private final long failed;
+        private final double documentsPerSecond;
+        private final Duration eta;
+        private final boolean done;
+
+        Progress(String name, String index, long selected, long built, long written, long failed,
+                 double documentsPerSecond, Duration eta, boolean done) {
+            this.name = name;
+            this.index = index;
+            this.selected = selected;
+            this.built = built;
+            this.written = written;
+            this.failed = failed;
+            this.documentsPerSecond = documentsPerSecond;
+            this.eta = eta;
+            this.done = done;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getIndex() {
+            return index;
+        }
+
+        /**
+         * @return the number of URIs selected, 0 while the select query runs
+         */
+        public long getSelected() {
+            return selected;
+        }
+
+        public long getBuilt() {
+            return built;
+        }
+
+        /**
+         * @return the number of documents Elasticsearch acknowledged; documents written to a sink that cannot tell,
+         * e.g. a segment file, are counted once handed to it
+         */
+        public long getWritten() {
+            return written;
+        }
+
+        /**
+         * @return the number of documents that failed to build, were rejected by Elasticsearch or whose bulk request
+         * failed
+         */
+        public long getFailed() {
+            return failed;
+        }
+
+        /**
+         * @return the documents built per second over the last ten seconds
+         */
+        public double getDocumentsPerSecond() {
+            return documentsPerSecond;
+        }
+
+        /**
+         * @return the expected time until every selected document is built at the current rate, or null when
+         * nothing was built recently
+         */
+        public Duration getEta() {
+            return eta;
+        }
+
+        public boolean isDone() {
+            return done;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s (%s): %d selected, %d built, %d written, %d failed, %.1f documents/s, eta %s%s",
+                    name, index, selected, built, written, failed, documentsPerSecond, eta, done ? ", done" : "");
+        }
+    }
+}
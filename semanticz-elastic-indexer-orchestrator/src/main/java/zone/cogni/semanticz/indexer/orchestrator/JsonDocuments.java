@@ -0,0 +1,56 @@
+package zone.cogni.semanticz.indexer.orchestrator;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import zone.cogni.semanticz.indexer.bulk.RawJsonDocument;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Serialises index documents straight to bytes with a Jackson generator.
+ */
+final class JsonDocuments {
+
+    static final String FACETS_FIELD = "facets";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private JsonDocuments() {
+    }
+
+    /**
+     * Writes the JSON-LD fields followed by the facets, without attaching the facets to the JSON-LD tree.
+     * Produces the same document as setting the facets field on the JSON-LD object and serialising it,
+     * except that the facets field always comes last.
+     *
+     * @param jsonld the shaped JSON-LD object
+     * @param facets the facet values
+     * @return the serialised document
+     */
+    static RawJsonDocument write(ObjectNode jsonld, ObjectNode facets) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+        try (JsonGenerator generator = MAPPER.getFactory().createGenerator(out)) {
+            generator.writeStartObject();
+            Iterator<Map.Entry<String, JsonNode>> fields = jsonld.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                if (FACETS_FIELD.equals(field.getKey())) continue;
+
+                generator.writeFieldName(field.getKey());
+                MAPPER.writeTree(generator, field.getValue());
+            }
+            generator.writeFieldName(FACETS_FIELD);
+            MAPPER.writeTree(generator, facets);
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to serialise document", e);
+        }
+        return RawJsonDocument.of(out.toByteArray());
+    }
+}
@@ -0,0 +1,220 @@
+package zone.cogni.semanticz.indexer.orchestrator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Shares the construct, facet and write capacity of the orchestrator between an interactive and a bulk lane, so
+ * single document updates stay fast while a full rebuild saturates the triple store and Elasticsearch.
+ * <p>
+ * Every resource has a fixed number of permits. Dispatch is strict priority: while an interactive call waits for a
+ * permit, no bulk call gets one. The bulk lane may also hold only a share of the permits, so a released permit is
+ * usually free for the next interactive call. That share adapts to the latency target: when interactive calls of a
+ * resource take longer, the bulk limit of the resource is halved, at most once per target interval, and it grows
+ * back one permit at a time once they are fast again or no interactive work arrives.
+ * <p>
+ * The lane of a call is the lane of the calling thread, see {@link #enter(Lane)}. Threads without a lane are
+ * interactive.
+ */
+public final class LaneScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(LaneScheduler.class);
+
+    private static final ThreadLocal<Lane> currentLane = new ThreadLocal<>();
+    private static final int IDLE_INTERVALS = 10;
+    private static final double LATENCY_WEIGHT = 0.2;
+
+    public enum Lane {
+        INTERACTIVE,
+        BULK
+    }
+
+    public enum Resource {
+        CONSTRUCT,
+        FACET,
+        WRITE
+    }
+
+    private final Map<Resource, Gate> gates = new EnumMap<>(Resource.class);
+
+    LaneScheduler(LaneSchedulerConfig config) {
+        long targetNanos = config.getInteractiveLatencyTarget().toNanos();
+        gates.put(Resource.CONSTRUCT, new Gate(Resource.CONSTRUCT, config.getConstructPermits(), config.getBulkShare(), targetNanos));
+        gates.put(Resource.FACET, new Gate(Resource.FACET, config.getFacetPermits(), config.getBulkShare(), targetNanos));
+        gates.put(Resource.WRITE, new Gate(Resource.WRITE, config.getWritePermits(), config.getBulkShare(), targetNanos));
+    }
+
+    /**
+     * @return the lane of the calling thread
+     */
+    public static Lane currentLane() {
+        Lane lane = currentLane.get();
+        return lane == null ? Lane.INTERACTIVE : lane;
+    }
+
+    /**
+     * Sets the lane of the calling thread.
+     *
+     * @param lane the lane to enter
+     * @return the previous lane of the thread, to pass to {@link #restore(Lane)}
+     */
+    public static Lane enter(Lane lane) {
+        Lane previous = currentLane.get();
+        currentLane.set(lane);
+        return previous;
+    }
+
+    /**
+     * Restores the lane of the calling thread returned by {@link #enter(Lane)}.
+     */
+    public static void restore(Lane previous) {
+        if (previous == null) {
+            currentLane.remove();
+        } else {
+            currentLane.set(previous);
+        }
+    }
+
+    /**
+     * Runs a task in the given lane on the calling thread.
+     */
+    public static void runInLane(Lane lane, Runnable task) {
+        Lane previous = enter(lane);
+        try {
+            task.run();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    /**
+     * Runs a call holding a permit of the resource, in the lane of the calling thread.
+     *
+     * @param resource the resource the call uses
+     * @param call     the call
+     * @return the result of the call
+     */
+    public <T> T call(Resource resource, Supplier<T> call) {
+        Gate gate = gates.get(resource);
+        Lane lane = currentLane();
+        long start = System.nanoTime();
+        gate.acquire(lane);
+        try {
+            return call.get();
+        } finally {
+            gate.release(lane, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @return the number of permits of the resource the bulk lane may currently hold
+     */
+    public int getBulkLimit(Resource resource) {
+        return gates.get(resource).bulkLimit();
+    }
+
+    /**
+     * @return the moving average of the time interactive calls of the resource take, waiting included
+     */
+    public Duration getInteractiveLatency(Resource resource) {
+        return Duration.ofNanos(gates.get(resource).interactiveLatency());
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder description = new StringBuilder("LaneScheduler{");
+        gates.values().forEach(gate -> description.append(gate).append(' '));
+        return description.append('}').toString();
+    }
+
+    private static final class Gate {
+
+        private final Resource resource;
+        private final int permits;
+        private final int maxBulk;
+        private final long targetNanos;
+        private int inUse;
+        private int bulkInUse;
+        private int bulkLimit;
+        private int interactiveWaiting;
+        private long interactiveLatency;
+        private long lastInteractive;
+        private long lastAdjustment;
+
+        private Gate(Resource resource, int permits, double bulkShare, long targetNanos) {
+            if (permits < 1) {
+                throw new IllegalArgumentException("Permits of " + resource + " must be at least 1, got " + permits);
+            }
+            this.resource = resource;
+            this.permits = permits;
+            this.maxBulk = Math.max(1, (int) (permits * Math.max(0, Math.min(1, bulkShare))));
+            this.targetNanos = targetNanos;
+            this.bulkLimit = maxBulk;
+            this.lastInteractive = System.nanoTime() - IDLE_INTERVALS * targetNanos;
+            this.lastAdjustment = System.nanoTime();
+        }
+
+        private synchronized void acquire(Lane lane) {
+            boolean interactive = lane == Lane.INTERACTIVE;
+            if (interactive) interactiveWaiting++;
+            try {
+                while (interactive ? inUse >= permits : inUse >= permits || bulkInUse >= bulkLimit || interactiveWaiting > 0) {
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for a " + resource + " permit", e);
+            } finally {
+                if (interactive) interactiveWaiting--;
+            }
+            inUse++;
+            if (!interactive) bulkInUse++;
+        }
+
+        private synchronized void release(Lane lane, long nanos) {
+            inUse--;
+            long now = System.nanoTime();
+            if (lane == Lane.INTERACTIVE) {
+                interactiveLatency = interactiveLatency == 0 ? nanos : (long) ((1 - LATENCY_WEIGHT) * interactiveLatency + LATENCY_WEIGHT * nanos);
+                lastInteractive = now;
+            } else {
+                bulkInUse--;
+            }
+            adjust(now);
+            notifyAll();
+        }
+
+        private void adjust(long now) {
+            if (now - lastAdjustment < targetNanos) return;
+
+            lastAdjustment = now;
+            boolean idle = now - lastInteractive > IDLE_INTERVALS * targetNanos;
+            if (!idle && interactiveLatency > targetNanos) {
+                if (bulkLimit > 1) {
+                    bulkLimit = Math.max(1, bulkLimit / 2);
+                    log.debug("Interactive {} calls take {} ms, bulk lane limited to {} permits", resource, interactiveLatency / 1_000_000, bulkLimit);
+                }
+            } else if (bulkLimit < maxBulk && (idle || interactiveLatency < targetNanos / 2)) {
+                bulkLimit++;
+            }
+        }
+
+        private synchronized int bulkLimit() {
+            return bulkLimit;
+        }
+
+        private synchronized long interactiveLatency() {
+            return interactiveLatency;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return resource + "=" + inUse + "/" + permits + " (bulk " + bulkInUse + "/" + bulkLimit + ")";
+        }
+    }
+}
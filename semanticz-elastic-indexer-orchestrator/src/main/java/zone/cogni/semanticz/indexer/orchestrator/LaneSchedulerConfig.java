@@ -0,0 +1,83 @@
+package zone.cogni.semanticz.indexer.orchestrator;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the priority lanes of the orchestrator, see {@link LaneScheduler}.
+ */
+public class LaneSchedulerConfig {
+
+    private int constructPermits = 8;
+    private int facetPermits = 16;
+    private int writePermits = 4;
+    private double bulkShare = 0.75;
+    private Duration interactiveLatencyTarget = Duration.ofMillis(500);
+
+    /**
+     * @return the maximum number of construct queries running at the same time
+     */
+    public int getConstructPermits() {
+        return constructPermits;
+    }
+
+    public void setConstructPermits(int constructPermits) {
+        this.constructPermits = constructPermits;
+    }
+
+    /**
+     * @return the maximum number of SPARQL and Elasticsearch facet queries running at the same time
+     */
+    public int getFacetPermits() {
+        return facetPermits;
+    }
+
+    public void setFacetPermits(int facetPermits) {
+        this.facetPermits = facetPermits;
+    }
+
+    /**
+     * @return the maximum number of document writes running at the same time
+     */
+    public int getWritePermits() {
+        return writePermits;
+    }
+
+    public void setWritePermits(int writePermits) {
+        this.writePermits = writePermits;
+    }
+
+    /**
+     * @return the fraction, between 0 and 1, of the permits of a resource the bulk lane may hold at most; the rest
+     * is kept free for interactive work. At least one permit is always available to the bulk lane
+     */
+    public double getBulkShare() {
+        return bulkShare;
+    }
+
+    public void setBulkShare(double bulkShare) {
+        this.bulkShare = bulkShare;
+    }
+
+    /**
+     * @return the time an interactive call of a resource should take, waiting included; while interactive calls
+     * are slower, the bulk lane gets fewer permits of that resource
+     */
+    public Duration getInteractiveLatencyTarget() {
+        return interactiveLatencyTarget;
+    }
+
+    public void setInteractiveLatencyTarget(Duration interactiveLatencyTarget) {
+        this.interactiveLatencyTarget = interactiveLatencyTarget;
+    }
+
+    @Override
+    public String toString() {
+        return "LaneSchedulerConfig{" +
+                "constructPermits=" + constructPermits +
+                ", facetPermits=" + facetPermits +
+                ", writePermits=" + writePermits +
+                ", bulkShare=" + bulkShare +
+                ", interactiveLatencyTarget=" + interactiveLatencyTarget +
+                '}';
+    }
+}
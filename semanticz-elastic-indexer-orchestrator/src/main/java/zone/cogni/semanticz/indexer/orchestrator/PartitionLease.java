@@ -0,0 +1,130 @@
+package zone.cogni.semanticz.indexer.orchestrator;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.Refresh;
+import co.elastic.clients.elasticsearch.core.GetResponse;
+import org.elasticsearch.client.ResponseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Claim of one partition of a run, stored as a document in a lease index.
+ * <p>
+ * Lease documents are created with {@code op_type=create}, so a second instance claiming the same partition of the
+ * same run fails instead of indexing the slice twice. When its partition is done an instance marks its lease done;
+ * the instance that sees every partition done claims the finalisation document and runs the final steps once.
+ */
+final class PartitionLease {
+
+    private static final Logger log = LoggerFactory.getLogger(PartitionLease.class);
+
+    private static final int CONFLICT = 409;
+
+    private final ElasticsearchClient elasticsearchClient;
+    private final String leaseIndex;
+    private final String runId;
+    private final IndexPartition partition;
+    private final String owner;
+
+    private PartitionLease(ElasticsearchClient elasticsearchClient, String leaseIndex, String runId, IndexPartition partition, String owner) {
+        this.elasticsearchClient = elasticsearchClient;
+        this.leaseIndex = leaseIndex;
+        this.runId = runId;
+        this.partition = partition;
+        this.owner = owner;
+    }
+
+    /**
+     * @throws IllegalStateException when another instance already claimed the partition
+     */
+    static PartitionLease acquire(ElasticsearchClient elasticsearchClient, String leaseIndex, String runId, IndexPartition partition, String owner) {
+        PartitionLease lease = new PartitionLease(elasticsearchClient, leaseIndex, runId, partition, owner);
+        if (!lease.create(lease.leaseId(partition.getIndex()), lease.leaseDocument("running"))) {
+            throw new IllegalStateException("Partition " + partition + " of run " + runId + " is already claimed.");
+        }
+        log.info("Claimed partition {} of run {} as {}", partition, runId, owner);
+        return lease;
+    }
+
+    void markDone() {
+        try {
+            elasticsearchClient.index(request -> request.index(leaseIndex)
+                                                        .id(leaseId(partition.getIndex()))
+                                                        .document(leaseDocument("done"))
+                                                        .refresh(Refresh.True));
+        } catch (IOException e) {
+            throw new RuntimeException("Marking partition " + partition + " of run " + runId + " done failed", e);
+        }
+    }
+
+    /**
+     * Deletes the lease after a failure, so the partition can be claimed again.
+     */
+    void release() {
+        try {
+            elasticsearchClient.delete(request -> request.index(leaseIndex)
+                                                         .id(leaseId(partition.getIndex()))
+                                                         .refresh(Refresh.True));
+        } catch (IOException | ElasticsearchException e) {
+            log.warn("Releasing partition {} of run {} failed", partition, runId, e);
+        }
+    }
+
+    /**
+     * @return true for exactly one instance, once every partition of the run is done
+     */
+    boolean claimFinalisation() {
+        for (int i = 0; i < partition.getCount(); i++) {
+            if (!isDone(i)) return false;
+        }
+        return create(runId + "-final", Map.of("runId", runId, "owner", owner, "time", Instant.now().toString()));
+    }
+
+    @SuppressWarnings("rawtypes")
+    private boolean isDone(int partitionIndex) {
+        String id = leaseId(partitionIndex);
+        try {
+            GetResponse<Map> response = elasticsearchClient.get(request -> request.index(leaseIndex).id(id), Map.class);
+            return response.found() && "done".equals(response.source().get("status"));
+        } catch (IOException e) {
+            throw new RuntimeException("Reading lease " + id + " failed", e);
+        }
+    }
+
+    private boolean create(String id, Map<String, Object> document) {
+        try {
+            elasticsearchClient.create(request -> request.index(leaseIndex)
+                                                         .id(id)
+                                                         .document(document)
+                                                         .refresh(Refresh.True));
+            return true;
+        } catch (ElasticsearchException e) {
+            if (e.status() == CONFLICT) return false;
+            throw e;
+        } catch (ResponseException e) {
+            // the rest client transport reports a conflict as an error response of the low level client
+            if (e.getResponse().getStatusLine().getStatusCode() == CONFLICT) return false;
+            throw new RuntimeException("Creating lease " + id + " in " + leaseIndex + " failed", e);
+        } catch (IOException e) {
+            throw new RuntimeException("Creating lease " + id + " in " + leaseIndex + " failed", e);
+        }
+    }
+
+    private String leaseId(int partitionIndex) {
+        return runId + "-" + partitionIndex + "-of-" + partition.getCount();
+    }
+
+    private Map<String, Object> leaseDocument(String status) {
+        return Map.of("runId", runId,
+                "partition", partition.getIndex(),
+                "partitions", partition.getCount(),
+                "owner", owner,
+                "status", status,
+                "time", Instant.now().toString());
+    }
+}
@@ -0,0 +1,106 @@
+package zone.cogni.semanticz.indexer.orchestrator;
+
+import org.apache.jena.rdf.model.Model;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Caches the constructed models of shared resources by resource URI.
+ * <p>
+ * Without a ttl, a model is only cached while an indexing run is active and dropped when the last run ends, so single
+ * updates always see the current data. With a ttl it is reused across runs until it expires. Cached models are
+ * shared between documents and must not be modified.
+ */
+class SharedResourceCache {
+
+    private final BoundedCache<Key, CachedModel> cache;
+    private int activeRuns;
+
+    SharedResourceCache(int maxSize) {
+        this.cache = new BoundedCache<>(maxSize);
+    }
+
+    synchronized void beginRun() {
+        activeRuns++;
+    }
+
+    synchronized void endRun() {
+        activeRuns = Math.max(0, activeRuns - 1);
+        if (activeRuns == 0) {
+            cache.removeIf((key, model) -> model.runScoped);
+        }
+    }
+
+    private synchronized boolean isRunActive() {
+        return activeRuns > 0;
+    }
+
+    /**
+     * Returns the model of the shared resource, constructing and caching it when it is not cached.
+     *
+     * @param plan      the shared resource configuration
+     * @param uri       the URI of the shared resource
+     * @param construct constructs the model on a miss
+     */
+    Model get(SharedResourcePlan plan, String uri, Supplier<Model> construct) {
+        boolean runScoped = plan.getConfig().getTtl() == null;
+        if (runScoped && !isRunActive()) return construct.get();
+
+        Key key = new Key(plan.getConfig(), uri);
+        CachedModel cached = cache.get(key);
+        if (cached != null) return cached.model;
+
+        Model model = construct.get();
+        cache.put(key, new CachedModel(model, runScoped), plan.getConfig().getTtl());
+        return model;
+    }
+
+    /**
+     * Drops the cached models of the given resources, e.g. because they changed.
+     */
+    void evict(Collection<String> uris) {
+        Set<String> evicted = new HashSet<>(uris);
+        cache.removeIf((key, model) -> evicted.contains(key.uri));
+    }
+
+    int size() {
+        return cache.size();
+    }
+
+    private static final class Key {
+        private final IndexOrchestratorConfig.SharedResourceConfig config;
+        private final String uri;
+
+        private Key(IndexOrchestratorConfig.SharedResourceConfig config, String uri) {
+            this.config = config;
+            this.uri = uri;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return config == key.config && Objects.equals(uri, key.uri);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(config) + Objects.hashCode(uri);
+        }
+    }
+
+    private static final class CachedModel {
+        private final Model model;
+        private final boolean runScoped;
+
+        private CachedModel(Model model, boolean runScoped) {
+            this.model = model;
+            this.runScoped = runScoped;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package zone.cogni.semanticz.indexer.orchestrator;
+
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.ResourceFactory;
+import zone.cogni.semanticz.webflux.TemplateUtils;
+
+/**
+ * Precompiled form of a {@link IndexOrchestratorConfig.SharedResourceConfig}: the linking property is resolved and
+ * the construct template is loaded once.
+ */
+public final class SharedResourcePlan {
+
+    private final IndexOrchestratorConfig.SharedResourceConfig config;
+    private final Property property;
+    private final String constructTemplate;
+
+    private SharedResourcePlan(IndexOrchestratorConfig.SharedResourceConfig config, Property property, String constructTemplate) {
+        this.config = config;
+        this.property = property;
+        this.constructTemplate = constructTemplate;
+    }
+
+    static SharedResourcePlan compile(IndexOrchestratorConfig.SharedResourceConfig config, String extFolder) {
+        if (config.getProperty() == null || config.getConstruct() == null) {
+            throw new IllegalArgumentException("Shared resource " + config.getName() + " needs a property and a construct template");
+        }
+        return new SharedResourcePlan(config,
+                ResourceFactory.createProperty(config.getProperty()),
+                TemplateUtils.loadResource(config.getConstruct(), extFolder));
+    }
+
+    public IndexOrchestratorConfig.SharedResourceConfig getConfig() {
+        return config;
+    }
+
+    public Property getProperty() {
+        return property;
+    }
+
+    public String getConstructTemplate() {
+        return constructTemplate;
+    }
+}
@@ -0,0 +1,240 @@
+package zone.cogni.semanticz.indexer.orchestrator;
+
+import co.elastic.clients.elasticsearch._types.Refresh;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import zone.cogni.semanticz.indexer.bulk.FanOutDocumentSink;
+import zone.cogni.semanticz.indexer.bulk.RawJsonDocument;
+import zone.cogni.semanticz.indexer.utils.IndexingUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Collects single document index requests and indexes them in batches.
+ * <p>
+ * The first submission opens a debounce window. Submissions of a URI that is already waiting in the window share its
+ * future, so saving the same entity many times in quick succession rebuilds it once. When the window closes the
+ * pending documents are built, grouped per entity configuration and sent in bulk requests with
+ * {@link Refresh#WaitFor} to every write target of the configuration, so a completed future means the document is
+ * visible to searches in each of them.
+ * A submission arriving while its URI is being indexed waits for the next window.
+ */
+final class SubmissionQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(SubmissionQueue.class);
+
+    private final IndexOrchestrator orchestrator;
+    private final Duration debounce;
+    private final int batchSize;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "index-submissions");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Map<Submission, CompletableFuture<Void>> pending = new LinkedHashMap<>();
+    private ScheduledFuture<?> scheduledFlush;
+
+    SubmissionQueue(IndexOrchestrator orchestrator, Duration debounce, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Submit batch size must be at least 1, got " + batchSize);
+        }
+        this.orchestrator = orchestrator;
+        this.debounce = debounce;
+        this.batchSize = batchSize;
+    }
+
+    synchronized CompletableFuture<Void> submit(IndexOrchestratorConfig.EntityConfig entityConfig, String uri) {
+        CompletableFuture<Void> future = pending.computeIfAbsent(new Submission(entityConfig, uri), key -> new CompletableFuture<>());
+        if (scheduledFlush == null) {
+            scheduledFlush = scheduler.schedule(this::flush, debounce.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        return future;
+    }
+
+    /**
+     * Closes the current debounce window right away.
+     *
+     * @return a future completing once every document pending at the time of the call is indexed
+     */
+    synchronized CompletableFuture<Void> flushNow() {
+        if (pending.isEmpty()) return CompletableFuture.completedFuture(null);
+
+        CompletableFuture<?>[] futures = pending.values().toArray(new CompletableFuture<?>[0]);
+        if (scheduledFlush != null) scheduledFlush.cancel(false);
+        scheduledFlush = scheduler.schedule(this::flush, 0, TimeUnit.MILLISECONDS);
+        return CompletableFuture.allOf(futures).exceptionally(e -> null);
+    }
+
+    private synchronized Map<Submission, CompletableFuture<Void>> takePending() {
+        Map<Submission, CompletableFuture<Void>> taken = pending;
+        pending = new LinkedHashMap<>();
+        scheduledFlush = null;
+        return taken;
+    }
+
+    private void flush() {
+        Map<Submission, CompletableFuture<Void>> batch = takePending();
+        if (batch.isEmpty()) return;
+
+        Map<IndexOrchestratorConfig.EntityConfig, Map<String, CompletableFuture<Void>>> byEntity = new LinkedHashMap<>();
+        batch.forEach((submission, future) -> byEntity.computeIfAbsent(submission.entityConfig, key -> new LinkedHashMap<>())
+                                                      .put(submission.uri, future));
+        LaneScheduler.runInLane(LaneScheduler.Lane.INTERACTIVE, () -> byEntity.forEach(this::indexEntity));
+    }
+
+    private void indexEntity(IndexOrchestratorConfig.EntityConfig entityConfig, Map<String, CompletableFuture<Void>> futures) {
+        Function<String, RawJsonDocument> documentWriter;
+        try {
+            documentWriter = orchestrator.documentWriter(orchestrator.plan(entityConfig));
+        } catch (RuntimeException e) {
+            futures.values().forEach(future -> future.completeExceptionally(e));
+            return;
+        }
+
+        List<FanOutDocumentSink.Target> targets;
+        try {
+            targets = orchestrator.writeTargets(entityConfig);
+        } catch (RuntimeException e) {
+            futures.values().forEach(future -> future.completeExceptionally(e));
+            return;
+        }
+
+        List<String> uris = new ArrayList<>(futures.keySet());
+        for (int from = 0; from < uris.size(); from += batchSize) {
+            List<String> chunk = uris.subList(from, Math.min(from + batchSize, uris.size()));
+            indexChunk(targets, chunk, documentWriter, futures);
+        }
+    }
+
+    /**
+     * Sends the documents of a chunk to every write target. A future completes once all targets stored its document,
+     * and fails with the first failure of any target.
+     */
+    private void indexChunk(List<FanOutDocumentSink.Target> targets, List<String> uris, Function<String, RawJsonDocument> documentWriter,
+                            Map<String, CompletableFuture<Void>> futures) {
+        Map<String, RawJsonDocument> documents = buildDocuments(uris, documentWriter, futures);
+        if (documents.isEmpty()) return;
+
+        Map<String, RuntimeException> failures = new LinkedHashMap<>();
+        for (FanOutDocumentSink.Target target : targets) {
+            indexChunk(target, documents, failures);
+        }
+        documents.keySet().forEach(uri -> {
+            RuntimeException failure = failures.get(uri);
+            if (failure != null) {
+                futures.get(uri).completeExceptionally(failure);
+            } else {
+                futures.get(uri).complete(null);
+            }
+        });
+    }
+
+    private void indexChunk(FanOutDocumentSink.Target target, Map<String, RawJsonDocument> documents, Map<String, RuntimeException> failures) {
+        String index = target.getIndex();
+        List<BulkOperation> operations = new ArrayList<>(documents.size());
+        documents.forEach((uri, document) -> operations.add(IndexingUtils.parseIndexRequest(index, uri, document)));
+
+        BulkRequest request = IndexingUtils.createBulkRequest(operations, Refresh.WaitFor);
+        try {
+            BulkResponse response = orchestrator.callScheduled(LaneScheduler.Resource.WRITE, () -> {
+                try {
+                    return target.getClient().bulk(request);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            List<String> sent = new ArrayList<>(documents.keySet());
+            List<BulkResponseItem> items = response.items();
+            for (int i = 0; i < sent.size(); i++) {
+                BulkResponseItem item = i < items.size() ? items.get(i) : null;
+                if (item != null && item.error() != null) {
+                    failures.putIfAbsent(sent.get(i), new RuntimeException("Indexing " + sent.get(i) + " in " + target.getName() + " failed: " + item.error().reason()));
+                }
+            }
+            log.info("Indexed {} submitted documents in {}", sent.size(), target.getName());
+        } catch (RuntimeException e) {
+            Throwable cause = e instanceof UncheckedIOException ? e.getCause() : e;
+            RuntimeException failure = new RuntimeException("Something went wrong while sending bulk request to " + target.getName(), cause);
+            documents.keySet().forEach(uri -> failures.putIfAbsent(uri, failure));
+        }
+    }
+
+    /**
+     * Builds the documents of a chunk, concurrently when the orchestrator has an executor.
+     * A document that fails to build only fails its own future.
+     */
+    private Map<String, RawJsonDocument> buildDocuments(List<String> uris, Function<String, RawJsonDocument> documentWriter,
+                                                        Map<String, CompletableFuture<Void>> futures) {
+        Map<String, RawJsonDocument> documents = new LinkedHashMap<>();
+        Executor executor = orchestrator.getExecutor();
+        if (executor == null) {
+            for (String uri : uris) {
+                try {
+                    documents.put(uri, documentWriter.apply(uri));
+                } catch (RuntimeException e) {
+                    log.error("Error building submitted document {}", uri, e);
+                    futures.get(uri).completeExceptionally(e);
+                }
+            }
+            return documents;
+        }
+
+        Map<String, RawJsonDocument> built = new ConcurrentHashMap<>();
+        IndexingUtils.forEachConcurrently(uris, uri -> {
+            try {
+                built.put(uri, documentWriter.apply(uri));
+            } catch (RuntimeException e) {
+                log.error("Error building submitted document {}", uri, e);
+                futures.get(uri).completeExceptionally(e);
+            }
+        }, executor, orchestrator.config.getMaxConcurrentDocuments());
+        for (String uri : uris) {
+            RawJsonDocument document = built.get(uri);
+            if (document != null) documents.put(uri, document);
+        }
+        return documents;
+    }
+
+    private static final class Submission {
+        private final IndexOrchestratorConfig.EntityConfig entityConfig;
+        private final String uri;
+
+        private Submission(IndexOrchestratorConfig.EntityConfig entityConfig, String uri) {
+            this.entityConfig = entityConfig;
+            this.uri = uri;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Submission)) return false;
+            Submission that = (Submission) o;
+            return entityConfig == that.entityConfig && uri.equals(that.uri);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(entityConfig), uri);
+        }
+    }
+}
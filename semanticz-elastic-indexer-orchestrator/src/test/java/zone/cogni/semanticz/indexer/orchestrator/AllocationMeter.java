@@ -0,0 +1,117 @@
+package zone.cogni.semanticz.indexer.orchestrator;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Measures the bytes the whole process allocates on the heap between its creation and {@link #allocatedBytes()}: the
+ * growth of the used heap plus what the collections in between reclaimed.
+ * <p>
+ * Unlike per-thread allocation counters this includes threads that start and end in between, such as the sender
+ * threads of bulk sinks and the lane threads of fan-out sinks. It also includes every other thread of the process,
+ * e.g. the in-process {@link StubElasticsearch}. The figure is approximate: the used heap grows by whole allocation
+ * buffers, and objects promoted by a collection count as not reclaimed until an old collection frees them.
+ */
+final class AllocationMeter implements NotificationListener, AutoCloseable {
+
+    private static final long NOTIFICATION_TIMEOUT_MILLIS = 1_000;
+
+    private final Set<String> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                                                           .filter(pool -> pool.getType() == MemoryType.HEAP)
+                                                           .map(MemoryPoolMXBean::getName)
+                                                           .collect(Collectors.toSet());
+    private final List<NotificationEmitter> emitters = new ArrayList<>();
+    private final long collectionsBefore;
+    private final long usedBefore;
+    private long collections;
+    private long reclaimed;
+
+    AllocationMeter() {
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (collector instanceof NotificationEmitter) {
+                NotificationEmitter emitter = (NotificationEmitter) collector;
+                emitter.addNotificationListener(this, null, null);
+                emitters.add(emitter);
+            }
+        }
+        collectionsBefore = collectionCount();
+        usedBefore = heapUsed();
+    }
+
+    /**
+     * @return the bytes allocated so far, once the notifications of the collections in between arrived
+     */
+    long allocatedBytes() {
+        long used = heapUsed();
+        long expected = collectionCount() - collectionsBefore;
+        synchronized (this) {
+            // collections are reported asynchronously, on a service thread of the JVM
+            long deadline = System.currentTimeMillis() + NOTIFICATION_TIMEOUT_MILLIS;
+            while (collections < expected && System.currentTimeMillis() < deadline) {
+                try {
+                    wait(Math.max(1, deadline - System.currentTimeMillis()));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            return Math.max(0, used - usedBefore + reclaimed);
+        }
+    }
+
+    @Override
+    public synchronized void handleNotification(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) return;
+
+        GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        long freed = heapUsed(info.getGcInfo().getMemoryUsageBeforeGc()) - heapUsed(info.getGcInfo().getMemoryUsageAfterGc());
+        reclaimed += Math.max(0, freed);
+        collections++;
+        notifyAll();
+    }
+
+    @Override
+    public void close() {
+        for (NotificationEmitter emitter : emitters) {
+            try {
+                emitter.removeNotificationListener(this);
+            } catch (Exception e) {
+                // the listener is gone either way
+            }
+        }
+    }
+
+    private long heapUsed() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                                .filter(pool -> heapPools.contains(pool.getName()))
+                                .mapToLong(pool -> pool.getUsage().getUsed())
+                                .sum();
+    }
+
+    private long heapUsed(Map<String, MemoryUsage> usage) {
+        return usage.entrySet().stream()
+                    .filter(entry -> heapPools.contains(entry.getKey()))
+                    .mapToLong(entry -> entry.getValue().getUsed())
+                    .sum();
+    }
+
+    private static long collectionCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                                .mapToLong(collector -> Math.max(0, collector.getCollectionCount()))
+                                .sum();
+    }
+}
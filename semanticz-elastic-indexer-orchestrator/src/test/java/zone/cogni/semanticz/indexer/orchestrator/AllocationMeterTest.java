@@ -0,0 +1,35 @@
+package zone.cogni.semanticz.indexer.orchestrator;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AllocationMeterTest {
+
+    private static final int CHUNK = 1024 * 1024;
+    private static final int CHUNKS = 256;
+
+    @Test
+    public void testAllocatedBytes_countsThreadsEndedDuringTheMeasurement() throws Exception {
+        // Arrange
+        long[] checksum = new long[1];
+        Thread worker = new Thread(() -> {
+            for (int i = 0; i < CHUNKS; i++) {
+                byte[] chunk = new byte[CHUNK];
+                chunk[i] = 1;
+                checksum[0] += chunk[i];
+            }
+        }, "short-lived");
+
+        try (AllocationMeter meter = new AllocationMeter()) {
+            // Act
+            worker.start();
+            worker.join();
+            long allocated = meter.allocatedBytes();
+
+            // Assert
+            assertEquals(CHUNKS, checksum[0]);
+            assertTrue(allocated >= (long) CHUNK * CHUNKS * 9 / 10, "allocated " + allocated);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package zone.cogni.semanticz.indexer.orchestrator;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BoundedCacheTest {
+
+    @Test
+    public void testPut_evictsLeastRecentlyAccessedEntry() {
+        // Arrange
+        BoundedCache<String, String> cache = new BoundedCache<>(2);
+        cache.put("a", "1", null);
+        cache.put("b", "2", null);
+        cache.get("a");
+
+        // Act
+        cache.put("c", "3", null);
+
+        // Assert
+        assertEquals(2, cache.size());
+        assertEquals("1", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals("3", cache.get("c"));
+    }
+
+    @Test
+    public void testGet_expiredEntryIsRemoved() throws Exception {
+        // Arrange
+        BoundedCache<String, String> cache = new BoundedCache<>(10);
+        cache.put("short", "1", Duration.ofMillis(20));
+        cache.put("long", "2", Duration.ofMinutes(1));
+        cache.put("forever", "3", null);
+
+        // Act
+        Thread.sleep(50);
+
+        // Assert
+        assertNull(cache.get("short"));
+        assertEquals("2", cache.get("long"));
+        assertEquals("3", cache.get("forever"));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testRemoveIf_removesMatchingEntries() {
+        // Arrange
+        BoundedCache<String, Integer> cache = new BoundedCache<>(10);
+        cache.put("a", 1, null);
+        cache.put("b", 2, null);
+        cache.put("c", 3, null);
+
+        // Act
+        cache.removeIf((key, value) -> value % 2 == 1);
+
+        // Assert
+        assertEquals(1, cache.size());
+        assertEquals(2, cache.get("b"));
+    }
+
+    @Test
+    public void testConstructor_rejectsSizeBelowOne() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> new BoundedCache<String, String>(0));
+    }
+}
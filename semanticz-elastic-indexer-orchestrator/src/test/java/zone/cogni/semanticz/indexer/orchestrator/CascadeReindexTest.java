@@ -0,0 +1,196 @@
+package zone.cogni.semanticz.indexer.orchestrator;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CascadeReindexTest {
+
+    private static final String CATALOG_INDEX = "harness.catalogs";
+    private static final String COPY = "dataset-copy";
+    private static final String COPY_INDEX = "harness.datasets.copy";
+
+    private static final String CONCEPT = "http://example.com/concept/transport";
+    private static final String TRAFFIC = "http://example.com/dataset/1";
+    private static final String PARKING = "http://example.com/dataset/2";
+    private static final String AIR_QUALITY = "http://example.com/dataset/3";
+    private static final String MOBILITY = "http://example.com/catalog/mobility";
+    private static final String ENVIRONMENT = "http://example.com/catalog/environment";
+
+    private StubElasticsearch elastic;
+    private ThroughputHarness harness;
+
+    private static Model data() throws Exception {
+        Model model = ModelFactory.createDefaultModel();
+        try (InputStream in = CascadeReindexTest.class.getClassLoader().getResourceAsStream("cascade/data.ttl")) {
+            model.read(in, null, "TTL");
+        }
+        return model;
+    }
+
+    /**
+     * Datasets depend on the concepts they are themed with and on the datasets they relate to, catalogs on their
+     * datasets.
+     */
+    private static IndexOrchestratorConfig cascadeConfig(int maxCascadeSize) {
+        IndexOrchestratorConfig config = ThroughputHarness.orchestratorConfig();
+        IndexOrchestratorConfig.EntityConfig datasets = config.getIndexing().get(0);
+        datasets.setDependents("cascade/dataset-dependents.sparql.thymeleaf");
+
+        IndexOrchestratorConfig.EntityConfig catalogs = new IndexOrchestratorConfig.EntityConfig();
+        catalogs.setName("catalog");
+        catalogs.setIndex(CATALOG_INDEX);
+        catalogs.setShacl("cascade/catalog.shapes.ttl");
+        catalogs.setSelectQueryParam("uri");
+        catalogs.setConstruct("harness/construct-dataset-only.sparql.thymeleaf");
+        catalogs.setConstructQueryParam("uri");
+        catalogs.setDependents("cascade/catalog-dependents.sparql.thymeleaf");
+
+        List<IndexOrchestratorConfig.EntityConfig> entityConfigs = new ArrayList<>(config.getIndexing());
+        entityConfigs.add(catalogs);
+        config.setIndexing(entityConfigs);
+        config.setMaxCascadeSize(maxCascadeSize);
+        return config;
+    }
+
+    private void start(int maxCascadeSize) throws Exception {
+        harness = new ThroughputHarness(elastic, data(), cascadeConfig(maxCascadeSize));
+    }
+
+    /**
+     * Adds a second configuration indexing the datasets into another index, with the same dependents.
+     */
+    private void startWithDatasetCopy() throws Exception {
+        IndexOrchestratorConfig config = cascadeConfig(10_000);
+        IndexOrchestratorConfig.EntityConfig copy = ThroughputHarness.orchestratorConfig().getIndexing().get(0);
+        copy.setName(COPY);
+        copy.setIndex(COPY_INDEX);
+        copy.setDependents("cascade/dataset-dependents.sparql.thymeleaf");
+        List<IndexOrchestratorConfig.EntityConfig> entityConfigs = new ArrayList<>(config.getIndexing());
+        entityConfigs.add(copy);
+        config.setIndexing(entityConfigs);
+        harness = new ThroughputHarness(elastic, data(), config);
+    }
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        elastic = StubElasticsearch.start();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        if (harness != null) harness.close();
+        elastic.close();
+    }
+
+    @Test
+    public void testResolveDependents_followsConceptToDatasetToCatalog() throws Exception {
+        // Arrange
+        start(10_000);
+
+        // Act
+        Map<String, Set<String>> dependents = harness.getOrchestrator().resolveDependents(List.of(CONCEPT));
+
+        // Assert
+        assertEquals(Set.of(TRAFFIC, PARKING), dependents.get("dataset"));
+        assertEquals(Set.of(MOBILITY), dependents.get("catalog"));
+        assertEquals(2, dependents.size());
+    }
+
+    @Test
+    public void testResolveDependents_cycleIsVisitedOnceAndExcludesChangedUris() throws Exception {
+        // Arrange
+        start(10_000);
+
+        // Act
+        Map<String, Set<String>> dependents = harness.getOrchestrator().resolveDependents(List.of(TRAFFIC));
+
+        // Assert
+        assertEquals(Set.of(PARKING), dependents.get("dataset"));
+        assertEquals(Set.of(MOBILITY), dependents.get("catalog"));
+    }
+
+    @Test
+    public void testResolveDependents_dependentOfTwoConfigurationsIsResolvedForBoth() throws Exception {
+        // Arrange
+        startWithDatasetCopy();
+
+        // Act
+        Map<String, Set<String>> dependents = harness.getOrchestrator().resolveDependents(List.of(CONCEPT));
+
+        // Assert
+        assertEquals(Set.of(TRAFFIC, PARKING), dependents.get("dataset"));
+        assertEquals(Set.of(TRAFFIC, PARKING), dependents.get(COPY));
+        assertEquals(Set.of(MOBILITY), dependents.get("catalog"));
+    }
+
+    @Test
+    public void testReindexDependents_writesSharedDependentToEveryIndex() throws Exception {
+        // Arrange
+        startWithDatasetCopy();
+
+        // Act
+        harness.getOrchestrator().reindexDependents(List.of(CONCEPT));
+
+        // Assert
+        assertNotNull(elastic.document(ThroughputHarness.INDEX, TRAFFIC));
+        assertNotNull(elastic.document(COPY_INDEX, TRAFFIC));
+        assertNotNull(elastic.document(COPY_INDEX, PARKING));
+        assertNull(elastic.document(COPY_INDEX, AIR_QUALITY));
+        assertEquals(5, elastic.writtenDocuments());
+    }
+
+    @Test
+    public void testResolveDependents_resourceWithoutDependentsResolvesNothing() throws Exception {
+        // Arrange
+        start(10_000);
+
+        // Act
+        Map<String, Set<String>> dependents = harness.getOrchestrator().resolveDependents(List.of(ENVIRONMENT));
+
+        // Assert
+        assertTrue(dependents.isEmpty());
+    }
+
+    @Test
+    public void testReindexDependents_writesEveryDependentDocument() throws Exception {
+        // Arrange
+        start(10_000);
+
+        // Act
+        harness.getOrchestrator().reindexDependents(List.of(CONCEPT));
+
+        // Assert
+        assertNotNull(elastic.document(ThroughputHarness.INDEX, TRAFFIC));
+        assertNotNull(elastic.document(ThroughputHarness.INDEX, PARKING));
+        assertNull(elastic.document(ThroughputHarness.INDEX, AIR_QUALITY));
+        assertNotNull(elastic.document(CATALOG_INDEX, MOBILITY));
+        assertNull(elastic.document(CATALOG_INDEX, ENVIRONMENT));
+        assertEquals(3, elastic.writtenDocuments());
+    }
+
+    @Test
+    public void testReindexDependents_cascadeAboveLimitWritesNothing() throws Exception {
+        // Arrange
+        start(2);
+
+        // Act
+        IllegalStateException failure = assertThrows(IllegalStateException.class,
+                () -> harness.getOrchestrator().reindexDependents(List.of(CONCEPT)));
+
+        // Assert
+        assertTrue(failure.getMessage().contains("exceeds 2 dependent documents"));
+        assertEquals(0, elastic.writtenDocuments());
+        assertEquals(0, elastic.requestCount(StubElasticsearch.Operation.BULK));
+    }
+}
@@ -0,0 +1,114 @@
+package zone.cogni.semanticz.indexer.orchestrator;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.jena.rdf.model.Model;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.templateresolver.StringTemplateResolver;
+import zone.cogni.asquare.rdf.ResultSetMapper;
+import zone.cogni.asquare.triplestore.RdfStoreService;
+import zone.cogni.asquare.triplestore.jenamemory.InternalRdfStoreService;
+import zone.cogni.semanticz.jsonldshaper.utils.RdfUtils;
+import zone.cogni.semanticz.webflux.TemplateUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EntityPlanTest {
+
+    private static final String URI = "http://example.com/dataset/1";
+
+    private RdfStoreService rdfStoreService;
+    private TemplateEngine templateEngine;
+    private IndexOrchestratorConfig.EntityConfig entityConfig;
+    private IndexOrchestrator orchestrator;
+
+    private static IndexOrchestratorConfig.FacetConfig facet(String name, String body) {
+        IndexOrchestratorConfig.FacetConfig facet = new IndexOrchestratorConfig.FacetConfig();
+        facet.setName(name);
+        facet.setBody(body);
+        return facet;
+    }
+
+    @BeforeEach
+    public void setUp() {
+        rdfStoreService = new InternalRdfStoreService(RdfUtils.loadTTL(TemplateUtils.loadResource("plan/data.ttl", null)));
+        templateEngine = new TemplateEngine();
+        templateEngine.setTemplateResolver(new StringTemplateResolver());
+
+        entityConfig = new IndexOrchestratorConfig.EntityConfig();
+        entityConfig.setName("dataset");
+        entityConfig.setIndex("datasets");
+        entityConfig.setShacl("harness/dataset.shapes.ttl");
+        entityConfig.setConstruct("harness/construct-dataset.sparql.thymeleaf");
+        entityConfig.setConstructQueryParam("uri");
+        entityConfig.setFacets(List.of(
+                facet(null, "plan/facets-nested.sparql.thymeleaf"),
+                facet("rootUri", "harness/facets/rootUri.thymeleaf"),
+                facet(null, "plan/facets-replace.sparql.thymeleaf")));
+
+        IndexOrchestratorConfig config = new IndexOrchestratorConfig();
+        config.setIndexing(List.of(entityConfig));
+        orchestrator = new IndexOrchestrator(rdfStoreService, null, config, null, templateEngine, null);
+    }
+
+    /**
+     * The facets as they were computed before plans existed: every template is loaded and rendered per document and
+     * every SPARQL result is materialised before it is mapped.
+     */
+    private ObjectNode baselineFacets() {
+        ObjectNode facets = JsonNodeFactory.instance.objectNode();
+        for (IndexOrchestratorConfig.FacetConfig facet : entityConfig.getFacets()) {
+            String facetQuery = TemplateUtils.processResource(templateEngine, facet.getBody(), null, Map.of("uri", URI, "entityConfig", entityConfig));
+            if (facet.getBody().endsWith(".sparql.thymeleaf")) {
+                FacetVariableTrieTest.baselineFacets(facets, rdfStoreService.executeSelectQuery(facetQuery, ResultSetMapper::resultSetToResultSetDto));
+            } else {
+                facets.put(facet.getName(), facetQuery);
+            }
+        }
+        return facets;
+    }
+
+    @Test
+    public void testCompile_loadsTemplatesAndClassifiesFacets() {
+        // Act
+        EntityPlan plan = EntityPlan.compile(entityConfig, RdfUtils.loadTTL(TemplateUtils.loadResource(entityConfig.getShacl(), null)), null);
+
+        // Assert
+        assertSame(entityConfig, plan.getConfig());
+        assertEquals(TemplateUtils.loadResource(entityConfig.getConstruct(), null), plan.getConstructTemplate());
+        assertNull(plan.getDependentsTemplate());
+        assertNotNull(plan.getJsonLdWriter());
+        assertEquals(List.of(FacetPlan.Kind.SPARQL, FacetPlan.Kind.TEXT, FacetPlan.Kind.SPARQL),
+                List.of(plan.getFacets().get(0).getKind(), plan.getFacets().get(1).getKind(), plan.getFacets().get(2).getKind()));
+        assertTrue(plan.getSharedResources().isEmpty());
+    }
+
+    @Test
+    public void testProcessFacets_sameAsBaseline() {
+        // Arrange
+        ObjectNode expected = baselineFacets();
+
+        // Act
+        ObjectNode actual = orchestrator.processFacets(orchestrator.plan(entityConfig), URI);
+
+        // Assert
+        assertEquals(expected.toString(), actual.toString());
+        assertEquals(10, actual.get("keywords").size());
+        assertEquals("Traffic counts", actual.get("title").get("en").get("short").textValue());
+    }
+
+    @Test
+    public void testProcessFacets_configOverloadSameAsPlan() {
+        // Act
+        ObjectNode fromConfig = orchestrator.processFacets(entityConfig.getFacets(), URI, entityConfig);
+        ObjectNode fromPlan = orchestrator.processFacets(orchestrator.plan(entityConfig), URI);
+
+        // Assert
+        assertEquals(fromPlan.toString(), fromConfig.toString());
+    }
+}
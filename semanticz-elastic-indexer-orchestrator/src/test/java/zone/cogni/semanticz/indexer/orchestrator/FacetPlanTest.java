@@ -0,0 +1,75 @@
+package zone.cogni.semanticz.indexer.orchestrator;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FacetPlanTest {
+
+    private static IndexOrchestratorConfig.FacetConfig facet(String body, String path) {
+        IndexOrchestratorConfig.FacetConfig facet = new IndexOrchestratorConfig.FacetConfig();
+        facet.setName("facet");
+        facet.setBody(body);
+        facet.setPath(path);
+        return facet;
+    }
+
+    @Test
+    public void testCompile_classifiesFacetByBody() {
+        // Act
+        FacetPlan sparql = FacetPlan.compile(facet("plan/facets-nested.sparql.thymeleaf", null), null);
+        FacetPlan elasticsearch = FacetPlan.compile(facet("harness/facets/popularity.json.thymeleaf", "/views/_search"), null);
+        FacetPlan withoutBody = FacetPlan.compile(facet(null, "/views/_doc/<DOCUMENT_ID>"), null);
+        FacetPlan text = FacetPlan.compile(facet("harness/facets/rootUri.thymeleaf", null), null);
+
+        // Assert
+        assertEquals(FacetPlan.Kind.SPARQL, sparql.getKind());
+        assertTrue(sparql.getTemplate().contains("SELECT"));
+        assertEquals(FacetPlan.Kind.ELASTICSEARCH, elasticsearch.getKind());
+        assertNotNull(elasticsearch.getTemplate());
+        assertEquals(FacetPlan.Kind.ELASTICSEARCH, withoutBody.getKind());
+        assertNull(withoutBody.getTemplate());
+        assertEquals(FacetPlan.Kind.TEXT, text.getKind());
+        assertNull(text.resolvePath("http://example.com/dataset/1"));
+    }
+
+    @Test
+    public void testResolvePath_sameAsReplacingThePlaceholder() {
+        // Arrange
+        String uri = "http://example.com/dataset/1?a=b&c=d e";
+        List<String> paths = List.of("/views/_search",
+                "/views/_doc/<DOCUMENT_ID>",
+                "<DOCUMENT_ID>",
+                "/views/_doc/<DOCUMENT_ID>/_explain?id=<DOCUMENT_ID>");
+
+        for (String path : paths) {
+            // Act
+            String resolved = FacetPlan.compile(facet(null, path), null).resolvePath(uri);
+
+            // Assert
+            assertEquals(path.replace("<DOCUMENT_ID>", URLEncoder.encode(uri, StandardCharsets.UTF_8)), resolved, path);
+        }
+    }
+
+    @Test
+    public void testVariableTrie_reusedForTheSameVariables() {
+        // Arrange
+        FacetPlan plan = FacetPlan.compile(facet("plan/facets-nested.sparql.thymeleaf", null), null);
+        List<String> variables = new ArrayList<>(List.of("title", "keywords"));
+
+        // Act
+        FacetVariableTrie first = plan.variableTrie(variables);
+        variables.add("themes");
+        FacetVariableTrie other = plan.variableTrie(variables);
+        FacetVariableTrie again = plan.variableTrie(List.of("title", "keywords"));
+
+        // Assert
+        assertSame(first, again);
+        assertNotSame(first, other);
+    }
+}
@@ -0,0 +1,192 @@
+package zone.cogni.semanticz.indexer.orchestrator;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FacetResultCacheTest {
+
+    private static IndexOrchestratorConfig.FacetConfig facet(IndexOrchestratorConfig.FacetScope scope, Duration ttl) {
+        IndexOrchestratorConfig.FacetConfig facet = new IndexOrchestratorConfig.FacetConfig();
+        facet.setName("facet");
+        facet.setScope(scope);
+        facet.setTtl(ttl);
+        return facet;
+    }
+
+    private static ObjectNode result(String value) {
+        ObjectNode result = JsonNodeFactory.instance.objectNode();
+        result.putObject("counts").put("total", value);
+        return result;
+    }
+
+    @Test
+    public void testDetectedKey_sameRequestForTwoEntitiesIsIndependent() {
+        // Arrange
+        FacetResultCache cache = new FacetResultCache(10);
+        IndexOrchestratorConfig.FacetConfig facet = facet(null, null);
+        cache.beginRun();
+
+        // Act
+        FacetResultCache.Key first = cache.detectedKey(facet, "urn:a", "query");
+        FacetResultCache.Key sameEntity = cache.detectedKey(facet, "urn:a", "query");
+        FacetResultCache.Key second = cache.detectedKey(facet, "urn:b", "query");
+        FacetResultCache.Key third = cache.detectedKey(facet, "urn:c", "query");
+
+        // Assert
+        assertNull(first);
+        assertNull(sameEntity);
+        assertNotNull(second);
+        assertEquals(second, third);
+    }
+
+    @Test
+    public void testDetectedKey_differentRequestDisablesCaching() {
+        // Arrange
+        FacetResultCache cache = new FacetResultCache(10);
+        IndexOrchestratorConfig.FacetConfig facet = facet(null, null);
+        cache.beginRun();
+        cache.detectedKey(facet, "urn:a", "query for a");
+
+        // Act
+        FacetResultCache.Key second = cache.detectedKey(facet, "urn:b", "query for b");
+        FacetResultCache.Key third = cache.detectedKey(facet, "urn:c", "query for a");
+
+        // Assert
+        assertNull(second);
+        assertNull(third);
+    }
+
+    @Test
+    public void testDetectedKey_onlyForUndeclaredFacetsDuringRun() {
+        // Arrange
+        FacetResultCache cache = new FacetResultCache(10);
+        IndexOrchestratorConfig.FacetConfig undeclared = facet(null, null);
+        IndexOrchestratorConfig.FacetConfig perDocument = facet(IndexOrchestratorConfig.FacetScope.DOCUMENT, null);
+
+        // Act
+        cache.detectedKey(undeclared, "urn:a", "query");
+        FacetResultCache.Key outsideRun = cache.detectedKey(undeclared, "urn:b", "query");
+        cache.beginRun();
+        cache.detectedKey(perDocument, "urn:a", "query");
+        FacetResultCache.Key declared = cache.detectedKey(perDocument, "urn:b", "query");
+
+        // Assert
+        assertNull(outsideRun);
+        assertNull(declared);
+    }
+
+    @Test
+    public void testDeclaredKey_runScopeOnlyDuringRunAndDroppedAtEnd() {
+        // Arrange
+        FacetResultCache cache = new FacetResultCache(10);
+        IndexOrchestratorConfig.FacetConfig facet = facet(IndexOrchestratorConfig.FacetScope.RUN, null);
+        assertNull(cache.declaredKey(facet, null));
+        cache.beginRun();
+        FacetResultCache.Key key = cache.declaredKey(facet, null);
+        cache.put(key, result("1"));
+
+        // Act
+        cache.endRun();
+        cache.beginRun();
+
+        // Assert
+        assertNotNull(key);
+        assertFalse(cache.mergeInto(key, JsonNodeFactory.instance.objectNode()));
+    }
+
+    @Test
+    public void testDeclaredKey_ttlOutlivesRunAndExpires() throws Exception {
+        // Arrange
+        FacetResultCache cache = new FacetResultCache(10);
+        IndexOrchestratorConfig.FacetConfig facet = facet(null, Duration.ofMillis(100));
+        FacetResultCache.Key key = cache.declaredKey(facet, "/views/_search");
+        cache.beginRun();
+        cache.put(key, result("1"));
+        cache.endRun();
+
+        // Act
+        boolean afterRun = cache.mergeInto(key, JsonNodeFactory.instance.objectNode());
+        Thread.sleep(150);
+        boolean afterTtl = cache.mergeInto(key, JsonNodeFactory.instance.objectNode());
+
+        // Assert
+        assertTrue(afterRun);
+        assertFalse(afterTtl);
+        assertNotEquals(key, cache.declaredKey(facet, "/other/_search"));
+    }
+
+    @Test
+    public void testPut_evictsLeastRecentlyUsedResult() {
+        // Arrange
+        FacetResultCache cache = new FacetResultCache(1);
+        IndexOrchestratorConfig.FacetConfig facet = facet(null, Duration.ofMinutes(1));
+        FacetResultCache.Key first = cache.declaredKey(facet, "/first");
+        FacetResultCache.Key second = cache.declaredKey(facet, "/second");
+        cache.put(first, result("1"));
+
+        // Act
+        cache.put(second, result("2"));
+
+        // Assert
+        assertFalse(cache.mergeInto(first, JsonNodeFactory.instance.objectNode()));
+        assertTrue(cache.mergeInto(second, JsonNodeFactory.instance.objectNode()));
+    }
+
+    @Test
+    public void testMergeInto_copiesCachedResult() {
+        // Arrange
+        FacetResultCache cache = new FacetResultCache(10);
+        FacetResultCache.Key key = cache.declaredKey(facet(null, Duration.ofMinutes(1)), null);
+        ObjectNode stored = result("1");
+        cache.put(key, stored);
+        ((ObjectNode) stored.get("counts")).put("total", "changed after put");
+
+        ObjectNode firstDocument = JsonNodeFactory.instance.objectNode();
+        cache.mergeInto(key, firstDocument);
+
+        // Act
+        ((ObjectNode) firstDocument.get("counts")).put("total", "changed by the document");
+        ObjectNode secondDocument = JsonNodeFactory.instance.objectNode();
+        cache.mergeInto(key, secondDocument);
+
+        // Assert
+        assertEquals(result("1"), secondDocument);
+    }
+
+    @Test
+    public void testPut_emptyResultIsNotCached() {
+        // Arrange
+        FacetResultCache cache = new FacetResultCache(10);
+        FacetResultCache.Key key = cache.declaredKey(facet(null, Duration.ofMinutes(1)), null);
+
+        // Act
+        cache.put(key, JsonNodeFactory.instance.objectNode());
+
+        // Assert
+        assertFalse(cache.mergeInto(key, JsonNodeFactory.instance.objectNode()));
+    }
+
+    @Test
+    public void testMerge_mergesNestedObjectsAndReplacesValues() {
+        // Arrange
+        ObjectNode target = JsonNodeFactory.instance.objectNode();
+        target.putObject("counts").put("total", 1).put("open", 2);
+        target.put("label", "old");
+        ObjectNode source = JsonNodeFactory.instance.objectNode();
+        source.putObject("counts").put("total", 5);
+        source.put("label", "new");
+
+        // Act
+        FacetResultCache.merge(target, source, true);
+
+        // Assert
+        assertEquals(5, target.get("counts").get("total").intValue());
+        assertEquals(2, target.get("counts").get("open").intValue());
+        assertEquals("new", target.get("label").textValue());
+    }
+}
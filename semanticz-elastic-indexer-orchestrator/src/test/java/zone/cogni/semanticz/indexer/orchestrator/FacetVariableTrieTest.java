@@ -0,0 +1,131 @@
+package zone.cogni.semanticz.indexer.orchestrator;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.QueryExecutionFactory;
+import org.apache.jena.query.ResultSetFactory;
+import org.apache.jena.query.ResultSetRewindable;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.junit.jupiter.api.Test;
+import zone.cogni.asquare.rdf.ResultSetMapper;
+import zone.cogni.sem.jena.model.ResultSetDto;
+
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FacetVariableTrieTest {
+
+    private static ResultSetRewindable select(String query) {
+        try (QueryExecution execution = QueryExecutionFactory.create(query, ModelFactory.createDefaultModel())) {
+            return ResultSetFactory.copyResults(execution.execSelect());
+        }
+    }
+
+    /**
+     * The facet mapping as it was done on a materialised result set, kept to compare the trie against.
+     */
+    static ObjectNode baselineFacets(ObjectNode facets, ResultSetDto resultSet) {
+        for (String var : resultSet.getVars()) {
+            String[] varParts = var.split("_");
+            ObjectNode root = facets;
+            for (int i = 0; i < varParts.length - 1 && varParts.length > 1; i++) {
+                String part = varParts[i];
+                if (root.has(part) && root.get(part).isObject()) {
+                    root = (ObjectNode) root.get(part);
+                } else {
+                    ObjectNode child = JsonNodeFactory.instance.objectNode();
+                    root.set(part, child);
+                    root = child;
+                }
+            }
+
+            if (varParts[0].endsWith("s")) {
+                root.putArray(varParts[varParts.length - 1]).addAll(resultSet.collectPropertyValues(var).stream()
+                                                                             .filter(Objects::nonNull).map(TextNode::new)
+                                                                             .collect(Collectors.toSet()));
+            } else {
+                root.put(varParts[varParts.length - 1], resultSet.collectPropertyValue(var));
+            }
+        }
+        return facets;
+    }
+
+    private static void assertSameAsBaseline(String query, ObjectNode existing) {
+        ResultSetRewindable resultSet = select(query);
+        ObjectNode expected = baselineFacets(existing.deepCopy(), ResultSetMapper.resultSetToResultSetDto(resultSet));
+        resultSet.reset();
+
+        ObjectNode actual = existing.deepCopy();
+        FacetVariableTrie.compile(resultSet.getResultVars()).fill(actual, resultSet);
+
+        // compare the serialised form, so field and array element order count as well
+        assertEquals(expected.toString(), actual.toString());
+    }
+
+    @Test
+    public void testFill_nestedAndPluralVariables_sameAsBaseline() {
+        // Arrange
+        String keywords = IntStream.range(0, 40)
+                                   .mapToObj(i -> "(\"keyword " + (i * 7919 % 40) + "\"@en)")
+                                   .collect(Collectors.joining(" "));
+        String query = "SELECT ?title ?keywords ?publisher_name_en ?publisher_uri ?themes_label_en ?issued WHERE {\n"
+                       + "  VALUES (?keywords) { " + keywords + " (\"keyword 3\"@en) }\n"
+                       + "  VALUES (?themes_label_en) { (\"Economy\") (\"Transport\") (\"Economy\") }\n"
+                       + "  BIND(\"Dataset 1\"@en AS ?title)\n"
+                       + "  BIND(\"Publisher\"@en AS ?publisher_name_en)\n"
+                       + "  BIND(<http://example.com/publisher/1> AS ?publisher_uri)\n"
+                       + "  BIND(\"2024-01-01\"^^<http://www.w3.org/2001/XMLSchema#date> AS ?issued)\n"
+                       + "}";
+        ObjectNode existing = JsonNodeFactory.instance.objectNode();
+        existing.putObject("publisher").put("id", "kept");
+
+        // Act & Assert
+        assertSameAsBaseline(query, existing);
+    }
+
+    @Test
+    public void testFill_unboundVariables_sameAsBaseline() {
+        // Arrange
+        String query = "SELECT ?title ?keywords ?publisher_name WHERE {\n"
+                       + "  VALUES (?title ?keywords) { (UNDEF UNDEF) }\n"
+                       + "}";
+
+        // Act & Assert
+        assertSameAsBaseline(query, JsonNodeFactory.instance.objectNode());
+    }
+
+    @Test
+    public void testFill_laterVariableReplacesEarlierField_sameAsBaseline() {
+        // Arrange
+        String query = "SELECT ?type_label ?type ?type_uri ?status ?status_code WHERE {\n"
+                       + "  BIND(\"Label\" AS ?type_label)\n"
+                       + "  BIND(\"plain\" AS ?type)\n"
+                       + "  BIND(<http://example.com/type> AS ?type_uri)\n"
+                       + "  BIND(\"active\" AS ?status)\n"
+                       + "  BIND(\"A\" AS ?status_code)\n"
+                       + "}";
+        ObjectNode existing = JsonNodeFactory.instance.objectNode();
+        existing.put("status", "from an earlier facet");
+
+        // Act & Assert
+        assertSameAsBaseline(query, existing);
+    }
+
+    @Test
+    public void testFill_pluralArray_deduplicatesValues() {
+        // Arrange
+        ResultSetRewindable resultSet = select("SELECT ?themes WHERE { VALUES ?themes { \"a\" \"b\" \"a\" \"c\" \"b\" } }");
+        ObjectNode facets = JsonNodeFactory.instance.objectNode();
+
+        // Act
+        FacetVariableTrie.compile(resultSet.getResultVars()).fill(facets, resultSet);
+
+        // Assert
+        assertEquals(3, facets.get("themes").size());
+    }
+}
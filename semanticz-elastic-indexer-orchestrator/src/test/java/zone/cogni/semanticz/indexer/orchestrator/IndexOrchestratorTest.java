@@ -0,0 +1,77 @@
+package zone.cogni.semanticz.indexer.orchestrator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.thymeleaf.TemplateEngine;
+import zone.cogni.semanticz.webflux.WebProxy;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class IndexOrchestratorTest {
+
+    private WebProxy webProxy;
+    private IndexOrchestrator orchestrator;
+    private IndexOrchestratorConfig.FacetConfig facet;
+
+    @BeforeEach
+    public void setUp() {
+        webProxy = mock(WebProxy.class);
+        orchestrator = new IndexOrchestrator(null, null, new IndexOrchestratorConfig(), webProxy, new TemplateEngine(), null);
+
+        facet = new IndexOrchestratorConfig.FacetConfig();
+        facet.setName("popularity");
+        facet.setMethod(HttpMethod.GET);
+        facet.setPath("/views/_doc/<DOCUMENT_ID>");
+    }
+
+    @Test
+    public void testProcessElasticsearchFacet_setsResponseBody() {
+        // Arrange
+        ObjectNode body = JsonNodeFactory.instance.objectNode().put("value", 42);
+        when(webProxy.proxyJson(eq("/views/_doc/http%3A%2F%2Fexample.com%2F1"), eq(HttpMethod.GET), any(), any(), isNull(), anyBoolean()))
+                .thenReturn(ResponseEntity.ok(body));
+        ObjectNode facets = JsonNodeFactory.instance.objectNode();
+
+        // Act
+        orchestrator.processElasticsearchFacet(facet, "http://example.com/1", null, facets);
+
+        // Assert
+        assertEquals(body, facets.get("popularity"));
+    }
+
+    @Test
+    public void testProcessElasticsearchFacet_responseWithoutBodySkipsFacet() {
+        // Arrange
+        when(webProxy.proxyJson(anyString(), any(), any(), any(), any(), anyBoolean()))
+                .thenReturn(ResponseEntity.<JsonNode>ok().build());
+        ObjectNode facets = JsonNodeFactory.instance.objectNode();
+
+        // Act
+        orchestrator.processElasticsearchFacet(facet, "http://example.com/1", null, facets);
+
+        // Assert
+        assertFalse(facets.has("popularity"));
+    }
+
+    @Test
+    public void testProcessElasticsearchFacet_errorStatusSkipsFacet() {
+        // Arrange
+        when(webProxy.proxyJson(anyString(), any(), any(), any(), any(), anyBoolean()))
+                .thenReturn(ResponseEntity.<JsonNode>status(404).body(JsonNodeFactory.instance.objectNode()));
+        ObjectNode facets = JsonNodeFactory.instance.objectNode();
+
+        // Act
+        orchestrator.processElasticsearchFacet(facet, "http://example.com/1", null, facets);
+
+        // Assert
+        assertFalse(facets.has("popularity"));
+    }
+}
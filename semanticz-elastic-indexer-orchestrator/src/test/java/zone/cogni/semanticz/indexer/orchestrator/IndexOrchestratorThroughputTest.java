@@ -0,0 +1,287 @@
+package zone.cogni.semanticz.indexer.orchestrator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.jena.vocabulary.DCTerms;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import zone.cogni.semanticz.indexer.bulk.BulkDocumentSink;
+import zone.cogni.semanticz.indexer.bulk.NdjsonSegmentLoader;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * End-to-end runs of the orchestrator against the in-memory harness. The number of datasets defaults to a size
+ * suited for every build; pass {@code -Dharness.datasets=100000} and optionally {@code -Dharness.latencyMillis=5} for
+ * throughput measurements at scale.
+ */
+public class IndexOrchestratorThroughputTest {
+
+    private static final Logger log = LoggerFactory.getLogger(IndexOrchestratorThroughputTest.class);
+
+    private static final int DATASETS = Integer.getInteger("harness.datasets", 300);
+    private static final int PUBLISHERS = Math.max(1, DATASETS / 20);
+    private static final Duration LATENCY = Duration.ofMillis(Integer.getInteger("harness.latencyMillis", 0));
+
+    private StubElasticsearch elastic;
+    private ThroughputHarness harness;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        elastic = StubElasticsearch.start();
+        elastic.setLatency(StubElasticsearch.Operation.BULK, LATENCY);
+        elastic.setLatency(StubElasticsearch.Operation.SEARCH, LATENCY);
+        ObjectNode aggregations = JsonNodeFactory.instance.objectNode();
+        aggregations.putObject("popularity").put("value", 42.0);
+        elastic.setAggregations(aggregations);
+        harness = new ThroughputHarness(elastic, SyntheticEntities.generate(DATASETS, PUBLISHERS, 42));
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        harness.close();
+        elastic.close();
+    }
+
+    /**
+     * Sorts array elements, as the order of multi-valued properties follows the order of the constructed triples.
+     */
+    private static JsonNode withSortedArrays(JsonNode node) {
+        if (node.isObject()) {
+            ObjectNode sorted = JsonNodeFactory.instance.objectNode();
+            node.fields().forEachRemaining(field -> sorted.set(field.getKey(), withSortedArrays(field.getValue())));
+            return sorted;
+        }
+        if (node.isArray()) {
+            List<JsonNode> elements = new ArrayList<>();
+            node.forEach(element -> elements.add(withSortedArrays(element)));
+            elements.sort(Comparator.comparing(JsonNode::toString));
+            return JsonNodeFactory.instance.arrayNode().addAll(elements);
+        }
+        return node;
+    }
+
+    @Test
+    public void testIndexAll_sequential_indexesEveryDataset() {
+        // Arrange
+        IndexAllOptions options = new IndexAllOptions();
+        options.setReset(true);
+
+        // Act
+        ThroughputHarness.ThroughputReport report = harness.run(options);
+
+        // Assert
+        log.info("Sequential, one bulk request per document: {}", report);
+        assertEquals(DATASETS, report.getDocuments());
+        assertEquals(DATASETS, elastic.documentCount(ThroughputHarness.INDEX));
+        assertTrue(elastic.document(ThroughputHarness.INDEX, SyntheticEntities.DATASET_PREFIX + 0).has("facets"));
+    }
+
+    @Test
+    public void testIndexAll_concurrentWithBulkSink_indexesEveryDataset() {
+        // Arrange
+        ExecutorService executor = IndexingExecutors.virtualThreadsOrBounded(8);
+        harness.getOrchestrator().setExecutor(executor);
+
+        // Act
+        ThroughputHarness.ThroughputReport report;
+        try (BulkDocumentSink sink = new BulkDocumentSink(harness.getElasticsearchClient())) {
+            IndexAllOptions options = new IndexAllOptions();
+            options.setSink(sink);
+            report = harness.run(options);
+        } finally {
+            executor.shutdown();
+        }
+
+        // Assert
+        log.info("Concurrent, bulk sink: {}", report);
+        assertEquals(DATASETS, elastic.documentCount(ThroughputHarness.INDEX));
+        assertTrue(elastic.requestCount(StubElasticsearch.Operation.BULK) < DATASETS);
+    }
+
+    @Test
+    public void testIndexAll_withByteBudget_batchesWithoutSink() throws Exception {
+        // Arrange
+        IndexOrchestratorConfig config = ThroughputHarness.orchestratorConfig();
+        config.setMaxInFlightBytes(256 * 1024);
+
+        // Act
+        ThroughputHarness.ThroughputReport report;
+        try (ThroughputHarness budgeted = new ThroughputHarness(elastic, SyntheticEntities.generate(DATASETS, PUBLISHERS, 42), config)) {
+            report = budgeted.run(new IndexAllOptions());
+        }
+
+        // Assert
+        log.info("Sequential, byte budget: {}", report);
+        assertEquals(DATASETS, elastic.documentCount(ThroughputHarness.INDEX));
+        assertTrue(elastic.requestCount(StubElasticsearch.Operation.BULK) < DATASETS);
+    }
+
+    @Test
+    public void testProfile_writesNothing() {
+        // Arrange
+        IndexAllOptions options = new IndexAllOptions();
+        options.setSampleRate(0.5);
+
+        // Act
+        IndexProfile profile = harness.getOrchestrator().profile(options);
+
+        // Assert
+        log.info("Profile:\n{}", profile);
+        IndexProfile.EntityProfile datasets = profile.getEntities().get(0);
+        assertEquals(DATASETS, datasets.getSelected());
+        assertTrue(datasets.getProfiled() > 0 && datasets.getProfiled() < DATASETS);
+        assertEquals(0, elastic.writtenDocuments());
+    }
+
+    @Test
+    public void testExportAll_thenLoad_indexesEveryDataset(@TempDir Path directory) {
+        // Arrange
+        List<Path> segments = harness.getOrchestrator().exportAll(new IndexAllOptions(), directory, true);
+        assertFalse(segments.isEmpty());
+        assertEquals(0, elastic.writtenDocuments());
+
+        // Act
+        long loaded;
+        try (BulkDocumentSink sink = new BulkDocumentSink(harness.getElasticsearchClient())) {
+            loaded = new NdjsonSegmentLoader(sink, index -> index + ".copy", true).load(directory);
+        }
+
+        // Assert
+        assertEquals(DATASETS, loaded);
+        assertEquals(DATASETS, elastic.documentCount(ThroughputHarness.INDEX + ".copy"));
+        assertTrue(elastic.document(ThroughputHarness.INDEX + ".copy", SyntheticEntities.DATASET_PREFIX + 0).has("facets"));
+    }
+
+    @Test
+    public void testIndexAll_sharedResources_buildSameDocuments() throws Exception {
+        // Arrange
+        harness.run(new IndexAllOptions());
+        JsonNode expected = elastic.document(ThroughputHarness.INDEX, SyntheticEntities.DATASET_PREFIX + 0);
+
+        IndexOrchestratorConfig.SharedResourceConfig publisher = new IndexOrchestratorConfig.SharedResourceConfig();
+        publisher.setName("publisher");
+        publisher.setProperty(DCTerms.publisher.getURI());
+        publisher.setConstruct("harness/construct-publisher.sparql.thymeleaf");
+        IndexOrchestratorConfig config = ThroughputHarness.orchestratorConfig();
+        config.getIndexing().get(0).setConstruct("harness/construct-dataset-only.sparql.thymeleaf");
+        config.getIndexing().get(0).setSharedResources(List.of(publisher));
+
+        // Act
+        try (ThroughputHarness shared = new ThroughputHarness(elastic, SyntheticEntities.generate(DATASETS, PUBLISHERS, 42), config)) {
+            IndexAllOptions options = new IndexAllOptions();
+            options.setReset(true);
+            shared.run(options);
+        }
+
+        // Assert
+        assertEquals(DATASETS, elastic.documentCount(ThroughputHarness.INDEX));
+        assertEquals(withSortedArrays(expected), withSortedArrays(elastic.document(ThroughputHarness.INDEX, SyntheticEntities.DATASET_PREFIX + 0)));
+    }
+
+    @Test
+    public void testStartIndexAll_reportsProgressPerEntity() {
+        // Arrange
+        IndexAllOptions options = new IndexAllOptions();
+        options.setReset(true);
+
+        // Act
+        IndexingJob job = harness.getOrchestrator().startIndexAll(options);
+        job.await();
+
+        // Assert
+        log.info("Job: {}", job);
+        assertEquals(IndexingJob.State.COMPLETED, job.getState());
+        IndexingJob.Progress datasets = job.getProgress().get(0);
+        assertEquals(DATASETS, datasets.getSelected());
+        assertEquals(DATASETS, datasets.getBuilt());
+        assertEquals(DATASETS, datasets.getWritten());
+        assertEquals(0, datasets.getFailed());
+        assertEquals(Duration.ZERO, datasets.getEta());
+        assertTrue(datasets.isDone());
+    }
+
+    @Test
+    public void testStartIndexAll_countsRejectedDocumentsAsFailed() {
+        // Arrange
+        elastic.rejectDocument(SyntheticEntities.DATASET_PREFIX + 3);
+
+        // Act
+        IndexingJob job = harness.getOrchestrator().startIndexAll(new IndexAllOptions());
+
+        // Assert
+        assertThrows(RuntimeException.class, job::await);
+        assertEquals(IndexingJob.State.FAILED, job.getState());
+        IndexingJob.Progress datasets = job.getProgress().get(0);
+        assertEquals(DATASETS, datasets.getBuilt());
+        assertEquals(DATASETS - 1, datasets.getWritten());
+        assertEquals(1, datasets.getFailed());
+    }
+
+    @Test
+    public void testStartIndexAll_withSink_countsDocumentsOnceTheBulkResponseArrives() {
+        // Arrange
+        elastic.rejectDocument(SyntheticEntities.DATASET_PREFIX + 3);
+        BulkDocumentSink sink = new BulkDocumentSink(harness.getElasticsearchClient(), DATASETS * 2, Long.MAX_VALUE, false);
+        IndexAllOptions options = new IndexAllOptions();
+        options.setSink(sink);
+
+        // Act
+        IndexingJob job = harness.getOrchestrator().startIndexAll(options);
+        job.await();
+
+        // Assert
+        IndexingJob.Progress datasets = job.getProgress().get(0);
+        assertEquals(DATASETS, datasets.getBuilt());
+        assertEquals(DATASETS - 1, datasets.getWritten());
+        assertEquals(1, datasets.getFailed());
+        assertEquals(1, elastic.requestCount(StubElasticsearch.Operation.BULK));
+        assertThrows(RuntimeException.class, sink::close);
+    }
+
+    @Test
+    public void testStartIndexAll_pauseHoldsAndCancelStopsTheRun() throws Exception {
+        // Arrange
+        elastic.setLatency(StubElasticsearch.Operation.BULK, Duration.ofMillis(20));
+        BulkDocumentSink sink = new BulkDocumentSink(harness.getElasticsearchClient(), 1, Long.MAX_VALUE, false);
+        IndexAllOptions options = new IndexAllOptions();
+        options.setSink(sink);
+        IndexingJob job = harness.getOrchestrator().startIndexAll(options);
+        while (job.getProgress().isEmpty() || job.getProgress().get(0).getBuilt() == 0) {
+            Thread.sleep(5);
+        }
+
+        // Act
+        job.pause();
+        Thread.sleep(100);
+        long built = job.getProgress().get(0).getBuilt();
+        Thread.sleep(200);
+
+        // Assert
+        assertEquals(IndexingJob.State.PAUSED, job.getState());
+        assertEquals(built, job.getProgress().get(0).getBuilt());
+
+        job.cancel();
+        assertThrows(CancellationException.class, job::await);
+        sink.close();
+        assertEquals(IndexingJob.State.CANCELLED, job.getState());
+        IndexingJob.Progress datasets = job.getProgress().get(0);
+        assertEquals(built, datasets.getBuilt());
+        assertEquals(built, datasets.getWritten());
+        assertTrue(built < DATASETS);
+        assertEquals(built, elastic.documentCount(ThroughputHarness.INDEX));
+    }
+}
@@ -0,0 +1,154 @@
+package zone.cogni.semanticz.indexer.orchestrator;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndexProfileTest {
+
+    private static final int DATASETS = 20;
+    private static final long MS = 1_000_000;
+
+    private static IndexProfile.EntityProfile recordedProfile() {
+        IndexProfile.EntityProfile profile = new IndexProfile().addEntity("dataset", "harness.datasets");
+        profile.recordSelection(4, 2 * MS);
+        profile.recordDocument("http://example.com/a", 10 * MS, 20 * MS, 30 * MS, 40 * MS, 100);
+        profile.recordDocument("http://example.com/b", MS, 2 * MS, 3 * MS, 4 * MS, 3000);
+        profile.recordFailure();
+        profile.recordFacet("popularity", 25 * MS);
+        profile.recordFacet("popularity", 5 * MS);
+        profile.recordFacet("title", 3 * MS);
+        profile.recordWallTime(1000 * MS);
+        return profile;
+    }
+
+    @Test
+    public void testRecordDocument_sumsStagesPerEntity() {
+        // Act
+        IndexProfile.EntityProfile profile = recordedProfile();
+
+        // Assert
+        assertEquals(2, profile.getProfiled());
+        assertEquals(1, profile.getFailed());
+        assertEquals(Duration.ofMillis(11), profile.getConstructTime());
+        assertEquals(Duration.ofMillis(22), profile.getShapeTime());
+        assertEquals(Duration.ofMillis(33), profile.getFacetTime());
+        assertEquals(Duration.ofMillis(44), profile.getSerializeTime());
+        assertEquals(3100, profile.getTotalBytes());
+        assertEquals(Map.of(128L, 1L, 4096L, 1L), profile.getSizeHistogram());
+        assertEquals(2.0, profile.getThroughput(), 1e-9);
+        // one second for three built documents, extrapolated to the four selected
+        assertEquals(Duration.ofNanos(1_333_333_333), profile.getEstimatedTime());
+    }
+
+    @Test
+    public void testToString_reportFormat() {
+        // Arrange
+        IndexProfile.EntityProfile profile = recordedProfile();
+
+        // Act
+        String report = profile.toString();
+
+        // Assert
+        assertEquals(String.join(System.lineSeparator(),
+                "dataset (harness.datasets): 2 of 4 documents profiled, 1 failed, " + String.format("%.1f", 2.0) + " documents/s, estimated PT1.333333333S for all",
+                "  stages: select 2 ms, construct 11 ms, shape 22 ms, facets 33 ms, serialize 44 ms",
+                "  sizes: <128B=1 <4096B=1",
+                "  slowest facets: popularity=30ms/2 (max 25ms) title=3ms/1 (max 3ms)",
+                "  largest documents: http://example.com/b=3000B http://example.com/a=100B"), report);
+    }
+
+    @Test
+    public void testLargestDocuments_keepsTopSizeLargestFirst() {
+        // Arrange
+        IndexProfile.EntityProfile profile = new IndexProfile().addEntity("dataset", "harness.datasets");
+
+        // Act
+        for (int i = 1; i <= IndexProfile.TOP_SIZE * 2; i++) {
+            profile.recordDocument("http://example.com/" + i, 0, 0, 0, 0, i);
+        }
+
+        // Assert
+        List<Long> sizes = profile.getLargestDocuments().stream().map(IndexProfile.DocumentSize::getBytes).collect(Collectors.toList());
+        assertEquals(IndexProfile.TOP_SIZE, sizes.size());
+        assertEquals(IndexProfile.TOP_SIZE * 2L, sizes.get(0));
+        assertEquals(IndexProfile.TOP_SIZE + 1L, sizes.get(sizes.size() - 1));
+    }
+
+    @Test
+    public void testProfile_reportsStageBreakdownWithoutWriting() throws Exception {
+        // Arrange
+        try (StubElasticsearch elastic = StubElasticsearch.start();
+             ThroughputHarness harness = new ThroughputHarness(elastic, SyntheticEntities.generate(DATASETS, 3, 42))) {
+            elastic.setLatency(StubElasticsearch.Operation.SEARCH, Duration.ofMillis(20));
+            IndexAllOptions options = new IndexAllOptions();
+            options.setSampleRate(1);
+
+            // Act
+            IndexProfile.EntityProfile profile = harness.getOrchestrator().profile(options).getEntities().get(0);
+
+            // Assert
+            assertEquals(DATASETS, profile.getSelected());
+            assertEquals(DATASETS, profile.getProfiled());
+            assertEquals(0, profile.getFailed());
+            assertFalse(profile.getConstructTime().isZero());
+            assertFalse(profile.getShapeTime().isZero());
+            assertFalse(profile.getSerializeTime().isZero());
+            assertTrue(profile.getFacetTime().compareTo(Duration.ofMillis(20L * DATASETS)) >= 0, profile.toString());
+            IndexProfile.FacetTiming slowest = profile.getSlowestFacets().get(0);
+            assertEquals("popularity", slowest.getName());
+            assertEquals(DATASETS, slowest.getCount());
+            assertTrue(profile.getTotalBytes() > 0);
+            assertEquals(0, elastic.writtenDocuments());
+            assertEquals(0, elastic.requestCount(StubElasticsearch.Operation.BULK));
+        }
+    }
+
+    @Test
+    public void testProfile_unnamedFacetsAreTimedByBody() throws Exception {
+        // Arrange
+        try (StubElasticsearch elastic = StubElasticsearch.start();
+             ThroughputHarness harness = new ThroughputHarness(elastic, SyntheticEntities.generate(DATASETS, 3, 42))) {
+            IndexAllOptions options = new IndexAllOptions();
+            options.setSampleRate(1);
+
+            // Act
+            IndexProfile.EntityProfile profile = harness.getOrchestrator().profile(options).getEntities().get(0);
+
+            // Assert
+            Map<String, Long> counts = profile.getSlowestFacets().stream()
+                                              .collect(Collectors.toMap(IndexProfile.FacetTiming::getName, IndexProfile.FacetTiming::getCount));
+            // the harness has two unnamed SPARQL facets
+            assertEquals(Map.of("harness/facets/title.sparql.thymeleaf", (long) DATASETS,
+                    "harness/facets/publisher.sparql.thymeleaf", (long) DATASETS,
+                    "rootUri", (long) DATASETS,
+                    "popularity", (long) DATASETS), counts);
+            assertFalse(profile.toString().contains("null="), profile.toString());
+        }
+    }
+
+    @Test
+    public void testProfile_sampleIsStableAcrossRuns() throws Exception {
+        // Arrange
+        try (StubElasticsearch elastic = StubElasticsearch.start();
+             ThroughputHarness harness = new ThroughputHarness(elastic, SyntheticEntities.generate(DATASETS * 5, 3, 42))) {
+            IndexAllOptions options = new IndexAllOptions();
+            options.setSampleRate(0.5);
+
+            // Act
+            IndexProfile.EntityProfile first = harness.getOrchestrator().profile(options).getEntities().get(0);
+            IndexProfile.EntityProfile second = harness.getOrchestrator().profile(options).getEntities().get(0);
+
+            // Assert
+            assertTrue(first.getProfiled() > 0);
+            assertTrue(first.getProfiled() < first.getSelected());
+            assertEquals(first.getProfiled(), second.getProfiled());
+            assertEquals(first.getTotalBytes(), second.getTotalBytes());
+        }
+    }
+}
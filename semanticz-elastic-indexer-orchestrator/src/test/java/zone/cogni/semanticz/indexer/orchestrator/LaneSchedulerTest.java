@@ -0,0 +1,127 @@
+package zone.cogni.semanticz.indexer.orchestrator;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LaneSchedulerTest {
+
+    private static LaneScheduler scheduler(int permits, double bulkShare, Duration latencyTarget) {
+        LaneSchedulerConfig config = new LaneSchedulerConfig();
+        config.setConstructPermits(permits);
+        config.setFacetPermits(permits);
+        config.setWritePermits(permits);
+        config.setBulkShare(bulkShare);
+        config.setInteractiveLatencyTarget(latencyTarget);
+        return new LaneScheduler(config);
+    }
+
+    private static Thread start(LaneScheduler.Lane lane, Runnable task) {
+        Thread thread = new Thread(() -> LaneScheduler.runInLane(lane, task));
+        thread.start();
+        return thread;
+    }
+
+    private static void awaitWaiting(Thread thread) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (thread.getState() != Thread.State.WAITING) {
+            assertTrue(System.nanoTime() < deadline, "Thread did not start waiting");
+            Thread.sleep(1);
+        }
+    }
+
+    private static void hold(LaneScheduler scheduler, CountDownLatch acquired, CountDownLatch release) {
+        scheduler.call(LaneScheduler.Resource.WRITE, () -> {
+            acquired.countDown();
+            try {
+                return release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    @Test
+    public void testCall_interactiveWaiterServedBeforeBulkWaiter() throws Exception {
+        // Arrange
+        LaneScheduler scheduler = scheduler(1, 1, Duration.ofSeconds(10));
+        CountDownLatch acquired = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = start(LaneScheduler.Lane.BULK, () -> hold(scheduler, acquired, release));
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+
+        List<LaneScheduler.Lane> order = new CopyOnWriteArrayList<>();
+        Thread bulk = start(LaneScheduler.Lane.BULK, () -> scheduler.call(LaneScheduler.Resource.WRITE, () -> order.add(LaneScheduler.Lane.BULK)));
+        awaitWaiting(bulk);
+        Thread interactive = start(LaneScheduler.Lane.INTERACTIVE,
+                () -> scheduler.call(LaneScheduler.Resource.WRITE, () -> order.add(LaneScheduler.Lane.INTERACTIVE)));
+        awaitWaiting(interactive);
+
+        // Act
+        release.countDown();
+        holder.join();
+        bulk.join();
+        interactive.join();
+
+        // Assert
+        assertEquals(List.of(LaneScheduler.Lane.INTERACTIVE, LaneScheduler.Lane.BULK), order);
+    }
+
+    @Test
+    public void testCall_bulkShareKeepsPermitsForInteractiveWork() throws Exception {
+        // Arrange
+        LaneScheduler scheduler = scheduler(4, 0.5, Duration.ofSeconds(10));
+        CountDownLatch acquired = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread first = start(LaneScheduler.Lane.BULK, () -> hold(scheduler, acquired, release));
+        Thread second = start(LaneScheduler.Lane.BULK, () -> hold(scheduler, acquired, release));
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        AtomicBoolean thirdRan = new AtomicBoolean();
+        Thread third = start(LaneScheduler.Lane.BULK, () -> scheduler.call(LaneScheduler.Resource.WRITE, () -> thirdRan.getAndSet(true)));
+        awaitWaiting(third);
+
+        // Act
+        String result = scheduler.call(LaneScheduler.Resource.WRITE, () -> "interactive");
+
+        // Assert
+        assertEquals("interactive", result);
+        assertFalse(thirdRan.get());
+
+        release.countDown();
+        first.join();
+        second.join();
+        third.join();
+        assertTrue(thirdRan.get());
+    }
+
+    @Test
+    public void testCall_slowInteractiveCallsShrinkBulkLimit() throws Exception {
+        // Arrange
+        LaneScheduler scheduler = scheduler(8, 1, Duration.ofMillis(1));
+        assertEquals(8, scheduler.getBulkLimit(LaneScheduler.Resource.CONSTRUCT));
+
+        // Act
+        for (int i = 0; i < 3; i++) {
+            scheduler.call(LaneScheduler.Resource.CONSTRUCT, () -> {
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return null;
+            });
+        }
+
+        // Assert
+        assertTrue(scheduler.getBulkLimit(LaneScheduler.Resource.CONSTRUCT) < 8);
+        assertTrue(scheduler.getInteractiveLatency(LaneScheduler.Resource.CONSTRUCT).toMillis() >= 1);
+        assertEquals(8, scheduler.getBulkLimit(LaneScheduler.Resource.FACET));
+    }
+}
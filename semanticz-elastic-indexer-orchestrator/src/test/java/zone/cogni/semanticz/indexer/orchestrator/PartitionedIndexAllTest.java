@@ -0,0 +1,163 @@
+package zone.cogni.semanticz.indexer.orchestrator;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PartitionedIndexAllTest {
+
+    private static final int DATASETS = 60;
+    private static final String LEASE_INDEX = "harness.leases";
+    private static final String RUN_ID = "run-1";
+
+    private StubElasticsearch elastic;
+    private ThroughputHarness harness;
+
+    private static IndexAllOptions partitionOptions(int index, int count, String leaseIndex) {
+        IndexAllOptions options = new IndexAllOptions();
+        options.setPartition(IndexPartition.of(index, count));
+        options.setLeaseIndex(leaseIndex);
+        options.setRunId(RUN_ID);
+        options.setOwner("instance-" + index);
+        return options;
+    }
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        elastic = StubElasticsearch.start();
+        harness = new ThroughputHarness(elastic, SyntheticEntities.generate(DATASETS, 4, 42));
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        harness.close();
+        elastic.close();
+    }
+
+    @Test
+    public void testPartitions_areDisjointAndCoverAllUris() {
+        // Arrange
+        int count = 3;
+
+        // Act & Assert
+        for (int i = 0; i < 1000; i++) {
+            String uri = SyntheticEntities.DATASET_PREFIX + i;
+            long owners = IntStream.range(0, count).filter(index -> IndexPartition.of(index, count).contains(uri)).count();
+            assertEquals(1, owners, uri);
+        }
+    }
+
+    @Test
+    public void testIndexAll_partitionsWriteEveryDocumentOnce() {
+        // Arrange
+        int count = 3;
+
+        // Act
+        for (int i = 0; i < count; i++) {
+            harness.getOrchestrator().indexAll(partitionOptions(i, count, null));
+        }
+
+        // Assert
+        assertEquals(DATASETS, elastic.documentCount(ThroughputHarness.INDEX));
+        assertEquals(DATASETS, elastic.writtenDocuments());
+    }
+
+    @Test
+    public void testIndexAll_onlyWritesDocumentsOfItsPartition() {
+        // Arrange
+        IndexPartition partition = IndexPartition.of(1, 3);
+
+        // Act
+        harness.getOrchestrator().indexAll(partitionOptions(1, 3, null));
+
+        // Assert
+        Set<String> expected = new HashSet<>();
+        for (int i = 0; i < DATASETS; i++) {
+            String uri = SyntheticEntities.DATASET_PREFIX + i;
+            if (partition.contains(uri)) expected.add(uri);
+            assertEquals(partition.contains(uri), elastic.document(ThroughputHarness.INDEX, uri) != null, uri);
+        }
+        assertEquals(expected.size(), elastic.documentCount(ThroughputHarness.INDEX));
+    }
+
+    @Test
+    public void testIndexAll_uriSelectedOnSeveralRowsIsIndexedOnce() throws Exception {
+        // Arrange
+        IndexOrchestratorConfig config = ThroughputHarness.orchestratorConfig();
+        // one row per title, every dataset has an English and a French title
+        config.getIndexing().get(0).setSelect("harness/select-dataset-titles.sparql.thymeleaf");
+        IndexPartition partition = IndexPartition.of(0, 2);
+        long expected = IntStream.range(0, DATASETS).filter(i -> partition.contains(SyntheticEntities.DATASET_PREFIX + i)).count();
+
+        try (ThroughputHarness titles = new ThroughputHarness(elastic, SyntheticEntities.generate(DATASETS, 4, 42), config)) {
+            // Act
+            titles.getOrchestrator().indexAll(partitionOptions(0, 2, null));
+        }
+
+        // Assert
+        assertEquals(expected, elastic.writtenDocuments());
+        assertEquals(expected, elastic.documentCount(ThroughputHarness.INDEX));
+    }
+
+    @Test
+    public void testIndexAll_secondClaimOfPartitionFails() {
+        // Arrange
+        harness.getOrchestrator().indexAll(partitionOptions(0, 2, LEASE_INDEX));
+        long written = elastic.documentCount(ThroughputHarness.INDEX);
+
+        // Act
+        IllegalStateException failure = assertThrows(IllegalStateException.class,
+                () -> harness.getOrchestrator().indexAll(partitionOptions(0, 2, LEASE_INDEX)));
+
+        // Assert
+        assertTrue(failure.getMessage().contains("already claimed"));
+        assertEquals(written, elastic.documentCount(ThroughputHarness.INDEX));
+    }
+
+    @Test
+    public void testIndexAll_lastPartitionClaimsFinalisation() {
+        // Act & Assert
+        harness.getOrchestrator().indexAll(partitionOptions(0, 2, LEASE_INDEX));
+        assertNull(elastic.document(LEASE_INDEX, RUN_ID + "-final"));
+
+        harness.getOrchestrator().indexAll(partitionOptions(1, 2, LEASE_INDEX));
+        assertEquals("instance-1", elastic.document(LEASE_INDEX, RUN_ID + "-final").get("owner").asText());
+        assertEquals(DATASETS, elastic.documentCount(ThroughputHarness.INDEX));
+    }
+
+    @Test
+    public void testClaimFinalisation_succeedsExactlyOnce() {
+        // Arrange
+        PartitionLease first = PartitionLease.acquire(harness.getElasticsearchClient(), LEASE_INDEX, RUN_ID, IndexPartition.of(0, 2), "first");
+        PartitionLease second = PartitionLease.acquire(harness.getElasticsearchClient(), LEASE_INDEX, RUN_ID, IndexPartition.of(1, 2), "second");
+        first.markDone();
+        assertFalse(first.claimFinalisation());
+        second.markDone();
+
+        // Act
+        boolean firstClaim = first.claimFinalisation();
+        boolean secondClaim = second.claimFinalisation();
+
+        // Assert
+        assertTrue(firstClaim);
+        assertFalse(secondClaim);
+    }
+
+    @Test
+    public void testRelease_partitionCanBeClaimedAgain() {
+        // Arrange
+        PartitionLease lease = PartitionLease.acquire(harness.getElasticsearchClient(), LEASE_INDEX, RUN_ID, IndexPartition.of(0, 2), "failed");
+
+        // Act
+        lease.release();
+
+        // Assert
+        assertNotNull(PartitionLease.acquire(harness.getElasticsearchClient(), LEASE_INDEX, RUN_ID, IndexPartition.of(0, 2), "retry"));
+    }
+}
@@ -0,0 +1,115 @@
+package zone.cogni.semanticz.indexer.orchestrator;
+
+import co.elastic.clients.elasticsearch._types.Refresh;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RefreshFacetsTest {
+
+    private static final String URI = SyntheticEntities.DATASET_PREFIX + 1;
+    private static final String TITLE_FACET = "harness/facets/title.sparql.thymeleaf";
+
+    private StubElasticsearch elastic;
+    private ThroughputHarness harness;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        elastic = StubElasticsearch.start();
+        harness = new ThroughputHarness(elastic, SyntheticEntities.generate(5, 2, 42));
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        harness.close();
+        elastic.close();
+    }
+
+    /**
+     * Indexes a document whose facets were written by an earlier version of the facets: the title has an extra
+     * language and the popularity is stale.
+     */
+    private void indexStaleDocument() throws Exception {
+        ObjectNode document = JsonNodeFactory.instance.objectNode();
+        document.put("@id", URI);
+        ObjectNode facets = document.putObject("facets");
+        facets.putObject("title").put("en", "Old title").put("nl", "Dataset 1");
+        facets.put("popularity", 7);
+        facets.put("rootUri", "kept");
+        harness.getElasticsearchClient().index(request -> request.index(ThroughputHarness.INDEX)
+                                                                 .id(URI)
+                                                                 .document(document)
+                                                                 .refresh(Refresh.True));
+    }
+
+    private JsonNode facets() {
+        return elastic.document(ThroughputHarness.INDEX, URI).get("facets");
+    }
+
+    @Test
+    public void testRefreshFacets_mergesNestedFacetKeys() throws Exception {
+        // Arrange
+        indexStaleDocument();
+
+        // Act
+        harness.getOrchestrator().refreshFacets("dataset", List.of(URI), List.of(TITLE_FACET));
+
+        // Assert
+        JsonNode title = facets().get("title");
+        assertTrue(title.get("en").asText().startsWith("Dataset 1 "));
+        assertEquals("Jeu de donn\u00e9es 1", title.get("fr").asText());
+        assertEquals("Dataset 1", title.get("nl").asText());
+        assertEquals(7, facets().get("popularity").asInt());
+        assertEquals(URI, elastic.document(ThroughputHarness.INDEX, URI).get("@id").asText());
+    }
+
+    @Test
+    public void testRefreshFacets_replacesOnlySelectedFacet() throws Exception {
+        // Arrange
+        indexStaleDocument();
+        ObjectNode aggregations = JsonNodeFactory.instance.objectNode();
+        aggregations.putObject("popularity").put("value", 42);
+        elastic.setAggregations(aggregations);
+
+        // Act
+        harness.getOrchestrator().refreshFacets("dataset", List.of(URI), List.of("popularity"));
+
+        // Assert
+        assertEquals(42, facets().get("popularity").get("aggregations").get("popularity").get("value").asInt());
+        assertEquals("Old title", facets().get("title").get("en").asText());
+        assertEquals("kept", facets().get("rootUri").asText());
+    }
+
+    @Test
+    public void testRefreshFacets_wholeIndexUpdatesEveryDocument() throws Exception {
+        // Arrange
+        harness.getOrchestrator().indexAll(new IndexAllOptions());
+        // the stub also returns the aggregations to the scroll over the document ids, which needs typed keys
+        ObjectNode aggregations = JsonNodeFactory.instance.objectNode();
+        aggregations.putObject("sum#popularity").put("value", 42);
+        elastic.setAggregations(aggregations);
+
+        // Act
+        harness.getOrchestrator().refreshFacets("dataset", List.of("popularity"));
+
+        // Assert
+        for (int i = 0; i < 5; i++) {
+            JsonNode document = elastic.document(ThroughputHarness.INDEX, SyntheticEntities.DATASET_PREFIX + i);
+            assertEquals(42, document.get("facets").get("popularity").get("aggregations").get("sum#popularity").get("value").asInt());
+        }
+    }
+
+    @Test
+    public void testRefreshFacets_missingDocumentFails() {
+        // Act & Assert
+        assertThrows(RuntimeException.class,
+                () -> harness.getOrchestrator().refreshFacets("dataset", List.of(URI), List.of(TITLE_FACET)));
+    }
+}
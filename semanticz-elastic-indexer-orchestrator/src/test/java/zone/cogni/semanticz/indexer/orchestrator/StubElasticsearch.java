@@ -0,0 +1,456 @@
+package zone.cogni.semanticz.indexer.orchestrator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process HTTP stub speaking enough of the Elasticsearch REST API for the {@code ElasticsearchClient} and the
+ * {@code WebProxy} used by the orchestrator: index create, exists, delete and refresh, bulk, single document
+ * get, index, create and delete, count, and search with scroll. Documents are kept in memory; queries are ignored, every
+ * search returns the documents of the index and the configured aggregations. Bulk updates merge partial documents,
+ * scripts are ignored.
+ * <p>
+ * A latency can be injected per kind of operation to simulate a remote cluster.
+ */
+class StubElasticsearch implements AutoCloseable {
+
+    enum Operation {BULK, DOCUMENT, SEARCH, ADMIN}
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final HttpServer server;
+    private final ExecutorService serverExecutor;
+    private final Map<String, Map<String, JsonNode>> indices = new ConcurrentHashMap<>();
+    private final Map<String, Scroll> scrolls = new ConcurrentHashMap<>();
+    private final Map<Operation, Duration> latencies = new ConcurrentHashMap<>();
+    private final Map<Operation, AtomicLong> requests = new EnumMap<>(Operation.class);
+    private final AtomicLong writtenDocuments = new AtomicLong();
+    private final Set<String> rejectedIds = ConcurrentHashMap.newKeySet();
+    private volatile JsonNode aggregations = JsonNodeFactory.instance.objectNode();
+
+    private StubElasticsearch(int threads) throws IOException {
+        for (Operation operation : Operation.values()) {
+            requests.put(operation, new AtomicLong());
+        }
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        serverExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "stub-elasticsearch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(serverExecutor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    static StubElasticsearch start() throws IOException {
+        return start(32);
+    }
+
+    /**
+     * @param threads the number of threads serving requests, which bounds the requests handled concurrently
+     */
+    static StubElasticsearch start(int threads) throws IOException {
+        return new StubElasticsearch(threads);
+    }
+
+    String getUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    void setLatency(Operation operation, Duration latency) {
+        latencies.put(operation, latency);
+    }
+
+    /**
+     * @param aggregations the aggregations returned by every search, e.g. for Elasticsearch facets
+     */
+    void setAggregations(JsonNode aggregations) {
+        this.aggregations = aggregations;
+    }
+
+    /**
+     * Makes bulk index operations of the document fail with a mapping error, as for a document the index rejects.
+     */
+    void rejectDocument(String id) {
+        rejectedIds.add(id);
+    }
+
+    int documentCount(String index) {
+        return indices.getOrDefault(index, Map.of()).size();
+    }
+
+    JsonNode document(String index, String id) {
+        return indices.getOrDefault(index, Map.of()).get(id);
+    }
+
+    /**
+     * @return the number of documents indexed since the stub started, counting overwrites
+     */
+    long writtenDocuments() {
+        return writtenDocuments.get();
+    }
+
+    long requestCount(Operation operation) {
+        return requests.get(operation).get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            List<String> path = pathSegments(exchange);
+            Map<String, String> query = queryParameters(exchange);
+
+            Operation operation = operationOf(path);
+            requests.get(operation).incrementAndGet();
+            sleep(latencies.get(operation));
+
+            Response response = route(method, path, query, exchange.getRequestBody());
+            byte[] body = response.body == null ? new byte[0] : MAPPER.writeValueAsBytes(response.body);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+            exchange.getResponseHeaders().set("X-Elastic-Product", "Elasticsearch");
+            boolean noBody = "HEAD".equals(method) || body.length == 0;
+            // the JDK server may reset a kept-alive connection reused right after a HEAD response
+            if ("HEAD".equals(method)) exchange.getResponseHeaders().set("Connection", "close");
+            exchange.sendResponseHeaders(response.status, noBody ? -1 : body.length);
+            if (!noBody) {
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private Response route(String method, List<String> path, Map<String, String> query, InputStream body) throws IOException {
+        if (path.isEmpty()) return error(400, "Missing path");
+
+        String first = path.get(0);
+        if ("_bulk".equals(first)) return bulk(null, body);
+        if ("_search".equals(first) && path.size() == 2 && "scroll".equals(path.get(1))) {
+            return "DELETE".equals(method) ? clearScroll() : scroll(body);
+        }
+
+        String index = first;
+        if (path.size() == 1) {
+            switch (method) {
+                case "HEAD":
+                    return new Response(indices.containsKey(index) ? 200 : 404, null);
+                case "PUT":
+                    // the settings are ignored, but an unread body makes the server drop the kept-alive connection
+                    body.transferTo(OutputStream.nullOutputStream());
+                    indices.putIfAbsent(index, new ConcurrentHashMap<>());
+                    return new Response(200, object().put("acknowledged", true).put("shards_acknowledged", true).put("index", index));
+                case "DELETE":
+                    if (indices.remove(index) == null) return error(404, "no such index [" + index + "]");
+                    return new Response(200, object().put("acknowledged", true));
+                default:
+                    return error(405, "Unsupported method " + method + " on index");
+            }
+        }
+
+        switch (path.get(1)) {
+            case "_bulk":
+                return bulk(index, body);
+            case "_refresh":
+                return new Response(200, object().set("_shards", shards()));
+            case "_count":
+                return new Response(200, object().put("count", documentCount(index)).set("_shards", shards()));
+            case "_search":
+                return search(index, query, body);
+            case "_doc":
+                if (path.size() == 3) return document(method, index, path.get(2), body);
+                break;
+            case "_create":
+                if (path.size() == 3 && ("PUT".equals(method) || "POST".equals(method))) return create(index, path.get(2), body);
+                break;
+        }
+        return error(400, "Unsupported by stub: " + method + " /" + String.join("/", path));
+    }
+
+    private Response document(String method, String index, String id, InputStream body) throws IOException {
+        Map<String, JsonNode> documents = indices.computeIfAbsent(index, key -> new ConcurrentHashMap<>());
+        switch (method) {
+            case "GET":
+                JsonNode source = documents.get(id);
+                ObjectNode response = object().put("_index", index).put("_type", "_doc").put("_id", id).put("found", source != null);
+                if (source == null) return new Response(404, response);
+                return new Response(200, response.put("_version", 1).put("_seq_no", 0).put("_primary_term", 1).set("_source", source));
+            case "PUT":
+            case "POST":
+                boolean created = documents.put(id, MAPPER.readTree(body)) == null;
+                writtenDocuments.incrementAndGet();
+                return new Response(created ? 201 : 200, writeResult(index, id, created ? "created" : "updated"));
+            case "DELETE":
+                boolean deleted = documents.remove(id) != null;
+                return new Response(deleted ? 200 : 404, writeResult(index, id, deleted ? "deleted" : "not_found"));
+            default:
+                return error(405, "Unsupported method " + method + " on document");
+        }
+    }
+
+    private Response create(String index, String id, InputStream body) throws IOException {
+        Map<String, JsonNode> documents = indices.computeIfAbsent(index, key -> new ConcurrentHashMap<>());
+        if (documents.putIfAbsent(id, MAPPER.readTree(body)) != null) {
+            return error(409, "version_conflict_engine_exception", "[" + id + "]: version conflict, document already exists");
+        }
+        writtenDocuments.incrementAndGet();
+        return new Response(201, writeResult(index, id, "created"));
+    }
+
+    private Response bulk(String defaultIndex, InputStream body) throws IOException {
+        ArrayNode items = JsonNodeFactory.instance.arrayNode();
+        boolean errors = false;
+        long start = System.nanoTime();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+
+                JsonNode action = MAPPER.readTree(line);
+                String type = action.fieldNames().next();
+                JsonNode metadata = action.get(type);
+                String index = metadata.has("_index") ? metadata.get("_index").asText() : defaultIndex;
+                String id = metadata.has("_id") ? metadata.get("_id").asText() : UUID.randomUUID().toString();
+                Map<String, JsonNode> documents = indices.computeIfAbsent(index, key -> new ConcurrentHashMap<>());
+
+                int status;
+                String result;
+                if ("delete".equals(type)) {
+                    boolean deleted = documents.remove(id) != null;
+                    status = deleted ? 200 : 404;
+                    result = deleted ? "deleted" : "not_found";
+                } else {
+                    JsonNode source = MAPPER.readTree(reader.readLine());
+                    if ("update".equals(type)) {
+                        JsonNode existing = documents.get(id);
+                        if (existing == null) {
+                            items.add(failedItem(type, index, id, 404, "document_missing_exception", "[" + id + "]: document missing"));
+                            errors = true;
+                            continue;
+                        }
+                        // partial documents are merged as Elasticsearch does, scripts are not evaluated
+                        if (source.has("doc")) {
+                            ObjectNode merged = existing.deepCopy();
+                            merge(merged, source.get("doc"));
+                            documents.put(id, merged);
+                        }
+                        status = 200;
+                        result = "updated";
+                    } else if (rejectedIds.contains(id)) {
+                        items.add(failedItem(type, index, id, 400, "mapper_parsing_exception", "rejected by stub"));
+                        errors = true;
+                        continue;
+                    } else {
+                        boolean created = documents.put(id, source) == null;
+                        writtenDocuments.incrementAndGet();
+                        status = created ? 201 : 200;
+                        result = created ? "created" : "updated";
+                    }
+                }
+                ObjectNode item = writeResult(index, id, result).put("status", status);
+                ObjectNode wrapper = object();
+                wrapper.set(type, item);
+                items.add(wrapper);
+            }
+        }
+        ObjectNode response = object().put("took", (System.nanoTime() - start) / 1_000_000).put("errors", errors);
+        response.set("items", items);
+        return new Response(200, response);
+    }
+
+    /**
+     * Merges a partial document into a document: objects are merged recursively, other values replace the existing one.
+     */
+    private static void merge(ObjectNode target, JsonNode partial) {
+        partial.fields().forEachRemaining(field -> {
+            JsonNode current = target.get(field.getKey());
+            if (current != null && current.isObject() && field.getValue().isObject()) {
+                merge((ObjectNode) current, field.getValue());
+            } else {
+                target.set(field.getKey(), field.getValue());
+            }
+        });
+    }
+
+    private static ObjectNode failedItem(String type, String index, String id, int status, String errorType, String reason) {
+        ObjectNode item = object().put("_index", index).put("_id", id).put("status", status);
+        item.set("error", object().put("type", errorType).put("reason", reason));
+        ObjectNode wrapper = object();
+        wrapper.set(type, item);
+        return wrapper;
+    }
+
+    private Response search(String index, Map<String, String> query, InputStream body) throws IOException {
+        byte[] bytes = body.readAllBytes();
+        JsonNode request = bytes.length == 0 ? JsonNodeFactory.instance.objectNode() : MAPPER.readTree(bytes);
+        int size = query.containsKey("size") ? Integer.parseInt(query.get("size")) : request.path("size").asInt(10);
+
+        List<Map.Entry<String, JsonNode>> documents = new ArrayList<>(indices.getOrDefault(index, Map.of()).entrySet());
+        ObjectNode response = page(index, documents, size, query.containsKey("scroll"));
+        response.set("aggregations", aggregations);
+        return new Response(200, response);
+    }
+
+    private Response scroll(InputStream body) throws IOException {
+        JsonNode request = MAPPER.readTree(body);
+        String scrollId = request.path("scroll_id").asText();
+        Scroll scroll = scrolls.remove(scrollId);
+        if (scroll == null) return error(404, "No search context found for id [" + scrollId + "]");
+
+        return new Response(200, page(scroll.index, scroll.remaining, scroll.size, true));
+    }
+
+    private Response clearScroll() {
+        return new Response(200, object().put("succeeded", true).put("num_freed", 1));
+    }
+
+    private ObjectNode page(String index, List<Map.Entry<String, JsonNode>> documents, int size, boolean scroll) {
+        int end = Math.min(size, documents.size());
+        ArrayNode hits = JsonNodeFactory.instance.arrayNode();
+        for (Map.Entry<String, JsonNode> document : documents.subList(0, end)) {
+            ObjectNode hit = object().put("_index", index).put("_type", "_doc")
+                                     .put("_id", document.getKey()).put("_score", 1.0);
+            hit.set("_source", document.getValue());
+            hits.add(hit);
+        }
+
+        ObjectNode total = object().put("value", documents.size()).put("relation", "eq");
+        ObjectNode hitsNode = object();
+        hitsNode.set("total", total);
+        hitsNode.put("max_score", 1.0);
+        hitsNode.set("hits", hits);
+
+        ObjectNode response = object().put("took", 1).put("timed_out", false);
+        response.set("_shards", shards());
+        response.set("hits", hitsNode);
+        if (scroll) {
+            String scrollId = UUID.randomUUID().toString();
+            scrolls.put(scrollId, new Scroll(index, new ArrayList<>(documents.subList(end, documents.size())), size));
+            response.put("_scroll_id", scrollId);
+        }
+        return response;
+    }
+
+    private static ObjectNode writeResult(String index, String id, String result) {
+        ObjectNode response = object().put("_index", index).put("_type", "_doc").put("_id", id)
+                                      .put("_version", 1).put("result", result)
+                                      .put("_seq_no", 0).put("_primary_term", 1);
+        response.set("_shards", shards());
+        return response;
+    }
+
+    private static ObjectNode shards() {
+        return object().put("total", 1).put("successful", 1).put("skipped", 0).put("failed", 0);
+    }
+
+    private static ObjectNode object() {
+        return JsonNodeFactory.instance.objectNode();
+    }
+
+    private static Response error(int status, String reason) {
+        return error(status, status == 404 ? "resource_not_found_exception" : "illegal_argument_exception", reason);
+    }
+
+    private static Response error(int status, String type, String reason) {
+        ObjectNode error = object().put("type", type).put("reason", reason);
+        ObjectNode response = object().put("status", status);
+        response.set("error", error);
+        return new Response(status, response);
+    }
+
+    private static Operation operationOf(List<String> path) {
+        if (path.contains("_bulk")) return Operation.BULK;
+        if (path.contains("_search")) return Operation.SEARCH;
+        if (path.contains("_doc") || path.contains("_create")) return Operation.DOCUMENT;
+        return Operation.ADMIN;
+    }
+
+    private static List<String> pathSegments(HttpExchange exchange) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : exchange.getRequestURI().getRawPath().split("/")) {
+            if (!segment.isEmpty()) segments.add(URLDecoder.decode(segment.replace("+", "%2B"), StandardCharsets.UTF_8));
+        }
+        return segments;
+    }
+
+    private static Map<String, String> queryParameters(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String rawQuery = exchange.getRequestURI().getRawQuery();
+        if (rawQuery == null) return parameters;
+
+        for (String parameter : rawQuery.split("&")) {
+            int separator = parameter.indexOf('=');
+            String name = separator < 0 ? parameter : parameter.substring(0, separator);
+            String value = separator < 0 ? "" : parameter.substring(separator + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    private static void sleep(Duration latency) {
+        if (latency == null || latency.isZero()) return;
+
+        try {
+            Thread.sleep(latency.toMillis(), latency.toNanosPart() % 1_000_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Scroll {
+        private final String index;
+        private final List<Map.Entry<String, JsonNode>> remaining;
+        private final int size;
+
+        private Scroll(String index, List<Map.Entry<String, JsonNode>> remaining, int size) {
+            this.index = index;
+            this.remaining = remaining;
+            this.size = size;
+        }
+    }
+
+    private static final class Response {
+        private final int status;
+        private final JsonNode body;
+
+        private Response(int status, JsonNode body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+}
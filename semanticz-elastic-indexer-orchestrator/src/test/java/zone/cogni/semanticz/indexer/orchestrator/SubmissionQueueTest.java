@@ -0,0 +1,125 @@
+package zone.cogni.semanticz.indexer.orchestrator;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SubmissionQueueTest {
+
+    private static final String FIRST = SyntheticEntities.DATASET_PREFIX + 1;
+    private static final String SECOND = SyntheticEntities.DATASET_PREFIX + 2;
+
+    private StubElasticsearch elastic;
+    private ThroughputHarness harness;
+
+    private void start(Duration debounce) throws Exception {
+        IndexOrchestratorConfig config = ThroughputHarness.orchestratorConfig();
+        config.setSubmitDebounce(debounce);
+        harness = new ThroughputHarness(elastic, SyntheticEntities.generate(10, 2, 42), config);
+    }
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        elastic = StubElasticsearch.start();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        if (harness != null) harness.close();
+        elastic.close();
+    }
+
+    @Test
+    public void testSubmit_sameUriWithinWindowIsIndexedOnce() throws Exception {
+        // Arrange
+        start(Duration.ofMillis(200));
+        IndexOrchestrator orchestrator = harness.getOrchestrator();
+
+        // Act
+        CompletableFuture<Void> first = orchestrator.submit(FIRST, "dataset");
+        CompletableFuture<Void> second = orchestrator.submit(FIRST, "dataset");
+        CompletableFuture<Void> third = orchestrator.submit(FIRST, "dataset");
+        first.get(10, TimeUnit.SECONDS);
+
+        // Assert
+        assertSame(first, second);
+        assertSame(first, third);
+        assertEquals(1, elastic.writtenDocuments());
+        assertEquals(1, elastic.requestCount(StubElasticsearch.Operation.BULK));
+        assertNotNull(elastic.document(ThroughputHarness.INDEX, FIRST));
+    }
+
+    @Test
+    public void testSubmit_eachCallerCompletesWhenItsDocumentIsIndexed() throws Exception {
+        // Arrange
+        start(Duration.ofMillis(200));
+        IndexOrchestrator orchestrator = harness.getOrchestrator();
+
+        // Act
+        CompletableFuture<Void> first = orchestrator.submit(FIRST, "dataset");
+        CompletableFuture<Void> second = orchestrator.submit(SECOND, "dataset");
+        first.get(10, TimeUnit.SECONDS);
+        second.get(10, TimeUnit.SECONDS);
+
+        // Assert
+        assertNotSame(first, second);
+        assertNotNull(elastic.document(ThroughputHarness.INDEX, FIRST));
+        assertNotNull(elastic.document(ThroughputHarness.INDEX, SECOND));
+        assertEquals(1, elastic.requestCount(StubElasticsearch.Operation.BULK));
+    }
+
+    @Test
+    public void testSubmit_rejectedDocumentOnlyFailsItsOwnFuture() throws Exception {
+        // Arrange
+        start(Duration.ofMillis(200));
+        elastic.rejectDocument(SECOND);
+        IndexOrchestrator orchestrator = harness.getOrchestrator();
+
+        // Act
+        CompletableFuture<Void> first = orchestrator.submit(FIRST, "dataset");
+        CompletableFuture<Void> second = orchestrator.submit(SECOND, "dataset");
+
+        // Assert
+        first.get(10, TimeUnit.SECONDS);
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> second.get(10, TimeUnit.SECONDS));
+        assertTrue(failure.getCause().getMessage().contains("rejected by stub"));
+        assertNotNull(elastic.document(ThroughputHarness.INDEX, FIRST));
+        assertNull(elastic.document(ThroughputHarness.INDEX, SECOND));
+    }
+
+    @Test
+    public void testSubmit_unknownEntityFailsRightAway() throws Exception {
+        // Arrange
+        start(Duration.ofMillis(200));
+
+        // Act
+        CompletableFuture<Void> future = harness.getOrchestrator().submit(FIRST, "unknown");
+
+        // Assert
+        assertTrue(future.isCompletedExceptionally());
+    }
+
+    @Test
+    public void testFlushSubmissions_indexesPendingDocumentsBeforeWindowCloses() throws Exception {
+        // Arrange
+        start(Duration.ofMinutes(10));
+        IndexOrchestrator orchestrator = harness.getOrchestrator();
+        CompletableFuture<Void> first = orchestrator.submit(FIRST, "dataset");
+
+        // Act
+        orchestrator.flushSubmissions().get(10, TimeUnit.SECONDS);
+
+        // Assert
+        assertTrue(first.isDone());
+        assertFalse(first.isCompletedExceptionally());
+        assertNotNull(elastic.document(ThroughputHarness.INDEX, FIRST));
+        assertTrue(orchestrator.flushSubmissions().isDone());
+    }
+}
@@ -0,0 +1,76 @@
+package zone.cogni.semanticz.indexer.orchestrator;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.vocabulary.DCTerms;
+import org.apache.jena.vocabulary.RDF;
+
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * Generates a reproducible catalogue of DCAT datasets, each published by one of a smaller set of publishers.
+ * Descriptions and keywords vary in length, so document sizes spread over several orders of magnitude like in a
+ * real catalogue.
+ */
+final class SyntheticEntities {
+
+    static final String DATASET_PREFIX = "http://example.com/dataset/";
+    static final String PUBLISHER_PREFIX = "http://example.com/publisher/";
+
+    private static final String DCAT = "http://www.w3.org/ns/dcat#";
+    private static final String FOAF = "http://xmlns.com/foaf/0.1/";
+    private static final String[] WORDS = {
+            "data", "open", "statistics", "environment", "transport", "budget", "population", "energy", "health",
+            "education", "agriculture", "water", "climate", "register", "annual", "regional", "survey", "index"};
+
+    private SyntheticEntities() {
+    }
+
+    /**
+     * @param datasets   the number of datasets
+     * @param publishers the number of publishers shared by the datasets
+     * @param seed       the seed, the same seed always generates the same catalogue
+     */
+    static Model generate(int datasets, int publishers, long seed) {
+        Random random = new Random(seed);
+        Model model = ModelFactory.createDefaultModel();
+        Resource datasetClass = model.createResource(DCAT + "Dataset");
+        Property keyword = model.createProperty(DCAT, "keyword");
+        Property name = model.createProperty(FOAF, "name");
+
+        for (int i = 0; i < publishers; i++) {
+            model.createResource(PUBLISHER_PREFIX + i)
+                 .addProperty(RDF.type, model.createResource(FOAF + "Agent"))
+                 .addProperty(name, model.createLiteral("Publisher " + i, "en"));
+        }
+
+        LocalDate firstIssued = LocalDate.of(2000, 1, 1);
+        for (int i = 0; i < datasets; i++) {
+            Resource dataset = model.createResource(DATASET_PREFIX + i)
+                                    .addProperty(RDF.type, datasetClass)
+                                    .addProperty(DCTerms.title, model.createLiteral("Dataset " + i + " " + words(random, 3), "en"))
+                                    .addProperty(DCTerms.title, model.createLiteral("Jeu de donn\u00e9es " + i, "fr"))
+                                    .addProperty(DCTerms.description, model.createLiteral(words(random, 10 + (int) Math.abs(random.nextGaussian() * 200)), "en"))
+                                    .addProperty(DCTerms.publisher, model.createResource(PUBLISHER_PREFIX + random.nextInt(publishers)))
+                                    .addProperty(DCTerms.issued, firstIssued.plusDays(random.nextInt(9000)).toString(), XSDDatatype.XSDdate);
+            int keywords = 1 + random.nextInt(8);
+            for (int k = 0; k < keywords; k++) {
+                dataset.addProperty(keyword, model.createLiteral(WORDS[random.nextInt(WORDS.length)] + k, "en"));
+            }
+        }
+        return model;
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) text.append(' ');
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,186 @@
+package zone.cogni.semanticz.indexer.orchestrator;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import co.elastic.clients.transport.rest_client.RestClientTransport;
+import org.apache.http.HttpHost;
+import org.apache.jena.rdf.model.Model;
+import org.elasticsearch.client.RestClient;
+import org.springframework.http.HttpMethod;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.templateresolver.StringTemplateResolver;
+import zone.cogni.asquare.triplestore.jenamemory.InternalRdfStoreService;
+import zone.cogni.semanticz.webflux.WebProxy;
+import zone.cogni.semanticz.webflux.WebProxyConfig;
+
+import javax.net.ssl.SSLException;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Runs the orchestrator end to end against an in-memory triple store and a {@link StubElasticsearch}, and reports the
+ * document throughput and the allocation rate of the run.
+ * <p>
+ * Allocation is measured process wide with an {@link AllocationMeter}, so threads that start and end during the run,
+ * like the sender threads of the sinks, are counted too; so is the in-process stub.
+ */
+class ThroughputHarness implements AutoCloseable {
+
+    static final String INDEX = "harness.datasets";
+
+    private final StubElasticsearch elastic;
+    private final RestClient restClient;
+    private final ElasticsearchClient elasticsearchClient;
+    private final WebProxy webProxy;
+    private final IndexOrchestrator orchestrator;
+
+    ThroughputHarness(StubElasticsearch elastic, Model data) throws SSLException {
+        this(elastic, data, orchestratorConfig());
+    }
+
+    ThroughputHarness(StubElasticsearch elastic, Model data, IndexOrchestratorConfig config) throws SSLException {
+        this.elastic = elastic;
+        this.restClient = RestClient.builder(HttpHost.create(elastic.getUrl())).build();
+        this.elasticsearchClient = new ElasticsearchClient(new RestClientTransport(restClient, new JacksonJsonpMapper()));
+
+        WebProxyConfig proxyConfig = new WebProxyConfig();
+        proxyConfig.setUrl(elastic.getUrl());
+        proxyConfig.setEndpoint("");
+        proxyConfig.setReadTimeout(Duration.ofSeconds(30));
+        this.webProxy = new WebProxy(proxyConfig);
+
+        StringTemplateResolver templateResolver = new StringTemplateResolver();
+        TemplateEngine templateEngine = new TemplateEngine();
+        templateEngine.setTemplateResolver(templateResolver);
+
+        this.orchestrator = new IndexOrchestrator(new InternalRdfStoreService(data), elasticsearchClient, config,
+                webProxy, templateEngine, null);
+    }
+
+    /**
+     * @return an orchestrator configuration indexing the synthetic datasets with SPARQL, text and Elasticsearch facets
+     */
+    static IndexOrchestratorConfig orchestratorConfig() {
+        IndexOrchestratorConfig.EntityConfig datasets = new IndexOrchestratorConfig.EntityConfig();
+        datasets.setName("dataset");
+        datasets.setIndex(INDEX);
+        datasets.setShacl("harness/dataset.shapes.ttl");
+        datasets.setSelect("harness/select-datasets.sparql.thymeleaf");
+        datasets.setSelectQueryParam("uri");
+        datasets.setConstruct("harness/construct-dataset.sparql.thymeleaf");
+        datasets.setConstructQueryParam("uri");
+        datasets.setSettings("harness/settings.json");
+        datasets.setFacets(List.of(
+                facet(null, "harness/facets/title.sparql.thymeleaf"),
+                facet(null, "harness/facets/publisher.sparql.thymeleaf"),
+                facet("rootUri", "harness/facets/rootUri.thymeleaf"),
+                elasticsearchFacet()));
+
+        IndexOrchestratorConfig config = new IndexOrchestratorConfig();
+        config.setIndexing(List.of(datasets));
+        return config;
+    }
+
+    private static IndexOrchestratorConfig.FacetConfig facet(String name, String body) {
+        IndexOrchestratorConfig.FacetConfig facet = new IndexOrchestratorConfig.FacetConfig();
+        facet.setName(name);
+        facet.setBody(body);
+        return facet;
+    }
+
+    private static IndexOrchestratorConfig.FacetConfig elasticsearchFacet() {
+        IndexOrchestratorConfig.FacetConfig facet = facet("popularity", "harness/facets/popularity.json.thymeleaf");
+        facet.setMethod(HttpMethod.POST);
+        facet.setPath("/harness.views/_search");
+        facet.setAccept("application/json");
+        facet.setContentType("application/json");
+        return facet;
+    }
+
+    ElasticsearchClient getElasticsearchClient() {
+        return elasticsearchClient;
+    }
+
+    IndexOrchestrator getOrchestrator() {
+        return orchestrator;
+    }
+
+    /**
+     * Runs {@link IndexOrchestrator#indexAll(IndexAllOptions)} and measures it. Documents are counted as they
+     * arrive at the stub, so a dry run reports none.
+     */
+    ThroughputReport run(IndexAllOptions options) {
+        long before = elastic.writtenDocuments();
+        long gcBefore = gcMillis();
+        long elapsed;
+        long allocated;
+        try (AllocationMeter meter = new AllocationMeter()) {
+            long start = System.nanoTime();
+            orchestrator.indexAll(options);
+            elapsed = System.nanoTime() - start;
+            allocated = meter.allocatedBytes();
+        }
+        long documents = elastic.writtenDocuments() - before;
+        return new ThroughputReport(documents, Duration.ofNanos(elapsed), allocated, Duration.ofMillis(gcMillis() - gcBefore));
+    }
+
+    @Override
+    public void close() throws IOException {
+        webProxy.close();
+        restClient.close();
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, collector.getCollectionTime());
+        }
+        return total;
+    }
+
+    /**
+     * Throughput and allocation of one run.
+     */
+    static final class ThroughputReport {
+        private final long documents;
+        private final Duration elapsed;
+        private final long allocatedBytes;
+        private final Duration gcTime;
+
+        ThroughputReport(long documents, Duration elapsed, long allocatedBytes, Duration gcTime) {
+            this.documents = documents;
+            this.elapsed = elapsed;
+            this.allocatedBytes = allocatedBytes;
+            this.gcTime = gcTime;
+        }
+
+        long getDocuments() {
+            return documents;
+        }
+
+        double getDocumentsPerSecond() {
+            return documents * 1e9 / Math.max(1, elapsed.toNanos());
+        }
+
+        /**
+         * @return the allocation rate in megabytes per second
+         */
+        double getAllocationRate() {
+            return allocatedBytes / 1e6 * 1e9 / Math.max(1, elapsed.toNanos());
+        }
+
+        long getAllocatedBytesPerDocument() {
+            return documents == 0 ? 0 : allocatedBytes / documents;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d documents in %d ms: %.1f documents/s, %.1f MB/s allocated, %d KB per document, GC %d ms",
+                    documents, elapsed.toMillis(), getDocumentsPerSecond(), getAllocationRate(),
+                    getAllocatedBytesPerDocument() / 1024, gcTime.toMillis());
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package zone.cogni.semanticz.indexer.orchestrator;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.Refresh;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import co.elastic.clients.transport.rest_client.RestClientTransport;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.http.HttpHost;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.elasticsearch.client.RestClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Writes the datasets to the harness index of the orchestrator cluster and to a second index in another cluster.
+ */
+public class WriteTargetsTest {
+
+    private static final String NEXT_INDEX = "harness.datasets.v2";
+    private static final String STALE = SyntheticEntities.DATASET_PREFIX + "stale";
+    private static final String URI = SyntheticEntities.DATASET_PREFIX + 1;
+    private static final String CONCEPT = "http://example.com/concept/transport";
+    private static final String TRAFFIC = "http://example.com/dataset/1";
+    private static final String PARKING = "http://example.com/dataset/2";
+    private static final String AIR_QUALITY = "http://example.com/dataset/3";
+
+    private StubElasticsearch elastic;
+    private StubElasticsearch next;
+    private RestClient nextRestClient;
+    private ElasticsearchClient nextClient;
+    private ThroughputHarness harness;
+
+    private static IndexOrchestratorConfig targetsConfig() {
+        IndexOrchestratorConfig config = ThroughputHarness.orchestratorConfig();
+        IndexOrchestratorConfig.WriteTargetConfig current = new IndexOrchestratorConfig.WriteTargetConfig();
+        IndexOrchestratorConfig.WriteTargetConfig migrated = new IndexOrchestratorConfig.WriteTargetConfig();
+        migrated.setCluster("next");
+        migrated.setIndex(NEXT_INDEX);
+        config.getIndexing().get(0).setTargets(List.of(current, migrated));
+        config.setSubmitDebounce(Duration.ofMillis(50));
+        return config;
+    }
+
+    private void start(Model data, IndexOrchestratorConfig config) throws Exception {
+        harness = new ThroughputHarness(elastic, data, config);
+        harness.getOrchestrator().addCluster("next", nextClient);
+    }
+
+    private void start() throws Exception {
+        start(SyntheticEntities.generate(5, 2, 42), targetsConfig());
+    }
+
+    private static ObjectNode document(String uri) {
+        ObjectNode document = JsonNodeFactory.instance.objectNode();
+        document.put("@id", uri);
+        document.putObject("facets").putObject("title").put("en", "Old title");
+        return document;
+    }
+
+    private static void index(ElasticsearchClient client, String index, String uri) throws Exception {
+        client.index(request -> request.index(index).id(uri).document(document(uri)).refresh(Refresh.True));
+    }
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        elastic = StubElasticsearch.start();
+        next = StubElasticsearch.start();
+        nextRestClient = RestClient.builder(HttpHost.create(next.getUrl())).build();
+        nextClient = new ElasticsearchClient(new RestClientTransport(nextRestClient, new JacksonJsonpMapper()));
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        if (harness != null) harness.close();
+        nextRestClient.close();
+        elastic.close();
+        next.close();
+    }
+
+    @Test
+    public void testIndexAll_writesEveryTarget() throws Exception {
+        // Arrange
+        start();
+
+        // Act
+        harness.getOrchestrator().indexAll(new IndexAllOptions());
+
+        // Assert
+        assertEquals(5, elastic.documentCount(ThroughputHarness.INDEX));
+        assertEquals(5, next.documentCount(NEXT_INDEX));
+        assertEquals(0, next.documentCount(ThroughputHarness.INDEX));
+        assertEquals(elastic.document(ThroughputHarness.INDEX, URI), next.document(NEXT_INDEX, URI));
+    }
+
+    @Test
+    public void testIndexAll_resetClearsEveryTarget() throws Exception {
+        // Arrange
+        start();
+        index(harness.getElasticsearchClient(), ThroughputHarness.INDEX, STALE);
+        index(nextClient, NEXT_INDEX, STALE);
+        IndexAllOptions options = new IndexAllOptions();
+        options.setReset(true);
+
+        // Act
+        harness.getOrchestrator().indexAll(options);
+
+        // Assert
+        assertNull(elastic.document(ThroughputHarness.INDEX, STALE));
+        assertNull(next.document(NEXT_INDEX, STALE));
+        assertEquals(5, elastic.documentCount(ThroughputHarness.INDEX));
+        assertEquals(5, next.documentCount(NEXT_INDEX));
+    }
+
+    @Test
+    public void testIndexAll_removesStaleDocumentsFromEveryTarget() throws Exception {
+        // Arrange
+        start();
+        index(harness.getElasticsearchClient(), ThroughputHarness.INDEX, STALE);
+        index(nextClient, NEXT_INDEX, STALE);
+        IndexAllOptions options = new IndexAllOptions();
+        options.setRemoveStale(true);
+
+        // Act
+        harness.getOrchestrator().indexAll(options);
+
+        // Assert
+        assertNull(elastic.document(ThroughputHarness.INDEX, STALE));
+        assertNull(next.document(NEXT_INDEX, STALE));
+        assertEquals(5, elastic.documentCount(ThroughputHarness.INDEX));
+        assertEquals(5, next.documentCount(NEXT_INDEX));
+    }
+
+    @Test
+    public void testIndexAll_unknownClusterFails() throws Exception {
+        // Arrange
+        harness = new ThroughputHarness(elastic, SyntheticEntities.generate(5, 2, 42), targetsConfig());
+
+        // Act
+        IllegalStateException failure = assertThrows(IllegalStateException.class,
+                () -> harness.getOrchestrator().indexAll(new IndexAllOptions()));
+
+        // Assert
+        assertTrue(failure.getMessage().contains("Unknown cluster 'next'"));
+        assertEquals(0, next.writtenDocuments());
+    }
+
+    @Test
+    public void testIndexOne_writesEveryTarget() throws Exception {
+        // Arrange
+        start();
+
+        // Act
+        harness.getOrchestrator().indexOne(URI, "dataset");
+
+        // Assert
+        assertNotNull(elastic.document(ThroughputHarness.INDEX, URI));
+        assertEquals(elastic.document(ThroughputHarness.INDEX, URI), next.document(NEXT_INDEX, URI));
+    }
+
+    @Test
+    public void testSubmit_completesOnceEveryTargetStoredTheDocument() throws Exception {
+        // Arrange
+        start();
+
+        // Act
+        harness.getOrchestrator().submit(URI, "dataset").get(10, TimeUnit.SECONDS);
+
+        // Assert
+        assertNotNull(elastic.document(ThroughputHarness.INDEX, URI));
+        assertEquals(elastic.document(ThroughputHarness.INDEX, URI), next.document(NEXT_INDEX, URI));
+    }
+
+    @Test
+    public void testSubmit_failsWhenOneTargetRejectsTheDocument() throws Exception {
+        // Arrange
+        start();
+        next.rejectDocument(URI);
+
+        // Act
+        Exception failure = assertThrows(Exception.class,
+                () -> harness.getOrchestrator().submit(URI, "dataset").get(10, TimeUnit.SECONDS));
+
+        // Assert
+        assertTrue(failure.getCause().getMessage().contains("next/" + NEXT_INDEX));
+        assertNotNull(elastic.document(ThroughputHarness.INDEX, URI));
+    }
+
+    @Test
+    public void testReindexDependents_writesEveryTarget() throws Exception {
+        // Arrange
+        Model data = ModelFactory.createDefaultModel();
+        try (InputStream in = WriteTargetsTest.class.getClassLoader().getResourceAsStream("cascade/data.ttl")) {
+            data.read(in, null, "TTL");
+        }
+        IndexOrchestratorConfig config = targetsConfig();
+        config.getIndexing().get(0).setDependents("cascade/dataset-dependents.sparql.thymeleaf");
+        start(data, config);
+
+        // Act
+        harness.getOrchestrator().reindexDependents(List.of(CONCEPT));
+
+        // Assert
+        assertNotNull(elastic.document(ThroughputHarness.INDEX, TRAFFIC));
+        assertNotNull(next.document(NEXT_INDEX, TRAFFIC));
+        assertNotNull(next.document(NEXT_INDEX, PARKING));
+        assertNull(next.document(NEXT_INDEX, AIR_QUALITY));
+        assertEquals(2, next.writtenDocuments());
+    }
+
+    @Test
+    public void testRefreshFacets_patchesEveryTarget() throws Exception {
+        // Arrange
+        start();
+        index(harness.getElasticsearchClient(), ThroughputHarness.INDEX, URI);
+        index(nextClient, NEXT_INDEX, URI);
+
+        // Act
+        harness.getOrchestrator().refreshFacets("dataset", List.of("harness/facets/title.sparql.thymeleaf"));
+
+        // Assert
+        assertEquals("Jeu de donn\u00e9es 1", elastic.document(ThroughputHarness.INDEX, URI).at("/facets/title/fr").asText());
+        assertEquals("Jeu de donn\u00e9es 1", next.document(NEXT_INDEX, URI).at("/facets/title/fr").asText());
+        assertEquals(URI, next.document(NEXT_INDEX, URI).get("@id").asText());
+    }
+}
@@ -0,0 +1,323 @@
+package zone.cogni.semanticz.indexer.bulk;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import zone.cogni.semanticz.indexer.utils.ElasticsearchClientUtils;
+import zone.cogni.semanticz.indexer.utils.IndexingUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Document sink that batches documents into Elasticsearch bulk requests.
+ * <p>
+ * A bulk request is sent as soon as the pending documents reach the configured number of actions or bytes.
+ * A single document larger than the byte limit is sent on its own instead of being batched.
+ * Bulk requests are sent without refresh; on {@link #close()} every index written to is refreshed once,
+ * unless disabled. Item failures are collected and reported on close. The outcome of a document written with a
+ * {@link WriteListener} is reported once its bulk request is answered.
+ * <p>
+ * With a {@link ByteBudget}, bulk requests are sent asynchronously and {@link #write} blocks while the documents
+ * written but not yet acknowledged exceed the budget. While a producer is blocked, pending documents are sent right
+ * away instead of waiting for a full batch, so the budget is always released eventually.
+ */
+public class BulkDocumentSink implements DocumentSink {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkDocumentSink.class);
+
+    public static final int DEFAULT_MAX_ACTIONS = 500;
+    public static final long DEFAULT_MAX_BYTES = 10L * 1024 * 1024;
+    public static final int DEFAULT_SENDER_THREADS = 2;
+
+    private final ElasticsearchClient elasticClient;
+    private final int maxActions;
+    private final long maxBytes;
+    private final boolean refreshOnClose;
+    private final ByteBudget budget;
+    private final Executor sendExecutor;
+    private final ExecutorService ownedExecutor;
+
+    private final List<BulkOperation> pending = new ArrayList<>();
+    private final List<WriteListener> pendingListeners = new ArrayList<>();
+    private final List<BulkResponse> responsesWithError = Collections.synchronizedList(new ArrayList<>());
+    private final Set<String> indices = new LinkedHashSet<>();
+    private long pendingBytes;
+    private long pendingAcquired;
+    private int inFlight;
+    private RuntimeException failure;
+    private boolean closed;
+
+    public BulkDocumentSink(@Nonnull ElasticsearchClient elasticClient) {
+        this(elasticClient, DEFAULT_MAX_ACTIONS, DEFAULT_MAX_BYTES, true);
+    }
+
+    /**
+     * @param elasticClient  the client to send bulk requests with
+     * @param maxActions     the maximum number of documents per bulk request
+     * @param maxBytes       the serialised size after which pending documents are sent
+     * @param refreshOnClose whether to refresh the written indices when the sink is closed
+     */
+    public BulkDocumentSink(@Nonnull ElasticsearchClient elasticClient, int maxActions, long maxBytes, boolean refreshOnClose) {
+        this(elasticClient, maxActions, maxBytes, refreshOnClose, null, null);
+    }
+
+    /**
+     * @param elasticClient  the client to send bulk requests with
+     * @param maxActions     the maximum number of documents per bulk request
+     * @param maxBytes       the serialised size after which pending documents are sent
+     * @param refreshOnClose whether to refresh the written indices when the sink is closed
+     * @param budget         the budget of bytes written but not yet acknowledged, or null to send synchronously
+     * @param sendExecutor   the executor sending bulk requests when a budget is set,
+     *                       or null to use {@value #DEFAULT_SENDER_THREADS} threads owned by the sink
+     */
+    public BulkDocumentSink(@Nonnull ElasticsearchClient elasticClient, int maxActions, long maxBytes, boolean refreshOnClose,
+                            @Nullable ByteBudget budget, @Nullable Executor sendExecutor) {
+        if (maxActions < 1) {
+            throw new IllegalArgumentException("Max actions must be at least 1, got " + maxActions);
+        }
+        this.elasticClient = elasticClient;
+        this.maxActions = maxActions;
+        this.maxBytes = maxBytes;
+        this.refreshOnClose = refreshOnClose;
+        this.budget = budget;
+        this.ownedExecutor = budget != null && sendExecutor == null ? Executors.newFixedThreadPool(DEFAULT_SENDER_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "bulk-sender");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+        this.sendExecutor = ownedExecutor != null ? ownedExecutor : sendExecutor;
+    }
+
+    @Override
+    public void write(String index, String id, RawJsonDocument document) {
+        write(index, id, document, null);
+    }
+
+    @Override
+    public void write(String index, String id, RawJsonDocument document, WriteListener listener) {
+        if (budget == null) {
+            writeSynchronously(index, id, document, listener);
+            return;
+        }
+
+        checkOpen();
+        BulkOperation operation = IndexingUtils.parseIndexRequest(index, id, document);
+        long acquired;
+        try {
+            acquired = budget.acquire(document.length(), this::sendPending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the byte budget of the document sink", e);
+        }
+
+        Batch batch;
+        synchronized (this) {
+            indices.add(index);
+            if (document.length() > maxBytes) {
+                batch = new Batch(List.of(operation), Collections.singletonList(listener), document.length(), acquired);
+            } else {
+                pending.add(operation);
+                pendingListeners.add(listener);
+                pendingBytes += document.length();
+                pendingAcquired += acquired;
+                boolean full = pending.size() >= maxActions || pendingBytes >= maxBytes;
+                batch = full || budget.hasWaiters() ? takePending() : null;
+            }
+        }
+        if (batch != null) dispatch(batch);
+    }
+
+    private synchronized void writeSynchronously(String index, String id, RawJsonDocument document, WriteListener listener) {
+        checkOpen();
+        indices.add(index);
+        BulkOperation operation = IndexingUtils.parseIndexRequest(index, id, document);
+        if (document.length() > maxBytes) {
+            send(new Batch(List.of(operation), Collections.singletonList(listener), document.length(), 0));
+            return;
+        }
+
+        pending.add(operation);
+        pendingListeners.add(listener);
+        pendingBytes += document.length();
+        if (pending.size() >= maxActions || pendingBytes >= maxBytes) {
+            flushPending();
+        }
+    }
+
+    @Override
+    public void flush() {
+        if (budget == null) {
+            flushPending();
+            return;
+        }
+
+        sendPending();
+        synchronized (this) {
+            while (inFlight > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while waiting for bulk requests of the document sink", e);
+                }
+            }
+            if (failure != null) {
+                RuntimeException thrown = failure;
+                failure = null;
+                throw thrown;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) return;
+        }
+
+        try {
+            flush();
+        } finally {
+            synchronized (this) {
+                closed = true;
+            }
+            if (ownedExecutor != null) ownedExecutor.shutdown();
+        }
+        if (refreshOnClose) {
+            indices.forEach(index -> ElasticsearchClientUtils.refreshIndex(elasticClient, index));
+        }
+        IndexingUtils.handleElasticBulkResponse(responsesWithError);
+    }
+
+    private synchronized void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Document sink is closed.");
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private synchronized void flushPending() {
+        Batch batch = takePending();
+        if (batch != null) send(batch);
+    }
+
+    private void sendPending() {
+        Batch batch;
+        synchronized (this) {
+            batch = takePending();
+        }
+        if (batch != null) dispatch(batch);
+    }
+
+    private synchronized Batch takePending() {
+        if (pending.isEmpty()) return null;
+
+        Batch batch = new Batch(new ArrayList<>(pending), new ArrayList<>(pendingListeners), pendingBytes, pendingAcquired);
+        pending.clear();
+        pendingListeners.clear();
+        pendingBytes = 0;
+        pendingAcquired = 0;
+        return batch;
+    }
+
+    private void dispatch(Batch batch) {
+        synchronized (this) {
+            inFlight++;
+        }
+        try {
+            sendExecutor.execute(() -> sendAndRelease(batch));
+        } catch (RejectedExecutionException e) {
+            sendAndRelease(batch);
+        }
+    }
+
+    private void sendAndRelease(Batch batch) {
+        try {
+            send(batch);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                if (failure == null) failure = e;
+            }
+        } finally {
+            budget.release(batch.acquired);
+            synchronized (this) {
+                inFlight--;
+                notifyAll();
+            }
+        }
+    }
+
+    private void send(Batch batch) {
+        BulkRequest request = IndexingUtils.createBulkRequest(batch.operations, false);
+        int actions = batch.operations.size();
+        BulkResponse response;
+        try {
+            response = elasticClient.bulk(request);
+        } catch (IOException e) {
+            batch.fail(e.toString());
+            throw new RuntimeException("Something went wrong while sending bulk request with " + actions + " documents", e);
+        }
+        if (response.errors()) {
+            responsesWithError.add(response);
+        }
+        log.debug("Bulk request with {} documents ({} bytes) took {} ms", actions, batch.bytes, response.took());
+        batch.acknowledge(response);
+    }
+
+    private static final class Batch {
+        private final List<BulkOperation> operations;
+        private final List<WriteListener> listeners;
+        private final long bytes;
+        private final long acquired;
+
+        private Batch(List<BulkOperation> operations, List<WriteListener> listeners, long bytes, long acquired) {
+            this.operations = operations;
+            this.listeners = listeners;
+            this.bytes = bytes;
+            this.acquired = acquired;
+        }
+
+        /**
+         * Reports every document to its listener, using the response items, which are in the order of the operations.
+         */
+        private void acknowledge(BulkResponse response) {
+            for (int i = 0; i < operations.size(); i++) {
+                WriteListener listener = listeners.get(i);
+                if (listener == null) continue;
+
+                BulkResponseItem item = response.errors() ? response.items().get(i) : null;
+                String index = operations.get(i).index().index();
+                String id = operations.get(i).index().id();
+                if (item == null || item.error() == null) {
+                    listener.onWritten(index, id);
+                } else {
+                    listener.onFailed(index, id, item.error().reason());
+                }
+            }
+        }
+
+        private void fail(String reason) {
+            for (int i = 0; i < operations.size(); i++) {
+                WriteListener listener = listeners.get(i);
+                if (listener != null) listener.onFailed(operations.get(i).index().index(), operations.get(i).index().id(), reason);
+            }
+        }
+    }
+}
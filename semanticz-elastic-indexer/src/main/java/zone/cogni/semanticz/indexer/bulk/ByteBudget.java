@@ -0,0 +1,111 @@
+package zone.cogni.semanticz.indexer.bulk;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Limits the number of bytes held by documents that are built but not yet acknowledged by Elasticsearch.
+ * <p>
+ * Producers {@link #acquire(long) acquire} the size of a document before handing it over and block while the budget
+ * is exhausted; the bytes are {@link #release(long) released} once the bulk request containing the document completed.
+ * Waiting producers are admitted in arrival order, so a large document is not starved by a stream of small ones.
+ * A document larger than the whole budget takes the whole budget: it waits until everything else is acknowledged and
+ * is then the only document in flight, so it can never deadlock the pipeline.
+ */
+public final class ByteBudget {
+
+    private final long maxBytes;
+    private final Set<Long> abandonedTickets = new HashSet<>();
+    private long inUse;
+    private long nextTicket;
+    private long servingTicket;
+    private volatile int waiting;
+
+    /**
+     * @param maxBytes the maximum number of bytes in flight
+     */
+    public ByteBudget(long maxBytes) {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("Byte budget must be at least 1, got " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Blocks until the bytes fit in the budget.
+     *
+     * @param bytes the estimated size of the document
+     * @return the number of bytes actually taken from the budget, to pass to {@link #release(long)}
+     * @throws InterruptedException when interrupted while waiting
+     */
+    public long acquire(long bytes) throws InterruptedException {
+        return acquire(bytes, () -> {
+        });
+    }
+
+    /**
+     * Blocks until the bytes fit in the budget, running the given action each time before the producer waits.
+     * Use it to send documents that hold budget but would otherwise wait for more documents, e.g. a partial batch.
+     * The action runs while holding the budget's monitor, so it must not block on other producers.
+     *
+     * @param bytes         the estimated size of the document
+     * @param beforeWaiting the action to run before waiting
+     * @return the number of bytes actually taken from the budget, to pass to {@link #release(long)}
+     * @throws InterruptedException when interrupted while waiting
+     */
+    public synchronized long acquire(long bytes, Runnable beforeWaiting) throws InterruptedException {
+        long amount = Math.min(Math.max(bytes, 0), maxBytes);
+        long ticket = nextTicket++;
+        try {
+            while (!admissible(ticket, amount)) {
+                waiting++;
+                try {
+                    beforeWaiting.run();
+                    if (!admissible(ticket, amount)) wait();
+                } finally {
+                    waiting--;
+                }
+            }
+        } catch (InterruptedException e) {
+            // give the turn away, otherwise every later producer waits forever
+            abandonedTickets.add(ticket);
+            advance();
+            throw e;
+        }
+        inUse += amount;
+        servingTicket++;
+        advance();
+        return amount;
+    }
+
+    public synchronized void release(long amount) {
+        inUse = Math.max(0, inUse - amount);
+        notifyAll();
+    }
+
+    /**
+     * @return true when at least one producer is blocked on the budget; does not lock
+     */
+    public boolean hasWaiters() {
+        return waiting > 0;
+    }
+
+    public synchronized long getInUse() {
+        return inUse;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    private boolean admissible(long ticket, long amount) {
+        return ticket == servingTicket && inUse + amount <= maxBytes;
+    }
+
+    private void advance() {
+        while (abandonedTickets.remove(servingTicket)) {
+            servingTicket++;
+        }
+        notifyAll();
+    }
+}
@@ -0,0 +1,45 @@
+package zone.cogni.semanticz.indexer.bulk;
+
+/**
+ * Destination for built documents.
+ * <p>
+ * Implementations decide how documents are delivered, e.g. batched into Elasticsearch bulk requests.
+ * Writes may be buffered until {@link #flush()} or {@link #close()} is called.
+ */
+public interface DocumentSink extends AutoCloseable {
+
+    /**
+     * Writes a document.
+     *
+     * @param index    the target index
+     * @param id       the document id
+     * @param document the serialised document
+     */
+    void write(String index, String id, RawJsonDocument document);
+
+    /**
+     * Writes a document and reports its outcome to the listener once it is delivered.
+     * Sinks that cannot tell report the document as written as soon as it is handed over, which is the default.
+     *
+     * @param index    the target index
+     * @param id       the document id
+     * @param document the serialised document
+     * @param listener the listener to report to, or null
+     */
+    default void write(String index, String id, RawJsonDocument document, WriteListener listener) {
+        write(index, id, document);
+        if (listener != null) listener.onWritten(index, id);
+    }
+
+    /**
+     * Delivers all buffered documents.
+     */
+    void flush();
+
+    /**
+     * Delivers all buffered documents and releases the sink.
+     * Failures of earlier writes are reported here at the latest.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,440 @@
+package zone.cogni.semanticz.indexer.bulk;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import zone.cogni.semanticz.indexer.utils.ElasticsearchClientUtils;
+import zone.cogni.semanticz.indexer.utils.IndexingUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.stream.Collectors;
+
+/**
+ * Document sink that sends every document to several write targets, e.g. the old and the new cluster of a migration,
+ * so documents are built once for all of them.
+ * <p>
+ * Every target has its own queue, sender thread and retry state. The sender batches whatever is queued into a bulk
+ * request of at most the configured number of actions or bytes. Requests failing with an I/O error and items rejected
+ * with status 429 or 503 are retried with exponential backoff. A slow target falls behind the others by at most
+ * {@code maxLag} documents; {@link #write} blocks once a queue is full. Document bytes are shared between the queues.
+ * <p>
+ * A target whose retries are exhausted fails the sink: the failure is thrown by the next write or flush. Items
+ * failing for other reasons are logged and reported on {@link #close()}. A document written with a
+ * {@link WriteListener} is reported as written once every target stored it, and as failed once every target answered
+ * and at least one of them rejected it or failed.
+ */
+public class FanOutDocumentSink implements DocumentSink {
+
+    private static final Logger log = LoggerFactory.getLogger(FanOutDocumentSink.class);
+
+    public static final int DEFAULT_MAX_LAG = 10_000;
+    public static final int DEFAULT_MAX_RETRIES = 5;
+    public static final Duration DEFAULT_RETRY_BACKOFF = Duration.ofMillis(200);
+
+    private static final Set<Integer> RETRYABLE_STATUSES = Set.of(429, 503);
+    private static final int MAX_BACKOFF_SHIFT = 8;
+    private static final Item STOP = new Item(null, null, null, null, 0);
+
+    private final List<Lane> lanes;
+    private final int maxActions;
+    private final long maxBytes;
+    private final int maxRetries;
+    private final Duration retryBackoff;
+    private final boolean refreshOnClose;
+    private boolean closed;
+
+    /**
+     * @param targets the targets receiving every document
+     * @param maxLag  the maximum number of documents queued for one target
+     */
+    public FanOutDocumentSink(@Nonnull List<Target> targets, int maxLag) {
+        this(targets, maxLag, BulkDocumentSink.DEFAULT_MAX_ACTIONS, BulkDocumentSink.DEFAULT_MAX_BYTES,
+                DEFAULT_MAX_RETRIES, DEFAULT_RETRY_BACKOFF, true);
+    }
+
+    /**
+     * @param targets        the targets receiving every document
+     * @param maxLag         the maximum number of documents queued for one target
+     * @param maxActions     the maximum number of documents per bulk request
+     * @param maxBytes       the serialised size after which no more queued documents are added to a bulk request
+     * @param maxRetries     the number of times a failed request or rejected document is sent again
+     * @param retryBackoff   the delay before the first retry, doubled for every next one
+     * @param refreshOnClose whether to refresh the written indices of every target when the sink is closed
+     */
+    public FanOutDocumentSink(@Nonnull List<Target> targets, int maxLag, int maxActions, long maxBytes,
+                              int maxRetries, @Nonnull Duration retryBackoff, boolean refreshOnClose) {
+        if (targets.isEmpty()) {
+            throw new IllegalArgumentException("At least one write target is required");
+        }
+        if (maxLag < 1 || maxActions < 1) {
+            throw new IllegalArgumentException("Max lag and max actions must be at least 1, got " + maxLag + " and " + maxActions);
+        }
+        this.maxActions = maxActions;
+        this.maxBytes = maxBytes;
+        this.maxRetries = maxRetries;
+        this.retryBackoff = retryBackoff;
+        this.refreshOnClose = refreshOnClose;
+        this.lanes = targets.stream().map(target -> new Lane(target, maxLag)).collect(Collectors.toList());
+        lanes.forEach(lane -> lane.thread.start());
+    }
+
+    @Override
+    public void write(String index, String id, RawJsonDocument document) {
+        write(index, id, document, null);
+    }
+
+    @Override
+    public void write(String index, String id, RawJsonDocument document, WriteListener listener) {
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("Document sink is closed.");
+            }
+        }
+
+        Item item = new Item(index, id, document, listener, lanes.size());
+        for (Lane lane : lanes) {
+            lane.put(item);
+        }
+    }
+
+    /**
+     * Waits until every target has acknowledged all documents written so far.
+     */
+    @Override
+    public void flush() {
+        for (Lane lane : lanes) {
+            lane.awaitSent();
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+        }
+
+        try {
+            flush();
+        } finally {
+            lanes.forEach(Lane::stop);
+        }
+        List<String> failedTargets = new ArrayList<>();
+        for (Lane lane : lanes) {
+            if (refreshOnClose) {
+                lane.indices.forEach(index -> ElasticsearchClientUtils.refreshIndex(lane.target.getClient(), index));
+            }
+            if (!lane.failedItems.isEmpty()) {
+                log.error("Bulk requests to target {} contained errors.\n\t {}", lane.target.getName(), lane.failedItems);
+                failedTargets.add(lane.target.getName());
+            }
+        }
+        if (!failedTargets.isEmpty()) {
+            throw new RuntimeException("Elastic response got errors for targets " + failedTargets + ". Check logs.");
+        }
+    }
+
+    /**
+     * @return per target name, the number of documents written but not yet acknowledged
+     */
+    public Map<String, Long> getLag() {
+        Map<String, Long> lag = new LinkedHashMap<>();
+        lanes.forEach(lane -> lag.put(lane.target.getName(), lane.lag()));
+        return lag;
+    }
+
+    /**
+     * @return per target name, the number of requests and documents sent again
+     */
+    public Map<String, Long> getRetries() {
+        Map<String, Long> retries = new LinkedHashMap<>();
+        lanes.forEach(lane -> retries.put(lane.target.getName(), lane.retries()));
+        return retries;
+    }
+
+    /**
+     * A cluster, and optionally a fixed index, receiving the documents of a {@link FanOutDocumentSink}.
+     */
+    public static final class Target {
+
+        private final String name;
+        private final ElasticsearchClient client;
+        private final String index;
+
+        /**
+         * @param name   the name of the target, used in logs and thread names
+         * @param client the client of the target cluster
+         * @param index  the index to write to, or null to use the index the documents are written with
+         */
+        public Target(@Nonnull String name, @Nonnull ElasticsearchClient client, @Nullable String index) {
+            this.name = name;
+            this.client = client;
+            this.index = index;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public ElasticsearchClient getClient() {
+            return client;
+        }
+
+        public String getIndex() {
+            return index;
+        }
+
+        String indexFor(String written) {
+            return index != null ? index : written;
+        }
+
+        @Override
+        public String toString() {
+            return "Target{" +
+                    "name='" + name + '\'' +
+                    ", index='" + index + '\'' +
+                    '}';
+        }
+    }
+
+    private static final class Item {
+        private final String index;
+        private final String id;
+        private final RawJsonDocument document;
+        private final WriteListener listener;
+        private int unanswered;
+        private String failure;
+
+        private Item(String index, String id, RawJsonDocument document, WriteListener listener, int targets) {
+            this.index = index;
+            this.id = id;
+            this.document = document;
+            this.listener = listener;
+            this.unanswered = targets;
+        }
+
+        /**
+         * Records the answer of one target, and reports the document once all targets answered.
+         *
+         * @param reason the error of the target, or null when it stored the document
+         */
+        private void answer(String reason) {
+            if (listener == null) return;
+
+            String failed;
+            synchronized (this) {
+                if (reason != null && failure == null) failure = reason;
+                if (--unanswered > 0) return;
+                failed = failure;
+            }
+            if (failed == null) {
+                listener.onWritten(index, id);
+            } else {
+                listener.onFailed(index, id, failed);
+            }
+        }
+    }
+
+    /**
+     * Queue, sender thread and retry state of one target.
+     */
+    private final class Lane implements Runnable {
+
+        private final Target target;
+        private final BlockingQueue<Item> queue;
+        private final Thread thread;
+        private final Set<String> indices = Collections.synchronizedSet(new LinkedHashSet<>());
+        private final List<String> failedItems = Collections.synchronizedList(new ArrayList<>());
+        private long written;
+        private long sent;
+        private long retries;
+        private RuntimeException failure;
+
+        private Lane(Target target, int maxLag) {
+            this.target = target;
+            this.queue = new ArrayBlockingQueue<>(maxLag);
+            this.thread = new Thread(this, "fan-out-" + target.getName());
+            thread.setDaemon(true);
+        }
+
+        private void put(Item item) {
+            synchronized (this) {
+                if (failure != null) throw failure;
+                written++;
+            }
+            try {
+                queue.put(item);
+            } catch (InterruptedException e) {
+                synchronized (this) {
+                    written--;
+                }
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for write target " + target.getName(), e);
+            }
+        }
+
+        private synchronized void awaitSent() {
+            while (sent < written) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while waiting for write target " + target.getName(), e);
+                }
+            }
+            if (failure != null) throw failure;
+        }
+
+        private synchronized long lag() {
+            return written - sent;
+        }
+
+        private synchronized long retries() {
+            return retries;
+        }
+
+        private void stop() {
+            try {
+                queue.put(STOP);
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void run() {
+            List<Item> batch = new ArrayList<>();
+            while (true) {
+                Item first;
+                try {
+                    first = queue.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (first == STOP) return;
+
+                batch.add(first);
+                long bytes = first.document.length();
+                while (batch.size() < maxActions && bytes < maxBytes) {
+                    Item next = queue.peek();
+                    if (next == null || next == STOP) break;
+                    queue.poll();
+                    batch.add(next);
+                    bytes += next.document.length();
+                }
+
+                boolean failed;
+                synchronized (this) {
+                    failed = failure != null;
+                }
+                if (failed) {
+                    batch.forEach(item -> item.answer("Write target " + target.getName() + " failed"));
+                } else {
+                    try {
+                        send(batch, bytes);
+                    } catch (RuntimeException e) {
+                        log.error("Write target {} failed, discarding its remaining documents", target.getName(), e);
+                        synchronized (this) {
+                            failure = e;
+                        }
+                    }
+                }
+                synchronized (this) {
+                    sent += batch.size();
+                    notifyAll();
+                }
+                batch.clear();
+            }
+        }
+
+        /**
+         * Sends the batch, retrying failed requests and retryable rejections. Every item is answered exactly once,
+         * also when this throws.
+         */
+        private void send(List<Item> batch, long bytes) {
+            List<BulkOperation> operations = new ArrayList<>(batch.size());
+            for (Item item : batch) {
+                String index = target.indexFor(item.index);
+                indices.add(index);
+                operations.add(IndexingUtils.parseIndexRequest(index, item.id, item.document));
+            }
+
+            List<Item> unanswered = batch;
+            try {
+                for (int attempt = 0; ; attempt++) {
+                    BulkResponse response;
+                    try {
+                        response = target.getClient().bulk(IndexingUtils.createBulkRequest(operations, false));
+                    } catch (IOException e) {
+                        if (attempt >= maxRetries) {
+                            throw new RuntimeException("Something went wrong while sending bulk request with " + operations.size()
+                                    + " documents to " + target.getName(), e);
+                        }
+                        log.warn("Bulk request to {} failed, retrying: {}", target.getName(), e.getMessage());
+                        backoff(attempt);
+                        continue;
+                    }
+                    log.debug("Bulk request to {} with {} documents ({} bytes) took {} ms", target.getName(), operations.size(), bytes, response.took());
+                    if (!response.errors()) {
+                        unanswered.forEach(item -> item.answer(null));
+                        unanswered = List.of();
+                        return;
+                    }
+
+                    List<BulkOperation> rejected = new ArrayList<>();
+                    List<Item> retried = new ArrayList<>();
+                    List<BulkResponseItem> items = response.items();
+                    for (int i = 0; i < items.size(); i++) {
+                        BulkResponseItem item = items.get(i);
+                        if (item.error() == null) {
+                            unanswered.get(i).answer(null);
+                        } else if (RETRYABLE_STATUSES.contains(item.status()) && attempt < maxRetries) {
+                            rejected.add(operations.get(i));
+                            retried.add(unanswered.get(i));
+                        } else {
+                            failedItems.add(item.toString());
+                            unanswered.get(i).answer(item.error().reason());
+                        }
+                    }
+                    unanswered = retried;
+                    if (rejected.isEmpty()) return;
+
+                    log.debug("{} documents rejected by {}, retrying", rejected.size(), target.getName());
+                    operations = rejected;
+                    backoff(attempt);
+                }
+            } catch (RuntimeException e) {
+                unanswered.forEach(item -> item.answer(e.getMessage()));
+                throw e;
+            }
+        }
+
+        private void backoff(int attempt) {
+            synchronized (this) {
+                retries++;
+            }
+            try {
+                Thread.sleep(retryBackoff.toMillis() << Math.min(attempt, MAX_BACKOFF_SHIFT));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while retrying bulk request to " + target.getName(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package zone.cogni.semanticz.indexer.bulk;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Streams NDJSON segments written by {@link NdjsonSegmentSink} into a {@link DocumentSink}, typically a
+ * {@link BulkDocumentSink} of the target cluster, so documents built once can be loaded into several clusters.
+ * <p>
+ * Uncompressed segments are memory mapped, unless disabled, and gzip-compressed segments are read through a buffered
+ * stream. Only one window of a mapped segment is mapped at a time. Document bytes are handed to the sink as they are,
+ * without parsing them. Closing the sink is left to the caller.
+ */
+public class NdjsonSegmentLoader {
+
+    private static final Logger log = LoggerFactory.getLogger(NdjsonSegmentLoader.class);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int BUFFER_SIZE = 64 * 1024;
+    static final long MAP_WINDOW = 64L * 1024 * 1024;
+
+    private final DocumentSink sink;
+    private final UnaryOperator<String> indexMapping;
+    private final boolean memoryMapped;
+
+    public NdjsonSegmentLoader(@Nonnull DocumentSink sink) {
+        this(sink, UnaryOperator.identity(), true);
+    }
+
+    /**
+     * @param sink         the sink receiving the documents
+     * @param indexMapping maps the index of an exported document to the index it is loaded into
+     * @param memoryMapped whether to memory map uncompressed segments instead of reading them through a buffer
+     */
+    public NdjsonSegmentLoader(@Nonnull DocumentSink sink, @Nonnull UnaryOperator<String> indexMapping, boolean memoryMapped) {
+        this.sink = sink;
+        this.indexMapping = indexMapping;
+        this.memoryMapped = memoryMapped;
+    }
+
+    /**
+     * Lists the completed segments of a directory in name order, which is the order they were written in.
+     * Segments still being written are skipped.
+     *
+     * @param directory the directory holding the segments
+     * @return the segment files
+     */
+    public static List<Path> segments(Path directory) {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(Files::isRegularFile)
+                        .filter(file -> isSegment(file.getFileName().toString()))
+                        .sorted()
+                        .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new RuntimeException("Could not list segments in " + directory, e);
+        }
+    }
+
+    /**
+     * Loads all segments of a directory, or a single segment file, and flushes the sink.
+     *
+     * @param path a segment directory or file
+     * @return the number of documents loaded
+     */
+    public long load(Path path) {
+        List<Path> files = Files.isDirectory(path) ? segments(path) : List.of(path);
+        long documents = 0;
+        for (Path file : files) {
+            documents += loadSegment(file);
+        }
+        sink.flush();
+        log.info("Loaded {} documents from {} segments in {}", documents, files.size(), path);
+        return documents;
+    }
+
+    private long loadSegment(Path file) {
+        long documents = 0;
+        try (LineReader reader = open(file)) {
+            byte[] action;
+            while ((action = reader.next()) != null) {
+                if (action.length == 0) continue;
+
+                byte[] source = reader.next();
+                if (source == null) {
+                    throw new IllegalStateException("Segment " + file + " ends with an action without document");
+                }
+                JsonNode metadata = MAPPER.readTree(action).get("index");
+                if (metadata == null || !metadata.hasNonNull("_index") || !metadata.hasNonNull("_id")) {
+                    throw new IllegalStateException("Segment " + file + " holds an unsupported action: " + new String(action, StandardCharsets.UTF_8));
+                }
+                sink.write(indexMapping.apply(metadata.get("_index").asText()), metadata.get("_id").asText(), RawJsonDocument.of(source));
+                documents++;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not load segment " + file, e);
+        }
+        log.debug("Loaded {} documents from segment {}", documents, file);
+        return documents;
+    }
+
+    private LineReader open(Path file) throws IOException {
+        String name = file.getFileName().toString();
+        if (name.endsWith(".gz")) {
+            return new StreamLineReader(new GZIPInputStream(Files.newInputStream(file), BUFFER_SIZE));
+        }
+        return memoryMapped ? new MappedLineReader(FileChannel.open(file, StandardOpenOption.READ), MAP_WINDOW)
+                            : new StreamLineReader(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE));
+    }
+
+    private static boolean isSegment(String name) {
+        return name.endsWith(NdjsonSegmentSink.EXTENSION) || name.endsWith(NdjsonSegmentSink.COMPRESSED_EXTENSION);
+    }
+
+    /**
+     * Reads lines as bytes, without the line terminator.
+     */
+    interface LineReader extends Closeable {
+
+        /**
+         * @return the next line, or null at the end of the input
+         */
+        byte[] next() throws IOException;
+    }
+
+    /**
+     * Reads lines from a memory mapped window of a file, mapping the next window from the start of the first line
+     * that does not fit. A line longer than the window is read from a window mapped to its size.
+     */
+    static final class MappedLineReader implements LineReader {
+
+        private final FileChannel channel;
+        private final long size;
+        private final long window;
+        private MappedByteBuffer buffer;
+        private long offset;
+
+        MappedLineReader(FileChannel channel, long window) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            this.window = window;
+            map(0, Math.min(size, window));
+        }
+
+        @Override
+        public byte[] next() throws IOException {
+            while (true) {
+                int start = buffer.position();
+                int limit = buffer.limit();
+                for (int i = start; i < limit; i++) {
+                    if (buffer.get(i) == '\n') return line(start, i, i + 1);
+                }
+
+                long lineStart = offset + start;
+                if (offset + limit >= size) {
+                    return start == limit ? null : line(start, limit, limit);
+                }
+                long length = Math.min(size - lineStart, Math.max(window, 2L * (limit - start)));
+                if (length > Integer.MAX_VALUE) {
+                    throw new IOException("Line at offset " + lineStart + " is longer than " + Integer.MAX_VALUE + " bytes");
+                }
+                map(lineStart, length);
+            }
+        }
+
+        private byte[] line(int start, int end, int next) {
+            int length = end > start && buffer.get(end - 1) == '\r' ? end - start - 1 : end - start;
+            byte[] line = new byte[length];
+            buffer.get(line);
+            buffer.position(next);
+            return line;
+        }
+
+        private void map(long position, long length) throws IOException {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            offset = position;
+        }
+
+        @Override
+        public void close() throws IOException {
+            buffer = null;
+            channel.close();
+        }
+    }
+
+    /**
+     * Reads lines from a stream through a buffer that grows to the longest line.
+     */
+    static final class StreamLineReader implements LineReader {
+
+        private final InputStream in;
+        private byte[] buffer = new byte[BUFFER_SIZE];
+        private int position;
+        private int limit;
+        private boolean eof;
+
+        StreamLineReader(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public byte[] next() throws IOException {
+            int scanned = 0;
+            while (true) {
+                for (int i = position + scanned; i < limit; i++) {
+                    if (buffer[i] == '\n') return line(i, i + 1);
+                }
+                scanned = limit - position;
+                if (eof || !fill()) {
+                    eof = true;
+                    return position == limit ? null : line(limit, limit);
+                }
+            }
+        }
+
+        /**
+         * Reads more bytes, compacting or growing the buffer first when it is full.
+         *
+         * @return false at the end of the stream
+         */
+        private boolean fill() throws IOException {
+            if (limit == buffer.length) {
+                if (position > 0) {
+                    System.arraycopy(buffer, position, buffer, 0, limit - position);
+                    limit -= position;
+                    position = 0;
+                } else {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+            }
+            int read = in.read(buffer, limit, buffer.length - limit);
+            if (read < 0) return false;
+            limit += read;
+            return true;
+        }
+
+        private byte[] line(int end, int next) {
+            int length = end > position && buffer[end - 1] == '\r' ? end - position - 1 : end - position;
+            byte[] line = Arrays.copyOfRange(buffer, position, position + length);
+            position = next;
+            return line;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package zone.cogni.semanticz.indexer.bulk;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Document sink that writes documents to bulk-ready NDJSON segment files instead of sending them to Elasticsearch.
+ * <p>
+ * Every document takes two lines, an {@code index} action with index and id followed by the document itself, so a
+ * segment can be replayed with {@link NdjsonSegmentLoader} or posted to the {@code _bulk} API as is. A new segment
+ * is started once the current one holds the configured number of uncompressed bytes. Segments are written under a
+ * temporary name and renamed when complete, so a directory never exposes a partial segment.
+ * Writing is thread safe.
+ */
+public class NdjsonSegmentSink implements DocumentSink {
+
+    private static final Logger log = LoggerFactory.getLogger(NdjsonSegmentSink.class);
+
+    public static final long DEFAULT_MAX_SEGMENT_BYTES = 256L * 1024 * 1024;
+    public static final String EXTENSION = ".ndjson";
+    public static final String COMPRESSED_EXTENSION = ".ndjson.gz";
+
+    private static final String PARTIAL_SUFFIX = ".part";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte[] ACTION_START = "{\"index\":{\"_index\":\"".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ACTION_ID = "\",\"_id\":\"".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ACTION_END = "\"}}\n".getBytes(StandardCharsets.UTF_8);
+
+    private final Path directory;
+    private final String prefix;
+    private final long maxSegmentBytes;
+    private final boolean compress;
+
+    private final List<Path> segments = new ArrayList<>();
+    private OutputStream out;
+    private Path partial;
+    private long segmentBytes;
+    private long documents;
+    private boolean closed;
+
+    /**
+     * @param directory the directory to write the segments to, created when missing
+     * @param prefix    the start of the segment file names, unique per writer sharing the directory
+     * @param compress  whether to gzip the segments
+     */
+    public NdjsonSegmentSink(@Nonnull Path directory, @Nonnull String prefix, boolean compress) {
+        this(directory, prefix, DEFAULT_MAX_SEGMENT_BYTES, compress);
+    }
+
+    /**
+     * @param directory       the directory to write the segments to, created when missing
+     * @param prefix          the start of the segment file names, unique per writer sharing the directory
+     * @param maxSegmentBytes the uncompressed size after which a new segment is started
+     * @param compress        whether to gzip the segments
+     */
+    public NdjsonSegmentSink(@Nonnull Path directory, @Nonnull String prefix, long maxSegmentBytes, boolean compress) {
+        if (maxSegmentBytes < 1) {
+            throw new IllegalArgumentException("Max segment bytes must be at least 1, got " + maxSegmentBytes);
+        }
+        this.directory = directory;
+        this.prefix = prefix;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.compress = compress;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not create segment directory " + directory, e);
+        }
+    }
+
+    @Override
+    public synchronized void write(String index, String id, RawJsonDocument document) {
+        if (closed) {
+            throw new IllegalStateException("Document sink is closed.");
+        }
+
+        try {
+            if (out != null && segmentBytes >= maxSegmentBytes) {
+                completeSegment();
+            }
+            if (out == null) {
+                startSegment();
+            }
+            segmentBytes += writeAction(index, id);
+            segmentBytes += writeDocument(document);
+            documents++;
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write document " + id + " to segment " + partial, e);
+        }
+    }
+
+    /**
+     * Flushes the buffered bytes of the current segment to the file system. The segment stays open, and keeps its
+     * temporary name, until it is full or the sink is closed.
+     */
+    @Override
+    public synchronized void flush() {
+        if (out == null) return;
+
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new RuntimeException("Could not flush segment " + partial, e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+
+        closed = true;
+        try {
+            if (out != null) completeSegment();
+        } catch (IOException e) {
+            throw new RuntimeException("Could not complete segment " + partial, e);
+        }
+        log.info("Wrote {} documents to {} segments in {}", documents, segments.size(), directory);
+    }
+
+    /**
+     * @return the completed segments, in the order they were written
+     */
+    public synchronized List<Path> getSegments() {
+        return new ArrayList<>(segments);
+    }
+
+    /**
+     * @return the number of documents written
+     */
+    public synchronized long getDocumentCount() {
+        return documents;
+    }
+
+    private void startSegment() throws IOException {
+        String name = String.format("%s-%05d%s", prefix, segments.size(), compress ? COMPRESSED_EXTENSION : EXTENSION);
+        partial = directory.resolve(name + PARTIAL_SUFFIX);
+        OutputStream file = Files.newOutputStream(partial);
+        out = new BufferedOutputStream(compress ? new GZIPOutputStream(file, BUFFER_SIZE) : file, BUFFER_SIZE);
+        segmentBytes = 0;
+    }
+
+    private void completeSegment() throws IOException {
+        out.close();
+        out = null;
+        String name = partial.getFileName().toString();
+        Path segment = partial.resolveSibling(name.substring(0, name.length() - PARTIAL_SUFFIX.length()));
+        Files.move(partial, segment, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        segments.add(segment);
+        log.debug("Completed segment {} with {} bytes", segment, segmentBytes);
+    }
+
+    private long writeAction(String index, String id) throws IOException {
+        JsonStringEncoder encoder = JsonStringEncoder.getInstance();
+        byte[] quotedIndex = encoder.quoteAsUTF8(index);
+        byte[] quotedId = encoder.quoteAsUTF8(id);
+        out.write(ACTION_START);
+        out.write(quotedIndex);
+        out.write(ACTION_ID);
+        out.write(quotedId);
+        out.write(ACTION_END);
+        return ACTION_START.length + quotedIndex.length + ACTION_ID.length + quotedId.length + ACTION_END.length;
+    }
+
+    /**
+     * Writes the document on a single line. JSON strings cannot hold raw line breaks, so any line break in the
+     * document is whitespace and is replaced by a space.
+     */
+    private long writeDocument(RawJsonDocument document) throws IOException {
+        byte[] bytes = document.bytes();
+        int start = 0;
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] == '\n' || bytes[i] == '\r') {
+                out.write(bytes, start, i - start);
+                out.write(' ');
+                start = i + 1;
+            }
+        }
+        out.write(bytes, start, bytes.length - start);
+        out.write('\n');
+        return bytes.length + 1;
+    }
+}
@@ -0,0 +1,111 @@
+package zone.cogni.semanticz.indexer.bulk;
+
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.json.JsonpSerializable;
+import jakarta.json.stream.JsonGenerator;
+import jakarta.json.stream.JsonParser;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A document that is already serialised to JSON bytes.
+ * <p>
+ * Holding the UTF-8 bytes instead of a Jackson tree keeps the memory of a pending document proportional to its
+ * serialised size. When the bulk request body is written, the bytes are streamed into the request generator
+ * event by event, without building a tree again.
+ */
+public final class RawJsonDocument implements JsonpSerializable {
+
+    private final byte[] bytes;
+
+    private RawJsonDocument(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    /**
+     * Wraps serialised JSON. The array is not copied and must not be modified afterwards.
+     *
+     * @param bytes a UTF-8 encoded JSON object
+     * @return the document
+     */
+    public static RawJsonDocument of(@Nonnull byte[] bytes) {
+        return new RawJsonDocument(bytes);
+    }
+
+    /**
+     * @return the size of the serialised document in bytes
+     */
+    public int length() {
+        return bytes.length;
+    }
+
+    /**
+     * @return a stream over the serialised document
+     */
+    public InputStream openStream() {
+        return new ByteArrayInputStream(bytes);
+    }
+
+    /**
+     * @return the serialised document; the array must not be modified
+     */
+    public byte[] bytes() {
+        return bytes;
+    }
+
+    @Override
+    public void serialize(JsonGenerator generator, JsonpMapper mapper) {
+        try (JsonParser parser = mapper.jsonProvider().createParser(openStream())) {
+            copy(parser, generator);
+        }
+    }
+
+    private static void copy(JsonParser parser, JsonGenerator generator) {
+        while (parser.hasNext()) {
+            switch (parser.next()) {
+                case START_OBJECT:
+                    generator.writeStartObject();
+                    break;
+                case END_OBJECT:
+                case END_ARRAY:
+                    generator.writeEnd();
+                    break;
+                case START_ARRAY:
+                    generator.writeStartArray();
+                    break;
+                case KEY_NAME:
+                    generator.writeKey(parser.getString());
+                    break;
+                case VALUE_STRING:
+                    generator.write(parser.getString());
+                    break;
+                case VALUE_NUMBER:
+                    if (parser.isIntegralNumber() && parser.getString().length() < 19) {
+                        generator.write(parser.getLong());
+                    } else {
+                        generator.write(parser.getBigDecimal());
+                    }
+                    break;
+                case VALUE_TRUE:
+                    generator.write(true);
+                    break;
+                case VALUE_FALSE:
+                    generator.write(false);
+                    break;
+                case VALUE_NULL:
+                    generator.writeNull();
+                    break;
+                default:
+                    throw new IllegalStateException("Unexpected JSON event while copying document");
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,27 @@
+package zone.cogni.semanticz.indexer.bulk;
+
+/**
+ * Receives the outcome of documents written to a {@link DocumentSink}.
+ * <p>
+ * The bulk sinks report a document once Elasticsearch answered the bulk request containing it, on the thread that
+ * sent the request. Listeners must therefore be thread safe and return quickly.
+ */
+public interface WriteListener {
+
+    /**
+     * Called when the document is stored.
+     *
+     * @param index the index the document was written with
+     * @param id    the document id
+     */
+    void onWritten(String index, String id);
+
+    /**
+     * Called when the document was rejected, or its bulk request failed.
+     *
+     * @param index  the index the document was written with
+     * @param id     the document id
+     * @param reason the error reported for the document
+     */
+    void onFailed(String index, String id, String reason);
+}
@@ -0,0 +1,246 @@
+package zone.cogni.semanticz.indexer.utils;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Set of URIs that keeps a 128-bit fingerprint per URI instead of the URI itself.
+ * <p>
+ * Fingerprints are MurmurHash3 (x64, 128-bit) hashes of the UTF-8 bytes of the URI, stored as two longs per slot in
+ * an open addressing table with linear probing. An entry takes 16 bytes, about 23 bytes per URI at the maximum load
+ * factor, regardless of the URI length; a {@code HashSet<String>} of typical IRIs takes well over 100 bytes per URI.
+ * <p>
+ * Because only fingerprints are kept, two different URIs with the same 128-bit hash are treated as the same URI.
+ * For a billion URIs the chance that any such collision exists is below 10<sup>-20</sup>, so the set is exact for
+ * practical purposes, but it cannot give back the URIs it contains; iteration yields the fingerprints.
+ * The all-zero fingerprint marks empty slots, a URI hashing to it is stored as fingerprint (0, 1).
+ * <p>
+ * The set is not thread safe.
+ */
+public final class CompactUriSet {
+
+    private static final int MIN_CAPACITY = 16;
+    private static final float MAX_LOAD = 0.7f;
+
+    private long[] table;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+
+    public CompactUriSet() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize the number of URIs the set can hold without growing
+     */
+    public CompactUriSet(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * @return true if the URI was not in the set yet
+     */
+    public boolean add(String uri) {
+        long[] fingerprint = fingerprint(uri);
+        return add(fingerprint[0], fingerprint[1]);
+    }
+
+    public boolean contains(String uri) {
+        long[] fingerprint = fingerprint(uri);
+        return contains(fingerprint[0], fingerprint[1]);
+    }
+
+    /**
+     * Adds all fingerprints of another set.
+     */
+    public void addAll(CompactUriSet other) {
+        other.forEachFingerprint(this::add);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Calls the consumer for the fingerprint of every URI in the set, in no particular order.
+     */
+    public void forEachFingerprint(FingerprintConsumer consumer) {
+        for (int slot = 0; slot < table.length; slot += 2) {
+            long high = table[slot];
+            long low = table[slot + 1];
+            if (high != 0 || low != 0) consumer.accept(high, low);
+        }
+    }
+
+    @FunctionalInterface
+    public interface FingerprintConsumer {
+        void accept(long high, long low);
+    }
+
+    private boolean add(long high, long low) {
+        if (high == 0 && low == 0) low = 1;
+
+        int slot = slotOf(high, low);
+        while (true) {
+            long existingHigh = table[slot];
+            long existingLow = table[slot + 1];
+            if (existingHigh == 0 && existingLow == 0) break;
+            if (existingHigh == high && existingLow == low) return false;
+            slot = (slot + 2) & mask;
+        }
+
+        table[slot] = high;
+        table[slot + 1] = low;
+        if (++size > resizeThreshold) {
+            grow();
+        }
+        return true;
+    }
+
+    private boolean contains(long high, long low) {
+        if (high == 0 && low == 0) low = 1;
+
+        int slot = slotOf(high, low);
+        while (true) {
+            long existingHigh = table[slot];
+            long existingLow = table[slot + 1];
+            if (existingHigh == 0 && existingLow == 0) return false;
+            if (existingHigh == high && existingLow == low) return true;
+            slot = (slot + 2) & mask;
+        }
+    }
+
+    private int slotOf(long high, long low) {
+        return ((int) (high ^ (high >>> 32)) << 1) & mask;
+    }
+
+    private void grow() {
+        long[] old = table;
+        allocate((old.length / 2) * 2);
+        size = 0;
+        for (int slot = 0; slot < old.length; slot += 2) {
+            if (old[slot] != 0 || old[slot + 1] != 0) {
+                add(old[slot], old[slot + 1]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        if (capacity > (1 << 29)) {
+            throw new IllegalStateException("Compact URI set cannot grow beyond " + (1 << 29) + " slots.");
+        }
+        table = new long[capacity * 2];
+        mask = table.length - 1;
+        resizeThreshold = (int) (capacity * MAX_LOAD);
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * MAX_LOAD < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    @Override
+    public String toString() {
+        return "CompactUriSet{size=" + size + ", slots=" + table.length / 2 + '}';
+    }
+
+    /**
+     * @return the 128-bit MurmurHash3 (x64 variant, seed 0) of the UTF-8 bytes of the URI, high bits first
+     */
+    static long[] fingerprint(String uri) {
+        byte[] data = uri.getBytes(StandardCharsets.UTF_8);
+        int length = data.length;
+        int blocks = length / 16;
+        long h1 = 0;
+        long h2 = 0;
+        final long c1 = 0x87c37b91114253d5L;
+        final long c2 = 0x4cf5ad432745937fL;
+
+        for (int i = 0; i < blocks; i++) {
+            long k1 = littleEndianLong(data, i * 16);
+            long k2 = littleEndianLong(data, i * 16 + 8);
+
+            k1 *= c1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= c2;
+            h1 ^= k1;
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+
+            k2 *= c2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= c1;
+            h2 ^= k2;
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        int tail = blocks * 16;
+        long k1 = 0;
+        long k2 = 0;
+        switch (length & 15) {
+            case 15: k2 ^= (long) (data[tail + 14] & 0xff) << 48;
+            case 14: k2 ^= (long) (data[tail + 13] & 0xff) << 40;
+            case 13: k2 ^= (long) (data[tail + 12] & 0xff) << 32;
+            case 12: k2 ^= (long) (data[tail + 11] & 0xff) << 24;
+            case 11: k2 ^= (long) (data[tail + 10] & 0xff) << 16;
+            case 10: k2 ^= (long) (data[tail + 9] & 0xff) << 8;
+            case 9:
+                k2 ^= data[tail + 8] & 0xff;
+                k2 *= c2;
+                k2 = Long.rotateLeft(k2, 33);
+                k2 *= c1;
+                h2 ^= k2;
+            case 8: k1 ^= (long) (data[tail + 7] & 0xff) << 56;
+            case 7: k1 ^= (long) (data[tail + 6] & 0xff) << 48;
+            case 6: k1 ^= (long) (data[tail + 5] & 0xff) << 40;
+            case 5: k1 ^= (long) (data[tail + 4] & 0xff) << 32;
+            case 4: k1 ^= (long) (data[tail + 3] & 0xff) << 24;
+            case 3: k1 ^= (long) (data[tail + 2] & 0xff) << 16;
+            case 2: k1 ^= (long) (data[tail + 1] & 0xff) << 8;
+            case 1:
+                k1 ^= data[tail] & 0xff;
+                k1 *= c1;
+                k1 = Long.rotateLeft(k1, 31);
+                k1 *= c2;
+                h1 ^= k1;
+            default:
+        }
+
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = mix(h1);
+        h2 = mix(h2);
+        h1 += h2;
+        h2 += h1;
+        return new long[]{h1, h2};
+    }
+
+    private static long littleEndianLong(byte[] data, int offset) {
+        long value = 0;
+        for (int i = 7; i >= 0; i--) {
+            value = (value << 8) | (data[offset + i] & 0xff);
+        }
+        return value;
+    }
+
+    private static long mix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
@@ -0,0 +1,61 @@
+package zone.cogni.semanticz.indexer.utils;
+
+/**
+ * Progress of an asynchronous delete by query task.
+ */
+public class DeleteByQueryProgress {
+
+    private final String taskId;
+    private final long total;
+    private final long deleted;
+    private final long versionConflicts;
+    private final boolean completed;
+
+    public DeleteByQueryProgress(String taskId, long total, long deleted, long versionConflicts, boolean completed) {
+        this.taskId = taskId;
+        this.total = total;
+        this.deleted = deleted;
+        this.versionConflicts = versionConflicts;
+        this.completed = completed;
+    }
+
+    public String getTaskId() {
+        return taskId;
+    }
+
+    /**
+     * @return the number of documents the task found to delete, as reported by the task; 0 until it has started
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * @return the number of documents deleted so far
+     */
+    public long getDeleted() {
+        return deleted;
+    }
+
+    /**
+     * @return the number of documents skipped because they changed while the task ran
+     */
+    public long getVersionConflicts() {
+        return versionConflicts;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    @Override
+    public String toString() {
+        return "DeleteByQueryProgress{" +
+                "taskId='" + taskId + '\'' +
+                ", total=" + total +
+                ", deleted=" + deleted +
+                ", versionConflicts=" + versionConflicts +
+                ", completed=" + completed +
+                '}';
+    }
+}
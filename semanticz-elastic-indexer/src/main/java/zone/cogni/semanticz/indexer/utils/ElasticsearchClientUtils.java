@@ -1,24 +1,49 @@
 package zone.cogni.semanticz.indexer.utils;
 
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.Conflicts;
 import co.elastic.clients.elasticsearch._types.ElasticsearchException;
 import co.elastic.clients.elasticsearch._types.Refresh;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
 import co.elastic.clients.elasticsearch.core.BulkRequest;
 import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.DeleteByQueryResponse;
+import co.elastic.clients.elasticsearch.core.ScrollResponse;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
 import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
 import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
 import co.elastic.clients.elasticsearch.core.bulk.DeleteOperation;
+import co.elastic.clients.elasticsearch.core.search.Hit;
 import co.elastic.clients.elasticsearch.indices.CreateIndexResponse;
 import co.elastic.clients.elasticsearch.indices.DeleteIndexResponse;
+import co.elastic.clients.elasticsearch.tasks.GetTasksResponse;
+import co.elastic.clients.json.JsonData;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 public class ElasticsearchClientUtils {
 
+    private static final Logger log = LoggerFactory.getLogger(ElasticsearchClientUtils.class);
+
+    public static final int DEFAULT_DELETE_CHUNK_SIZE = 1000;
+
+    private static final String SCROLL_KEEP_ALIVE = "1m";
+
     public static void clearIndex(@Nonnull ElasticsearchClient elasticClient,
                                   @Nonnull String index,
                                   @Nonnull InputStream elasticSettingsStream) {
@@ -77,12 +102,144 @@ public class ElasticsearchClientUtils {
         }
     }
 
+    public static void refreshIndex(@Nonnull ElasticsearchClient elasticClient,
+                                    @Nonnull String index) {
+        try {
+            elasticClient.indices()
+                         .refresh(builder -> builder.index(index));
+        } catch (ElasticsearchException | IOException e) {
+            throw new RuntimeException("Error while refreshing index '" + index + "'.", e);
+        }
+    }
+
+    /**
+     * Scrolls over all documents of the index and passes their ids to the consumer, one batch at a time.
+     * Document sources are not fetched.
+     *
+     * @param elasticClient the client
+     * @param index         the index to read from
+     * @param batchSize     the number of ids per batch
+     * @param batchConsumer receives each batch of ids
+     */
+    public static void forEachDocumentId(@Nonnull ElasticsearchClient elasticClient,
+                                         @Nonnull String index,
+                                         int batchSize,
+                                         @Nonnull Consumer<List<String>> batchConsumer) {
+        String scrollId = null;
+        try {
+            SearchResponse<Void> response = elasticClient.search(builder -> builder.index(index)
+                                                                                   .size(batchSize)
+                                                                                   .scroll(time -> time.time(SCROLL_KEEP_ALIVE))
+                                                                                   .source(source -> source.fetch(false)),
+                                                                 Void.class);
+            scrollId = response.scrollId();
+            List<Hit<Void>> hits = response.hits().hits();
+            while (!hits.isEmpty()) {
+                batchConsumer.accept(hits.stream().map(Hit::id).collect(Collectors.toList()));
+
+                String currentScrollId = scrollId;
+                ScrollResponse<Void> next = elasticClient.scroll(builder -> builder.scrollId(currentScrollId)
+                                                                                   .scroll(time -> time.time(SCROLL_KEEP_ALIVE)),
+                                                                 Void.class);
+                scrollId = next.scrollId();
+                hits = next.hits().hits();
+            }
+        } catch (ElasticsearchException | IOException e) {
+            throw new RuntimeException("Error while reading document ids of index '" + index + "'.", e);
+        } finally {
+            clearScroll(elasticClient, scrollId);
+        }
+    }
+
+    /**
+     * Deletes the documents of the index whose id is not in the given set, e.g. entities that no longer exist after
+     * a full indexing run. Ids are streamed from the index, only the ids to delete are kept in memory.
+     *
+     * @param elasticClient the client
+     * @param index         the index to clean up
+     * @param keep          the ids of the documents to keep
+     * @param scope         restricts the cleanup to the ids accepted by this predicate
+     * @return the number of deleted documents
+     */
+    public static int deleteDocumentsNotIn(@Nonnull ElasticsearchClient elasticClient,
+                                           @Nonnull String index,
+                                           @Nonnull CompactUriSet keep,
+                                           @Nonnull Predicate<String> scope) {
+        List<String> stale = new ArrayList<>();
+        forEachDocumentId(elasticClient, index, DEFAULT_DELETE_CHUNK_SIZE, ids -> ids.stream()
+                                                                                  .filter(scope)
+                                                                                  .filter(id -> !keep.contains(id))
+                                                                                  .forEach(stale::add));
+        if (!stale.isEmpty()) {
+            log.info("Deleting {} stale documents from index {}", stale.size(), index);
+            deleteDocuments(elasticClient, index, stale);
+        }
+        return stale.size();
+    }
+
+    private static void clearScroll(ElasticsearchClient elasticClient, String scrollId) {
+        if (scrollId == null) return;
+
+        try {
+            elasticClient.clearScroll(builder -> builder.scrollId(scrollId));
+        } catch (ElasticsearchException | IOException e) {
+            log.warn("Could not clear scroll {}", scrollId, e);
+        }
+    }
+
     public static void deleteDocuments(@Nonnull ElasticsearchClient elasticClient,
                                        @Nonnull String index,
                                        @Nonnull List<String> ids) {
+        deleteDocuments(elasticClient, index, ids, DEFAULT_DELETE_CHUNK_SIZE, null, 1, Refresh.True);
+    }
+
+    /**
+     * Deletes documents in bulk requests of at most chunkSize ids.
+     * <p>
+     * The chunks are sent without refresh, concurrently on the executor when one is given. Unless the refresh
+     * policy is {@link Refresh#False}, the whole index is refreshed once all chunks are done: a bulk request only
+     * refreshes the shards it touched, so refreshing with the last chunk would leave deletes on other shards visible.
+     *
+     * @param elasticClient  the client
+     * @param index          the index to delete from
+     * @param ids            the ids of the documents to delete
+     * @param chunkSize      the maximum number of deletes per bulk request
+     * @param executor       the executor sending the chunks, or null to send them one after another
+     * @param maxConcurrency the maximum number of bulk requests in flight when an executor is given
+     * @param refresh        whether to refresh the index once all documents are deleted
+     */
+    public static void deleteDocuments(@Nonnull ElasticsearchClient elasticClient,
+                                       @Nonnull String index,
+                                       @Nonnull List<String> ids,
+                                       int chunkSize,
+                                       @Nullable Executor executor,
+                                       int maxConcurrency,
+                                       @Nonnull Refresh refresh) {
         if (ids.isEmpty()) return;
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be at least 1, got " + chunkSize);
+        }
 
-        BulkRequest request = getDeleteItemsBulkRequest(index, ids);
+        List<List<String>> chunks = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            chunks.add(ids.subList(from, Math.min(from + chunkSize, ids.size())));
+        }
+
+        if (executor == null) {
+            chunks.forEach(chunk -> sendDeleteBulkRequest(elasticClient, index, chunk, Refresh.False));
+        } else {
+            IndexingUtils.forEachConcurrently(chunks,
+                    chunk -> sendDeleteBulkRequest(elasticClient, index, chunk, Refresh.False),
+                    executor,
+                    maxConcurrency);
+        }
+        if (refresh != Refresh.False) {
+            refreshIndex(elasticClient, index);
+        }
+    }
+
+    private static void sendDeleteBulkRequest(ElasticsearchClient elasticClient, String index, List<String> ids, Refresh refresh) {
+        BulkRequest request = getDeleteItemsBulkRequest(index, ids, refresh);
 
         try {
             BulkResponse response = elasticClient.bulk(request);
@@ -92,10 +249,91 @@ public class ElasticsearchClientUtils {
         }
     }
 
+    /**
+     * Deletes all documents matching the query with a sliced, asynchronous delete by query.
+     * <p>
+     * The task is polled until it completes; the progress reported after every poll is the status of the task
+     * itself. Version conflicts do not abort the task, they are counted in the progress and logged.
+     *
+     * @param elasticClient    the client
+     * @param index            the index to delete from
+     * @param query            the query selecting the documents to delete
+     * @param slices           the number of slices the task is split in
+     * @param refresh          whether to refresh the index once the task is done
+     * @param pollInterval     the time between two task polls
+     * @param progressListener receives the progress after every poll
+     * @return the final progress, taken from the task response
+     * @throws RuntimeException when the task failed or reports failures of its own
+     */
+    public static DeleteByQueryProgress deleteByQuery(@Nonnull ElasticsearchClient elasticClient,
+                                                      @Nonnull String index,
+                                                      @Nonnull Query query,
+                                                      int slices,
+                                                      boolean refresh,
+                                                      @Nonnull Duration pollInterval,
+                                                      @Nonnull Consumer<DeleteByQueryProgress> progressListener) {
+        try {
+            DeleteByQueryResponse response = elasticClient.deleteByQuery(builder -> builder.index(index)
+                                                                                           .query(query)
+                                                                                           .slices(s -> s.value(slices))
+                                                                                           .conflicts(Conflicts.Proceed)
+                                                                                           .refresh(refresh)
+                                                                                           .waitForCompletion(false));
+            String taskId = response.task();
+            if (taskId == null) {
+                throw new RuntimeException("Delete by query on index '" + index + "' did not return a task.");
+            }
+
+            while (true) {
+                Thread.sleep(pollInterval.toMillis());
+                GetTasksResponse task = elasticClient.tasks().get(builder -> builder.taskId(taskId));
+                if (task.error() != null) {
+                    throw new RuntimeException("Delete by query on index '" + index + "' failed: " + task.error().reason());
+                }
+
+                JsonData result = task.completed() && task.response() != null ? task.response() : task.task().status();
+                DeleteByQueryProgress progress = deleteByQueryProgress(taskId, result, task.completed());
+                progressListener.accept(progress);
+                if (!task.completed()) continue;
+
+                JsonArray failures = failures(result);
+                if (!failures.isEmpty()) {
+                    throw new RuntimeException("Delete by query on index '" + index + "' deleted " + progress.getDeleted()
+                            + " of " + progress.getTotal() + " documents, " + failures.size() + " failures, first: " + failures.get(0));
+                }
+                if (progress.getVersionConflicts() > 0) {
+                    log.warn("Delete by query on index '{}' skipped {} documents changed while deleting", index, progress.getVersionConflicts());
+                }
+                return progress;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for delete by query on index '" + index + "'.", e);
+        } catch (ElasticsearchException | IOException e) {
+            throw new RuntimeException("Error while deleting by query on index '" + index + "'.", e);
+        }
+    }
+
+    private static DeleteByQueryProgress deleteByQueryProgress(String taskId, JsonData status, boolean completed) {
+        JsonObject json = status == null ? JsonValue.EMPTY_JSON_OBJECT : status.toJson().asJsonObject();
+        return new DeleteByQueryProgress(taskId,
+                json.getJsonNumber("total") == null ? 0 : json.getJsonNumber("total").longValue(),
+                json.getJsonNumber("deleted") == null ? 0 : json.getJsonNumber("deleted").longValue(),
+                json.getJsonNumber("version_conflicts") == null ? 0 : json.getJsonNumber("version_conflicts").longValue(),
+                completed);
+    }
+
+    private static JsonArray failures(JsonData response) {
+        if (response == null) return JsonValue.EMPTY_JSON_ARRAY;
+        JsonValue failures = response.toJson().asJsonObject().get("failures");
+        return failures instanceof JsonArray ? (JsonArray) failures : JsonValue.EMPTY_JSON_ARRAY;
+    }
+
     private static BulkRequest getDeleteItemsBulkRequest(@Nonnull String index,
-                                                         @Nonnull List<String> ids) {
+                                                         @Nonnull List<String> ids,
+                                                         @Nonnull Refresh refresh) {
         List<BulkOperation> bulkOperations = ids.stream().map(uri -> createDeleteBulkOperation(index, uri)).collect(Collectors.toList());
-        return BulkRequest.of(b -> b.operations(bulkOperations).refresh(Refresh.True));
+        return BulkRequest.of(b -> b.operations(bulkOperations).refresh(refresh));
     }
 
     private static BulkOperation createDeleteBulkOperation(String index, String uri) {
@@ -116,10 +354,14 @@ public class ElasticsearchClientUtils {
     }
 
     public static void deleteDocument(ElasticsearchClient elasticClient, String indexName, String item) {
+        deleteDocument(elasticClient, indexName, item, Refresh.True);
+    }
+
+    public static void deleteDocument(ElasticsearchClient elasticClient, String indexName, String item, Refresh refresh) {
         try {
             elasticClient.delete(builder -> builder.index(indexName)
                                                    .id(item)
-                                                   .refresh(Refresh.True));
+                                                   .refresh(refresh));
         } catch (IOException e) {
             throw new RuntimeException("Couldn't delete from " + indexName, e);
         }
@@ -13,9 +13,16 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -74,10 +81,31 @@ public class IndexingUtils {
                                                                    .document(document)));
     }
 
+    /**
+     * Creates a bulk partial update that merges values into an object field, leaving the rest of the document untouched.
+     * Elasticsearch merges the partial document recursively: nested objects are merged key by key, so keys of the field
+     * that are not in values are kept at every level, while scalars and arrays in values replace the existing ones.
+     *
+     * @param index  the index
+     * @param id     the document id
+     * @param field  the top-level object field to patch
+     * @param values the keys and values to merge into the field
+     * @return the bulk operation
+     */
+    public static BulkOperation parseMergeFieldRequest(String index, String id, String field, Object values) {
+        Map<String, Object> partialDocument = Map.of(field, values);
+        return BulkOperation.of(builder -> builder.update(update -> update.index(index)
+                                                                          .id(id)
+                                                                          .action(action -> action.doc(partialDocument))));
+    }
+
     public static BulkRequest createBulkRequest(List<BulkOperation> operations, boolean forceRefresh) {
-        Refresh refreshParam = forceRefresh ? Refresh.True : Refresh.False;
+        return createBulkRequest(operations, forceRefresh ? Refresh.True : Refresh.False);
+    }
+
+    public static BulkRequest createBulkRequest(List<BulkOperation> operations, Refresh refresh) {
         return BulkRequest.of(builder -> builder.operations(operations)
-                                                .refresh(refreshParam));
+                                                .refresh(refresh));
     }
 
     public static <T> void simpleIndexAll(ElasticsearchClient elasticClient, String indexName, List<String> uris, Function<String, T> documentProvider) {
@@ -92,6 +120,72 @@ public class IndexingUtils {
         IndexingUtils.handleElasticBulkResponse(elasticResponses);
     }
 
+    /**
+     * Builds and indexes the documents concurrently on the given executor, with at most maxConcurrency documents in flight.
+     * The first failure of the document provider stops the submission of new documents and is rethrown once the
+     * documents in flight are done.
+     */
+    public static <T> void simpleIndexAll(ElasticsearchClient elasticClient, String indexName, List<String> uris, Function<String, T> documentProvider,
+                                          Executor executor, int maxConcurrency) {
+        List<Throwable> exceptions = Collections.synchronizedList(new ArrayList<>());
+        List<BulkResponse> elasticResponses = Collections.synchronizedList(new ArrayList<>());
+        forEachConcurrently(uris,
+                uri -> simpleIndexOne(elasticClient, indexName, uri, documentProvider.apply(uri), exceptions).ifPresent(elasticResponses::add),
+                executor,
+                maxConcurrency);
+        IndexingUtils.handleElasticBulkResponse(elasticResponses);
+    }
+
+    /**
+     * Runs the task for every item on the given executor, with at most maxConcurrency tasks in flight.
+     * The first failure stops the submission of new tasks and is rethrown once the tasks in flight are done.
+     *
+     * @param items          the items to process, e.g. document ids
+     * @param task           the task to run per item
+     * @param executor       the executor running the tasks
+     * @param maxConcurrency the maximum number of tasks in flight
+     */
+    public static <T> void forEachConcurrently(Iterable<T> items, Consumer<T> task, Executor executor, int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Max concurrency must be at least 1, got " + maxConcurrency);
+        }
+
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Semaphore permits = new Semaphore(maxConcurrency);
+        try {
+            for (T item : items) {
+                permits.acquire();
+                if (failure.get() != null) {
+                    permits.release();
+                    break;
+                }
+                try {
+                    executor.execute(() -> {
+                        try {
+                            task.accept(item);
+                        } catch (Throwable e) {
+                            failure.compareAndSet(null, e);
+                        } finally {
+                            permits.release();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    permits.release();
+                    throw e;
+                }
+            }
+            permits.acquire(maxConcurrency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for concurrent tasks", e);
+        }
+
+        Throwable firstFailure = failure.get();
+        if (firstFailure instanceof RuntimeException) throw (RuntimeException) firstFailure;
+        if (firstFailure instanceof Error) throw (Error) firstFailure;
+        if (firstFailure != null) throw new RuntimeException("Concurrent task failed", firstFailure);
+    }
+
     public static <T> void simpleIndexOne(ElasticsearchClient elasticClient, String indexName, String uri, T document) {
         List<Throwable> exceptions = new ArrayList<>();
         Optional<BulkResponse> responseOptional = simpleIndexOne(elasticClient, indexName, uri, document, exceptions);
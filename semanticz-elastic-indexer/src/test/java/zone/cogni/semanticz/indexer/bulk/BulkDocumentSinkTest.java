@@ -0,0 +1,315 @@
+package zone.cogni.semanticz.indexer.bulk;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ErrorCause;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.indices.ElasticsearchIndicesClient;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import jakarta.json.stream.JsonGenerator;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class BulkDocumentSinkTest {
+
+    private static RawJsonDocument document(String json) {
+        return RawJsonDocument.of(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testRawJsonDocumentSerialize() {
+        // Arrange
+        String json = "{\"a\":\"x\",\"b\":[1,2.5,true,null],\"c\":{\"d\":12345678901234567890}}";
+        JacksonJsonpMapper mapper = new JacksonJsonpMapper();
+        StringWriter writer = new StringWriter();
+
+        // Act
+        try (JsonGenerator generator = mapper.jsonProvider().createGenerator(writer)) {
+            document(json).serialize(generator, mapper);
+        }
+
+        // Assert
+        assertEquals(json, writer.toString());
+    }
+
+    @Test
+    public void testWrite_flushesWhenMaxActionsReached() throws Exception {
+        // Arrange
+        ElasticsearchClient elasticClient = mock(ElasticsearchClient.class);
+        BulkResponse bulkResponse = mock(BulkResponse.class);
+        when(bulkResponse.errors()).thenReturn(false);
+        when(elasticClient.bulk(any(BulkRequest.class))).thenReturn(bulkResponse);
+
+        BulkDocumentSink sink = new BulkDocumentSink(elasticClient, 2, Long.MAX_VALUE, false);
+
+        // Act
+        sink.write("test_index", "uri1", document("{}"));
+        sink.write("test_index", "uri2", document("{}"));
+        sink.write("test_index", "uri3", document("{}"));
+
+        // Assert
+        verify(elasticClient, times(1)).bulk(any(BulkRequest.class));
+
+        sink.close();
+        verify(elasticClient, times(2)).bulk(any(BulkRequest.class));
+    }
+
+    @Test
+    public void testWrite_flushesWhenMaxBytesReached() throws Exception {
+        // Arrange
+        ElasticsearchClient elasticClient = mock(ElasticsearchClient.class);
+        BulkResponse bulkResponse = mock(BulkResponse.class);
+        when(bulkResponse.errors()).thenReturn(false);
+        when(elasticClient.bulk(any(BulkRequest.class))).thenReturn(bulkResponse);
+
+        BulkDocumentSink sink = new BulkDocumentSink(elasticClient, 100, 10, false);
+
+        // Act
+        sink.write("test_index", "uri1", document("{\"a\":\"0123456789\"}"));
+
+        // Assert
+        verify(elasticClient, times(1)).bulk(any(BulkRequest.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testClose_refreshesWrittenIndices() throws Exception {
+        // Arrange
+        ElasticsearchClient elasticClient = mock(ElasticsearchClient.class);
+        ElasticsearchIndicesClient indicesClient = mock(ElasticsearchIndicesClient.class);
+        when(elasticClient.indices()).thenReturn(indicesClient);
+        BulkResponse bulkResponse = mock(BulkResponse.class);
+        when(bulkResponse.errors()).thenReturn(false);
+        when(elasticClient.bulk(any(BulkRequest.class))).thenReturn(bulkResponse);
+
+        BulkDocumentSink sink = new BulkDocumentSink(elasticClient);
+        sink.write("test_index", "uri1", document("{}"));
+
+        // Act
+        sink.close();
+
+        // Assert
+        verify(elasticClient).bulk(any(BulkRequest.class));
+        verify(indicesClient).refresh(any(Function.class));
+    }
+
+    @Test
+    public void testClose_withErrors() throws Exception {
+        // Arrange
+        ElasticsearchClient elasticClient = mock(ElasticsearchClient.class);
+        BulkResponse bulkResponse = mock(BulkResponse.class);
+        when(bulkResponse.errors()).thenReturn(true);
+        when(bulkResponse.items()).thenReturn(Collections.emptyList());
+        when(elasticClient.bulk(any(BulkRequest.class))).thenReturn(bulkResponse);
+
+        BulkDocumentSink sink = new BulkDocumentSink(elasticClient, 100, Long.MAX_VALUE, false);
+        sink.write("test_index", "uri1", document("{}"));
+
+        // Act & Assert
+        RuntimeException exception = assertThrows(RuntimeException.class, sink::close);
+        assertEquals("Elastic response got errors. Check logs.", exception.getMessage());
+    }
+
+    @Test
+    public void testWrite_withListener_reportsEveryDocumentFromTheResponse() throws Exception {
+        // Arrange
+        BulkResponseItem stored = mock(BulkResponseItem.class);
+        BulkResponseItem rejected = mock(BulkResponseItem.class);
+        ErrorCause error = mock(ErrorCause.class);
+        when(error.reason()).thenReturn("failed to parse");
+        when(rejected.error()).thenReturn(error);
+        ElasticsearchClient elasticClient = mock(ElasticsearchClient.class);
+        BulkResponse bulkResponse = mock(BulkResponse.class);
+        when(bulkResponse.errors()).thenReturn(true);
+        when(bulkResponse.items()).thenReturn(List.of(stored, rejected));
+        when(elasticClient.bulk(any(BulkRequest.class))).thenReturn(bulkResponse);
+
+        BulkDocumentSink sink = new BulkDocumentSink(elasticClient, 2, Long.MAX_VALUE, false);
+        RecordingListener listener = new RecordingListener();
+
+        // Act
+        sink.write("test_index", "uri1", document("{}"), listener);
+        assertTrue(listener.outcomes.isEmpty());
+        sink.write("test_index", "uri2", document("{}"), listener);
+
+        // Assert
+        assertEquals(List.of("written test_index/uri1", "failed test_index/uri2: failed to parse"), listener.outcomes);
+        assertThrows(RuntimeException.class, sink::close);
+    }
+
+    @Test
+    public void testWrite_withListener_failedRequestFailsEveryDocument() throws Exception {
+        // Arrange
+        ElasticsearchClient elasticClient = mock(ElasticsearchClient.class);
+        when(elasticClient.bulk(any(BulkRequest.class))).thenThrow(new IOException("connection refused"));
+        BulkDocumentSink sink = new BulkDocumentSink(elasticClient, 2, Long.MAX_VALUE, false);
+        RecordingListener listener = new RecordingListener();
+        sink.write("test_index", "uri1", document("{}"), listener);
+
+        // Act & Assert
+        assertThrows(RuntimeException.class, () -> sink.write("test_index", "uri2", document("{}"), listener));
+        assertEquals(List.of("failed test_index/uri1: java.io.IOException: connection refused",
+                "failed test_index/uri2: java.io.IOException: connection refused"), listener.outcomes);
+    }
+
+    @Test
+    public void testWrite_oversizedDocumentSentAlone() throws Exception {
+        // Arrange
+        ElasticsearchClient elasticClient = mock(ElasticsearchClient.class);
+        BulkResponse bulkResponse = mock(BulkResponse.class);
+        when(bulkResponse.errors()).thenReturn(false);
+        when(elasticClient.bulk(any(BulkRequest.class))).thenReturn(bulkResponse);
+
+        BulkDocumentSink sink = new BulkDocumentSink(elasticClient, 100, 10, false);
+        sink.write("test_index", "uri1", document("{}"));
+
+        // Act
+        sink.write("test_index", "uri2", document("{\"a\":\"0123456789\"}"));
+
+        // Assert
+        ArgumentCaptor<BulkRequest> captor = ArgumentCaptor.forClass(BulkRequest.class);
+        verify(elasticClient, times(1)).bulk(captor.capture());
+        assertEquals(1, captor.getValue().operations().size());
+        assertEquals("uri2", captor.getValue().operations().get(0).index().id());
+
+        sink.close();
+        verify(elasticClient, times(2)).bulk(any(BulkRequest.class));
+    }
+
+    @Test
+    public void testWrite_withBudget_sendsPendingDocumentsWhenBudgetExhausted() throws Exception {
+        // Arrange
+        ElasticsearchClient elasticClient = mock(ElasticsearchClient.class);
+        BulkResponse bulkResponse = mock(BulkResponse.class);
+        when(bulkResponse.errors()).thenReturn(false);
+        when(elasticClient.bulk(any(BulkRequest.class))).thenReturn(bulkResponse);
+
+        ByteBudget budget = new ByteBudget(10);
+        BulkDocumentSink sink = new BulkDocumentSink(elasticClient, 100, 1000, false, budget, Runnable::run);
+        sink.write("test_index", "uri1", document("{\"a\":1}"));
+        verify(elasticClient, never()).bulk(any(BulkRequest.class));
+
+        // Act
+        sink.write("test_index", "uri2", document("{\"b\":2}"));
+
+        // Assert
+        verify(elasticClient, times(1)).bulk(any(BulkRequest.class));
+        assertEquals(7, budget.getInUse());
+
+        sink.close();
+        verify(elasticClient, times(2)).bulk(any(BulkRequest.class));
+        assertEquals(0, budget.getInUse());
+    }
+
+    @Test
+    public void testWrite_withBudget_blocksAtLimitUntilBulkCompletes() throws Exception {
+        // Arrange
+        ElasticsearchClient elasticClient = mock(ElasticsearchClient.class);
+        BulkResponse bulkResponse = mock(BulkResponse.class);
+        when(bulkResponse.errors()).thenReturn(false);
+        CountDownLatch bulkReleased = new CountDownLatch(1);
+        when(elasticClient.bulk(any(BulkRequest.class))).thenAnswer(invocation -> {
+            bulkReleased.await();
+            return bulkResponse;
+        });
+
+        ByteBudget budget = new ByteBudget(10);
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            BulkDocumentSink sink = new BulkDocumentSink(elasticClient, 1, 1000, false, budget, executor);
+            sink.write("test_index", "uri1", document("{\"a\":1}"));
+
+            // Act
+            Future<?> blockedWrite = executor.submit(() -> sink.write("test_index", "uri2", document("{\"b\":2}")));
+
+            // Assert
+            assertThrows(TimeoutException.class, () -> blockedWrite.get(200, TimeUnit.MILLISECONDS));
+            assertTrue(budget.hasWaiters());
+            assertEquals(7, budget.getInUse());
+
+            bulkReleased.countDown();
+            blockedWrite.get(5, TimeUnit.SECONDS);
+            sink.close();
+            verify(elasticClient, times(2)).bulk(any(BulkRequest.class));
+            assertEquals(0, budget.getInUse());
+        } finally {
+            bulkReleased.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testByteBudget_waitersAreAdmittedInArrivalOrder() throws Exception {
+        // Arrange
+        ByteBudget budget = new ByteBudget(10);
+        long held = budget.acquire(5);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Long> large = executor.submit(() -> budget.acquire(8));
+            while (!budget.hasWaiters()) {
+                Thread.sleep(5);
+            }
+            // fits in the remaining budget, but queues behind the large document
+            Future<Long> small = executor.submit(() -> budget.acquire(1));
+            assertThrows(TimeoutException.class, () -> small.get(200, TimeUnit.MILLISECONDS));
+
+            // Act
+            budget.release(held);
+
+            // Assert
+            assertEquals(8, large.get(5, TimeUnit.SECONDS));
+            assertEquals(1, small.get(5, TimeUnit.SECONDS));
+            assertEquals(9, budget.getInUse());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testByteBudget_oversizedAcquireTakesWholeBudget() throws Exception {
+        // Arrange
+        ByteBudget budget = new ByteBudget(10);
+
+        // Act
+        long acquired = budget.acquire(1000);
+
+        // Assert
+        assertEquals(10, acquired);
+        assertEquals(10, budget.getInUse());
+        budget.release(acquired);
+        assertEquals(0, budget.getInUse());
+    }
+
+    static final class RecordingListener implements WriteListener {
+
+        final List<String> outcomes = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void onWritten(String index, String id) {
+            outcomes.add("written " + index + "/" + id);
+        }
+
+        @Override
+        public void onFailed(String index, String id, String reason) {
+            outcomes.add("failed " + index + "/" + id + ": " + reason);
+        }
+    }
+}
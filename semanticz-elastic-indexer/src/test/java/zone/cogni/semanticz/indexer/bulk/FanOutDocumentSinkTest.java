@@ -0,0 +1,181 @@
+package zone.cogni.semanticz.indexer.bulk;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ErrorCause;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class FanOutDocumentSinkTest {
+
+    private static RawJsonDocument document(String json) {
+        return RawJsonDocument.of(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static ElasticsearchClient client(BulkResponse... responses) throws Exception {
+        ElasticsearchClient elasticClient = mock(ElasticsearchClient.class);
+        BulkResponse success = mock(BulkResponse.class);
+        when(success.errors()).thenReturn(false);
+        if (responses.length == 0) {
+            when(elasticClient.bulk(any(BulkRequest.class))).thenReturn(success);
+        } else {
+            when(elasticClient.bulk(any(BulkRequest.class))).thenReturn(responses[0], Arrays.copyOfRange(responses, 1, responses.length));
+        }
+        return elasticClient;
+    }
+
+    @Test
+    public void testWrite_sendsEveryDocumentToEveryTarget() throws Exception {
+        // Arrange
+        ElasticsearchClient oldCluster = client();
+        ElasticsearchClient newCluster = client();
+        FanOutDocumentSink sink = new FanOutDocumentSink(List.of(
+                new FanOutDocumentSink.Target("old", oldCluster, null),
+                new FanOutDocumentSink.Target("new", newCluster, "test_index_v2")),
+                10, 100, Long.MAX_VALUE, 0, Duration.ZERO, false);
+
+        // Act
+        sink.write("test_index", "uri1", document("{}"));
+        sink.write("test_index", "uri2", document("{}"));
+        sink.close();
+
+        // Assert
+        ArgumentCaptor<BulkRequest> oldRequests = ArgumentCaptor.forClass(BulkRequest.class);
+        verify(oldCluster, atLeastOnce()).bulk(oldRequests.capture());
+        assertEquals(2, oldRequests.getAllValues().stream().mapToInt(request -> request.operations().size()).sum());
+        assertEquals("test_index", oldRequests.getValue().operations().get(0).index().index());
+
+        ArgumentCaptor<BulkRequest> newRequests = ArgumentCaptor.forClass(BulkRequest.class);
+        verify(newCluster, atLeastOnce()).bulk(newRequests.capture());
+        assertEquals(2, newRequests.getAllValues().stream().mapToInt(request -> request.operations().size()).sum());
+        assertEquals("test_index_v2", newRequests.getValue().operations().get(0).index().index());
+    }
+
+    @Test
+    public void testWrite_retriesRejectedDocuments() throws Exception {
+        // Arrange
+        BulkResponseItem rejected = mock(BulkResponseItem.class);
+        when(rejected.error()).thenReturn(mock(ErrorCause.class));
+        when(rejected.status()).thenReturn(429);
+        BulkResponse partial = mock(BulkResponse.class);
+        when(partial.errors()).thenReturn(true);
+        when(partial.items()).thenReturn(List.of(rejected));
+        BulkResponse success = mock(BulkResponse.class);
+        when(success.errors()).thenReturn(false);
+        ElasticsearchClient elasticClient = client(partial, success);
+
+        FanOutDocumentSink sink = new FanOutDocumentSink(List.of(new FanOutDocumentSink.Target("cluster", elasticClient, null)),
+                10, 100, Long.MAX_VALUE, 3, Duration.ZERO, false);
+
+        // Act
+        sink.write("test_index", "uri1", document("{}"));
+        sink.close();
+
+        // Assert
+        ArgumentCaptor<BulkRequest> requests = ArgumentCaptor.forClass(BulkRequest.class);
+        verify(elasticClient, times(2)).bulk(requests.capture());
+        BulkRequest retry = requests.getAllValues().get(1);
+        assertEquals(1, retry.operations().size());
+        assertEquals("uri1", retry.operations().get(0).index().id());
+        assertEquals(1L, sink.getRetries().get("cluster"));
+    }
+
+    @Test
+    public void testWrite_withListener_reportsDocumentOnceEveryTargetAnswered() throws Exception {
+        // Arrange
+        BulkResponseItem rejected = mock(BulkResponseItem.class);
+        ErrorCause error = mock(ErrorCause.class);
+        when(error.reason()).thenReturn("failed to parse");
+        when(rejected.error()).thenReturn(error);
+        when(rejected.status()).thenReturn(400);
+        BulkResponse partial = mock(BulkResponse.class);
+        when(partial.errors()).thenReturn(true);
+        when(partial.items()).thenReturn(List.of(rejected));
+        BulkResponse success = mock(BulkResponse.class);
+        when(success.errors()).thenReturn(false);
+        CountDownLatch release = new CountDownLatch(1);
+        ElasticsearchClient slow = mock(ElasticsearchClient.class);
+        when(slow.bulk(any(BulkRequest.class))).thenAnswer(invocation -> {
+            release.await();
+            return success;
+        });
+        ElasticsearchClient newCluster = client(success, partial);
+        FanOutDocumentSink sink = new FanOutDocumentSink(List.of(
+                new FanOutDocumentSink.Target("old", slow, null),
+                new FanOutDocumentSink.Target("new", newCluster, null)),
+                10, 1, Long.MAX_VALUE, 0, Duration.ZERO, false);
+        BulkDocumentSinkTest.RecordingListener listener = new BulkDocumentSinkTest.RecordingListener();
+
+        // Act
+        sink.write("test_index", "uri1", document("{}"), listener);
+        sink.write("test_index", "uri2", document("{}"), listener);
+        verify(newCluster, timeout(5_000).times(2)).bulk(any(BulkRequest.class));
+        List<String> beforeSlowTarget = List.copyOf(listener.outcomes);
+        release.countDown();
+        assertThrows(RuntimeException.class, sink::close);
+
+        // Assert
+        assertEquals(List.of(), beforeSlowTarget);
+        assertEquals(List.of("written test_index/uri1", "failed test_index/uri2: failed to parse"), listener.outcomes);
+    }
+
+    @Test
+    public void testWrite_slowTargetDoesNotStallFastTarget() throws Exception {
+        // Arrange
+        CountDownLatch release = new CountDownLatch(1);
+        BulkResponse success = mock(BulkResponse.class);
+        when(success.errors()).thenReturn(false);
+        ElasticsearchClient slow = mock(ElasticsearchClient.class);
+        when(slow.bulk(any(BulkRequest.class))).thenAnswer(invocation -> {
+            release.await();
+            return success;
+        });
+        ElasticsearchClient fast = client();
+        FanOutDocumentSink sink = new FanOutDocumentSink(List.of(
+                new FanOutDocumentSink.Target("slow", slow, null),
+                new FanOutDocumentSink.Target("fast", fast, null)),
+                5, 1, Long.MAX_VALUE, 0, Duration.ZERO, false);
+
+        // Act
+        for (int i = 0; i < 5; i++) {
+            sink.write("test_index", "uri" + i, document("{}"));
+        }
+
+        // Assert
+        verify(fast, timeout(5_000).times(5)).bulk(any(BulkRequest.class));
+        assertEquals(5L, sink.getLag().get("slow"));
+
+        release.countDown();
+        sink.close();
+        assertEquals(0L, sink.getLag().get("slow"));
+        verify(slow, times(5)).bulk(any(BulkRequest.class));
+    }
+
+    @Test
+    public void testFlush_throwsWhenTargetFails() throws Exception {
+        // Arrange
+        ElasticsearchClient elasticClient = mock(ElasticsearchClient.class);
+        when(elasticClient.bulk(any(BulkRequest.class))).thenThrow(new IOException("connection refused"));
+        FanOutDocumentSink sink = new FanOutDocumentSink(List.of(new FanOutDocumentSink.Target("down", elasticClient, null)),
+                10, 100, Long.MAX_VALUE, 2, Duration.ZERO, false);
+        sink.write("test_index", "uri1", document("{}"));
+
+        // Act & Assert
+        RuntimeException exception = assertThrows(RuntimeException.class, sink::flush);
+        assertTrue(exception.getMessage().contains("down"));
+        verify(elasticClient, times(3)).bulk(any(BulkRequest.class));
+        assertThrows(RuntimeException.class, () -> sink.write("test_index", "uri2", document("{}")));
+    }
+}
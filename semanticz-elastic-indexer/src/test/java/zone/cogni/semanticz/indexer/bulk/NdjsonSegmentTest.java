@@ -0,0 +1,106 @@
+package zone.cogni.semanticz.indexer.bulk;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.mockito.ArgumentCaptor;
+
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class NdjsonSegmentTest {
+
+    @TempDir
+    Path directory;
+
+    private static RawJsonDocument document(String json) {
+        return RawJsonDocument.of(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testWrite_writesBulkReadyLines() throws Exception {
+        // Arrange
+        NdjsonSegmentSink sink = new NdjsonSegmentSink(directory, "documents", false);
+
+        // Act
+        sink.write("test_index", "http://x/\"1\"", document("{\"a\":\n1}"));
+        sink.close();
+
+        // Assert
+        assertEquals(List.of(directory.resolve("documents-00000.ndjson")), sink.getSegments());
+        assertEquals("{\"index\":{\"_index\":\"test_index\",\"_id\":\"http://x/\\\"1\\\"\"}}\n{\"a\": 1}\n",
+                Files.readString(sink.getSegments().get(0)));
+    }
+
+    @Test
+    public void testWrite_rollsSegments() {
+        // Arrange
+        NdjsonSegmentSink sink = new NdjsonSegmentSink(directory, "documents", 10, true);
+
+        // Act
+        sink.write("test_index", "uri1", document("{}"));
+        sink.write("test_index", "uri2", document("{}"));
+        sink.write("test_index", "uri3", document("{}"));
+        sink.flush();
+
+        // Assert
+        assertEquals(2, sink.getSegments().size());
+        assertEquals(2, NdjsonSegmentLoader.segments(directory).size());
+
+        sink.close();
+        assertEquals(3, NdjsonSegmentLoader.segments(directory).size());
+        assertEquals("documents-00002.ndjson.gz", sink.getSegments().get(2).getFileName().toString());
+    }
+
+    @ParameterizedTest
+    @CsvSource({"false,false", "false,true", "true,false", "true,true"})
+    public void testLoad_roundTrip(boolean compress, boolean memoryMapped) {
+        // Arrange
+        NdjsonSegmentSink writer = new NdjsonSegmentSink(directory, "documents", 100, compress);
+        for (int i = 0; i < 50; i++) {
+            writer.write("test_index", "uri" + i, document("{\"n\":" + i + "}"));
+        }
+        writer.close();
+        DocumentSink sink = mock(DocumentSink.class);
+
+        // Act
+        long loaded = new NdjsonSegmentLoader(sink, index -> index + "_v2", memoryMapped).load(directory);
+
+        // Assert
+        assertEquals(50, loaded);
+        ArgumentCaptor<String> ids = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<RawJsonDocument> documents = ArgumentCaptor.forClass(RawJsonDocument.class);
+        verify(sink, times(50)).write(eq("test_index_v2"), ids.capture(), documents.capture());
+        verify(sink).flush();
+        assertEquals("uri0", ids.getAllValues().get(0));
+        assertEquals("uri49", ids.getAllValues().get(49));
+        assertEquals("{\"n\":49}", documents.getAllValues().get(49).toString());
+    }
+
+    @Test
+    public void testMappedLineReader_linesCrossingWindows() throws Exception {
+        // Arrange
+        Path file = directory.resolve("lines.ndjson");
+        Files.writeString(file, "abc\r\n\n0123456789012345678901234567890123456789\nxy\nlast");
+        List<String> lines = new ArrayList<>();
+
+        // Act
+        try (NdjsonSegmentLoader.LineReader reader = new NdjsonSegmentLoader.MappedLineReader(FileChannel.open(file), 8)) {
+            byte[] line;
+            while ((line = reader.next()) != null) {
+                lines.add(new String(line, StandardCharsets.UTF_8));
+            }
+        }
+
+        // Assert
+        assertEquals(List.of("abc", "", "0123456789012345678901234567890123456789", "xy", "last"), lines);
+    }
+}
@@ -0,0 +1,81 @@
+package zone.cogni.semanticz.indexer.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompactUriSetTest {
+
+    @Test
+    public void testFingerprint_matchesMurmur3ReferenceValues() {
+        // Act
+        long[] hello = CompactUriSet.fingerprint("hello");
+        long[] fox = CompactUriSet.fingerprint("The quick brown fox jumps over the lazy dog");
+
+        // Assert
+        assertEquals(0xcbd8a7b341bd9b02L, hello[0]);
+        assertEquals(0x5b1e906a48ae1d19L, hello[1]);
+        assertEquals(0xe34bbc7bbc071b6cL, fox[0]);
+        assertEquals(0x7a433ca9c49a9347L, fox[1]);
+    }
+
+    @Test
+    public void testAddAndContains() {
+        // Arrange
+        CompactUriSet set = new CompactUriSet();
+
+        // Act
+        boolean first = set.add("http://example.com/resource/1");
+        boolean second = set.add("http://example.com/resource/1");
+
+        // Assert
+        assertTrue(first);
+        assertFalse(second);
+        assertEquals(1, set.size());
+        assertTrue(set.contains("http://example.com/resource/1"));
+        assertFalse(set.contains("http://example.com/resource/2"));
+    }
+
+    @Test
+    public void testGrowsBeyondInitialCapacity() {
+        // Arrange
+        CompactUriSet set = new CompactUriSet(4);
+        int count = 100_000;
+
+        // Act
+        for (int i = 0; i < count; i++) {
+            set.add("http://example.com/resource/" + i);
+        }
+
+        // Assert
+        assertEquals(count, set.size());
+        for (int i = 0; i < count; i++) {
+            assertTrue(set.contains("http://example.com/resource/" + i));
+        }
+        assertFalse(set.contains("http://example.com/resource/" + count));
+
+        AtomicInteger iterated = new AtomicInteger();
+        set.forEachFingerprint((high, low) -> iterated.incrementAndGet());
+        assertEquals(count, iterated.get());
+    }
+
+    @Test
+    public void testAddAll() {
+        // Arrange
+        CompactUriSet first = new CompactUriSet();
+        first.add("http://example.com/a");
+        first.add("http://example.com/b");
+        CompactUriSet second = new CompactUriSet();
+        second.add("http://example.com/b");
+        second.add("http://example.com/c");
+
+        // Act
+        first.addAll(second);
+
+        // Assert
+        assertEquals(3, first.size());
+        assertTrue(first.contains("http://example.com/c"));
+    }
+}
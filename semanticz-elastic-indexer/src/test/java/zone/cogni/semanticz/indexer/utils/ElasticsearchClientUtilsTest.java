@@ -1,22 +1,39 @@
 package zone.cogni.semanticz.indexer.utils;
 
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.Refresh;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
 import co.elastic.clients.elasticsearch.core.BulkRequest;
 import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.DeleteByQueryResponse;
 import co.elastic.clients.elasticsearch.indices.CreateIndexResponse;
 import co.elastic.clients.elasticsearch.indices.DeleteIndexResponse;
 import co.elastic.clients.elasticsearch.indices.ElasticsearchIndicesClient;
+import co.elastic.clients.elasticsearch.tasks.ElasticsearchTasksClient;
+import co.elastic.clients.elasticsearch.tasks.GetTasksResponse;
+import co.elastic.clients.elasticsearch.tasks.Info;
+import co.elastic.clients.json.JsonData;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import jakarta.json.spi.JsonProvider;
 import co.elastic.clients.transport.endpoints.BooleanResponse;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.io.StringReader;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -161,12 +178,130 @@ public class ElasticsearchClientUtilsTest {
         BulkResponse bulkResponse = mock(BulkResponse.class);
         when(bulkResponse.errors()).thenReturn(false);
         doReturn(bulkResponse).when(elasticClient).bulk(any(BulkRequest.class));
+        ElasticsearchIndicesClient indicesClient = mock(ElasticsearchIndicesClient.class);
+        when(elasticClient.indices()).thenReturn(indicesClient);
 
         // Act
         ElasticsearchClientUtils.deleteDocuments(elasticClient, index, ids);
 
         // Assert
         verify(elasticClient).bulk(any(BulkRequest.class));
+        verify(indicesClient).refresh(any(Function.class));
+    }
+
+    @Test
+    public void testDeleteDocuments_chunked() throws Exception {
+        // Arrange
+        String index = "test-index";
+        List<String> ids = IntStream.range(0, 2500).mapToObj(String::valueOf).collect(Collectors.toList());
+
+        // Mock bulk response
+        BulkResponse bulkResponse = mock(BulkResponse.class);
+        when(bulkResponse.errors()).thenReturn(false);
+        doReturn(bulkResponse).when(elasticClient).bulk(any(BulkRequest.class));
+        ElasticsearchIndicesClient indicesClient = mock(ElasticsearchIndicesClient.class);
+        when(elasticClient.indices()).thenReturn(indicesClient);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // Act
+            ElasticsearchClientUtils.deleteDocuments(elasticClient, index, ids, 1000, executor, 2, Refresh.WaitFor);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Assert
+        ArgumentCaptor<BulkRequest> requests = ArgumentCaptor.forClass(BulkRequest.class);
+        InOrder order = inOrder(elasticClient, indicesClient);
+        order.verify(elasticClient, times(3)).bulk(requests.capture());
+        // every chunk may touch other shards, so the whole index is refreshed once all of them are done
+        order.verify(indicesClient).refresh(any(Function.class));
+        assertEquals(2500, requests.getAllValues().stream().mapToInt(request -> request.operations().size()).sum());
+        requests.getAllValues().forEach(request -> assertEquals(Refresh.False, request.refresh()));
+    }
+
+    @Test
+    public void testDeleteDocuments_withoutRefresh() throws Exception {
+        // Arrange
+        BulkResponse bulkResponse = mock(BulkResponse.class);
+        when(bulkResponse.errors()).thenReturn(false);
+        doReturn(bulkResponse).when(elasticClient).bulk(any(BulkRequest.class));
+
+        // Act
+        ElasticsearchClientUtils.deleteDocuments(elasticClient, "test-index", List.of("1", "2", "3"), 2, null, 1, Refresh.False);
+
+        // Assert
+        verify(elasticClient, times(2)).bulk(any(BulkRequest.class));
+        verify(elasticClient, never()).indices();
+    }
+
+    private GetTasksResponse deleteTask(boolean completed, String json) {
+        JsonData data = JsonData.from(JsonProvider.provider().createParser(new StringReader(json)), new JacksonJsonpMapper());
+        GetTasksResponse taskResponse = mock(GetTasksResponse.class);
+        when(taskResponse.completed()).thenReturn(completed);
+        if (completed) {
+            when(taskResponse.response()).thenReturn(data);
+        } else {
+            Info info = mock(Info.class);
+            when(info.status()).thenReturn(data);
+            when(taskResponse.task()).thenReturn(info);
+        }
+        return taskResponse;
+    }
+
+    @Test
+    public void testDeleteByQuery() throws Exception {
+        // Arrange
+        String index = "test-index";
+        Query query = Query.of(q -> q.matchAll(m -> m));
+
+        // Mock asynchronous delete by query
+        DeleteByQueryResponse deleteResponse = mock(DeleteByQueryResponse.class);
+        when(deleteResponse.task()).thenReturn("node:1");
+        doReturn(deleteResponse).when(elasticClient).deleteByQuery(any(Function.class));
+
+        // Mock task polling: running, then done with a version conflict
+        ElasticsearchTasksClient tasksClient = mock(ElasticsearchTasksClient.class);
+        when(elasticClient.tasks()).thenReturn(tasksClient);
+        GetTasksResponse running = deleteTask(false, "{\"total\":10,\"deleted\":4,\"version_conflicts\":0}");
+        GetTasksResponse done = deleteTask(true, "{\"total\":10,\"deleted\":9,\"version_conflicts\":1,\"failures\":[]}");
+        doReturn(running, done).when(tasksClient).get(any(Function.class));
+
+        List<DeleteByQueryProgress> progress = new ArrayList<>();
+
+        // Act
+        DeleteByQueryProgress result = ElasticsearchClientUtils.deleteByQuery(elasticClient, index, query, 2, true, Duration.ZERO, progress::add);
+
+        // Assert
+        assertTrue(result.isCompleted());
+        assertEquals(10, result.getTotal());
+        assertEquals(9, result.getDeleted());
+        assertEquals(1, result.getVersionConflicts());
+        assertEquals(2, progress.size());
+        assertEquals(4, progress.get(0).getDeleted());
+        assertFalse(progress.get(0).isCompleted());
+        verify(elasticClient).deleteByQuery(any(Function.class));
+        verify(elasticClient, never()).count(any(Function.class));
+    }
+
+    @Test
+    public void testDeleteByQuery_throwsOnTaskFailures() throws Exception {
+        // Arrange
+        Query query = Query.of(q -> q.matchAll(m -> m));
+        DeleteByQueryResponse deleteResponse = mock(DeleteByQueryResponse.class);
+        when(deleteResponse.task()).thenReturn("node:1");
+        doReturn(deleteResponse).when(elasticClient).deleteByQuery(any(Function.class));
+        ElasticsearchTasksClient tasksClient = mock(ElasticsearchTasksClient.class);
+        when(elasticClient.tasks()).thenReturn(tasksClient);
+        GetTasksResponse done = deleteTask(true,
+                "{\"total\":10,\"deleted\":8,\"version_conflicts\":0,\"failures\":[{\"index\":\"test-index\",\"id\":\"a\",\"cause\":{\"type\":\"es_rejected_execution_exception\"}}]}");
+        doReturn(done).when(tasksClient).get(any(Function.class));
+
+        // Act & Assert
+        RuntimeException exception = assertThrows(RuntimeException.class,
+                () -> ElasticsearchClientUtils.deleteByQuery(elasticClient, "test-index", query, 2, true, Duration.ZERO, progress -> {}));
+        assertTrue(exception.getMessage().contains("1 failures"));
+        assertTrue(exception.getMessage().contains("es_rejected_execution_exception"));
     }
 
     @Test
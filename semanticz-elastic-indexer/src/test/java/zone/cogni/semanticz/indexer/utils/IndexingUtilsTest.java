@@ -5,10 +5,13 @@ import co.elastic.clients.elasticsearch._types.Refresh;
 import co.elastic.clients.elasticsearch.core.BulkRequest;
 import co.elastic.clients.elasticsearch.core.BulkResponse;
 import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.junit.jupiter.api.Test;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -59,6 +62,23 @@ public class IndexingUtilsTest {
         assertEquals(document, operation.index().document());
     }
 
+    @Test
+    public void testParseMergeFieldRequest_partialDocumentUpdate() {
+        // Arrange
+        ObjectNode values = JsonNodeFactory.instance.objectNode();
+        values.putObject("title").put("en", "Title");
+
+        // Act
+        BulkOperation operation = IndexingUtils.parseMergeFieldRequest("test_index", "test_id", "facets", values);
+
+        // Assert
+        assertTrue(operation.isUpdate());
+        assertEquals("test_index", operation.update().index());
+        assertEquals("test_id", operation.update().id());
+        assertEquals(Map.of("facets", values), operation.update().action().doc());
+        assertNull(operation.update().action().script());
+    }
+
     @Test
     public void testCreateBulkRequest_withForceRefreshTrue() {
         // Arrange
@@ -146,6 +166,53 @@ public class IndexingUtilsTest {
         verify(elasticClient, times(2)).bulk(any(BulkRequest.class));
     }
 
+    @Test
+    public void testSimpleIndexAll_concurrent() throws Exception {
+        // Arrange
+        ElasticsearchClient elasticClient = mock(ElasticsearchClient.class);
+        String indexName = "test_index";
+        List<String> uris = Arrays.asList("uri1", "uri2", "uri3", "uri4", "uri5");
+        ObjectNode document = mock(ObjectNode.class);
+
+        BulkResponse bulkResponse = mock(BulkResponse.class);
+        when(bulkResponse.errors()).thenReturn(false);
+
+        when(elasticClient.bulk(any(BulkRequest.class))).thenReturn(bulkResponse);
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            // Act
+            IndexingUtils.simpleIndexAll(elasticClient, indexName, uris, uri -> document, executor, 2);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Assert
+        verify(elasticClient, times(5)).bulk(any(BulkRequest.class));
+    }
+
+    @Test
+    public void testSimpleIndexAll_concurrentProviderFailure() {
+        // Arrange
+        ElasticsearchClient elasticClient = mock(ElasticsearchClient.class);
+        String indexName = "test_index";
+        List<String> uris = Arrays.asList("uri1", "uri2");
+
+        Function<String, ObjectNode> documentProvider = uri -> {
+            throw new IllegalStateException("Construct failed for " + uri);
+        };
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // Act & Assert
+            IllegalStateException exception = assertThrows(IllegalStateException.class, () ->
+                    IndexingUtils.simpleIndexAll(elasticClient, indexName, uris, documentProvider, executor, 1));
+            assertEquals("Construct failed for uri1", exception.getMessage());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     @Test
     public void testSimpleIndexOne_success() throws Exception {
         // Arrange
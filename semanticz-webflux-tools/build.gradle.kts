@@ -7,6 +7,7 @@ dependencies {
     implementation("org.springframework:spring-context:5.3.30")
     implementation("org.springframework:spring-webflux:5.3.30")
     implementation("org.thymeleaf:thymeleaf:3.0.15.RELEASE")
+    api("com.fasterxml.jackson.core:jackson-databind:2.15.3")
     implementation("commons-io:commons-io:2.7")
     implementation("io.netty:netty-transport:4.1.114.Final")
     implementation("io.netty:netty-handler:4.1.114.Final")
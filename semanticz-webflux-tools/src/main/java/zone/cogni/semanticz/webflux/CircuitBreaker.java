@@ -0,0 +1,131 @@
+package zone.cogni.semanticz.webflux;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.function.ToIntFunction;
+
+/**
+ * Count-based circuit breaker over the outcomes of the most recent requests.
+ * <p>
+ * While closed, every request is sent and its outcome recorded. Once at least the minimum number of requests was
+ * observed and the failure rate in the window reaches the threshold, the circuit opens and requests fail fast with a
+ * {@link CircuitOpenException}. After the open duration a single trial request is let through: its success closes the
+ * circuit with an empty window, its failure opens it again.
+ */
+final class CircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    private enum State {CLOSED, OPEN, HALF_OPEN}
+
+    private final CircuitBreakerConfig config;
+    private final String name;
+    private final boolean[] failed;
+    private int recorded;
+    private int next;
+    private int failures;
+    private State state = State.CLOSED;
+    private long openedAt;
+    private boolean trialInFlight;
+    private long rejected;
+
+    CircuitBreaker(CircuitBreakerConfig config, String name) {
+        if (config.getWindowSize() < 1) {
+            throw new IllegalArgumentException("Circuit breaker window size must be at least 1, got " + config.getWindowSize());
+        }
+        this.config = config;
+        this.name = name;
+        this.failed = new boolean[config.getWindowSize()];
+    }
+
+    /**
+     * Defers the exchange until subscription and only subscribes to it when the circuit lets the request through.
+     *
+     * @param status extracts the HTTP status of the response
+     */
+    <T> Mono<T> protect(Mono<T> exchange, ToIntFunction<T> status) {
+        return Mono.defer(() -> {
+            if (!tryAcquire()) {
+                return Mono.error(new CircuitOpenException("Circuit breaker of " + name + " is open"));
+            }
+            return exchange.doOnSuccess(response -> record(response == null || !isFailure(status.applyAsInt(response))))
+                           .doOnError(e -> record(false))
+                           .doOnCancel(this::cancelled);
+        });
+    }
+
+    synchronized boolean isOpen() {
+        return state != State.CLOSED;
+    }
+
+    synchronized long getRejectedCount() {
+        return rejected;
+    }
+
+    private static boolean isFailure(int status) {
+        return status >= 500 || status == 429;
+    }
+
+    private synchronized boolean tryAcquire() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= config.getOpenDuration().toNanos()) {
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        if (state == State.CLOSED) return true;
+        if (state == State.HALF_OPEN && !trialInFlight) {
+            trialInFlight = true;
+            return true;
+        }
+        rejected++;
+        return false;
+    }
+
+    private synchronized void record(boolean success) {
+        if (state == State.HALF_OPEN) {
+            if (!trialInFlight) return;
+
+            trialInFlight = false;
+            if (success) {
+                close();
+            } else {
+                open();
+            }
+            return;
+        }
+        // late outcomes of requests sent before the circuit opened
+        if (state == State.OPEN) return;
+
+        if (recorded == failed.length && failed[next]) failures--;
+        if (recorded < failed.length) recorded++;
+        failed[next] = !success;
+        if (!success) failures++;
+        next = (next + 1) % failed.length;
+
+        if (recorded >= config.getMinimumRequests() && failures >= config.getFailureRateThreshold() * recorded) {
+            open();
+        }
+    }
+
+    private synchronized void cancelled() {
+        if (state == State.HALF_OPEN) trialInFlight = false;
+    }
+
+    private void open() {
+        log.warn("Circuit breaker of {} opened after {} failures in {} requests, failing fast for {}",
+                name, failures, recorded, config.getOpenDuration());
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+    }
+
+    private void close() {
+        log.info("Circuit breaker of {} closed", name);
+        state = State.CLOSED;
+        recorded = 0;
+        next = 0;
+        failures = 0;
+        Arrays.fill(failed, false);
+    }
+}
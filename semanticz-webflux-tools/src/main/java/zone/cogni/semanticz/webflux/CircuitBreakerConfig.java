@@ -0,0 +1,69 @@
+package zone.cogni.semanticz.webflux;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the circuit breaker of a {@link WebProxy}. Connection errors, timeouts, 5xx and 429 responses
+ * count as failures.
+ */
+public class CircuitBreakerConfig {
+
+    private double failureRateThreshold = 0.5;
+    private int windowSize = 100;
+    private int minimumRequests = 20;
+    private Duration openDuration = Duration.ofSeconds(30);
+
+    /**
+     * @return the failure rate, between 0 and 1, at which the circuit opens
+     */
+    public double getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    public void setFailureRateThreshold(double failureRateThreshold) {
+        this.failureRateThreshold = failureRateThreshold;
+    }
+
+    /**
+     * @return the number of most recent requests the failure rate is computed over
+     */
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public void setWindowSize(int windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * @return the number of requests to observe before the circuit may open
+     */
+    public int getMinimumRequests() {
+        return minimumRequests;
+    }
+
+    public void setMinimumRequests(int minimumRequests) {
+        this.minimumRequests = minimumRequests;
+    }
+
+    /**
+     * @return how long requests fail fast before a single trial request is let through
+     */
+    public Duration getOpenDuration() {
+        return openDuration;
+    }
+
+    public void setOpenDuration(Duration openDuration) {
+        this.openDuration = openDuration;
+    }
+
+    @Override
+    public String toString() {
+        return "CircuitBreakerConfig{" +
+                "failureRateThreshold=" + failureRateThreshold +
+                ", windowSize=" + windowSize +
+                ", minimumRequests=" + minimumRequests +
+                ", openDuration=" + openDuration +
+                '}';
+    }
+}
@@ -0,0 +1,11 @@
+package zone.cogni.semanticz.webflux;
+
+/**
+ * Thrown instead of sending a request while the circuit breaker of a {@link WebProxy} is open.
+ */
+public class CircuitOpenException extends RuntimeException {
+
+    public CircuitOpenException(String message) {
+        super(message);
+    }
+}
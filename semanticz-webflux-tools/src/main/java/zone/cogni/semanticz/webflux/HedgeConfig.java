@@ -0,0 +1,96 @@
+package zone.cogni.semanticz.webflux;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Configuration of hedged requests in a {@link WebProxy}: when an idempotent request has not answered within the
+ * configured latency percentile, a duplicate is sent and whichever response arrives first is used.
+ */
+public class HedgeConfig {
+
+    private double percentile = 0.95;
+    private Duration minDelay = Duration.ofMillis(10);
+    private Duration maxDelay;
+    private int sampleSize = 1_000;
+    private int minSamples = 50;
+    private List<String> postPaths = List.of();
+
+    /**
+     * @return the latency percentile, between 0 and 1, after which a duplicate request is sent
+     */
+    public double getPercentile() {
+        return percentile;
+    }
+
+    public void setPercentile(double percentile) {
+        this.percentile = percentile;
+    }
+
+    /**
+     * @return the lower bound of the hedge delay, so fast backends are not sent duplicates on every small hiccup
+     */
+    public Duration getMinDelay() {
+        return minDelay;
+    }
+
+    public void setMinDelay(Duration minDelay) {
+        this.minDelay = minDelay;
+    }
+
+    /**
+     * @return the upper bound of the hedge delay, or null for none
+     */
+    public Duration getMaxDelay() {
+        return maxDelay;
+    }
+
+    public void setMaxDelay(Duration maxDelay) {
+        this.maxDelay = maxDelay;
+    }
+
+    /**
+     * @return the number of most recent response times the percentile is computed from
+     */
+    public int getSampleSize() {
+        return sampleSize;
+    }
+
+    public void setSampleSize(int sampleSize) {
+        this.sampleSize = sampleSize;
+    }
+
+    /**
+     * @return the number of response times to observe before requests are hedged
+     */
+    public int getMinSamples() {
+        return minSamples;
+    }
+
+    public void setMinSamples(int minSamples) {
+        this.minSamples = minSamples;
+    }
+
+    /**
+     * @return the Ant-style path patterns of POST requests that are idempotent and may be hedged, e.g. searches
+     */
+    public List<String> getPostPaths() {
+        return postPaths;
+    }
+
+    public void setPostPaths(List<String> postPaths) {
+        this.postPaths = postPaths;
+    }
+
+    @Override
+    public String toString() {
+        return "HedgeConfig{" +
+                "percentile=" + percentile +
+                ", minDelay=" + minDelay +
+                ", maxDelay=" + maxDelay +
+                ", sampleSize=" + sampleSize +
+                ", minSamples=" + minSamples +
+                ", postPaths=" + postPaths +
+                '}';
+    }
+}
@@ -0,0 +1,121 @@
+package zone.cogni.semanticz.webflux;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Decodes response bodies from their {@link DataBuffer}s straight into Jackson trees, without an intermediate
+ * String or char decoding. All decoding uses one shared mapper.
+ */
+final class JsonBodyDecoder {
+
+    static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private JsonBodyDecoder() {
+    }
+
+    /**
+     * Joins the buffers and parses them in one go. The joined body is bounded by maxInMemorySize.
+     *
+     * @return the tree, or empty for an empty body
+     */
+    static Mono<JsonNode> decode(Flux<DataBuffer> body, int maxInMemorySize) {
+        return DataBufferUtils.join(body, maxInMemorySize)
+                              .flatMap(buffer -> {
+                                  try (InputStream inputStream = buffer.asInputStream(true)) {
+                                      JsonNode tree = OBJECT_MAPPER.readTree(inputStream);
+                                      return tree == null || tree.isMissingNode() ? Mono.empty() : Mono.just(tree);
+                                  } catch (IOException e) {
+                                      return Mono.error(new UncheckedIOException("Failed to parse JSON response", e));
+                                  }
+                              });
+    }
+
+    /**
+     * Parses a body that was already read into memory.
+     *
+     * @return the tree, or null for an empty body
+     */
+    static JsonNode decode(byte[] body) {
+        if (body.length == 0) return null;
+
+        try {
+            JsonNode tree = OBJECT_MAPPER.readTree(body);
+            return tree == null || tree.isMissingNode() ? null : tree;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to parse JSON response", e);
+        }
+    }
+
+    /**
+     * Feeds every buffer to a non-blocking parser as it arrives and records the tokens, then builds the tree once the
+     * body is complete. The body is never held in one contiguous buffer, so it is not bounded by the codec limit.
+     *
+     * @return the tree, or empty for an empty body
+     */
+    static Mono<JsonNode> decodeStreaming(Flux<DataBuffer> body) {
+        return Mono.defer(() -> {
+            StreamingState state;
+            try {
+                state = new StreamingState();
+            } catch (IOException e) {
+                return Mono.error(new UncheckedIOException("Failed to create JSON parser", e));
+            }
+            return body.doOnNext(state::feed)
+                       .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                       .then(Mono.fromCallable(state::finish));
+        });
+    }
+
+    private static final class StreamingState {
+        private final JsonParser parser;
+        private final ByteBufferFeeder feeder;
+        private final TokenBuffer tokens;
+
+        private StreamingState() throws IOException {
+            parser = OBJECT_MAPPER.getFactory().createNonBlockingByteBufferParser();
+            feeder = (ByteBufferFeeder) parser.getNonBlockingInputFeeder();
+            tokens = new TokenBuffer(parser);
+        }
+
+        private void feed(DataBuffer buffer) {
+            try {
+                feeder.feedInput(buffer.asByteBuffer());
+                drain();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to parse JSON response", e);
+            } finally {
+                DataBufferUtils.release(buffer);
+            }
+        }
+
+        private void drain() throws IOException {
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.NOT_AVAILABLE && token != null) {
+                tokens.copyCurrentEvent(parser);
+            }
+        }
+
+        private JsonNode finish() throws IOException {
+            feeder.endOfInput();
+            drain();
+            parser.close();
+            try (JsonParser replay = tokens.asParser(OBJECT_MAPPER)) {
+                if (replay.nextToken() == null) return null;
+                return OBJECT_MAPPER.readTree(replay);
+            }
+        }
+    }
+}
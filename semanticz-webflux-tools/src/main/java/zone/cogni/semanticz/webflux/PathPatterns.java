@@ -0,0 +1,25 @@
+package zone.cogni.semanticz.webflux;
+
+import org.springframework.util.AntPathMatcher;
+
+import java.util.List;
+
+/**
+ * Matches proxied request paths, without their query string, against Ant-style patterns.
+ */
+final class PathPatterns {
+
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    private PathPatterns() {
+    }
+
+    static boolean matches(String pattern, String requestPath) {
+        int queryStart = requestPath.indexOf('?');
+        return PATH_MATCHER.match(pattern, queryStart < 0 ? requestPath : requestPath.substring(0, queryStart));
+    }
+
+    static boolean matchesAny(List<String> patterns, String requestPath) {
+        return patterns.stream().anyMatch(pattern -> matches(pattern, requestPath));
+    }
+}
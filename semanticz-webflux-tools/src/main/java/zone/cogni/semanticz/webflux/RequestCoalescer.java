@@ -0,0 +1,71 @@
+package zone.cogni.semanticz.webflux;
+
+import org.springframework.http.HttpMethod;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Lets concurrent identical requests share one in-flight backend exchange and its result.
+ * <p>
+ * GET and HEAD requests are always coalesced, POST requests only when their path matches one of the configured
+ * Ant-style patterns, e.g. {@code /**&#47;_search}. The first caller starts the exchange; callers arriving while it is in
+ * flight wait for the same result, or the same error. A caller that gives up, e.g. when interrupted, only cancels
+ * its own wait: the exchange continues for the others. The exchange is forgotten as soon as it completes, so results
+ * are never reused afterwards.
+ */
+final class RequestCoalescer {
+
+    private final List<String> postPaths;
+    private final Map<String, Mono<ResponseCache.CachedResponse>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    RequestCoalescer(List<String> postPaths) {
+        this.postPaths = postPaths;
+    }
+
+    boolean applies(HttpMethod method, String requestPath) {
+        if (method == HttpMethod.GET || method == HttpMethod.HEAD) return true;
+        return method == HttpMethod.POST && PathPatterns.matchesAny(postPaths, requestPath);
+    }
+
+    static String key(HttpMethod method, String requestPath, String accept, String contentType, String body, String ifNoneMatch) {
+        return ResponseCache.key(method, requestPath, accept, body) + "\n" + contentType + "\n" + ifNoneMatch;
+    }
+
+    /**
+     * Joins the in-flight exchange for the key, or starts one with the given exchange.
+     */
+    ResponseCache.CachedResponse execute(String key, Supplier<Mono<ResponseCache.CachedResponse>> exchange) {
+        Mono<ResponseCache.CachedResponse> shared = inFlight.get(key);
+        if (shared == null) {
+            // removes only its own mapping, never an exchange started for the same key after it completed
+            AtomicReference<Mono<ResponseCache.CachedResponse>> self = new AtomicReference<>();
+            Mono<ResponseCache.CachedResponse> created = exchange.get()
+                                                                 .doFinally(signal -> inFlight.remove(key, self.get()))
+                                                                 .share();
+            self.set(created);
+            shared = inFlight.putIfAbsent(key, created);
+            if (shared == null) {
+                shared = created;
+            } else {
+                coalesced.incrementAndGet();
+            }
+        } else {
+            coalesced.incrementAndGet();
+        }
+        return shared.block();
+    }
+
+    /**
+     * @return the number of requests that joined an exchange started by another caller
+     */
+    long getCoalescedCount() {
+        return coalesced.get();
+    }
+}
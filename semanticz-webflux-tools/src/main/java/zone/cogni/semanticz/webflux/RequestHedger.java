@@ -0,0 +1,104 @@
+package zone.cogni.semanticz.webflux;
+
+import org.springframework.http.HttpMethod;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Sends a duplicate of an idempotent request when the first attempt has not answered within a latency percentile of
+ * recent responses, and uses whichever attempt answers first; the other one is cancelled.
+ * <p>
+ * An error of the first attempt is returned right away. An error of the duplicate is ignored, so the duplicate can
+ * only ever win with a response. No duplicates are sent until enough response times were observed.
+ * <p>
+ * Only the first attempt is sampled, from its own start. When the duplicate wins, the time the first attempt ran
+ * until it was cancelled is sampled as a lower bound of its latency. Sampling the duplicate instead would drop the
+ * slow tail from the samples, lowering the percentile until more requests than intended are duplicated.
+ */
+final class RequestHedger {
+
+    private static final int RECOMPUTE_INTERVAL = 32;
+
+    private final HedgeConfig config;
+    private final long[] samples;
+    private int sampled;
+    private int next;
+    private int sinceRecompute;
+    private long delayNanos = -1;
+    private final AtomicLong hedged = new AtomicLong();
+
+    RequestHedger(HedgeConfig config) {
+        if (config.getSampleSize() < 1) {
+            throw new IllegalArgumentException("Hedge sample size must be at least 1, got " + config.getSampleSize());
+        }
+        this.config = config;
+        this.samples = new long[config.getSampleSize()];
+    }
+
+    boolean applies(HttpMethod method, String requestPath) {
+        if (method == HttpMethod.GET || method == HttpMethod.HEAD) return true;
+        return method == HttpMethod.POST && PathPatterns.matchesAny(config.getPostPaths(), requestPath);
+    }
+
+    /**
+     * @param attempt creates one attempt of the request, called once more for the duplicate
+     */
+    <T> Mono<T> hedge(Supplier<Mono<T>> attempt) {
+        Mono<T> primary = timed(attempt.get());
+        long delay = delayNanos();
+        if (delay < 0) return primary;
+
+        Mono<T> duplicate = Mono.delay(Duration.ofNanos(delay))
+                                .then(Mono.defer(() -> {
+                                    hedged.incrementAndGet();
+                                    return attempt.get();
+                                }))
+                                .onErrorResume(e -> Mono.never());
+        return Mono.firstWithSignal(primary, duplicate);
+    }
+
+    /**
+     * @return the number of duplicate requests sent
+     */
+    long getHedgedCount() {
+        return hedged.get();
+    }
+
+    private <T> Mono<T> timed(Mono<T> exchange) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return exchange.doOnSuccess(response -> record(System.nanoTime() - start))
+                           .doOnCancel(() -> record(System.nanoTime() - start));
+        });
+    }
+
+    synchronized void record(long latencyNanos) {
+        samples[next] = latencyNanos;
+        next = (next + 1) % samples.length;
+        if (sampled < samples.length) sampled++;
+        sinceRecompute++;
+    }
+
+    /**
+     * @return the delay after which to send the duplicate, or -1 when not enough response times were observed yet
+     */
+    synchronized long delayNanos() {
+        if (sampled < Math.max(1, config.getMinSamples())) return -1;
+        if (delayNanos >= 0 && sinceRecompute < RECOMPUTE_INTERVAL) return delayNanos;
+
+        long[] sorted = Arrays.copyOf(samples, sampled);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(config.getPercentile() * sorted.length) - 1;
+        long delay = sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+        if (config.getMinDelay() != null) delay = Math.max(delay, config.getMinDelay().toNanos());
+        if (config.getMaxDelay() != null) delay = Math.min(delay, config.getMaxDelay().toNanos());
+
+        delayNanos = delay;
+        sinceRecompute = 0;
+        return delay;
+    }
+}
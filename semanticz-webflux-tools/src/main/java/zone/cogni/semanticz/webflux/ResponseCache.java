@@ -0,0 +1,208 @@
+package zone.cogni.semanticz.webflux;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of proxied responses, keyed on method, path, Accept header and a hash of the request body.
+ * <p>
+ * Entries are evicted least recently used first once the number of entries or their estimated size exceeds the
+ * configured limits. An expired entry is kept when the backend sent an {@code ETag}, so it can be revalidated with
+ * {@code If-None-Match}; a 304 answer makes it fresh again without transferring the body.
+ */
+final class ResponseCache {
+
+    private static final byte[] EMPTY = new byte[0];
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private final ResponseCacheConfig config;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long hits;
+    private long revalidations;
+    private long misses;
+    private long evictions;
+
+    ResponseCache(ResponseCacheConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * @return the first rule matching the request, or null when the request is not cacheable
+     */
+    ResponseCacheRule ruleFor(HttpMethod method, String requestPath) {
+        for (ResponseCacheRule rule : config.getRules()) {
+            if (rule.getMethods().contains(method) && PathPatterns.matches(rule.getPath(), requestPath)) return rule;
+        }
+        return null;
+    }
+
+    static String key(HttpMethod method, String requestPath, String accept, String body) {
+        return method + " " + requestPath + "\n" + accept + "\n" + (body == null ? "-" : sha256(body));
+    }
+
+    synchronized Entry get(String key) {
+        return entries.get(key);
+    }
+
+    synchronized void recordHit() {
+        hits++;
+    }
+
+    synchronized void recordMiss() {
+        misses++;
+    }
+
+    /**
+     * Marks a revalidated entry fresh for another time to live, unless it was evicted in the meantime.
+     */
+    synchronized void revalidated(String key, Entry entry, Duration ttl) {
+        revalidations++;
+        if (entries.get(key) == entry) {
+            entries.put(key, new Entry(entry.response, expiresAt(ttl), entry.size));
+        }
+    }
+
+    /**
+     * Stores a successful response, unless the backend forbids it or it could never be served again.
+     */
+    synchronized void put(String key, CachedResponse response, Duration ttl) {
+        if (response.headers.getCacheControl() != null && response.headers.getCacheControl().contains("no-store")) return;
+        if (!isPositive(ttl) && response.getETag() == null) return;
+
+        long size = ENTRY_OVERHEAD + 2L * key.length() + response.body.length + headersSize(response.headers);
+        if (size > config.getMaxBytes()) return;
+
+        Entry previous = entries.put(key, new Entry(response, expiresAt(ttl), size));
+        if (previous != null) bytes -= previous.size;
+        bytes += size;
+
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while ((entries.size() > config.getMaxEntries() || bytes > config.getMaxBytes()) && eldest.hasNext()) {
+            bytes -= eldest.next().getValue().size;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    synchronized ResponseCacheStats stats() {
+        return new ResponseCacheStats(hits, revalidations, misses, evictions, entries.size(), bytes);
+    }
+
+    synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    /**
+     * Reads the whole response into memory.
+     */
+    static Mono<CachedResponse> read(ClientResponse response) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(response.headers().asHttpHeaders());
+        return response.bodyToMono(byte[].class)
+                       .defaultIfEmpty(EMPTY)
+                       .map(body -> new CachedResponse(response.rawStatusCode(), headers, body));
+    }
+
+    private static long expiresAt(Duration ttl) {
+        return System.nanoTime() + (isPositive(ttl) ? ttl.toNanos() : 0);
+    }
+
+    private static boolean isPositive(Duration ttl) {
+        return ttl != null && !ttl.isNegative() && !ttl.isZero();
+    }
+
+    private static long headersSize(HttpHeaders headers) {
+        long size = 0;
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            size += header.getKey().length();
+            for (String value : header.getValue()) {
+                size += value.length();
+            }
+        }
+        return 2 * size;
+    }
+
+    private static String sha256(String body) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(digest.digest(body.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    static final class Entry {
+        private final CachedResponse response;
+        private final long expiresAt;
+        private final long size;
+
+        private Entry(CachedResponse response, long expiresAt, long size) {
+            this.response = response;
+            this.expiresAt = expiresAt;
+            this.size = size;
+        }
+
+        CachedResponse getResponse() {
+            return response;
+        }
+
+        boolean isFresh() {
+            return System.nanoTime() - expiresAt < 0;
+        }
+    }
+
+    /**
+     * A response fully read into memory. The body is never modified once read.
+     */
+    static final class CachedResponse {
+        private final int status;
+        private final HttpHeaders headers;
+        private final byte[] body;
+
+        CachedResponse(int status, HttpHeaders headers, byte[] body) {
+            this.status = status;
+            this.headers = HttpHeaders.readOnlyHttpHeaders(headers);
+            this.body = body;
+        }
+
+        int getStatus() {
+            return status;
+        }
+
+        HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        byte[] getBody() {
+            return body;
+        }
+
+        String getETag() {
+            return headers.getETag();
+        }
+
+        boolean isSuccessful() {
+            return status >= 200 && status < 300;
+        }
+
+        String getBodyAsString() {
+            if (body.length == 0) return null;
+
+            return new String(body, WebUtils.responseCharset(headers.getContentType()));
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package zone.cogni.semanticz.webflux;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration of the opt-in response cache of a {@link WebProxy}.
+ * Only requests matching one of the rules are cached; the first matching rule applies.
+ */
+public class ResponseCacheConfig {
+
+    private int maxEntries = 1_000;
+    private long maxBytes = 64L * 1024 * 1024;
+    private List<ResponseCacheRule> rules = new ArrayList<>();
+
+    /**
+     * @return the maximum number of cached responses
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @return the maximum estimated size of all cached responses together
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public List<ResponseCacheRule> getRules() {
+        return rules;
+    }
+
+    public void setRules(List<ResponseCacheRule> rules) {
+        this.rules = rules;
+    }
+
+    @Override
+    public String toString() {
+        return "ResponseCacheConfig{" +
+                "maxEntries=" + maxEntries +
+                ", maxBytes=" + maxBytes +
+                ", rules=" + rules +
+                '}';
+    }
+}
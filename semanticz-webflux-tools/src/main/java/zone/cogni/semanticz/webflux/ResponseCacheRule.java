@@ -0,0 +1,64 @@
+package zone.cogni.semanticz.webflux;
+
+import org.springframework.http.HttpMethod;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Declares which proxied requests may be served from the {@link ResponseCacheConfig response cache} and for how long.
+ * The path is an Ant-style pattern matched against the request path, e.g. {@code /datacat.views/_doc/**}.
+ */
+public class ResponseCacheRule {
+
+    private String path;
+    private List<HttpMethod> methods = List.of(HttpMethod.GET);
+    private Duration ttl;
+
+    public ResponseCacheRule() {
+    }
+
+    public ResponseCacheRule(String path, Duration ttl) {
+        this.path = path;
+        this.ttl = ttl;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    /**
+     * @return the cacheable methods, GET by default; add POST for searches and aggregations sent with a body
+     */
+    public List<HttpMethod> getMethods() {
+        return methods;
+    }
+
+    public void setMethods(List<HttpMethod> methods) {
+        this.methods = methods;
+    }
+
+    /**
+     * @return how long a response is served without contacting the backend
+     */
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    @Override
+    public String toString() {
+        return "ResponseCacheRule{" +
+                "path='" + path + '\'' +
+                ", methods=" + methods +
+                ", ttl=" + ttl +
+                '}';
+    }
+}
@@ -0,0 +1,76 @@
+package zone.cogni.semanticz.webflux;
+
+/**
+ * Snapshot of the counters of a {@link WebProxy} response cache.
+ */
+public class ResponseCacheStats {
+
+    private final long hits;
+    private final long revalidations;
+    private final long misses;
+    private final long evictions;
+    private final int entries;
+    private final long bytes;
+
+    public ResponseCacheStats(long hits, long revalidations, long misses, long evictions, int entries, long bytes) {
+        this.hits = hits;
+        this.revalidations = revalidations;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.entries = entries;
+        this.bytes = bytes;
+    }
+
+    /**
+     * @return the requests served from a fresh cached response
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the requests served from an expired cached response after the backend answered 304 Not Modified
+     */
+    public long getRevalidations() {
+        return revalidations;
+    }
+
+    /**
+     * @return the cacheable requests that had to be fetched from the backend
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public int getEntries() {
+        return entries;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return the share of cacheable requests served without transferring a body, between 0 and 1
+     */
+    public double getHitRatio() {
+        long total = hits + revalidations + misses;
+        return total == 0 ? 0 : (double) (hits + revalidations) / total;
+    }
+
+    @Override
+    public String toString() {
+        return "ResponseCacheStats{" +
+                "hits=" + hits +
+                ", revalidations=" + revalidations +
+                ", misses=" + misses +
+                ", evictions=" + evictions +
+                ", entries=" + entries +
+                ", bytes=" + bytes +
+                '}';
+    }
+}
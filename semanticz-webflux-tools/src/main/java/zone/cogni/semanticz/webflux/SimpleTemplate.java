@@ -0,0 +1,161 @@
+package zone.cogni.semanticz.webflux;
+
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.Context;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Precompiled form of a template that only inlines plain variables, e.g. {@code [[${uri}]]} or {@code [(${uri})]},
+ * rendered by splicing the variable values between the literal segments.
+ * <p>
+ * Whether a template may take this path is decided once per template engine: the template is rendered by the engine
+ * with every variable bound to a probe value containing markup significant and non-ASCII characters, and by the
+ * splice with each candidate escaping function. The fast path is only used when one of them produces exactly the
+ * engine output, so literal text handling and escaping are those of the engine's template mode.
+ */
+final class SimpleTemplate {
+
+    private static final Pattern INLINED_VARIABLE = Pattern.compile("\\[\\[\\$\\{([A-Za-z_][A-Za-z0-9_]*)}]]|\\[\\(\\$\\{([A-Za-z_][A-Za-z0-9_]*)}\\)]");
+    private static final String[] ENGINE_SYNTAX = {"[[", "[(", "[#", "[/", "th:", "data-th-", "/*[", "/*/", "<!--/*"};
+    private static final String PROBE = "<>&\"'\u00e9";
+
+    private static final List<UnaryOperator<String>> ESCAPERS = List.of(
+            UnaryOperator.identity(),
+            text -> escape(text, "&quot;", null),
+            text -> escape(text, "&quot;", "&#39;"),
+            text -> escape(text, "&quot;", "&apos;"));
+
+    /**
+     * Marks templates that must always be rendered by the engine.
+     */
+    static final SimpleTemplate UNSUPPORTED = new SimpleTemplate(new String[0], new String[0], new boolean[0], null);
+
+    private final String[] literals;
+    private final String[] variables;
+    private final boolean[] escaped;
+    private final UnaryOperator<String> escaper;
+
+    private SimpleTemplate(String[] literals, String[] variables, boolean[] escaped, UnaryOperator<String> escaper) {
+        this.literals = literals;
+        this.variables = variables;
+        this.escaped = escaped;
+        this.escaper = escaper;
+    }
+
+    /**
+     * Parses the template and verifies the splice against the engine.
+     *
+     * @return the compiled template, or {@link #UNSUPPORTED} when the engine has to render it
+     */
+    static SimpleTemplate compile(TemplateEngine templateEngine, String template) {
+        List<String> literals = new ArrayList<>();
+        List<String> variables = new ArrayList<>();
+        List<Boolean> escaped = new ArrayList<>();
+
+        Matcher matcher = INLINED_VARIABLE.matcher(template);
+        int position = 0;
+        while (matcher.find()) {
+            literals.add(template.substring(position, matcher.start()));
+            boolean isEscaped = matcher.group(1) != null;
+            variables.add(isEscaped ? matcher.group(1) : matcher.group(2));
+            escaped.add(isEscaped);
+            position = matcher.end();
+        }
+        literals.add(template.substring(position));
+
+        for (String literal : literals) {
+            for (String syntax : ENGINE_SYNTAX) {
+                if (literal.contains(syntax)) return UNSUPPORTED;
+            }
+        }
+
+        String[] literalArray = literals.toArray(new String[0]);
+        String[] variableArray = variables.toArray(new String[0]);
+        boolean[] escapedArray = new boolean[escaped.size()];
+        for (int i = 0; i < escapedArray.length; i++) {
+            escapedArray[i] = escaped.get(i);
+        }
+
+        Map<String, Object> probe = new HashMap<>();
+        for (String variable : variableArray) {
+            probe.put(variable, variable + PROBE);
+        }
+        String expected;
+        try {
+            expected = templateEngine.process(template, new Context(Locale.getDefault(), probe));
+        } catch (RuntimeException e) {
+            return UNSUPPORTED;
+        }
+
+        for (UnaryOperator<String> escaper : ESCAPERS) {
+            SimpleTemplate candidate = new SimpleTemplate(literalArray, variableArray, escapedArray, escaper);
+            if (expected.equals(candidate.render(probe))) return candidate;
+        }
+        return UNSUPPORTED;
+    }
+
+    /**
+     * @return the rendered template, or null when a variable is missing or not a string and the engine has to render it
+     */
+    String render(Map<String, Object> params) {
+        StringBuilder result = new StringBuilder(literals[0].length() * 2);
+        result.append(literals[0]);
+        for (int i = 0; i < variables.length; i++) {
+            Object value = params.get(variables[i]);
+            if (!(value instanceof String)) return null;
+
+            result.append(escaped[i] ? escaper.apply((String) value) : (String) value);
+            result.append(literals[i + 1]);
+        }
+        return result.toString();
+    }
+
+    boolean isSupported() {
+        return this != UNSUPPORTED;
+    }
+
+    private static String escape(String text, String quote, String apostrophe) {
+        StringBuilder result = null;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            String replacement;
+            switch (c) {
+                case '&':
+                    replacement = "&amp;";
+                    break;
+                case '<':
+                    replacement = "&lt;";
+                    break;
+                case '>':
+                    replacement = "&gt;";
+                    break;
+                case '"':
+                    replacement = quote;
+                    break;
+                case '\'':
+                    replacement = apostrophe;
+                    break;
+                default:
+                    replacement = null;
+            }
+            if (replacement == null) {
+                if (result != null) result.append(c);
+                continue;
+            }
+            if (result == null) {
+                result = new StringBuilder(text.length() + 16);
+                result.append(text, 0, i);
+            }
+            result.append(replacement);
+        }
+        return result == null ? text : result.toString();
+    }
+}
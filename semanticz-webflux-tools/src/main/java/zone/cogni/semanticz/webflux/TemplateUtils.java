@@ -11,13 +11,19 @@ import org.thymeleaf.context.Context;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.Locale;
 import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class TemplateUtils {
 
     private static final PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
 
+    private static final int MAX_SIMPLE_TEMPLATES = 1_000;
+    private static final Map<TemplateEngine, Map<String, SimpleTemplate>> simpleTemplates = Collections.synchronizedMap(new WeakHashMap<>());
+
     public static String toString(InputStreamSource resource) {
         return toString(resource, StandardCharsets.UTF_8.name());
     }
@@ -30,10 +36,33 @@ public class TemplateUtils {
         }
     }
 
+    /**
+     * Processes the template with the given parameters. Templates that only inline plain variables, such as
+     * {@code [[${uri}]]} or {@code [(${uri})]}, are rendered by splicing the string values between the literal parts,
+     * once the engine has been checked to produce the same output for that template. Anything else, or non-string
+     * values, go through the engine.
+     */
     public static String process(TemplateEngine templateEngine, String template, Map<String, Object> params) {
+        if (template != null && params != null) {
+            SimpleTemplate simpleTemplate = simpleTemplate(templateEngine, template);
+            String result = simpleTemplate.isSupported() ? simpleTemplate.render(params) : null;
+            if (result != null) return result;
+        }
         return templateEngine.process(template, new Context(Locale.getDefault(), params));
     }
 
+    private static SimpleTemplate simpleTemplate(TemplateEngine templateEngine, String template) {
+        Map<String, SimpleTemplate> templates = simpleTemplates.computeIfAbsent(templateEngine, engine -> new ConcurrentHashMap<>());
+        SimpleTemplate simpleTemplate = templates.get(template);
+        if (simpleTemplate != null) return simpleTemplate;
+        // templates built on the fly would fill the cache, past the limit new templates always use the engine
+        if (templates.size() >= MAX_SIMPLE_TEMPLATES) return SimpleTemplate.UNSUPPORTED;
+
+        simpleTemplate = SimpleTemplate.compile(templateEngine, template);
+        templates.put(template, simpleTemplate);
+        return simpleTemplate;
+    }
+
     public static String process(TemplateEngine templateEngine, Resource template, Map<String, Object> params) {
         return process(templateEngine, toString(template), params);
     }
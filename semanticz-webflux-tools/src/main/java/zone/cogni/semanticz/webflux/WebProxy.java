@@ -1,65 +1,113 @@
 package zone.cogni.semanticz.webflux;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import io.netty.channel.ChannelOption;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslContextBuilder;
 import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
 import io.netty.handler.timeout.ReadTimeoutHandler;
+import io.netty.handler.timeout.WriteTimeoutHandler;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.BodyExtractors;
 import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 import javax.net.ssl.SSLException;
 import java.net.URI;
+import java.time.Duration;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
 
-public class WebProxy {
+public class WebProxy implements AutoCloseable {
 
     private static final Logger log = LoggerFactory.getLogger(WebProxy.class);
 
+    private static final int MAX_IN_MEMORY_SIZE = 16 * 1024 * 1024;
+
+    private final WebProxyConfig config;
     private String url;
     private String username;
-    private String password;
     private String endpoint;
-    private Integer readTimeout;
-    private Integer connectTimeout;
 
     private WebClient webClient;
+    private final ConnectionProvider connectionProvider;
+    private volatile boolean closed;
+    private final ResponseCache responseCache;
+    private final RequestCoalescer requestCoalescer;
+    private final RequestHedger requestHedger;
+    private final CircuitBreaker circuitBreaker;
 
     public WebProxy(String url, String username, String password, String endpoint, Integer readTimeout, Integer connectTimeout) throws SSLException {
-        this.url = url;
-        this.username = username;
-        this.password = password;
-        this.endpoint = endpoint;
-        this.readTimeout = readTimeout;
-        this.connectTimeout = connectTimeout;
+        this(config(url, username, password, endpoint, readTimeout, connectTimeout));
+    }
+
+    public WebProxy(WebProxyConfig config) throws SSLException {
+        this.config = config;
+        this.url = config.getUrl();
+        this.username = config.getUsername();
+        this.endpoint = config.getEndpoint();
+        this.responseCache = config.getResponseCache() != null ? new ResponseCache(config.getResponseCache()) : null;
+        this.requestCoalescer = config.isCoalesceRequests() ? new RequestCoalescer(config.getCoalescedPostPaths()) : null;
+        this.requestHedger = config.getHedge() != null ? new RequestHedger(config.getHedge()) : null;
+        this.circuitBreaker = config.getCircuitBreaker() != null ? new CircuitBreaker(config.getCircuitBreaker(), config.getUrl()) : null;
+        this.connectionProvider = createConnectionProvider();
         this.webClient = createWebClient();
     }
 
+    private static WebProxyConfig config(String url, String username, String password, String endpoint, Integer readTimeout, Integer connectTimeout) {
+        WebProxyConfig config = new WebProxyConfig();
+        config.setUrl(url);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setEndpoint(endpoint);
+        if (readTimeout != null) config.setReadTimeout(Duration.ofMillis(readTimeout));
+        if (connectTimeout != null) config.setConnectTimeout(Duration.ofMillis(connectTimeout));
+        return config;
+    }
+
     public WebClient createWebClient() throws SSLException {
         SslContext sslContext = SslContextBuilder.forClient()
                                                  .trustManager(InsecureTrustManagerFactory.INSTANCE)
                                                  .build();
 
-        HttpClient httpClient = HttpClient.create().secure(t -> t.sslContext(sslContext));
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                                          .secure(t -> t.sslContext(sslContext))
+                                          .option(ChannelOption.SO_KEEPALIVE, config.isTcpKeepAlive());
 
-        if (connectTimeout != null) {
-            httpClient.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeout);
+        // HttpClient is immutable, every option returns a new client
+        if (config.getConnectTimeout() != null) {
+            httpClient = httpClient.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) config.getConnectTimeout().toMillis());
+        }
+        if (config.getReadTimeout() != null) {
+            // added per request, reactor netty removes it when the connection goes back to the pool
+            long readTimeoutMillis = config.getReadTimeout().toMillis();
+            httpClient = httpClient.doOnRequest((request, conn) -> conn
+                    .addHandlerLast("readTimeout", new ReadTimeoutHandler(readTimeoutMillis, TimeUnit.MILLISECONDS)));
         }
-        if (readTimeout != null) {
-            httpClient.doOnConnected(conn -> conn
-                    .addHandlerLast(new ReadTimeoutHandler(readTimeout, TimeUnit.MILLISECONDS)));
+        if (config.getWriteTimeout() != null) {
+            long writeTimeoutMillis = config.getWriteTimeout().toMillis();
+            httpClient = httpClient.doOnConnected(conn -> conn
+                    .addHandlerLast(new WriteTimeoutHandler(writeTimeoutMillis, TimeUnit.MILLISECONDS)));
+        }
+        if (WebUtils.isWiretapEnabled()) {
+            httpClient = WebUtils.wiretap(httpClient);
         }
 
         webClient = WebUtils
-                .createWebClient(true, username, password)
+                .createWebClient(true, username, config.getPassword())
                 .mutate()
                 .clientConnector(new ReactorClientHttpConnector(httpClient))
                 .build();
@@ -71,32 +119,218 @@ public class WebProxy {
         return webClient;
     }
 
+    private ConnectionProvider createConnectionProvider() {
+        ConnectionProvider.Builder builder = ConnectionProvider.builder(config.getPoolName())
+                                                               .maxConnections(config.getMaxConnections())
+                                                               .pendingAcquireMaxCount(config.getPendingAcquireMaxCount())
+                                                               .pendingAcquireTimeout(config.getPendingAcquireTimeout());
+        if (config.getMaxIdleTime() != null) builder = builder.maxIdleTime(config.getMaxIdleTime());
+        if (config.getMaxLifeTime() != null) builder = builder.maxLifeTime(config.getMaxLifeTime());
+        if (config.getEvictionInterval() != null) builder = builder.evictInBackground(config.getEvictionInterval());
+        return builder.build();
+    }
+
+    /**
+     * Closes the pooled connections of this proxy. Requests sent afterwards fail with an {@link IllegalStateException}.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        connectionProvider.dispose();
+    }
+
+    public WebProxyConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * @return the counters of the response cache, or null when no response cache is configured
+     */
+    public ResponseCacheStats getResponseCacheStats() {
+        return responseCache != null ? responseCache.stats() : null;
+    }
+
+    /**
+     * Drops all cached responses, e.g. after the proxied indices were rebuilt.
+     */
+    public void clearResponseCache() {
+        if (responseCache != null) responseCache.clear();
+    }
+
+    /**
+     * @return the number of requests that shared the backend exchange of an identical concurrent request
+     */
+    public long getCoalescedRequestCount() {
+        return requestCoalescer != null ? requestCoalescer.getCoalescedCount() : 0;
+    }
+
+    /**
+     * @return the number of duplicate requests sent because the first attempt was slow
+     */
+    public long getHedgedRequestCount() {
+        return requestHedger != null ? requestHedger.getHedgedCount() : 0;
+    }
+
+    /**
+     * @return whether requests currently fail fast with a {@link CircuitOpenException}
+     */
+    public boolean isCircuitOpen() {
+        return circuitBreaker != null && circuitBreaker.isOpen();
+    }
+
     public String proxy(String requestPath, HttpMethod method, String accept, String contentType, String body) {
         return proxyResponse(requestPath, method, accept, contentType, body).getBody();
     }
 
     public ResponseEntity<String> proxyResponse(String requestPath, HttpMethod method, String accept, String contentType, String body) {
+        ResponseCacheRule cacheRule = cacheRule(requestPath, method);
+        if (cacheRule != null || isCoalesced(requestPath, method) || isHedged(requestPath, method)) {
+            ResponseCache.CachedResponse response = bufferedExchange(cacheRule, requestPath, method, accept, contentType, body);
+            return ResponseEntity.status(response.getStatus())
+                                 .headers(response.getHeaders())
+                                 .body(response.getBodyAsString());
+        }
+
+        return protect(request(requestPath, method, accept, contentType, body)
+                               .exchangeToMono(response -> processResponse(response)), ResponseEntity::getStatusCodeValue)
+                .block();
+    }
+
+    /**
+     * Proxies the request and decodes a successful response body directly into a {@link JsonNode}, using a shared
+     * mapper and without building an intermediate String. Error responses are returned without body.
+     */
+    public ResponseEntity<JsonNode> proxyJson(String requestPath, HttpMethod method, String accept, String contentType, String body) {
+        return proxyJson(requestPath, method, accept, contentType, body, false);
+    }
+
+    /**
+     * Same as {@link #proxyJson(String, HttpMethod, String, String, String)}. In streaming mode the response is
+     * parsed buffer by buffer as it arrives, instead of being joined first, which suits large aggregation responses
+     * and is not subject to the in-memory codec limit. Cached, coalesced and hedged responses are always read in full
+     * first.
+     *
+     * @param streaming whether to parse the response incrementally
+     */
+    public ResponseEntity<JsonNode> proxyJson(String requestPath, HttpMethod method, String accept, String contentType, String body,
+                                              boolean streaming) {
+        ResponseCacheRule cacheRule = cacheRule(requestPath, method);
+        if (cacheRule != null || isCoalesced(requestPath, method) || isHedged(requestPath, method)) {
+            ResponseCache.CachedResponse response = bufferedExchange(cacheRule, requestPath, method, accept, contentType, body);
+            return ResponseEntity.status(response.getStatus())
+                                 .headers(response.getHeaders())
+                                 .body(response.isSuccessful() ? JsonBodyDecoder.decode(response.getBody()) : null);
+        }
+
+        return protect(request(requestPath, method, accept, contentType, body)
+                               .exchangeToMono(response -> processJsonResponse(response, streaming)), ResponseEntity::getStatusCodeValue)
+                .block();
+    }
+
+    private ResponseCacheRule cacheRule(String requestPath, HttpMethod method) {
+        return responseCache != null ? responseCache.ruleFor(method, requestPath) : null;
+    }
+
+    private boolean isCoalesced(String requestPath, HttpMethod method) {
+        return requestCoalescer != null && requestCoalescer.applies(method, requestPath);
+    }
+
+    private boolean isHedged(String requestPath, HttpMethod method) {
+        return requestHedger != null && requestHedger.applies(method, requestPath);
+    }
+
+    private <T> Mono<T> protect(Mono<T> exchange, ToIntFunction<T> status) {
+        return circuitBreaker != null ? circuitBreaker.protect(exchange, status) : exchange;
+    }
+
+    private ResponseCache.CachedResponse bufferedExchange(ResponseCacheRule cacheRule, String requestPath, HttpMethod method,
+                                                          String accept, String contentType, String body) {
+        return cacheRule != null
+                ? cachedExchange(cacheRule, requestPath, method, accept, contentType, body)
+                : fetch(requestPath, method, accept, contentType, body, null);
+    }
+
+    /**
+     * Serves the request from the response cache when fresh, revalidates an expired entry that has an ETag, and
+     * otherwise fetches the response and caches it when successful.
+     */
+    private ResponseCache.CachedResponse cachedExchange(ResponseCacheRule cacheRule, String requestPath, HttpMethod method,
+                                                        String accept, String contentType, String body) {
+        String key = ResponseCache.key(method, requestPath, accept, body);
+        ResponseCache.Entry entry = responseCache.get(key);
+        if (entry != null && entry.isFresh()) {
+            responseCache.recordHit();
+            return entry.getResponse();
+        }
+
+        String etag = entry != null ? entry.getResponse().getETag() : null;
+        ResponseCache.CachedResponse response = fetch(requestPath, method, accept, contentType, body, etag);
+        if (etag != null && response.getStatus() == HttpStatus.NOT_MODIFIED.value()) {
+            responseCache.revalidated(key, entry, cacheRule.getTtl());
+            return entry.getResponse();
+        }
+
+        responseCache.recordMiss();
+        if (response.isSuccessful()) {
+            responseCache.put(key, response, cacheRule.getTtl());
+        }
+        return response;
+    }
+
+    /**
+     * Reads the whole response, hedging slow attempts and sharing the exchange with identical concurrent requests
+     * when configured.
+     */
+    private ResponseCache.CachedResponse fetch(String requestPath, HttpMethod method, String accept, String contentType, String body,
+                                               String ifNoneMatch) {
+        Supplier<Mono<ResponseCache.CachedResponse>> attempt = () -> {
+            WebClient.RequestHeadersSpec<?> request = request(requestPath, method, accept, contentType, body);
+            if (ifNoneMatch != null) {
+                request = request.header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+            }
+            return protect(request.exchangeToMono(ResponseCache::read), ResponseCache.CachedResponse::getStatus);
+        };
+        Supplier<Mono<ResponseCache.CachedResponse>> exchange = isHedged(requestPath, method)
+                ? () -> requestHedger.hedge(attempt)
+                : attempt;
+        if (!isCoalesced(requestPath, method)) return exchange.get().block();
+
+        String key = RequestCoalescer.key(method, requestPath, accept, contentType, body, ifNoneMatch);
+        return requestCoalescer.execute(key, exchange);
+    }
+
+    private WebClient.RequestHeadersSpec<?> request(String requestPath, HttpMethod method, String accept, String contentType, String body) {
+        if (closed) {
+            throw new IllegalStateException("Web proxy for " + url + " is closed");
+        }
         final String uri = StringUtils.removeEnd(url, "/") + endpoint + requestPath;
 
         WebClient.RequestBodySpec request = webClient
                 .method(method)
                 .uri(URI.create(uri));
 
-        if(accept != null) {
+        if (accept != null) {
             request = request.headers(httpHeaders -> httpHeaders.set("Accept", accept));
         }
-        if(contentType != null) {
+        if (contentType != null) {
             request = request.headers(httpHeaders -> httpHeaders.set("Content-Type", contentType));
         }
-        if (body != null) {
-            return request.bodyValue(body)
-                          .exchangeToMono(response -> processResponse(response))
-                          .block();
+        return body != null ? request.bodyValue(body) : request;
+    }
+
+    private Mono<ResponseEntity<JsonNode>> processJsonResponse(ClientResponse response, boolean streaming) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(response.rawStatusCode())
+                                                           .headers(response.headers().asHttpHeaders());
+        if (!response.statusCode().is2xxSuccessful()) {
+            return response.releaseBody().then(Mono.fromCallable(() -> builder.<JsonNode>body(null)));
         }
 
-        return request
-                .exchangeToMono(response -> processResponse(response))
-                .block();
+        Flux<DataBuffer> buffers = response.body(BodyExtractors.toDataBuffers());
+        Mono<JsonNode> tree = streaming
+                ? JsonBodyDecoder.decodeStreaming(buffers)
+                : JsonBodyDecoder.decode(buffers, MAX_IN_MEMORY_SIZE);
+        return tree.map(builder::body)
+                   .switchIfEmpty(Mono.fromCallable(() -> builder.<JsonNode>body(null)));
     }
 
     private Mono<ResponseEntity<String>> processResponse(ClientResponse response) {
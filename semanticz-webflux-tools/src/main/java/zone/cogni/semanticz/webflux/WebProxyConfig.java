@@ -0,0 +1,270 @@
+package zone.cogni.semanticz.webflux;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Configuration of a {@link WebProxy}: target, credentials, timeouts, the connection pool and the
+ * optional response cache, request coalescing, hedging and circuit breaker.
+ * Unset timeouts are not applied; pool settings default to values suited for many short requests to one host.
+ */
+public class WebProxyConfig {
+
+    private String url;
+    private String username;
+    private String password;
+    private String endpoint;
+
+    private Duration connectTimeout;
+    private Duration readTimeout;
+    private Duration writeTimeout;
+
+    private String poolName = "web-proxy";
+    private int maxConnections = 500;
+    private int pendingAcquireMaxCount = 10_000;
+    private Duration pendingAcquireTimeout = Duration.ofSeconds(45);
+    private Duration maxIdleTime = Duration.ofSeconds(30);
+    private Duration maxLifeTime;
+    private Duration evictionInterval = Duration.ofSeconds(30);
+    private boolean tcpKeepAlive = true;
+
+    private ResponseCacheConfig responseCache;
+    private boolean coalesceRequests;
+    private List<String> coalescedPostPaths = List.of();
+    private HedgeConfig hedge;
+    private CircuitBreakerConfig circuitBreaker;
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    /**
+     * @return the path appended to the url before the request path of every call
+     */
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public void setEndpoint(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * @return the maximum time to establish a connection, or null for the Netty default
+     */
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(Duration connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    /**
+     * @return the maximum time without receiving data while waiting for and reading a response, or null for no limit
+     */
+    public Duration getReadTimeout() {
+        return readTimeout;
+    }
+
+    public void setReadTimeout(Duration readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    /**
+     * @return the maximum time a write to the connection may take, or null for no limit
+     */
+    public Duration getWriteTimeout() {
+        return writeTimeout;
+    }
+
+    public void setWriteTimeout(Duration writeTimeout) {
+        this.writeTimeout = writeTimeout;
+    }
+
+    public String getPoolName() {
+        return poolName;
+    }
+
+    public void setPoolName(String poolName) {
+        this.poolName = poolName;
+    }
+
+    /**
+     * @return the maximum number of open connections of the pool
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    /**
+     * @return the maximum number of requests waiting for a connection, -1 for no limit
+     */
+    public int getPendingAcquireMaxCount() {
+        return pendingAcquireMaxCount;
+    }
+
+    public void setPendingAcquireMaxCount(int pendingAcquireMaxCount) {
+        this.pendingAcquireMaxCount = pendingAcquireMaxCount;
+    }
+
+    /**
+     * @return the maximum time a request waits for a connection before failing
+     */
+    public Duration getPendingAcquireTimeout() {
+        return pendingAcquireTimeout;
+    }
+
+    public void setPendingAcquireTimeout(Duration pendingAcquireTimeout) {
+        this.pendingAcquireTimeout = pendingAcquireTimeout;
+    }
+
+    /**
+     * @return how long a connection may stay idle in the pool, or null to keep it until the server closes it
+     */
+    public Duration getMaxIdleTime() {
+        return maxIdleTime;
+    }
+
+    public void setMaxIdleTime(Duration maxIdleTime) {
+        this.maxIdleTime = maxIdleTime;
+    }
+
+    /**
+     * @return the maximum age of a connection, or null for no limit
+     */
+    public Duration getMaxLifeTime() {
+        return maxLifeTime;
+    }
+
+    public void setMaxLifeTime(Duration maxLifeTime) {
+        this.maxLifeTime = maxLifeTime;
+    }
+
+    /**
+     * @return how often idle and expired connections are evicted in the background, or null to only check on acquire
+     */
+    public Duration getEvictionInterval() {
+        return evictionInterval;
+    }
+
+    public void setEvictionInterval(Duration evictionInterval) {
+        this.evictionInterval = evictionInterval;
+    }
+
+    /**
+     * @return whether TCP keep-alive probes are enabled on the connections
+     */
+    public boolean isTcpKeepAlive() {
+        return tcpKeepAlive;
+    }
+
+    public void setTcpKeepAlive(boolean tcpKeepAlive) {
+        this.tcpKeepAlive = tcpKeepAlive;
+    }
+
+    /**
+     * @return the response cache configuration, or null to proxy every request to the backend
+     */
+    public ResponseCacheConfig getResponseCache() {
+        return responseCache;
+    }
+
+    public void setResponseCache(ResponseCacheConfig responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    /**
+     * @return whether concurrent identical GET requests, and POST requests to the coalesced post paths,
+     * share one backend exchange
+     */
+    public boolean isCoalesceRequests() {
+        return coalesceRequests;
+    }
+
+    public void setCoalesceRequests(boolean coalesceRequests) {
+        this.coalesceRequests = coalesceRequests;
+    }
+
+    /**
+     * @return the Ant-style path patterns of POST requests that are idempotent and may be coalesced, e.g. searches
+     */
+    public List<String> getCoalescedPostPaths() {
+        return coalescedPostPaths;
+    }
+
+    public void setCoalescedPostPaths(List<String> coalescedPostPaths) {
+        this.coalescedPostPaths = coalescedPostPaths;
+    }
+
+    /**
+     * @return the configuration of hedged requests, or null to never send duplicates
+     */
+    public HedgeConfig getHedge() {
+        return hedge;
+    }
+
+    public void setHedge(HedgeConfig hedge) {
+        this.hedge = hedge;
+    }
+
+    /**
+     * @return the circuit breaker configuration, or null to always send requests to the backend
+     */
+    public CircuitBreakerConfig getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public void setCircuitBreaker(CircuitBreakerConfig circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    @Override
+    public String toString() {
+        return "WebProxyConfig{" +
+                "url='" + url + '\'' +
+                ", username='" + username + '\'' +
+                ", endpoint='" + endpoint + '\'' +
+                ", connectTimeout=" + connectTimeout +
+                ", readTimeout=" + readTimeout +
+                ", writeTimeout=" + writeTimeout +
+                ", poolName='" + poolName + '\'' +
+                ", maxConnections=" + maxConnections +
+                ", pendingAcquireMaxCount=" + pendingAcquireMaxCount +
+                ", pendingAcquireTimeout=" + pendingAcquireTimeout +
+                ", maxIdleTime=" + maxIdleTime +
+                ", maxLifeTime=" + maxLifeTime +
+                ", evictionInterval=" + evictionInterval +
+                ", tcpKeepAlive=" + tcpKeepAlive +
+                ", responseCache=" + responseCache +
+                ", coalesceRequests=" + coalesceRequests +
+                ", coalescedPostPaths=" + coalescedPostPaths +
+                ", hedge=" + hedge +
+                ", circuitBreaker=" + circuitBreaker +
+                '}';
+    }
+}
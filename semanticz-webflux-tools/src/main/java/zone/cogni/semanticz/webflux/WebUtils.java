@@ -12,6 +12,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.codec.StringDecoder;
+import org.springframework.http.MediaType;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
 import org.springframework.web.reactive.function.client.ExchangeStrategies;
@@ -24,6 +25,14 @@ public class WebUtils {
 
     private static final Logger log = LoggerFactory.getLogger(WebUtils.class);
 
+    private static final String WIRETAP_CATEGORY = HttpClient.class.getCanonicalName();
+
+    /**
+     * Charset of text responses without a charset in their content type. UTF-8 like JSON, rather than the platform
+     * default, so responses decode the same on every host.
+     */
+    static final Charset DEFAULT_RESPONSE_CHARSET = StandardCharsets.UTF_8;
+
     private static ExchangeFilterFunction logRequest() {
         return ExchangeFilterFunction.ofRequestProcessor(clientRequest -> {
             if (log.isDebugEnabled()) {
@@ -56,31 +65,60 @@ public class WebUtils {
         });
     }
 
+    /**
+     * @return true when the wire level logger is at trace level, checked when a client is created
+     */
+    static boolean isWiretapEnabled() {
+        return LoggerFactory.getLogger(WIRETAP_CATEGORY).isTraceEnabled();
+    }
+
+    /**
+     * Logs every byte sent and received. Installed only when trace logging is enabled when the client is created,
+     * as the wiretap handler formats every buffer even when nothing is logged.
+     */
+    static HttpClient wiretap(HttpClient httpClient) {
+        return httpClient.wiretap(WIRETAP_CATEGORY, LogLevel.TRACE, AdvancedByteBufFormat.TEXTUAL, StandardCharsets.UTF_8);
+    }
+
     private static HttpClient createWebClient(boolean followRedirects) {
-        return HttpClient
+        HttpClient httpClient = HttpClient
                 .create()
                 .followRedirect(followRedirects)
-                .proxyWithSystemProperties()
-                .wiretap(HttpClient.class.getCanonicalName(), LogLevel.TRACE, AdvancedByteBufFormat.TEXTUAL,
-                        StandardCharsets.UTF_8);
+                .proxyWithSystemProperties();
+        return isWiretapEnabled() ? wiretap(httpClient) : httpClient;
+    }
+
+    /**
+     * Returns the charset to decode a text response with: the charset of its content type, otherwise the same
+     * default as the string decoder of the web clients created here.
+     */
+    static Charset responseCharset(MediaType contentType) {
+        return contentType != null && contentType.getCharset() != null ? contentType.getCharset() : DEFAULT_RESPONSE_CHARSET;
     }
 
+    /**
+     * Creates a web client. Request and response logging filters are only installed when debug logging
+     * is enabled at creation time, so a client created with logging disabled has no logging overhead.
+     */
     public static WebClient createWebClient(boolean restProxy, String username, String password)
             throws SSLException {
+        boolean debug = log.isDebugEnabled();
         final WebClient.Builder webClient = WebClient.builder()
                 .filters(exchangeFilterFunctions -> {
-                    exchangeFilterFunctions.add(logRequest());
-                    exchangeFilterFunctions.add(logResponse());
+                    if (debug) {
+                        exchangeFilterFunctions.add(logRequest());
+                        exchangeFilterFunctions.add(logResponse());
+                    }
                 })
                 .codecs(configurer -> {
                     configurer.defaultCodecs().maxInMemorySize(16 * 1024 * 1024);
                     StringDecoder decoder = StringDecoder.allMimeTypes();
-                    decoder.setDefaultCharset(Charset.defaultCharset());
+                    decoder.setDefaultCharset(DEFAULT_RESPONSE_CHARSET);
                     configurer.customCodecs().registerWithDefaultConfig(decoder);
                 })
                 .clientConnector(new ReactorClientHttpConnector(createWebClient(true)))
                 .exchangeStrategies(ExchangeStrategies.builder().codecs(c ->
-                        c.defaultCodecs().enableLoggingRequestDetails(true)).build());
+                        c.defaultCodecs().enableLoggingRequestDetails(debug)).build());
 
         if (restProxy) {
             if (StringUtils.isNoneBlank(username, password)) {
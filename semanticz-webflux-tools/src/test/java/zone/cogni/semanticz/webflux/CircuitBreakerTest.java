@@ -0,0 +1,89 @@
+package zone.cogni.semanticz.webflux;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CircuitBreakerTest {
+
+    private static CircuitBreaker circuitBreaker(Duration openDuration) {
+        CircuitBreakerConfig config = new CircuitBreakerConfig();
+        config.setWindowSize(10);
+        config.setMinimumRequests(4);
+        config.setFailureRateThreshold(0.5);
+        config.setOpenDuration(openDuration);
+        return new CircuitBreaker(config, "test");
+    }
+
+    private static Integer send(CircuitBreaker circuitBreaker, int status) {
+        return circuitBreaker.protect(Mono.just(status), Integer::intValue).block();
+    }
+
+    @Test
+    public void testProtect_opensWhenFailureRateReachesThreshold() {
+        // Arrange
+        CircuitBreaker circuitBreaker = circuitBreaker(Duration.ofMinutes(1));
+        send(circuitBreaker, 200);
+        send(circuitBreaker, 503);
+        send(circuitBreaker, 404);
+        assertFalse(circuitBreaker.isOpen());
+
+        // Act
+        send(circuitBreaker, 503);
+
+        // Assert
+        assertTrue(circuitBreaker.isOpen());
+        assertThrows(CircuitOpenException.class, () -> send(circuitBreaker, 200));
+        assertEquals(1, circuitBreaker.getRejectedCount());
+    }
+
+    @Test
+    public void testProtect_errorsCountAsFailures() {
+        // Arrange
+        CircuitBreaker circuitBreaker = circuitBreaker(Duration.ofMinutes(1));
+
+        // Act
+        for (int i = 0; i < 4; i++) {
+            Mono<Integer> failing = circuitBreaker.protect(Mono.error(new IllegalStateException("timeout")), Integer::intValue);
+            assertThrows(IllegalStateException.class, failing::block);
+        }
+
+        // Assert
+        assertTrue(circuitBreaker.isOpen());
+    }
+
+    @Test
+    public void testProtect_successfulTrialClosesCircuit() {
+        // Arrange
+        CircuitBreaker circuitBreaker = circuitBreaker(Duration.ZERO);
+        for (int i = 0; i < 4; i++) {
+            send(circuitBreaker, 500);
+        }
+        assertTrue(circuitBreaker.isOpen());
+
+        // Act
+        Integer status = send(circuitBreaker, 200);
+
+        // Assert
+        assertEquals(200, status);
+        assertFalse(circuitBreaker.isOpen());
+    }
+
+    @Test
+    public void testProtect_failedTrialReopensCircuit() {
+        // Arrange
+        CircuitBreaker circuitBreaker = circuitBreaker(Duration.ZERO);
+        for (int i = 0; i < 4; i++) {
+            send(circuitBreaker, 500);
+        }
+
+        // Act
+        send(circuitBreaker, 502);
+
+        // Assert
+        assertTrue(circuitBreaker.isOpen());
+    }
+}
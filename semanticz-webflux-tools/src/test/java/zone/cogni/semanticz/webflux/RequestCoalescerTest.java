@@ -0,0 +1,113 @@
+package zone.cogni.semanticz.webflux;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RequestCoalescerTest {
+
+    private static final String KEY = RequestCoalescer.key(HttpMethod.GET, "/index/_doc/1", "application/json", null, null, null);
+
+    @Test
+    public void testApplies_getAlwaysPostOnlyForConfiguredPaths() {
+        // Arrange
+        RequestCoalescer coalescer = new RequestCoalescer(List.of("/**/_search"));
+
+        // Act & Assert
+        assertTrue(coalescer.applies(HttpMethod.GET, "/index/_doc/1"));
+        assertTrue(coalescer.applies(HttpMethod.POST, "/index/_search?size=0"));
+        assertFalse(coalescer.applies(HttpMethod.POST, "/index/_bulk"));
+        assertFalse(coalescer.applies(HttpMethod.PUT, "/index/_doc/1"));
+    }
+
+    @Test
+    public void testExecute_concurrentCallsShareOneExchange() throws Exception {
+        // Arrange
+        RequestCoalescer coalescer = new RequestCoalescer(List.of());
+        Sinks.One<ResponseCache.CachedResponse> backend = Sinks.one();
+        CountDownLatch subscribed = new CountDownLatch(1);
+        AtomicInteger exchanges = new AtomicInteger();
+        ResponseCache.CachedResponse expected = new ResponseCache.CachedResponse(200, new HttpHeaders(), new byte[]{1});
+
+        CompletableFuture<ResponseCache.CachedResponse> first = CompletableFuture.supplyAsync(() -> coalescer.execute(KEY, () -> {
+            exchanges.incrementAndGet();
+            return Mono.defer(() -> {
+                subscribed.countDown();
+                return backend.asMono();
+            });
+        }));
+        assertTrue(subscribed.await(5, TimeUnit.SECONDS));
+
+        // Act
+        CompletableFuture<ResponseCache.CachedResponse> second = CompletableFuture.supplyAsync(() -> coalescer.execute(KEY, () -> {
+            exchanges.incrementAndGet();
+            return Mono.just(new ResponseCache.CachedResponse(500, new HttpHeaders(), new byte[0]));
+        }));
+        while (coalescer.getCoalescedCount() == 0) {
+            Thread.sleep(1);
+        }
+        backend.tryEmitValue(expected);
+
+        // Assert
+        assertSame(expected, first.get(5, TimeUnit.SECONDS));
+        assertSame(expected, second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, exchanges.get());
+    }
+
+    @Test
+    public void testExecute_errorPropagatesToAllCallers() throws Exception {
+        // Arrange
+        RequestCoalescer coalescer = new RequestCoalescer(List.of());
+        Sinks.One<ResponseCache.CachedResponse> backend = Sinks.one();
+        CountDownLatch subscribed = new CountDownLatch(1);
+
+        CompletableFuture<ResponseCache.CachedResponse> first = CompletableFuture.supplyAsync(() -> coalescer.execute(KEY, () -> Mono.defer(() -> {
+            subscribed.countDown();
+            return backend.asMono();
+        })));
+        assertTrue(subscribed.await(5, TimeUnit.SECONDS));
+        CompletableFuture<ResponseCache.CachedResponse> second = CompletableFuture.supplyAsync(() -> coalescer.execute(KEY, Mono::empty));
+        while (coalescer.getCoalescedCount() == 0) {
+            Thread.sleep(1);
+        }
+
+        // Act
+        backend.tryEmitError(new IllegalStateException("backend down"));
+
+        // Assert
+        ExecutionException firstFailure = assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+        ExecutionException secondFailure = assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS));
+        assertEquals("backend down", firstFailure.getCause().getMessage());
+        assertEquals("backend down", secondFailure.getCause().getMessage());
+    }
+
+    @Test
+    public void testExecute_completedExchangeIsNotReused() {
+        // Arrange
+        RequestCoalescer coalescer = new RequestCoalescer(List.of());
+        AtomicInteger exchanges = new AtomicInteger();
+
+        // Act
+        for (int i = 0; i < 3; i++) {
+            coalescer.execute(KEY, () -> Mono.fromCallable(() -> {
+                exchanges.incrementAndGet();
+                return new ResponseCache.CachedResponse(200, new HttpHeaders(), new byte[0]);
+            }));
+        }
+
+        // Assert
+        assertEquals(3, exchanges.get());
+        assertEquals(0, coalescer.getCoalescedCount());
+    }
+}
@@ -0,0 +1,110 @@
+package zone.cogni.semanticz.webflux;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RequestHedgerTest {
+
+    private static RequestHedger hedger(int minSamples) {
+        HedgeConfig config = new HedgeConfig();
+        config.setPercentile(0.5);
+        config.setMinDelay(Duration.ZERO);
+        config.setMinSamples(minSamples);
+        return new RequestHedger(config);
+    }
+
+    @Test
+    public void testDelayNanos_usesPercentileOfRecordedLatencies() {
+        // Arrange
+        RequestHedger hedger = hedger(4);
+        hedger.record(40);
+        hedger.record(10);
+        hedger.record(30);
+        assertEquals(-1, hedger.delayNanos());
+
+        // Act
+        hedger.record(20);
+
+        // Assert
+        assertEquals(20, hedger.delayNanos());
+    }
+
+    @Test
+    public void testHedge_slowAttemptIsOvertakenByDuplicate() {
+        // Arrange
+        RequestHedger hedger = hedger(1);
+        hedger.record(Duration.ofMillis(10).toNanos());
+        AtomicInteger attempts = new AtomicInteger();
+
+        // Act
+        String result = hedger.hedge(() -> attempts.incrementAndGet() == 1 ? Mono.<String>never() : Mono.just("duplicate"))
+                              .block(Duration.ofSeconds(5));
+
+        // Assert
+        assertEquals("duplicate", result);
+        assertEquals(2, attempts.get());
+        assertEquals(1, hedger.getHedgedCount());
+    }
+
+    @Test
+    public void testHedge_delayStaysAtPercentileOfRealLatencies() {
+        // Arrange
+        HedgeConfig config = new HedgeConfig();
+        config.setPercentile(0.8);
+        config.setMinDelay(Duration.ZERO);
+        config.setSampleSize(20);
+        config.setMinSamples(20);
+        RequestHedger hedger = new RequestHedger(config);
+        // 60% of the requests answer in 2 ms, 20% in 30 ms and 20% in 300 ms; the 80th percentile is 30 ms
+        long[] latencies = {2, 2, 2, 30, 300};
+        int requests = 150;
+
+        // Act
+        for (int i = 0; i < requests; i++) {
+            long latency = latencies[i % latencies.length];
+            AtomicInteger attempts = new AtomicInteger();
+            hedger.hedge(() -> Mono.delay(Duration.ofMillis(attempts.incrementAndGet() == 1 ? latency : 2)).thenReturn("response"))
+                  .block(Duration.ofSeconds(5));
+        }
+
+        // Assert
+        // sampling the fast duplicates of the slow requests would lower the delay to 2 ms and duplicate nearly every request
+        assertTrue(hedger.delayNanos() >= Duration.ofMillis(25).toNanos(), "delay " + hedger.delayNanos());
+        assertTrue(hedger.getHedgedCount() <= requests * 2 / 5, "hedged " + hedger.getHedgedCount());
+    }
+
+    @Test
+    public void testHedge_errorOfFirstAttemptIsReturned() {
+        // Arrange
+        RequestHedger hedger = hedger(1);
+        hedger.record(Duration.ofSeconds(10).toNanos());
+
+        // Act & Assert
+        Mono<String> hedged = hedger.hedge(() -> Mono.error(new IllegalStateException("backend down")));
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> hedged.block(Duration.ofSeconds(5)));
+        assertEquals("backend down", e.getMessage());
+        assertEquals(0, hedger.getHedgedCount());
+    }
+
+    @Test
+    public void testHedge_noDuplicateBeforeEnoughSamples() {
+        // Arrange
+        RequestHedger hedger = hedger(10);
+        AtomicInteger attempts = new AtomicInteger();
+
+        // Act
+        String result = hedger.hedge(() -> {
+            attempts.incrementAndGet();
+            return Mono.just("first");
+        }).block();
+
+        // Assert
+        assertEquals("first", result);
+        assertEquals(1, attempts.get());
+    }
+}
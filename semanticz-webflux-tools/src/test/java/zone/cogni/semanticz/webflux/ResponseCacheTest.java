@@ -0,0 +1,142 @@
+package zone.cogni.semanticz.webflux;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResponseCacheTest {
+
+    private static ResponseCacheConfig config(int maxEntries, long maxBytes) {
+        ResponseCacheRule search = new ResponseCacheRule("/index/_search", Duration.ofMinutes(1));
+        search.setMethods(List.of(HttpMethod.POST));
+        ResponseCacheConfig config = new ResponseCacheConfig();
+        config.setMaxEntries(maxEntries);
+        config.setMaxBytes(maxBytes);
+        config.setRules(List.of(search, new ResponseCacheRule("/index/_doc/**", Duration.ofMinutes(1))));
+        return config;
+    }
+
+    private static ResponseCache.CachedResponse response(String body) {
+        return new ResponseCache.CachedResponse(200, new HttpHeaders(), body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testRuleFor_matchesMethodAndPathIgnoringQuery() {
+        // Arrange
+        ResponseCache cache = new ResponseCache(config(10, 1_000_000));
+
+        // Act & Assert
+        assertNotNull(cache.ruleFor(HttpMethod.POST, "/index/_search?size=0"));
+        assertNull(cache.ruleFor(HttpMethod.GET, "/index/_search"));
+        assertNotNull(cache.ruleFor(HttpMethod.GET, "/index/_doc/123"));
+        assertNull(cache.ruleFor(HttpMethod.GET, "/other/_doc/123"));
+    }
+
+    @Test
+    public void testKey_differsPerBodyAndAccept() {
+        // Act
+        String key = ResponseCache.key(HttpMethod.POST, "/index/_search", "application/json", "{\"size\":1}");
+
+        // Assert
+        assertEquals(key, ResponseCache.key(HttpMethod.POST, "/index/_search", "application/json", "{\"size\":1}"));
+        assertNotEquals(key, ResponseCache.key(HttpMethod.POST, "/index/_search", "application/json", "{\"size\":2}"));
+        assertNotEquals(key, ResponseCache.key(HttpMethod.POST, "/index/_search", "text/plain", "{\"size\":1}"));
+    }
+
+    @Test
+    public void testPut_evictsLeastRecentlyUsedEntry() {
+        // Arrange
+        ResponseCache cache = new ResponseCache(config(2, 1_000_000));
+        Duration ttl = Duration.ofMinutes(1);
+        cache.put("a", response("a"), ttl);
+        cache.put("b", response("b"), ttl);
+        cache.get("a");
+
+        // Act
+        cache.put("c", response("c"), ttl);
+
+        // Assert
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+        assertEquals(1, cache.stats().getEvictions());
+        assertEquals(2, cache.stats().getEntries());
+    }
+
+    @Test
+    public void testPut_evictsWhenByteLimitExceeded() {
+        // Arrange
+        ResponseCache cache = new ResponseCache(config(100, 1_000));
+        Duration ttl = Duration.ofMinutes(1);
+        String body = "x".repeat(400);
+
+        // Act
+        cache.put("a", response(body), ttl);
+        cache.put("b", response(body), ttl);
+        cache.put("c", response("x".repeat(2_000)), ttl);
+
+        // Assert
+        assertNull(cache.get("a"));
+        assertNotNull(cache.get("b"));
+        assertNull(cache.get("c"));
+        assertTrue(cache.stats().getBytes() <= 1_000);
+    }
+
+    @Test
+    public void testPut_noStoreIsNotCached() {
+        // Arrange
+        ResponseCache cache = new ResponseCache(config(10, 1_000_000));
+        HttpHeaders headers = new HttpHeaders();
+        headers.setCacheControl("no-store");
+
+        // Act
+        cache.put("a", new ResponseCache.CachedResponse(200, headers, new byte[0]), Duration.ofMinutes(1));
+
+        // Assert
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    public void testRevalidated_makesExpiredEntryFresh() {
+        // Arrange
+        ResponseCache cache = new ResponseCache(config(10, 1_000_000));
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag("\"v1\"");
+        cache.put("a", new ResponseCache.CachedResponse(200, headers, new byte[0]), Duration.ZERO);
+        ResponseCache.Entry expired = cache.get("a");
+
+        // Act
+        cache.revalidated("a", expired, Duration.ofMinutes(1));
+
+        // Assert
+        assertFalse(expired.isFresh());
+        assertTrue(cache.get("a").isFresh());
+        assertEquals(1, cache.stats().getRevalidations());
+    }
+
+    @Test
+    public void testGetBodyAsString_usesSameCharsetRuleAsWebClient() {
+        // Arrange
+        HttpHeaders latin1 = new HttpHeaders();
+        latin1.setContentType(MediaType.parseMediaType("text/plain;charset=ISO-8859-1"));
+        HttpHeaders withoutCharset = new HttpHeaders();
+        withoutCharset.setContentType(MediaType.TEXT_PLAIN);
+
+        // Act
+        String declared = new ResponseCache.CachedResponse(200, latin1, "caf\u00e9".getBytes(StandardCharsets.ISO_8859_1)).getBodyAsString();
+        String undeclared = new ResponseCache.CachedResponse(200, withoutCharset, "caf\u00e9".getBytes(WebUtils.DEFAULT_RESPONSE_CHARSET))
+                .getBodyAsString();
+
+        // Assert
+        assertEquals("caf\u00e9", declared);
+        assertEquals("caf\u00e9", undeclared);
+        assertEquals(WebUtils.DEFAULT_RESPONSE_CHARSET, WebUtils.responseCharset(null));
+    }
+}
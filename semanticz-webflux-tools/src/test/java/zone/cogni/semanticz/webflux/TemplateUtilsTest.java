@@ -0,0 +1,142 @@
+package zone.cogni.semanticz.webflux;
+
+import org.junit.jupiter.api.Test;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.StringTemplateResolver;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TemplateUtilsTest {
+
+    private static final String CONSTRUCT = "PREFIX dct: <http://purl.org/dc/terms/>\n" +
+            "CONSTRUCT { ?s ?p ?o }\n" +
+            "WHERE {\n" +
+            "  VALUES ?s { <[[${uri}]]> }\n" +
+            "  ?s ?p ?o .\n" +
+            "  FILTER (?o != \"[(${uri})]\" && ?x < 5)\n" +
+            "}\n";
+
+    private static final List<String> VALUES = List.of(
+            "http://example.com/resource/1",
+            "http://example.com/search?a=1&b=<2>",
+            "it's \"quoted\" \u00e9 \u00fc \u6f22\u5b57",
+            "");
+
+    private static TemplateEngine engine(TemplateMode templateMode) {
+        StringTemplateResolver resolver = new StringTemplateResolver();
+        resolver.setTemplateMode(templateMode);
+        TemplateEngine templateEngine = new TemplateEngine();
+        templateEngine.setTemplateResolver(resolver);
+        return templateEngine;
+    }
+
+    private static String thymeleaf(TemplateEngine templateEngine, String template, Map<String, Object> params) {
+        return templateEngine.process(template, new Context(Locale.getDefault(), params));
+    }
+
+    @Test
+    public void testProcess_htmlMode_matchesThymeleaf() {
+        // Arrange
+        TemplateEngine templateEngine = engine(TemplateMode.HTML);
+
+        for (String value : VALUES) {
+            Map<String, Object> params = Map.of("uri", value);
+
+            // Act
+            String result = TemplateUtils.process(templateEngine, CONSTRUCT, params);
+
+            // Assert
+            assertEquals(thymeleaf(templateEngine, CONSTRUCT, params), result);
+        }
+    }
+
+    @Test
+    public void testProcess_textMode_matchesThymeleaf() {
+        // Arrange
+        TemplateEngine templateEngine = engine(TemplateMode.TEXT);
+
+        for (String value : VALUES) {
+            Map<String, Object> params = Map.of("uri", value);
+
+            // Act
+            String result = TemplateUtils.process(templateEngine, CONSTRUCT, params);
+
+            // Assert
+            assertEquals(thymeleaf(templateEngine, CONSTRUCT, params), result);
+        }
+    }
+
+    @Test
+    public void testProcess_multipleVariables_matchesThymeleaf() {
+        // Arrange
+        TemplateEngine templateEngine = engine(TemplateMode.HTML);
+        String template = "[[${a}]]-[[${b}]]-[(${a})][[${a}]]";
+        Map<String, Object> params = Map.of("a", "x<y", "b", "\"b\"");
+
+        // Act
+        String result = TemplateUtils.process(templateEngine, template, params);
+
+        // Assert
+        assertEquals(thymeleaf(templateEngine, template, params), result);
+    }
+
+    @Test
+    public void testProcess_noVariables_matchesThymeleaf() {
+        // Arrange
+        TemplateEngine templateEngine = engine(TemplateMode.HTML);
+        String template = "SELECT ?s WHERE { ?s a <http://www.w3.org/ns/dcat#Dataset> }";
+
+        // Act
+        String result = TemplateUtils.process(templateEngine, template, Map.of());
+
+        // Assert
+        assertEquals(thymeleaf(templateEngine, template, Map.of()), result);
+    }
+
+    @Test
+    public void testProcess_expressionTemplate_usesEngine() {
+        // Arrange
+        TemplateEngine templateEngine = engine(TemplateMode.TEXT);
+        String template = "[# th:each=\"item : ${items}\"][[${item}]],[/]";
+        Map<String, Object> params = Map.of("items", List.of("a", "b"));
+
+        // Act
+        String result = TemplateUtils.process(templateEngine, template, params);
+
+        // Assert
+        assertEquals("a,b,", result);
+    }
+
+    @Test
+    public void testProcess_nonStringValue_matchesThymeleaf() {
+        // Arrange
+        TemplateEngine templateEngine = engine(TemplateMode.HTML);
+        String template = "LIMIT [[${limit}]]";
+        Map<String, Object> params = Map.of("limit", 10);
+
+        // Act
+        String result = TemplateUtils.process(templateEngine, template, params);
+
+        // Assert
+        assertEquals("LIMIT 10", result);
+    }
+
+    @Test
+    public void testProcess_missingVariable_matchesThymeleaf() {
+        // Arrange
+        TemplateEngine templateEngine = engine(TemplateMode.HTML);
+        String template = "<[[${uri}]]>";
+
+        // Act
+        String result = TemplateUtils.process(templateEngine, template, Map.of());
+
+        // Assert
+        assertEquals(thymeleaf(templateEngine, template, Map.of()), result);
+    }
+}
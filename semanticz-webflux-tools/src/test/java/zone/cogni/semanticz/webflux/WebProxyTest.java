@@ -0,0 +1,226 @@
+package zone.cogni.semanticz.webflux;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WebProxyTest {
+
+    private static final String JSON = "application/json";
+    /**
+     * Above the 16 MB in-memory codec limit of the proxy.
+     */
+    private static final int LARGE_VALUES = 1_100_000;
+
+    private HttpServer server;
+    private WebProxy webProxy;
+
+    private static void respond(HttpExchange exchange, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static boolean causedByParseFailure(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if ("Failed to parse JSON response".equals(cause.getMessage())) return true;
+        }
+        return false;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/fast", exchange -> {
+            byte[] body = "fast".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.createContext("/streaming", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                for (int i = 0; i < 4; i++) {
+                    sleep(150);
+                    out.write(("part" + i).getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                }
+            }
+        });
+        server.createContext("/json", exchange -> respond(exchange, "{\"title\":\"Dataset\",\"count\":42,\"tags\":[\"a\",\"b\"]}"));
+        server.createContext("/json-split", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                // split inside a string, a field name and a number
+                for (String part : new String[]{"{\"title\":\"Da", "taset\",\"co", "unt\":4", "2}"}) {
+                    out.write(part.getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                    sleep(50);
+                }
+            }
+        });
+        server.createContext("/empty", exchange -> {
+            // a chunked response without chunks, the connection stays open for the next request
+            exchange.sendResponseHeaders(200, 0);
+            exchange.getResponseBody().close();
+        });
+        server.createContext("/invalid", exchange -> respond(exchange, "{\"title\": Dataset}"));
+        server.createContext("/large", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                byte[] value = "\"0123456789abcd\",".getBytes(StandardCharsets.UTF_8);
+                out.write("{\"values\":[".getBytes(StandardCharsets.UTF_8));
+                for (int i = 0; i < LARGE_VALUES; i++) {
+                    out.write(value);
+                }
+                out.write("\"last\"]}".getBytes(StandardCharsets.UTF_8));
+            }
+        });
+        server.createContext("/stalled", exchange -> {
+            sleep(1000);
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.start();
+
+        WebProxyConfig config = new WebProxyConfig();
+        config.setUrl("http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort());
+        config.setEndpoint("");
+        config.setReadTimeout(Duration.ofMillis(400));
+        config.setMaxConnections(1);
+        webProxy = new WebProxy(config);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        webProxy.close();
+        server.stop(0);
+    }
+
+    @Test
+    public void testProxy_streamingResponseLongerThanReadTimeoutSucceeds() {
+        // Act
+        String body = webProxy.proxy("/streaming", HttpMethod.GET, "text/plain", null, null);
+
+        // Assert
+        assertEquals("part0part1part2part3", body);
+    }
+
+    @Test
+    public void testProxy_stalledResponseOnPooledConnectionTimesOut() {
+        // Arrange
+        assertEquals("fast", webProxy.proxy("/fast", HttpMethod.GET, "text/plain", null, null));
+
+        // Act & Assert
+        assertThrows(RuntimeException.class, () -> webProxy.proxy("/stalled", HttpMethod.GET, "text/plain", null, null));
+    }
+
+    @Test
+    public void testClose_disposesConnectionPool() {
+        // Arrange
+        assertEquals("fast", webProxy.proxy("/fast", HttpMethod.GET, "text/plain", null, null));
+
+        // Act
+        webProxy.close();
+
+        // Assert
+        assertThrows(IllegalStateException.class, () -> webProxy.proxy("/fast", HttpMethod.GET, "text/plain", null, null));
+    }
+
+    @Test
+    public void testProxyJson_decodesBody() {
+        // Act
+        ResponseEntity<JsonNode> response = webProxy.proxyJson("/json", HttpMethod.GET, JSON, null, null);
+
+        // Assert
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals("Dataset", response.getBody().get("title").asText());
+        assertEquals(42, response.getBody().get("count").asInt());
+        assertEquals(2, response.getBody().get("tags").size());
+    }
+
+    @Test
+    public void testProxyJson_streaming_decodesBody() {
+        // Act
+        ResponseEntity<JsonNode> response = webProxy.proxyJson("/json", HttpMethod.GET, JSON, null, null, true);
+
+        // Assert
+        assertEquals("Dataset", response.getBody().get("title").asText());
+        assertEquals(42, response.getBody().get("count").asInt());
+        assertEquals(2, response.getBody().get("tags").size());
+    }
+
+    @Test
+    public void testProxyJson_streaming_decodesBodySplitAcrossBuffers() {
+        // Act
+        JsonNode body = webProxy.proxyJson("/json-split", HttpMethod.GET, JSON, null, null, true).getBody();
+
+        // Assert
+        assertEquals("Dataset", body.get("title").asText());
+        assertEquals(42, body.get("count").asInt());
+    }
+
+    @Test
+    public void testProxyJson_emptyBodyIsNull() {
+        // Act
+        ResponseEntity<JsonNode> joined = webProxy.proxyJson("/empty", HttpMethod.GET, JSON, null, null);
+        ResponseEntity<JsonNode> streamed = webProxy.proxyJson("/empty", HttpMethod.GET, JSON, null, null, true);
+
+        // Assert
+        assertEquals(200, joined.getStatusCodeValue());
+        assertNull(joined.getBody());
+        assertEquals(200, streamed.getStatusCodeValue());
+        assertNull(streamed.getBody());
+    }
+
+    @Test
+    public void testProxyJson_invalidJsonFails() {
+        // Act & Assert
+        RuntimeException joined = assertThrows(RuntimeException.class,
+                () -> webProxy.proxyJson("/invalid", HttpMethod.GET, JSON, null, null));
+        RuntimeException streamed = assertThrows(RuntimeException.class,
+                () -> webProxy.proxyJson("/invalid", HttpMethod.GET, JSON, null, null, true));
+        assertTrue(causedByParseFailure(joined), joined.toString());
+        assertTrue(causedByParseFailure(streamed), streamed.toString());
+    }
+
+    @Test
+    public void testProxyJson_streaming_acceptsBodyAboveCodecLimit() {
+        // Arrange
+        assertThrows(RuntimeException.class, () -> webProxy.proxyJson("/large", HttpMethod.GET, JSON, null, null));
+
+        // Act
+        JsonNode body = webProxy.proxyJson("/large", HttpMethod.GET, JSON, null, null, true).getBody();
+
+        // Assert
+        assertEquals(LARGE_VALUES + 1, body.get("values").size());
+        assertEquals("last", body.get("values").get(LARGE_VALUES).asText());
+    }
+}